@@ -21,8 +21,10 @@ import static java.util.logging.Level.SEVERE;
 import static java.util.logging.Level.WARNING;
 
 import com.dremio.support.diagnostics.cmds.IOStat;
+import com.dremio.support.diagnostics.cmds.ProfileCorpus;
 import com.dremio.support.diagnostics.cmds.ProfileJson;
 import com.dremio.support.diagnostics.cmds.QueriesJson;
+import com.dremio.support.diagnostics.cmds.Replay;
 import com.dremio.support.diagnostics.cmds.Repro;
 import com.dremio.support.diagnostics.cmds.Server;
 import com.dremio.support.diagnostics.cmds.Top;
@@ -43,8 +45,10 @@ import picocli.CommandLine.ScopeType;
     subcommands = {
       CommandLine.HelpCommand.class,
       ProfileJson.class,
+      ProfileCorpus.class,
       ProfileJSONSimplified.Cli.class,
       QueriesJson.class,
+      Replay.class,
       Repro.class,
       Server.class,
       Top.class,
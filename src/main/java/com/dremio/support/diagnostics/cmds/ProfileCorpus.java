@@ -0,0 +1,93 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.cmds;
+
+import com.dremio.support.diagnostics.profilejson.corpus.CorpusScanner;
+import com.dremio.support.diagnostics.profilejson.corpus.FactCsvWriter;
+import com.dremio.support.diagnostics.profilejson.corpus.FleetSummary;
+import com.dremio.support.diagnostics.profilejson.corpus.HtmlFleetReport;
+import com.dremio.support.diagnostics.profilejson.corpus.ProfileFact;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+import picocli.CommandLine;
+
+/**
+ * ProfileCorpus is the picocli command binding for summarizing a large number of profiles at once,
+ * every profile is reduced to a row of facts as it is read so memory does not grow with the
+ * number of profiles.
+ */
+@CommandLine.Command(
+    name = "profile-corpus",
+    description = "summarize a directory or archive of many profile.json files",
+    footer =
+        "\n"
+            + "#### EXAMPLES\n"
+            + "~~~~~~~~~~~~~\n\n"
+            + "##### Summarize every profile in a directory:\n\n"
+            + "\tdqd profile-corpus ./profiles/ corpus.html\n\n"
+            + "##### Summarize a tarball of profiles and keep one csv row per profile:\n\n"
+            + "\tdqd profile-corpus profiles.tgz corpus.html --facts profiles.csv\n\n",
+    subcommands = CommandLine.HelpCommand.class)
+public class ProfileCorpus implements Callable<Integer> {
+  private static final Logger LOGGER = Logger.getLogger(ProfileCorpus.class.getName());
+
+  @CommandLine.Parameters(
+      index = "0",
+      description =
+          "directory, .zip, .tar, .tgz or .tar.gz holding profile.json files or zipped profiles,"
+              + " directories and tarballs are searched recursively")
+  private File input;
+
+  @CommandLine.Parameters(index = "1", description = "file path to the html report to write")
+  private File outputFile;
+
+  @CommandLine.Option(
+      names = {"--facts"},
+      description = "also write one csv row per profile to this file")
+  private File factsFile;
+
+  @Override
+  public Integer call() throws IOException, InterruptedException {
+    if (!input.exists()) {
+      System.out.println("input %s does not exist".formatted(input));
+      return 1;
+    }
+    final FleetSummary summary = new FleetSummary();
+    try (Writer factsWriter =
+            factsFile == null
+                ? null
+                : Files.newBufferedWriter(factsFile.toPath(), StandardCharsets.UTF_8);
+        FactCsvWriter csv = factsWriter == null ? null : new FactCsvWriter(factsWriter)) {
+      final Consumer<ProfileFact> facts = csv == null ? summary : summary.andThen(csv);
+      final long start = System.currentTimeMillis();
+      final long read = new CorpusScanner(facts, summary::addFailure).scan(input.toPath());
+      LOGGER.info(
+          () ->
+              "read %d profiles with %d failures in %d ms"
+                  .formatted(read, summary.getFailureCount(), System.currentTimeMillis() - start));
+    }
+    Files.writeString(
+        outputFile.toPath(), new HtmlFleetReport(summary).getText(), StandardCharsets.UTF_8);
+    System.out.println(
+        "%d profiles summarized, report written to %s"
+            .formatted(summary.getProfiles(), outputFile));
+    return 0;
+  }
+}
@@ -13,6 +13,7 @@
  */
 package com.dremio.support.diagnostics.cmds;
 
+import com.dremio.support.diagnostics.profilejson.BatchExec;
 import com.dremio.support.diagnostics.profilejson.Exec;
 import com.dremio.support.diagnostics.profilejson.ProfileDifferenceReport;
 import com.dremio.support.diagnostics.profilejson.singlefile.SingleFileExec;
@@ -21,6 +22,8 @@ import com.dremio.support.diagnostics.shared.PathAndStream;
 import com.dremio.support.diagnostics.shared.ProfileProvider;
 import java.io.File;
 import java.io.FileInputStream;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Callable;
 import picocli.CommandLine;
 import picocli.CommandLine.Command;
@@ -47,6 +50,10 @@ import picocli.CommandLine.Option;
 
 \tdqd profile-json 1st.zip -c 2nd.zip --show-plan-details
 
+##### Compare many runs of the same query against the first one
+
+\tdqd profile-json baseline.zip -c run2.zip -c run3.zip -c run4.zip
+
 """,
     subcommands = CommandLine.HelpCommand.class)
 public class ProfileJson implements Callable<Integer> {
@@ -60,14 +67,16 @@ public class ProfileJson implements Callable<Integer> {
 
   /**
    * optional but when provided this will compare the file against itself in a report that looks for
-   * differences between two profiles without providing any further analysis
+   * differences between two profiles without providing any further analysis. When more than one is
+   * provided every file is compared against the first file in a batch report
    */
   @Option(
       names = {"-c", "--comparison-file"},
       description =
           "A file to compare against, when a second file is added this will provide an analysis"
-              + " against the changes")
-  private File fileToCompare;
+              + " against the changes. Repeat it to compare many runs of the same query against"
+              + " the first file")
+  private List<File> filesToCompare;
 
   @Option(
       names = {"-d", "--show-plan-details"},
@@ -84,15 +93,18 @@ public class ProfileJson implements Callable<Integer> {
    */
   @Override
   public Integer call() throws Exception {
-
+    if (filesToCompare != null && filesToCompare.size() > 1) {
+      return compareBatch();
+    }
     try (FileInputStream fs = new FileInputStream(this.file)) {
       ProfileProvider profileProvider =
-          ArgSetup.getProfileProvider(new PathAndStream(this.file.toPath(), fs));
-      if (fileToCompare != null) {
-        try (FileInputStream fsToCompare = new FileInputStream(this.fileToCompare)) {
+          ArgSetup.getLocalProfileProvider(new PathAndStream(this.file.toPath(), fs));
+      if (filesToCompare != null && !filesToCompare.isEmpty()) {
+        final File fileToCompare = filesToCompare.get(0);
+        try (FileInputStream fsToCompare = new FileInputStream(fileToCompare)) {
           ProfileProvider profileToCompareProvider =
-              ArgSetup.getProfileProvider(
-                  new PathAndStream(this.fileToCompare.toPath(), fsToCompare));
+              ArgSetup.getLocalProfileProvider(
+                  new PathAndStream(fileToCompare.toPath(), fsToCompare));
           Exec exec =
               new Exec(new ProfileDifferenceReport(), profileProvider, profileToCompareProvider);
           exec.run();
@@ -105,4 +117,25 @@ public class ProfileJson implements Callable<Integer> {
     }
     return 0;
   }
+
+  private int compareBatch() throws Exception {
+    final List<File> files = new ArrayList<>();
+    files.add(this.file);
+    files.addAll(this.filesToCompare);
+    final List<FileInputStream> streams = new ArrayList<>();
+    try {
+      final List<ProfileProvider> providers = new ArrayList<>();
+      for (final File f : files) {
+        final FileInputStream fs = new FileInputStream(f);
+        streams.add(fs);
+        providers.add(ArgSetup.getLocalProfileProvider(new PathAndStream(f.toPath(), fs)));
+      }
+      new BatchExec(providers).run();
+    } finally {
+      for (final FileInputStream fs : streams) {
+        fs.close();
+      }
+    }
+    return 0;
+  }
 }
@@ -15,16 +15,27 @@ package com.dremio.support.diagnostics.cmds;
 
 import com.dremio.support.diagnostics.queriesjson.Exec;
 import com.dremio.support.diagnostics.queriesjson.QueriesJsonFileParser;
+import com.dremio.support.diagnostics.queriesjson.QueriesJsonFiles;
+import com.dremio.support.diagnostics.queriesjson.QueriesJsonFollower;
 import com.dremio.support.diagnostics.queriesjson.QueriesJsonHtmlReport;
+import com.dremio.support.diagnostics.queriesjson.QueryDictionaries;
+import com.dremio.support.diagnostics.queriesjson.QueryTextStore;
 import com.dremio.support.diagnostics.queriesjson.ReadArchive;
 import com.dremio.support.diagnostics.queriesjson.SearchedFile;
 import com.dremio.support.diagnostics.queriesjson.filters.DateRangeQueryFilter;
+import com.dremio.support.diagnostics.queriesjson.filters.DuplicateQueryFilter;
+import com.dremio.support.diagnostics.queriesjson.filters.MinDurationQueryFilter;
+import com.dremio.support.diagnostics.queriesjson.filters.QueryFilterChain;
+import com.dremio.support.diagnostics.queriesjson.filters.QueryTextRegexFilter;
+import com.dremio.support.diagnostics.queriesjson.filters.ValueQueryFilter;
 import com.dremio.support.diagnostics.queriesjson.reporters.*;
-import com.dremio.support.diagnostics.shared.Reporter;
+import com.dremio.support.diagnostics.shared.JobMetrics;
 import com.dremio.support.diagnostics.shared.StreamWriterReporter;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalTime;
@@ -32,7 +43,10 @@ import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import picocli.CommandLine;
 
 /**
@@ -50,7 +64,10 @@ import picocli.CommandLine;
             + "##### Generate summary analysis of one or several queries.json in the CLI:\n\n"
             + "\tdqd queries-json ./queries.json output.html\n\n"
             + "\tdqd queries-json ./queries.zip output.html\n\n"
-            + "\tdqd queries-json ./queriesjsons/ output.html\n\n",
+            + "\tdqd queries-json ./queriesjsons/ output.html\n\n"
+            + "\tdqd queries-json './logs/*/queries*.json.gz,./extra/queries.json' output.html\n\n"
+            + "##### Keep the report up to date while the coordinator writes queries.json:\n\n"
+            + "\tdqd queries-json /opt/dremio/log/ output.html --follow --refresh-seconds 60\n\n",
     subcommands = CommandLine.HelpCommand.class)
 public class QueriesJson implements Callable<Integer> {
 
@@ -69,8 +86,9 @@ public class QueriesJson implements Callable<Integer> {
   @CommandLine.Parameters(
       index = "0",
       description =
-          "file path to analyze, can be a directory where all *.json files will be analyzed."
-              + "can be a list separated by commas, and finally can just be a single file")
+          "file path to analyze, can be a directory that is searched recursively for queries*.json,"
+              + " queries*.gz and queries*.bzip2 files, a glob such as 'logs/*/queries*.json.gz',"
+              + " a list of those separated by commas, an archive or just a single file")
   private File file;
 
   // the file parameter that comes in as the second non-command argument (not
@@ -100,6 +118,42 @@ public class QueriesJson implements Callable<Integer> {
       showDefaultValue = CommandLine.Help.Visibility.ALWAYS)
   private LocalDate end;
 
+  @CommandLine.Option(
+      names = {"--user"},
+      split = ",",
+      description = "only include queries run by these users, can be repeated or comma separated")
+  private List<String> users = new ArrayList<>();
+
+  @CommandLine.Option(
+      names = {"--queue"},
+      split = ",",
+      description = "only include queries from these queues, can be repeated or comma separated")
+  private List<String> queues = new ArrayList<>();
+
+  @CommandLine.Option(
+      names = {"--outcome"},
+      split = ",",
+      description = "only include queries with these outcomes, for example FAILED,CANCELED")
+  private List<String> outcomes = new ArrayList<>();
+
+  @CommandLine.Option(
+      names = {"--engine"},
+      split = ",",
+      description = "only include queries run on these engines, can be repeated or comma separated")
+  private List<String> engines = new ArrayList<>();
+
+  @CommandLine.Option(
+      names = {"--min-duration"},
+      defaultValue = "0",
+      description = "only include queries that took at least this many milliseconds")
+  private long minDuration;
+
+  @CommandLine.Option(
+      names = {"--query-text"},
+      description =
+          "only include queries where the query text matches this regex, case insensitive")
+  private String queryTextRegex;
+
   @CommandLine.Option(
       names = {"--limit"},
       defaultValue = "1",
@@ -107,6 +161,55 @@ public class QueriesJson implements Callable<Integer> {
       showDefaultValue = CommandLine.Help.Visibility.ALWAYS)
   private Integer limit;
 
+  @CommandLine.Option(
+      names = {"--timings"},
+      description = "print a per stage breakdown of where the time was spent")
+  private boolean timings;
+
+  @CommandLine.Option(
+      names = {"--lazy-query-text"},
+      description =
+          "only keep the file offset of each query in memory and read the query text back when"
+              + " the report is rendered. Uses much less heap when queries are large, compressed"
+              + " files are spooled uncompressed to the temp directory while parsing")
+  private boolean lazyQueryText;
+
+  @CommandLine.Option(
+      names = {"--dedup"},
+      description =
+          "drop rows whose queryId was already seen, use when the queries.json of several"
+              + " coordinators or overlapping rotations are read together")
+  private boolean dedup;
+
+  @CommandLine.Option(
+      names = {"--dedup-memory-mb"},
+      defaultValue = "256",
+      description =
+          "memory for the queryIds kept by --dedup, once used the ids are spilled to sorted files"
+              + " in the temp directory and the check stays exact",
+      showDefaultValue = CommandLine.Help.Visibility.ALWAYS)
+  private long dedupMemoryMb;
+
+  @CommandLine.Option(
+      names = {"--follow"},
+      description =
+          "keep reading a queries.json that is still being written, or the queries.json inside"
+              + " the given directory, and rewrite the report from the aggregates every"
+              + " --refresh-seconds until stopped. Rotation of the file is followed")
+  private boolean follow;
+
+  @CommandLine.Option(
+      names = {"--refresh-seconds"},
+      defaultValue = "30",
+      description = "how often the report is rewritten when using --follow",
+      showDefaultValue = CommandLine.Help.Visibility.ALWAYS)
+  private long refreshSeconds;
+
+  // how long to wait between reads of a followed file when nothing new was written
+  private static final long FOLLOW_POLL_MILLIS = 1000;
+  // how long stopping waits for the last report of a followed file
+  private static final long FOLLOW_STOP_SECONDS = 30;
+
   /**
    * call() takes the values from the command line flags and just passes those
    * values to the
@@ -118,18 +221,47 @@ public class QueriesJson implements Callable<Integer> {
    */
   @Override
   public Integer call() throws IOException, InterruptedException, ExecutionException {
-    try (var outputStream = Files.newOutputStream(outputFile.toPath())) {
+    if (follow && lazyQueryText) {
+      System.out.println("--lazy-query-text is not supported with --follow");
+      return 1;
+    }
+    try (var textStore = lazyQueryText ? QueryTextStore.lazy() : QueryTextStore.inMemory();
+        var duplicateFilter =
+            dedup ? new DuplicateQueryFilter(dedupMemoryMb * 1024 * 1024) : null) {
       var startMs = start.toEpochSecond(LocalTime.of(0, 0, 0, 0), ZoneOffset.UTC) * 1000;
       var endMs = end.toEpochSecond(LocalTime.of(0, 0, 0, 0), ZoneOffset.UTC) * 1000;
-      var filter = new DateRangeQueryFilter(startMs, endMs);
+      var filter = new QueryFilterChain(new DateRangeQueryFilter(startMs, endMs));
+      if (minDuration > 0) {
+        filter.and(new MinDurationQueryFilter(minDuration));
+      }
+      if (!users.isEmpty()) {
+        filter.and(ValueQueryFilter.users(users));
+      }
+      if (!queues.isEmpty()) {
+        filter.and(ValueQueryFilter.queues(queues));
+      }
+      if (!outcomes.isEmpty()) {
+        filter.and(ValueQueryFilter.outcomes(outcomes));
+      }
+      if (!engines.isEmpty()) {
+        filter.and(ValueQueryFilter.engines(engines));
+      }
+      if (queryTextRegex != null && !queryTextRegex.isBlank()) {
+        filter.and(new QueryTextRegexFilter(queryTextRegex));
+      }
+      // last so only the ids of rows that pass every other filter are kept
+      if (duplicateFilter != null) {
+        filter.and(duplicateFilter);
+      }
+      final JobMetrics metrics = new JobMetrics("queries-json");
+      final QueryDictionaries dictionaries = new QueryDictionaries();
 
-      final Reporter reporter = new StreamWriterReporter(outputStream);
       var reporters = new ArrayList<QueryReporter>();
       final ConcurrentQueriesReporter concurrentQueriesReporter =
           new ConcurrentQueriesReporter(this.window);
       reporters.add(concurrentQueriesReporter);
       final ConcurrentQueueReporter concurrentQueueReporter =
-          new ConcurrentQueueReporter(this.window);
+          new ConcurrentQueueReporter(this.window, dictionaries);
       reporters.add(concurrentQueueReporter);
       final ConcurrentSchemaOpsReporter concurrentSchemaOpsReporter =
           new ConcurrentSchemaOpsReporter(this.window);
@@ -141,12 +273,17 @@ public class QueriesJson implements Callable<Integer> {
       reporters.add(maxCPUQueriesReporter);
       final MaxTimeReporter maxTimeReporter = new MaxTimeReporter(this.window);
       reporters.add(maxTimeReporter);
+      final LatencyPercentilesReporter latencyPercentilesReporter =
+          new LatencyPercentilesReporter(this.window);
+      reporters.add(latencyPercentilesReporter);
       final MemoryAllocatedReporter memoryAllocatedReporter =
           new MemoryAllocatedReporter(this.window);
       reporters.add(memoryAllocatedReporter);
-      final RequestCounterReporter requestCounterReporter = new RequestCounterReporter();
+      final RequestCounterReporter requestCounterReporter =
+          new RequestCounterReporter(dictionaries);
       reporters.add(requestCounterReporter);
-      final RequestsByQueueReporter requestsByQueueReporter = new RequestsByQueueReporter();
+      final RequestsByQueueReporter requestsByQueueReporter =
+          new RequestsByQueueReporter(dictionaries);
       reporters.add(requestsByQueueReporter);
       final SlowestMetadataQueriesReporter slowestMetadataQueriesReporter =
           new SlowestMetadataQueriesReporter(this.limit);
@@ -160,11 +297,55 @@ public class QueriesJson implements Callable<Integer> {
       reporters.add(totalQueriesReporter);
       final FailedQueriesReporter failedQueriesReporter = new FailedQueriesReporter(limit);
       reporters.add(failedQueriesReporter);
+      final QueryShapesReporter queryShapesReporter = new QueryShapesReporter();
+      reporters.add(queryShapesReporter);
 
-      var archive = new ReadArchive(filter);
-      var cpus = Runtime.getRuntime().availableProcessors() / 2;
+      final Function<List<SearchedFile>, QueriesJsonHtmlReport> report =
+          filesSearched ->
+              new QueriesJsonHtmlReport(
+                  filesSearched,
+                  Instant.ofEpochMilli(startMs),
+                  Instant.ofEpochMilli(endMs),
+                  this.window,
+                  concurrentQueriesReporter,
+                  concurrentQueueReporter,
+                  concurrentSchemaOpsReporter,
+                  maxMemoryQueriesReporter,
+                  maxCPUQueriesReporter,
+                  maxTimeReporter,
+                  latencyPercentilesReporter,
+                  memoryAllocatedReporter,
+                  requestCounterReporter,
+                  requestsByQueueReporter,
+                  slowestMetadataQueriesReporter,
+                  slowestPlanningQueriesReporter,
+                  startFinishReporter,
+                  totalQueriesReporter,
+                  failedQueriesReporter,
+                  queryShapesReporter,
+                  limit);
+      if (follow) {
+        final Path followed =
+            file.isDirectory() ? file.toPath().resolve("queries.json") : file.toPath();
+        follow(
+            followed,
+            new QueriesJsonFollower(followed, reporters, filter, metrics, dictionaries),
+            report,
+            metrics);
+        return 0;
+      }
+      var archive = new ReadArchive(filter, metrics, dictionaries, textStore);
+      var cpus = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
       List<SearchedFile> filesSearched = new ArrayList<SearchedFile>();
-      if (file.toString().endsWith(".tgz") || file.toString().endsWith(".tar.gz")) {
+      if (QueriesJsonFiles.isMultiFile(file.toString())) {
+        final List<Path> found = QueriesJsonFiles.find(file.toString());
+        if (found.isEmpty()) {
+          System.out.println("no queries.json files found in " + file);
+          return 1;
+        }
+        System.out.println("parsing %d files".formatted(found.size()));
+        filesSearched = archive.readFiles(found, reporters, cpus).stream().toList();
+      } else if (file.toString().endsWith(".tgz") || file.toString().endsWith(".tar.gz")) {
         filesSearched = archive.readTarGz(file.toString(), reporters, cpus).stream().toList();
       } else if (file.toString().endsWith(".tar.xz")) {
         filesSearched = archive.readTarXz(file.toString(), reporters, cpus).stream().toList();
@@ -184,7 +365,13 @@ public class QueriesJson implements Callable<Integer> {
         try (var is = Files.newInputStream(file.toPath())) {
           var searchedFile =
               QueriesJsonFileParser.parseFile(
-                  file.toString(), is, reporters, new DateRangeQueryFilter(startMs, endMs));
+                  file.toString(),
+                  is,
+                  reporters,
+                  filter,
+                  metrics,
+                  dictionaries,
+                  textStore.openSource(file.toPath()));
           filesSearched.add(searchedFile);
         }
       } else {
@@ -195,30 +382,100 @@ public class QueriesJson implements Callable<Integer> {
                 + " tar.xz, tar.bzip2, .bzip2, .gz, .zip and .json");
         return 1;
       }
-      new Exec()
-          .run(
-              new QueriesJsonHtmlReport(
-                  filesSearched,
-                  Instant.ofEpochMilli(startMs),
-                  Instant.ofEpochMilli(endMs),
-                  this.window,
-                  concurrentQueriesReporter,
-                  concurrentQueueReporter,
-                  concurrentSchemaOpsReporter,
-                  maxMemoryQueriesReporter,
-                  maxCPUQueriesReporter,
-                  maxTimeReporter,
-                  memoryAllocatedReporter,
-                  requestCounterReporter,
-                  requestsByQueueReporter,
-                  slowestMetadataQueriesReporter,
-                  slowestPlanningQueriesReporter,
-                  startFinishReporter,
-                  totalQueriesReporter,
-                  failedQueriesReporter,
-                  limit),
-              reporter);
+      try (var outputStream = Files.newOutputStream(outputFile.toPath())) {
+        new Exec()
+            .run(report.apply(filesSearched), new StreamWriterReporter(outputStream), metrics);
+      }
+      if (duplicateFilter != null) {
+        System.out.println(
+            "%d duplicate queries dropped (%d query ids spilled to disk)"
+                .formatted(duplicateFilter.getDuplicates(), duplicateFilter.getSpilled()));
+      }
+      if (timings) {
+        System.out.print(metrics.getSummary());
+      }
       return 0;
     }
   }
+
+  /**
+   * parses what is appended to the file until the process is stopped. A shutdown hook asks the loop
+   * to stop and waits for it to write the report one last time, so ctrl-c leaves a complete and
+   * current report behind. The report is written to a temp file and moved over the output so a
+   * browser never sees half of it
+   */
+  private void follow(
+      final Path followed,
+      final QueriesJsonFollower follower,
+      final Function<List<SearchedFile>, QueriesJsonHtmlReport> report,
+      final JobMetrics metrics)
+      throws IOException, InterruptedException {
+    final Path output = outputFile.toPath().toAbsolutePath();
+    final long refreshNanos = TimeUnit.SECONDS.toNanos(refreshSeconds);
+    final CountDownLatch stopRequested = new CountDownLatch(1);
+    final CountDownLatch stopped = new CountDownLatch(1);
+    final Thread hook =
+        new Thread(
+            () -> {
+              stopRequested.countDown();
+              try {
+                // nothing is printed, stdout may already be closed by the logging shutdown
+                stopped.await(FOLLOW_STOP_SECONDS, TimeUnit.SECONDS);
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              }
+            },
+            "queries-json-follow-stop");
+    Runtime.getRuntime().addShutdownHook(hook);
+    System.out.println(
+        "following %s, %s is rewritten every %d seconds, stop with ctrl-c"
+            .formatted(followed, output, refreshSeconds));
+    try (follower) {
+      long nextRefresh = System.nanoTime();
+      while (stopRequested.getCount() > 0) {
+        final long rows = follower.poll();
+        if (System.nanoTime() - nextRefresh >= 0) {
+          writeFollowedReport(output, follower, report, metrics);
+          nextRefresh = System.nanoTime() + refreshNanos;
+        }
+        if (rows == 0) {
+          stopRequested.await(FOLLOW_POLL_MILLIS, TimeUnit.MILLISECONDS);
+        }
+      }
+      follower.poll();
+      writeFollowedReport(output, follower, report, metrics);
+    } finally {
+      stopped.countDown();
+      try {
+        Runtime.getRuntime().removeShutdownHook(hook);
+      } catch (IllegalStateException e) {
+        // already shutting down, the hook is what stopped the loop
+      }
+    }
+  }
+
+  private void writeFollowedReport(
+      final Path output,
+      final QueriesJsonFollower follower,
+      final Function<List<SearchedFile>, QueriesJsonHtmlReport> report,
+      final JobMetrics metrics)
+      throws IOException {
+    final Path tmp = Files.createTempFile(output.getParent(), ".queries", ".html");
+    try {
+      try (var outputStream = Files.newOutputStream(tmp)) {
+        new Exec()
+            .run(
+                report.apply(List.of(follower.getSearchedFile())),
+                new StreamWriterReporter(outputStream),
+                metrics);
+      }
+      Files.move(tmp, output, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      // only still there when writing or moving failed
+      Files.deleteIfExists(tmp);
+    }
+    if (timings) {
+      System.out.print(metrics.getSummary());
+    }
+  }
 }
@@ -0,0 +1,225 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.cmds;
+
+import com.dremio.support.diagnostics.queriesjson.QueriesJsonFileParser;
+import com.dremio.support.diagnostics.queriesjson.QueryDictionaries;
+import com.dremio.support.diagnostics.queriesjson.QueryTextStore;
+import com.dremio.support.diagnostics.queriesjson.ReadArchive;
+import com.dremio.support.diagnostics.queriesjson.filters.DateRangeQueryFilter;
+import com.dremio.support.diagnostics.queriesjson.filters.QueryFilterChain;
+import com.dremio.support.diagnostics.queriesjson.filters.ValueQueryFilter;
+import com.dremio.support.diagnostics.queriesjson.reporters.QueryReporter;
+import com.dremio.support.diagnostics.replay.QueueReplayStats;
+import com.dremio.support.diagnostics.replay.WorkloadReplayer;
+import com.dremio.support.diagnostics.repro.SchemaDeserializer;
+import com.dremio.support.diagnostics.repro.apiout.DremioV3Api;
+import com.dremio.support.diagnostics.repro.apiout.HttpAuth;
+import com.dremio.support.diagnostics.repro.apiout.HttpClientApiCall;
+import com.dremio.support.diagnostics.shared.JobMetrics;
+import java.io.File;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import picocli.CommandLine;
+import picocli.CommandLine.Help.Visibility;
+
+/**
+ * Replay is the picocli command binding for replaying the queries of a queries.json against a
+ * cluster, the work itself is done by WorkloadReplayer.
+ */
+@CommandLine.Command(
+    name = "replay",
+    description =
+        "replay the queries of a queries.json against a dremio cluster at their original pace and"
+            + " report the latency per queue",
+    footer =
+        "\n"
+            + "#### EXAMPLES\n"
+            + "~~~~~~~~~~~~~\n\n"
+            + "##### Replay a day of queries ten times faster with at most 5 queries per queue:\n\n"
+            + "\tdqd replay ./queries.json --host http://staging:9047 -s 2024-01-01 -e 2024-01-02"
+            + " --speedup 10 --max-concurrency-per-queue 5\n\n",
+    subcommands = CommandLine.HelpCommand.class)
+public class Replay implements Callable<Integer> {
+  private static final Logger logger = Logger.getLogger(Replay.class.getName());
+
+  @CommandLine.Parameters(
+      index = "0",
+      description = "queries.json to replay, either plain or gzipped (.gz)")
+  private File file;
+
+  @CommandLine.Option(
+      names = {"--host"},
+      defaultValue = "http://localhost:9047",
+      description = "the http url of the dremio server the queries are submitted to")
+  private String dremioHost;
+
+  @CommandLine.Option(
+      names = {"--user", "-u"},
+      defaultValue = "dremio",
+      description = "the user used to submit the queries to the rest api")
+  private String dremioUser;
+
+  @CommandLine.Option(
+      names = {"--password", "-p"},
+      interactive = false,
+      defaultValue = "dremio123",
+      description = "the password of the user used to submit the queries to the rest api")
+  private String dremioPassword;
+
+  @CommandLine.Option(
+      names = {"--skip-ssl-verification"},
+      description = "whether to skip ssl verification for queries or not",
+      defaultValue = "false")
+  private boolean skipSSLVerification;
+
+  @CommandLine.Option(
+      names = {"-s", "--start"},
+      defaultValue = "2000-01-01",
+      description = "only replay queries that start after this value",
+      showDefaultValue = Visibility.ALWAYS)
+  private LocalDate start;
+
+  @CommandLine.Option(
+      names = {"-e", "--end"},
+      defaultValue = "2070-01-01",
+      description = "only replay queries that start before this value",
+      showDefaultValue = Visibility.ALWAYS)
+  private LocalDate end;
+
+  @CommandLine.Option(
+      names = {"--queue"},
+      split = ",",
+      description = "only replay queries from these queues, can be repeated or comma separated")
+  private List<String> queues = new ArrayList<>();
+
+  @CommandLine.Option(
+      names = {"--speedup"},
+      defaultValue = "1",
+      description =
+          "how much faster than the original the queries are submitted, 2 halves the time between"
+              + " submissions",
+      showDefaultValue = Visibility.ALWAYS)
+  private double speedup;
+
+  @CommandLine.Option(
+      names = {"--max-concurrency-per-queue"},
+      defaultValue = "10",
+      description = "the most queries of one queue in flight at once, the rest wait their turn",
+      showDefaultValue = Visibility.ALWAYS)
+  private int maxConcurrencyPerQueue;
+
+  @CommandLine.Option(
+      names = {"--reorder-window-seconds"},
+      defaultValue = "60",
+      description =
+          "queries.json is written as queries finish, queries that ran for less than this are put"
+              + " back in start order before they are replayed",
+      showDefaultValue = Visibility.ALWAYS)
+  private long reorderWindowSeconds;
+
+  @CommandLine.Option(
+      names = {"-t", "--timeout-seconds"},
+      defaultValue = "600",
+      description = "how long to wait for one replayed query before counting it as failed",
+      showDefaultValue = Visibility.ALWAYS)
+  private int timeoutSeconds;
+
+  @Override
+  public Integer call() {
+    final String name = file.toString();
+    if (!name.endsWith(".json") && !name.endsWith(".gz")) {
+      System.out.println(
+          "unknown extension for file " + name + ": only supported extensions are .gz and .json");
+      return 1;
+    }
+    try (var textStore = QueryTextStore.inMemory()) {
+      final long startMs = start.toEpochSecond(LocalTime.of(0, 0, 0, 0), ZoneOffset.UTC) * 1000;
+      final long endMs = end.toEpochSecond(LocalTime.of(0, 0, 0, 0), ZoneOffset.UTC) * 1000;
+      final QueryFilterChain filter =
+          new QueryFilterChain(new DateRangeQueryFilter(startMs, endMs));
+      if (!queues.isEmpty()) {
+        filter.and(ValueQueryFilter.queues(queues));
+      }
+      final DremioV3Api api =
+          new DremioV3Api(
+              new HttpClientApiCall(skipSSLVerification),
+              new HttpAuth(dremioUser, dremioPassword),
+              dremioHost,
+              new SchemaDeserializer.TmpMaker(),
+              timeoutSeconds);
+      final WorkloadReplayer replayer =
+          new WorkloadReplayer(
+              api,
+              speedup,
+              maxConcurrencyPerQueue,
+              TimeUnit.SECONDS.toMillis(reorderWindowSeconds));
+      final List<QueryReporter> reporters = Collections.singletonList(replayer);
+      final JobMetrics metrics = new JobMetrics("replay");
+      final QueryDictionaries dictionaries = new QueryDictionaries();
+      if (name.endsWith(".gz")) {
+        new ReadArchive(filter, metrics, dictionaries, textStore)
+            .parseGzip(name, file.toPath(), reporters);
+      } else {
+        QueriesJsonFileParser.parseFile(
+            name,
+            Files.newInputStream(file.toPath()),
+            reporters,
+            filter,
+            metrics,
+            dictionaries,
+            textStore.openSource(file.toPath()));
+      }
+      final List<QueueReplayStats> results = replayer.finish();
+      System.out.print(summary(results, replayer.getSkipped()));
+      return 0;
+    } catch (final Exception e) {
+      logger.severe(() -> "unable to replay %s: %s".formatted(name, e.getMessage()));
+      logger.log(Level.FINE, e, () -> "full exception");
+      return 1;
+    }
+  }
+
+  private static String summary(final List<QueueReplayStats> results, final long skipped) {
+    final StringBuilder builder = new StringBuilder();
+    builder.append(
+        "%-30s %10s %10s %10s %12s %12s %12s %12s%n"
+            .formatted(
+                "queue", "succeeded", "failed", "late", "p50 ms", "p90 ms", "p99 ms", "max ms"));
+    for (final QueueReplayStats stats : results) {
+      builder.append(
+          "%-30s %10d %10d %10d %12.0f %12.0f %12.0f %12.0f%n"
+              .formatted(
+                  stats.getQueueName(),
+                  stats.getSucceeded(),
+                  stats.getFailed(),
+                  stats.getLate(),
+                  stats.getLatencyMillis(0.5),
+                  stats.getLatencyMillis(0.9),
+                  stats.getLatencyMillis(0.99),
+                  stats.getLatencyMillis(1.0)));
+    }
+    builder.append("%d internal or empty queries were not replayed%n".formatted(skipped));
+    return builder.toString();
+  }
+}
@@ -16,6 +16,7 @@ package com.dremio.support.diagnostics.cmds;
 import com.dremio.support.diagnostics.repro.ArgSetup;
 import com.dremio.support.diagnostics.repro.Exec;
 import com.dremio.support.diagnostics.repro.Exec.ResponseMessage;
+import com.dremio.support.diagnostics.repro.SourceDirectoryMaker;
 import com.dremio.support.diagnostics.repro.SqlOutput;
 import com.dremio.support.diagnostics.repro.parse.ColumnDefYaml;
 import com.dremio.support.diagnostics.repro.parse.ReproProfileParserImpl;
@@ -82,6 +83,14 @@ public class Repro implements Callable<Integer> {
     }
   }
 
+  static class ValidPdsFormats extends ArrayList<String> {
+    private static final long serialVersionUID = 202610181200L;
+
+    ValidPdsFormats() {
+      super(Arrays.asList("SQL", "ARROW"));
+    }
+  }
+
   private static final Logger logger = Logger.getLogger(Repro.class.getName());
 
   // the file parameter that comes in as the first non command argument (not flag)
@@ -137,6 +146,37 @@ public class Repro implements Callable<Integer> {
       showDefaultValue = Visibility.ALWAYS)
   private long records;
 
+  /** size each PDS from the records its scan read in the profile */
+  @CommandLine.Option(
+      names = {"--size-from-profile"},
+      description =
+          "generate as many rows for each PDS as the profile scanned from it, PDSs without scan"
+              + " stats get --number-records rows. Use skew and cardinality in the column def yaml"
+              + " to shape join and group by keys",
+      defaultValue = "false")
+  private boolean sizeFromProfile;
+
+  /** cap on the rows generated for one PDS when sizing from the profile */
+  @CommandLine.Option(
+      names = {"--max-number-records"},
+      description = "the most rows generated for one PDS when using --size-from-profile",
+      defaultValue = "1000000",
+      showDefaultValue = Visibility.ALWAYS)
+  private long maxRecords;
+
+  /** how the generated PDS rows are shipped to dremio */
+  @CommandLine.Option(
+      names = {"--pds-format"},
+      completionCandidates = ValidPdsFormats.class,
+      description =
+          "how generated PDS data is created: ${COMPLETION-CANDIDATES}. SQL inlines the rows into"
+              + " CREATE TABLE AS statements, ARROW writes them to arrow files in the source"
+              + " directory and creates the tables from them, which needs the nas source base dir"
+              + " to be readable by dremio",
+      defaultValue = "SQL",
+      showDefaultValue = Visibility.ALWAYS)
+  private String pdsFormat;
+
   /** timeout to use for PDS and VDS creation */
   @CommandLine.Option(
       names = {"-t", "--timeout-seconds"},
@@ -153,6 +193,16 @@ public class Repro implements Callable<Integer> {
       defaultValue = "")
   private String nasSourceBaseDir;
 
+  /** cap on datasets created at once through the rest api */
+  @CommandLine.Option(
+      names = {"--parallelism"},
+      description =
+          "the most spaces, folders, sources, PDSs or VDSs created at once, a VDS is only created"
+              + " once the VDSs it selects from exist",
+      defaultValue = "4",
+      showDefaultValue = Visibility.ALWAYS)
+  private int parallelism;
+
   @CommandLine.Option(
       names = {"--skip-ssl-verification"},
       description = "whether to skip ssl verification for queries or not",
@@ -178,10 +228,19 @@ public class Repro implements Callable<Integer> {
         columnDefYaml = new ColumnDefYaml();
         columnDefYaml.setTables(new ArrayList<>());
       }
+      // shared so the generated data files land in the directories the sources are created over
+      final SourceDirectoryMaker sourceDirectoryMaker =
+          new SourceDirectoryMaker(ArgSetup.getFileMaker(nasSourceBaseDir));
       final ReproProfileParserImpl profileParser =
-          ArgSetup.getReproProfile(this.records, columnDefYaml);
+          ArgSetup.getReproProfile(
+              this.records,
+              columnDefYaml,
+              pdsFormat,
+              sourceDirectoryMaker,
+              sizeFromProfile,
+              maxRecords);
       final ProfileProvider profileProvider =
-          ArgSetup.getProfileProvider(new PathAndStream(this.file.toPath(), fs));
+          ArgSetup.getLocalProfileProvider(new PathAndStream(this.file.toPath(), fs));
       final SqlOutput[] sqlOutput =
           ArgSetup.getSqlOutput(
               dremioUser,
@@ -191,8 +250,9 @@ public class Repro implements Callable<Integer> {
               null,
               null,
               timeoutSeconds,
-              nasSourceBaseDir,
-              skipSSLVerification);
+              sourceDirectoryMaker,
+              skipSSLVerification,
+              parallelism);
       final Exec exec =
           new Exec(
               Optional.ofNullable(defaultCtasFormat), profileProvider, profileParser, sqlOutput);
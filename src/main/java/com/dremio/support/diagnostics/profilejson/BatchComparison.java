@@ -0,0 +1,302 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.profilejson;
+
+import com.dremio.support.diagnostics.profilejson.plan.PlanKey;
+import com.dremio.support.diagnostics.shared.dto.profilejson.FragmentProfile;
+import com.dremio.support.diagnostics.shared.dto.profilejson.InputProfile;
+import com.dremio.support.diagnostics.shared.dto.profilejson.MinorFragmentProfile;
+import com.dremio.support.diagnostics.shared.dto.profilejson.OperatorProfile;
+import com.dremio.support.diagnostics.shared.dto.profilejson.ProfileJSON;
+import java.security.InvalidParameterException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+
+/**
+ * Compares many executions of the same query against the first one, the baseline. Every operator
+ * is summed across its threads for each run and the runs are then summarized per operator as a
+ * distribution so a regression in a handful of runs stands out.
+ *
+ * <p>Runs are flagged as outliers with the modified z-score (median and median absolute
+ * deviation) so a few slow runs do not hide themselves by dragging the average up.
+ */
+public class BatchComparison {
+  // Iglewicz and Hoaglin recommend 3.5 for the modified z-score
+  static final double OUTLIER_SCORE = 3.5;
+  static final int MIN_RUNS_FOR_OUTLIERS = 3;
+  // differences smaller than this are noise no matter how tight the other runs are
+  static final long MIN_OUTLIER_DELTA_NANOS = 10_000_000L;
+
+  /**
+   * @param baseline value of the baseline run, 0 when the operator is not in the baseline
+   * @param min smallest value across the runs that have the operator
+   * @param median median across the runs that have the operator
+   * @param max largest value across the runs that have the operator
+   */
+  public record Distribution(long baseline, long min, long median, long max) {}
+
+  /**
+   * @param key phase and operator id
+   * @param kind operator type
+   * @param runs number of runs that have this operator
+   * @param processNanos process time summed across threads
+   * @param records input records summed across threads
+   * @param peakMemoryBytes largest peak memory of a single thread
+   * @param outlierRuns names of the runs where the process time is an outlier
+   */
+  public record OperatorStats(
+      PlanKey key,
+      String kind,
+      int runs,
+      Distribution processNanos,
+      Distribution records,
+      Distribution peakMemoryBytes,
+      List<String> outlierRuns) {}
+
+  /**
+   * @param name file name of the run
+   * @param durationMillis end minus start of the query
+   * @param state final query state
+   * @param durationOutlier true when the run took much longer than the others
+   * @param outlierOperators operators where this run is an outlier
+   */
+  public record RunSummary(
+      String name,
+      long durationMillis,
+      String state,
+      boolean durationOutlier,
+      List<String> outlierOperators) {}
+
+  /** one operator summed across the threads of a run */
+  record OperatorTotals(String kind, long processNanos, long records, long peakMemoryBytes) {}
+
+  private final List<RunSummary> runs;
+  private final List<OperatorStats> operators;
+
+  private BatchComparison(final List<RunSummary> runs, final List<OperatorStats> operators) {
+    this.runs = runs;
+    this.operators = operators;
+  }
+
+  /**
+   * @return one summary per run in the order given, the baseline first
+   */
+  public List<RunSummary> getRuns() {
+    return runs;
+  }
+
+  /**
+   * @return one entry per operator found in any run ordered by phase and operator id
+   */
+  public List<OperatorStats> getOperators() {
+    return operators;
+  }
+
+  /**
+   * @param names names of the runs, usually the file names
+   * @param profiles parsed profiles in the same order, the first one is the baseline
+   * @return the comparison
+   */
+  public static BatchComparison compare(
+      final List<String> names, final List<ProfileJSON> profiles) {
+    if (profiles.isEmpty() || names.size() != profiles.size()) {
+      throw new InvalidParameterException(
+          "expected a name for each of the profiles but had %d names and %d profiles"
+              .formatted(names.size(), profiles.size()));
+    }
+    final List<Callable<Map<PlanKey, OperatorTotals>>> tasks = new ArrayList<>();
+    for (final ProfileJSON profile : profiles) {
+      tasks.add(() -> totals(profile));
+    }
+    final List<Map<PlanKey, OperatorTotals>> totalsByRun = ReportExecutor.invokeAll(tasks);
+    final Map<PlanKey, OperatorTotals> baselineIndex = totalsByRun.get(0);
+    final TreeSet<PlanKey> keys = new TreeSet<>(baselineIndex.keySet());
+    for (final Map<PlanKey, OperatorTotals> totals : totalsByRun) {
+      keys.addAll(totals.keySet());
+    }
+
+    final List<List<String>> outliersByRun = new ArrayList<>();
+    for (int i = 0; i < profiles.size(); i++) {
+      outliersByRun.add(new ArrayList<>());
+    }
+    final List<OperatorStats> operators = new ArrayList<>();
+    for (final PlanKey key : keys) {
+      final int[] runIndex = new int[totalsByRun.size()];
+      final long[] process = new long[totalsByRun.size()];
+      final long[] records = new long[totalsByRun.size()];
+      final long[] memory = new long[totalsByRun.size()];
+      String kind = null;
+      int count = 0;
+      for (int run = 0; run < totalsByRun.size(); run++) {
+        final OperatorTotals totals = totalsByRun.get(run).get(key);
+        if (totals == null) {
+          continue;
+        }
+        if (kind == null) {
+          kind = totals.kind();
+        }
+        runIndex[count] = run;
+        process[count] = totals.processNanos();
+        records[count] = totals.records();
+        memory[count] = totals.peakMemoryBytes();
+        count++;
+      }
+      final OperatorTotals baseline =
+          baselineIndex.getOrDefault(key, new OperatorTotals(kind, 0, 0, 0));
+      final long[] processValues = Arrays.copyOf(process, count);
+      final List<String> outlierRuns = new ArrayList<>();
+      final boolean[] outliers = slowOutliers(processValues, MIN_OUTLIER_DELTA_NANOS);
+      for (int i = 0; i < count; i++) {
+        if (outliers[i]) {
+          outlierRuns.add(names.get(runIndex[i]));
+          outliersByRun.get(runIndex[i]).add(key.id());
+        }
+      }
+      operators.add(
+          new OperatorStats(
+              key,
+              kind,
+              count,
+              distribution(baseline.processNanos(), processValues),
+              distribution(baseline.records(), Arrays.copyOf(records, count)),
+              distribution(baseline.peakMemoryBytes(), Arrays.copyOf(memory, count)),
+              outlierRuns));
+    }
+
+    final long[] durations = new long[profiles.size()];
+    for (int i = 0; i < profiles.size(); i++) {
+      durations[i] = profiles.get(i).getEnd() - profiles.get(i).getStart();
+    }
+    // durations are in millis so the noise floor is converted
+    final boolean[] durationOutliers =
+        slowOutliers(durations, MIN_OUTLIER_DELTA_NANOS / 1_000_000L);
+    final List<RunSummary> runs = new ArrayList<>();
+    for (int i = 0; i < profiles.size(); i++) {
+      final int state = profiles.get(i).getState();
+      runs.add(
+          new RunSummary(
+              names.get(i),
+              durations[i],
+              state >= 0 && state < QueryState.values().length
+                  ? QueryState.values()[state].name()
+                  : "UNKNOWN",
+              durationOutliers[i],
+              outliersByRun.get(i)));
+    }
+    return new BatchComparison(runs, operators);
+  }
+
+  static Map<PlanKey, OperatorTotals> totals(final ProfileJSON profile) {
+    final Map<PlanKey, OperatorTotals> totals = new HashMap<>();
+    if (profile.getFragmentProfile() == null) {
+      return totals;
+    }
+    final CoreOperatorType[] types = CoreOperatorType.values();
+    for (final FragmentProfile fragment : profile.getFragmentProfile()) {
+      if (fragment == null || fragment.getMinorFragmentProfile() == null) {
+        continue;
+      }
+      final int phaseId = fragment.getMajorFragmentId();
+      for (final MinorFragmentProfile minor : fragment.getMinorFragmentProfile()) {
+        if (minor == null || minor.getOperatorProfile() == null) {
+          continue;
+        }
+        for (final OperatorProfile operator : minor.getOperatorProfile()) {
+          long records = 0;
+          if (operator.getInputProfile() != null) {
+            for (final InputProfile input : operator.getInputProfile()) {
+              records += input.getRecords();
+            }
+          }
+          final int operatorId = (int) operator.getOperatorId();
+          final PlanKey key =
+              new PlanKey(phaseId, operatorId, "%02d-%02d".formatted(phaseId, operatorId));
+          final int type = operator.getOperatorType();
+          final String kind =
+              type >= 0 && type < types.length ? types[type].name() : String.valueOf(type);
+          final long process = operator.getProcessNanos();
+          final long memory = operator.getPeakLocalMemoryAllocated();
+          totals.merge(
+              key,
+              new OperatorTotals(kind, process, records, memory),
+              (a, b) ->
+                  new OperatorTotals(
+                      a.kind(),
+                      a.processNanos() + b.processNanos(),
+                      a.records() + b.records(),
+                      Math.max(a.peakMemoryBytes(), b.peakMemoryBytes())));
+        }
+      }
+    }
+    return totals;
+  }
+
+  static Distribution distribution(final long baseline, final long[] values) {
+    if (values.length == 0) {
+      return new Distribution(baseline, 0, 0, 0);
+    }
+    final long[] sorted = values.clone();
+    Arrays.sort(sorted);
+    return new Distribution(baseline, sorted[0], median(sorted), sorted[sorted.length - 1]);
+  }
+
+  private static long median(final long[] sorted) {
+    final int mid = sorted.length / 2;
+    if (sorted.length % 2 == 1) {
+      return sorted[mid];
+    }
+    return sorted[mid - 1] + (sorted[mid] - sorted[mid - 1]) / 2;
+  }
+
+  /**
+   * flags the values that are much larger than the rest, faster than usual is never an outlier
+   *
+   * @param values one value per run
+   * @param minDelta values closer than this to the median are never flagged
+   * @return a flag for each value
+   */
+  static boolean[] slowOutliers(final long[] values, final long minDelta) {
+    final boolean[] flags = new boolean[values.length];
+    if (values.length < MIN_RUNS_FOR_OUTLIERS) {
+      return flags;
+    }
+    final long[] sorted = values.clone();
+    Arrays.sort(sorted);
+    final long median = median(sorted);
+    final long[] deviations = new long[values.length];
+    double meanDeviation = 0;
+    for (int i = 0; i < values.length; i++) {
+      deviations[i] = Math.abs(values[i] - median);
+      meanDeviation += deviations[i];
+    }
+    meanDeviation /= values.length;
+    Arrays.sort(deviations);
+    final long mad = median(deviations);
+    // with more than half the runs identical the MAD is 0, fall back to the mean deviation
+    final double scale = mad > 0 ? mad / 0.6745 : meanDeviation * 1.253314;
+    if (scale == 0) {
+      return flags;
+    }
+    for (int i = 0; i < values.length; i++) {
+      final long delta = values[i] - median;
+      flags[i] = delta >= minDelta && delta / scale > OUTLIER_SCORE;
+    }
+    return flags;
+  }
+}
@@ -0,0 +1,69 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.profilejson;
+
+import com.dremio.support.diagnostics.shared.ProfileProvider;
+import com.dremio.support.diagnostics.shared.dto.profilejson.ProfileJSON;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.logging.Logger;
+
+/** compares every profile against the first one and writes the html report to disk */
+public class BatchExec {
+
+  private static final Logger logger = Logger.getLogger(BatchExec.class.getName());
+  private final List<ProfileProvider> profileProviders;
+
+  /**
+   * @param profileProviders the profiles to compare, the first one is the baseline
+   */
+  public BatchExec(final List<ProfileProvider> profileProviders) {
+    this.profileProviders = profileProviders;
+  }
+
+  /**
+   * parses the profiles side by side on the report pool
+   *
+   * @param profileProviders providers to parse
+   * @return the parsed profiles in the same order
+   */
+  public static List<ProfileJSON> parseAll(final List<ProfileProvider> profileProviders) {
+    final List<Callable<ProfileJSON>> tasks = new ArrayList<>();
+    for (final ProfileProvider provider : profileProviders) {
+      tasks.add(provider::getProfile);
+    }
+    return ReportExecutor.invokeAll(tasks);
+  }
+
+  public void run() throws IOException {
+    final List<String> names = new ArrayList<>();
+    for (final ProfileProvider provider : this.profileProviders) {
+      names.add(provider.getFilePath().toString());
+    }
+    logger.info(() -> "comparing %d profiles".formatted(names.size()));
+    final BatchComparison comparison =
+        BatchComparison.compare(names, parseAll(this.profileProviders));
+    final var report = new HtmlBatchComparisonReport(comparison);
+    final long epoch = Instant.now().toEpochMilli();
+    String path = String.format("profile-batch-compare-%d.html", epoch);
+    Files.write(Path.of(path), report.getText().getBytes(StandardCharsets.UTF_8));
+    System.out.printf("wrote report %s to disk%n", path);
+  }
+}
@@ -0,0 +1,158 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.profilejson;
+
+import static com.dremio.support.diagnostics.shared.HtmlTableDataColumn.col;
+import static com.dremio.support.diagnostics.shared.Human.getHumanBytes1024;
+import static com.dremio.support.diagnostics.shared.Human.getHumanDurationFromMillis;
+import static com.dremio.support.diagnostics.shared.Human.getHumanDurationFromNanos;
+import static com.dremio.support.diagnostics.shared.Human.getHumanNumber;
+
+import com.dremio.support.diagnostics.shared.HtmlTableBuilder;
+import com.dremio.support.diagnostics.shared.HtmlTableDataColumn;
+import com.dremio.support.diagnostics.shared.JsLibraryTextProvider;
+import com.dremio.support.diagnostics.shared.Report;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.function.LongFunction;
+
+/** html report of a {@link BatchComparison}, one table for the runs and one for the operators */
+public class HtmlBatchComparisonReport implements Report {
+
+  private final JsLibraryTextProvider jsLibraryTextProvider = new JsLibraryTextProvider();
+  private final BatchComparison comparison;
+
+  public HtmlBatchComparisonReport(final BatchComparison comparison) {
+    this.comparison = comparison;
+  }
+
+  private String runsTable() {
+    final Collection<Collection<HtmlTableDataColumn<String, Number>>> rows = new ArrayList<>();
+    for (final BatchComparison.RunSummary run : comparison.getRuns()) {
+      rows.add(
+          Arrays.asList(
+              col(run.name()),
+              col(getHumanDurationFromMillis(run.durationMillis()), run.durationMillis()),
+              col(run.state()),
+              col(run.durationOutlier() ? "slow" : ""),
+              col(run.outlierOperators().size() + "", run.outlierOperators().size()),
+              col(String.join(", ", run.outlierOperators()), true)));
+    }
+    return new HtmlTableBuilder()
+        .generateTable(
+            "batchRunsTable",
+            "Runs",
+            Arrays.asList(
+                "run", "duration", "state", "duration outlier", "outlier operators", "operators"),
+            rows);
+  }
+
+  private String operatorsTable() {
+    final Collection<Collection<HtmlTableDataColumn<String, Number>>> rows = new ArrayList<>();
+    for (final BatchComparison.OperatorStats op : comparison.getOperators()) {
+      final Collection<HtmlTableDataColumn<String, Number>> row = new ArrayList<>();
+      row.add(col(op.key().id() + " " + op.kind()));
+      row.add(col(op.runs() + "", op.runs()));
+      addDistribution(row, op.processNanos(), x -> getHumanDurationFromNanos(x));
+      addDistribution(row, op.records(), x -> getHumanNumber(x));
+      addDistribution(row, op.peakMemoryBytes(), x -> getHumanBytes1024(x));
+      row.add(col(String.join(", ", op.outlierRuns()), true));
+      rows.add(row);
+    }
+    final var headers = new ArrayList<String>();
+    headers.add("operator");
+    headers.add("runs");
+    for (final String measure : Arrays.asList("process", "records", "peak memory")) {
+      headers.add(measure + " baseline");
+      headers.add(measure + " min");
+      headers.add(measure + " median");
+      headers.add(measure + " max");
+    }
+    headers.add("outlier runs");
+    return new HtmlTableBuilder().generateTable("batchOperatorsTable", "Operators", headers, rows);
+  }
+
+  private static void addDistribution(
+      final Collection<HtmlTableDataColumn<String, Number>> row,
+      final BatchComparison.Distribution distribution,
+      final LongFunction<String> format) {
+    row.add(col(format.apply(distribution.baseline()), distribution.baseline()));
+    row.add(col(format.apply(distribution.min()), distribution.min()));
+    row.add(col(format.apply(distribution.median()), distribution.median()));
+    row.add(col(format.apply(distribution.max()), distribution.max()));
+  }
+
+  @Override
+  public String getText() {
+    final var runs = comparison.getRuns();
+    final long slowRuns =
+        runs.stream().filter(x -> x.durationOutlier() || !x.outlierOperators().isEmpty()).count();
+    return """
+<!doctype html>
+<html lang="en">
+<head>
+  <meta charset="utf-8">
+  <meta name="viewport" content="width=device-width, initial-scale=1">
+  <title>%s</title>
+  <script src="https://cdn.tailwindcss.com"></script>
+  <link rel="stylesheet" href="https://cdnjs.cloudflare.com/ajax/libs/font-awesome/6.4.0/css/all.min.css">
+  <script>%s</script>
+  <script>%s</script>
+  <script>%s</script>
+  <style>%s</style>
+</head>
+<body class="bg-gray-50">
+  <div class="min-h-screen py-8">
+    <div class="max-w-7xl mx-auto px-4 sm:px-6 lg:px-8">
+      <div class="bg-white rounded-lg shadow-sm p-6 mb-8">
+        <div class="flex items-center">
+          <div class="w-12 h-12 bg-indigo-100 rounded-xl flex items-center justify-center mr-4">
+            <i class="fas fa-code-compare text-indigo-600 text-xl"></i>
+          </div>
+          <div>
+            <h1 class="text-2xl font-bold text-gray-800">Profile Batch Comparison</h1>
+            <p class="text-gray-600 mt-1">%d runs compared against the baseline %s, %d flagged as outliers</p>
+          </div>
+        </div>
+      </div>
+      <div class="bg-white rounded-lg shadow-sm p-6 mb-8">
+      %s
+      </div>
+      <div class="bg-white rounded-lg shadow-sm p-6 mb-8">
+      %s
+      </div>
+    </div>
+  </div>
+</body>
+</html>
+"""
+        .formatted(
+            getTitle(),
+            jsLibraryTextProvider.getCSVExportText(),
+            jsLibraryTextProvider.getSortableText(),
+            jsLibraryTextProvider.getFilterTableText(),
+            jsLibraryTextProvider.getSortableCSSText(),
+            runs.size(),
+            runs.get(0).name(),
+            slowRuns,
+            runsTable(),
+            operatorsTable());
+  }
+
+  @Override
+  public String getTitle() {
+    return "Profile Batch Comparison";
+  }
+}
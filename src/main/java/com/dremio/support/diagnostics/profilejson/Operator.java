@@ -13,6 +13,7 @@
  */
 package com.dremio.support.diagnostics.profilejson;
 
+import com.dremio.support.diagnostics.profilejson.compact.CompactProfile;
 import com.dremio.support.diagnostics.shared.Human;
 import com.dremio.support.diagnostics.shared.dto.profilejson.*;
 import java.text.DecimalFormat;
@@ -81,6 +82,50 @@ public class Operator {
     return operator;
   }
 
+  /**
+   * same as {@link #createFromOperatorProfile(OperatorProfile, List)} for a row of a compact
+   * profile, the phase and thread are filled in as well
+   *
+   * @param profile columns of the profile
+   * @param row operator ordinal
+   * @param metricsDef metric names by operator type, may be null
+   * @return the operator
+   */
+  public static Operator createFromCompact(
+      final CompactProfile profile, final int row, final List<MetricsDef> metricsDef) {
+    final int type = profile.operatorType(row);
+    final Operator operator = new Operator();
+    operator.setId(profile.operatorId(row));
+    operator.setKind(CoreOperatorType.values()[type].toString());
+    operator.setProcessTimeNanos(profile.processNanos(row));
+    operator.setSetupMillis(nanosToMillis(profile.setupNanos(row)));
+    operator.setWaitMillis(nanosToMillis(profile.waitNanos(row)));
+    operator.setPeakMemoryAllocated(profile.peakLocalMemoryAllocated(row));
+    operator.setBatches(profile.batches(row));
+    operator.setRecords(profile.records(row));
+    final int thread = profile.operatorThread(row);
+    operator.setParentPhaseId(profile.threadMajorFragmentId(thread));
+    operator.setThreadId(profile.minorFragmentId(thread));
+    List<MetricDef> definitions = new ArrayList<>();
+    if (metricsDef != null && type >= 0 && metricsDef.size() > type) {
+      definitions = metricsDef.get(type).getMetricDef();
+    }
+    final List<OperatorMetric> operatorMetrics = new ArrayList<>();
+    for (int m = profile.operatorFirstMetric(row); m < profile.operatorEndMetric(row); m++) {
+      final OperatorMetric operatorMetric = new OperatorMetric();
+      operatorMetric.setMetricId(profile.metricId(m));
+      for (final MetricDef def : definitions) {
+        if (def.getId() == profile.metricId(m)) {
+          operatorMetric.setMetricName(def.getName());
+        }
+      }
+      operatorMetric.setLongValue(profile.metricValue(m));
+      operatorMetrics.add(operatorMetric);
+    }
+    operator.setAllMetrics(operatorMetrics);
+    return operator;
+  }
+
   private static long nanosToMillis(final long nanos) {
     return nanos / 1000000;
   }
@@ -13,6 +13,7 @@
  */
 package com.dremio.support.diagnostics.profilejson;
 
+import com.dremio.support.diagnostics.profilejson.compact.CompactProfile;
 import com.dremio.support.diagnostics.shared.dto.profilejson.OperatorProfile;
 import java.util.List;
 
@@ -31,6 +32,27 @@ public class PhaseThread {
   private long endTime;
   private long startTime;
 
+  /**
+   * @param profile columns of the profile
+   * @param row thread ordinal
+   * @return the thread with its start time worked out from the end time and run duration
+   */
+  public static PhaseThread createFromCompact(final CompactProfile profile, final int row) {
+    final PhaseThread pt = new PhaseThread();
+    pt.setPhaseId(profile.threadMajorFragmentId(row));
+    pt.setThreadId(profile.minorFragmentId(row));
+    pt.setRunDuration(profile.runDuration(row));
+    pt.setBlockedDuration(profile.blockedDuration(row));
+    pt.setBlockedOnUpstreamDuration(profile.blockedOnUpstreamDuration(row));
+    pt.setBlockedOnDownstreamDuration(profile.blockedOnDownstreamDuration(row));
+    pt.setBlockedOnSharedResourceDuration(profile.blockedOnSharedResourceDuration(row));
+    pt.setSleepingDuration(profile.sleepingDuration(row));
+    pt.setTotalTimeMillis(profile.endTime(row) - profile.startTime(row));
+    pt.setEndTime(profile.endTime(row));
+    pt.setStartTime(profile.endTime(row) - profile.runDuration(row));
+    return pt;
+  }
+
   public long getBlockedDuration() {
     return blockedDuration;
   }
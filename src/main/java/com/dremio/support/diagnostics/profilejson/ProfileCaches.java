@@ -0,0 +1,97 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.profilejson;
+
+import com.dremio.support.diagnostics.profilejson.compact.CompactProfile;
+import com.dremio.support.diagnostics.profilejson.plan.DecodedPlan;
+import com.dremio.support.diagnostics.shared.dto.profilejson.FragmentProfile;
+import com.dremio.support.diagnostics.shared.dto.profilejson.ProfileJSON;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.List;
+
+/**
+ * Views of a profile that are expensive to build and read by several reports: the decoded jsonPlan
+ * and the columnar phases, threads and operators. They are built on first use and shared by every
+ * report of the same profile. The profile is a plain dto so the views are kept here, keyed by the
+ * identity of the profile and dropped once the profile is garbage collected.
+ */
+public final class ProfileCaches {
+
+  /** the views of one profile and what they were built from */
+  private static final class Entry {
+    private String planSource;
+    private DecodedPlan plan;
+    private List<FragmentProfile> fragmentsSource;
+    private CompactProfile compact;
+  }
+
+  // weak keys are compared by identity so equal profiles never share views
+  private static final Cache<ProfileJSON, Entry> ENTRIES =
+      CacheBuilder.newBuilder().weakKeys().build();
+
+  private ProfileCaches() {}
+
+  private static Entry entry(final ProfileJSON profile) {
+    return ENTRIES.asMap().computeIfAbsent(profile, p -> new Entry());
+  }
+
+  /**
+   * @param profile profile to read
+   * @return the jsonPlan decoded on first use, decoded again if the plan was replaced since
+   */
+  public static DecodedPlan decodedPlan(final ProfileJSON profile) {
+    final Entry entry = entry(profile);
+    synchronized (entry) {
+      final String plan = profile.getJsonPlan();
+      if (entry.plan == null || entry.planSource != plan) {
+        entry.plan = DecodedPlan.parse(plan);
+        entry.planSource = plan;
+      }
+      return entry.plan;
+    }
+  }
+
+  /**
+   * @param profile profile to read
+   * @return the phases, threads and operators as columns, built from the fragmentProfile on first
+   *     use unless the profile was read straight into columns
+   */
+  public static CompactProfile compactProfile(final ProfileJSON profile) {
+    final Entry entry = entry(profile);
+    synchronized (entry) {
+      final List<FragmentProfile> fragments = profile.getFragmentProfile();
+      if (entry.compact == null || entry.fragmentsSource != fragments) {
+        entry.compact = CompactProfile.of(fragments);
+        entry.fragmentsSource = fragments;
+      }
+      return entry.compact;
+    }
+  }
+
+  /**
+   * used by parsers that read the phases straight into columns without building the
+   * fragmentProfile
+   *
+   * @param profile profile the columns belong to
+   * @param compact the columns
+   */
+  public static void setCompactProfile(final ProfileJSON profile, final CompactProfile compact) {
+    final Entry entry = entry(profile);
+    synchronized (entry) {
+      entry.compact = compact;
+      entry.fragmentsSource = profile.getFragmentProfile();
+    }
+  }
+}
@@ -15,13 +15,14 @@ package com.dremio.support.diagnostics.profilejson;
 
 import static com.dremio.support.diagnostics.shared.Human.getHumanDurationFromMillis;
 
+import com.dremio.support.diagnostics.profilejson.plan.DecodedPlan;
+import com.dremio.support.diagnostics.profilejson.plan.PlanKey;
+import com.dremio.support.diagnostics.profilejson.plan.PlanTreeHash;
 import com.dremio.support.diagnostics.shared.dto.profilejson.*;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.difflib.text.DiffRow;
 import com.github.difflib.text.DiffRowGenerator;
-import com.google.common.base.Splitter;
+import java.io.UncheckedIOException;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.util.*;
@@ -122,15 +123,15 @@ public class ProfileDifferenceReport implements Differ {
     return operators.get(0);
   }
 
-  private String escapeForVersion24Plus(String json) {
-    if (json == null) {
-      return null;
+  private static DecodedPlan decodedPlan(final ProfileJSON profile, final String path) {
+    try {
+      return ProfileCaches.decodedPlan(profile);
+    } catch (final UncheckedIOException e) {
+      if (e.getCause() instanceof JsonProcessingException jsonException) {
+        throw new InvalidJsonException(jsonException, path);
+      }
+      throw e;
     }
-    return json.replace("\r", "")
-        .replace("\\r", "")
-        .replace("\\\\n", "")
-        .replace("\\n", "")
-        .replace("\\\\\\\"", "\\\"");
   }
 
   @Override
@@ -143,58 +144,17 @@ public class ProfileDifferenceReport implements Differ {
     final List<Difference> differences = new ArrayList<>();
 
     // compare planning
-    final ObjectMapper mapper = new ObjectMapper();
-    final TypeReference<HashMap<String, Object>> typeRef = new TypeReference<>() {};
-
-    Map<String, Object> profile1Plan = new HashMap<>();
-    Map<String, Object> profile2Plan = new HashMap<>();
-    final String profile1PlanStr = escapeForVersion24Plus(profile1.getJsonPlan());
-    if (profile1PlanStr != null) {
-      try {
-        profile1Plan = mapper.readValue(profile1PlanStr, typeRef);
-      } catch (final JsonProcessingException e) {
-        throw new InvalidJsonException(e, profile1Path);
-      }
-    }
-
-    final String profile2PlanStr = escapeForVersion24Plus(profile2.getJsonPlan());
-    if (profile2PlanStr != null) {
-      try {
-        profile2Plan = mapper.readValue(profile2PlanStr, typeRef);
-      } catch (final JsonProcessingException e) {
-        throw new InvalidJsonException(e, profile1Path);
-      }
-    }
+    final PlanTreeHash profile1Plan = new PlanTreeHash(decodedPlan(profile1, profile1Path));
+    final PlanTreeHash profile2Plan = new PlanTreeHash(decodedPlan(profile2, profile2Path));
 
-    final List<String> keys = new ArrayList<>(profile1Plan.keySet());
-    // add any keys missing
-    for (final String key : profile2Plan.keySet()) {
-      if (!keys.contains(key)) {
-        keys.add(key);
-      }
-    }
-    final Comparator<String> sComparator =
-        (a, b) -> {
-          final List<String> aTokens = Splitter.on('-').splitToList(a.replace("\"", ""));
-          final List<String> bTokens = Splitter.on('-').splitToList(b.replace("\"", ""));
-          final int a1 = Integer.parseInt(aTokens.get(0));
-          final int b1 = Integer.parseInt(bTokens.get(0));
-          if (a1 > b1) {
-            return 1;
-          } else if (b1 > a1) {
-            return -1;
-          } else {
-            final int a2 = Integer.parseInt(aTokens.get(1));
-            final int b2 = Integer.parseInt(bTokens.get(1));
-            if (a2 > b2) {
-              return 1;
-            } else if (b2 > a2) {
-              return -1;
-            }
-            return 0;
-          }
-        };
-    keys.sort(sComparator);
+    final Set<String> ids = new HashSet<>(profile1Plan.getIds());
+    ids.addAll(profile2Plan.getIds());
+    // subtrees that hash the same in both plans are skipped, only changed nodes are diffed
+    final List<PlanKey> changedKeys = new ArrayList<>();
+    for (final String id : PlanTreeHash.changedNodes(profile1Plan, profile2Plan)) {
+      changedKeys.add(PlanKey.parse(id));
+    }
+    Collections.sort(changedKeys);
     int differencesCount = 0;
     final List<String> onlyProfile1 = new ArrayList<>();
     final List<String> onlyProfile2 = new ArrayList<>();
@@ -205,9 +165,11 @@ public class ProfileDifferenceReport implements Differ {
             .oldTag(f -> "")
             .newTag(f -> "")
             .build();
-    for (final String key : keys) {
-      final String v1 = profile1Plan.getOrDefault(key, "").toString();
-      final String v2 = profile2Plan.getOrDefault(key, "").toString();
+    for (final PlanKey planKey : changedKeys) {
+      final String rawKey1 = profile1Plan.getRawKey(planKey.id());
+      final String key = rawKey1 != null ? rawKey1 : profile2Plan.getRawKey(planKey.id());
+      final String v1 = Objects.toString(profile1Plan.getRawValue(planKey.id()), "");
+      final String v2 = Objects.toString(profile2Plan.getRawValue(planKey.id()), "");
       if (!v1.equals(v2)) {
         if (showPlanningDetail) {
 
@@ -307,13 +269,11 @@ public class ProfileDifferenceReport implements Differ {
     }
     if (differencesCount > 0) {
       final Difference diff = new Difference();
-      diff.setName("found " + differencesCount + "/" + keys.size() + " plan keys differ");
+      diff.setName("found " + differencesCount + "/" + ids.size() + " plan keys differ");
       if (!showPlanningDetail) {
         diff.setAdvice("rerun command with --show-plan-details to see a diff");
       }
-      onlyProfile1.sort(sComparator);
       diff.setProfile1Value("only in profile 1\n" + String.join("\n", onlyProfile1));
-      onlyProfile2.sort(sComparator);
       diff.setProfile2Value("only in profile 2\n" + String.join("\n", onlyProfile2));
       differences.add(diff);
     }
@@ -17,12 +17,27 @@ import com.dremio.support.diagnostics.shared.dto.profilejson.FragmentProfile;
 import com.dremio.support.diagnostics.shared.dto.profilejson.MinorFragmentProfile;
 import com.dremio.support.diagnostics.shared.dto.profilejson.PerResourceBlockedDuration;
 import com.dremio.support.diagnostics.shared.dto.profilejson.ProfileJSON;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.IOException;
 import java.io.InputStream;
 
 /** ProfileJSONParser reads a json file and converts it to a json object */
 public class ProfileJSONParser implements Parser {
+  private static final ObjectMapper objectMapper = new ObjectMapper();
+  private final ProfileProjection projection;
+
+  /** binds the whole profile */
+  public ProfileJSONParser() {
+    this(ProfileProjection.ALL);
+  }
+
+  /**
+   * @param projection the fields to bind, everything else is left null or zero
+   */
+  public ProfileJSONParser(final ProfileProjection projection) {
+    this.projection = projection;
+  }
 
   /**
    * this delegates to the jackson file parser so it should be as memory efficient as possible
@@ -32,14 +47,20 @@ public class ProfileJSONParser implements Parser {
    */
   @Override
   public ProfileJSON parseFile(final InputStream file) throws IOException {
-    final ObjectMapper objectMapper = new ObjectMapper();
-    ProfileJSON profileJson = objectMapper.readValue(file, ProfileJSON.class);
+    final ProfileJSON profileJson;
+    if (projection == ProfileProjection.ALL) {
+      profileJson = objectMapper.readValue(file, ProfileJSON.class);
+    } else {
+      try (JsonParser parser = projection.wrap(objectMapper.createParser(file))) {
+        profileJson = objectMapper.readValue(parser, ProfileJSON.class);
+      }
+    }
     if (profileJson.getFragmentProfile() != null) {
       // correct time in minor profile before we can rely on it.. this is stealing
       // code from
       // https://github.com/dremio/dremio-oss/blame/master/dac/backend/src/main/java/com/dremio/dac/server/admin/profile/FragmentWrapper.java
       for (final FragmentProfile fragmentProfile : profileJson.getFragmentProfile()) {
-        if (fragmentProfile == null) {
+        if (fragmentProfile == null || fragmentProfile.getMinorFragmentProfile() == null) {
           continue;
         }
         for (final MinorFragmentProfile minor : fragmentProfile.getMinorFragmentProfile()) {
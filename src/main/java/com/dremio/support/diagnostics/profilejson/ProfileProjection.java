@@ -0,0 +1,153 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.profilejson;
+
+import com.fasterxml.jackson.core.JsonParser;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The fields of a profile.json a caller needs. Paths are dotted json field names from the root of
+ * the profile, arrays are transparent so {@code fragmentProfile.majorFragmentId} selects the id of
+ * every phase. Including a path keeps everything under it, excluding a path drops it again, so a
+ * large subtree can be kept minus its heaviest part. Anything not included is skipped by the parser
+ * without being bound.
+ */
+public final class ProfileProjection {
+  /** binds the whole profile */
+  public static final ProfileProjection ALL = new ProfileProjection(new Node(true));
+
+  /**
+   * what the summary style reports read: the query timings, states and identity, the plan for the row
+   * estimates and the operators without their metrics. Skips the text plans, plan phases, options,
+   * dataset and acceleration profiles and the per operator metric arrays which are most of the size
+   * of a large profile.
+   */
+  public static final ProfileProjection SUMMARY =
+      builder()
+          .include(
+              "id",
+              "user",
+              "state",
+              "dremioVersion",
+              "start",
+              "end",
+              "planningStart",
+              "planningEnd",
+              "stateList",
+              "jsonPlan",
+              "nodeProfile",
+              "fragmentProfile")
+          .exclude("fragmentProfile.minorFragmentProfile.operatorProfile.metric")
+          .build();
+
+  private final Node root;
+
+  private ProfileProjection(final Node root) {
+    this.root = root;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * @param parser parser positioned before the root of a profile
+   * @return a parser that only returns the fields in this projection
+   */
+  public JsonParser wrap(final JsonParser parser) {
+    if (this == ALL) {
+      return parser;
+    }
+    return new ProjectingJsonParser(parser, this);
+  }
+
+  Node getRoot() {
+    return root;
+  }
+
+  /** builds a projection from dotted paths */
+  public static final class Builder {
+    private final Node root = new Node(false);
+
+    private Builder() {}
+
+    /**
+     * @param paths dotted paths to keep along with everything under them
+     * @return this builder
+     */
+    public Builder include(final String... paths) {
+      for (final String path : paths) {
+        walk(path).all = true;
+      }
+      return this;
+    }
+
+    /**
+     * @param paths dotted paths to drop even when a parent path is included
+     * @return this builder
+     */
+    public Builder exclude(final String... paths) {
+      for (final String path : paths) {
+        final int last = path.lastIndexOf('.');
+        final Node parent = last < 0 ? root : walk(path.substring(0, last));
+        parent.children.put(path.substring(last + 1), Node.SKIP);
+      }
+      return this;
+    }
+
+    private Node walk(final String path) {
+      Node node = root;
+      for (final String name : path.split("\\.")) {
+        Node child = node.children.get(name);
+        if (child == null || child == Node.SKIP) {
+          // a new node under an included subtree keeps the rest of that subtree
+          child = new Node(node.all);
+          node.children.put(name, child);
+        }
+        node = child;
+      }
+      return node;
+    }
+
+    public ProfileProjection build() {
+      return new ProfileProjection(root);
+    }
+  }
+
+  /** one json object level of the projection */
+  static final class Node {
+    static final Node SKIP = new Node(false);
+    private static final Node KEEP = new Node(true);
+    private final Map<String, Node> children = new HashMap<>();
+    // true when fields without a child node are kept whole
+    private boolean all;
+
+    private Node(final boolean all) {
+      this.all = all;
+    }
+
+    /**
+     * @param name field name
+     * @return the node for the value of the field, null when the field is skipped
+     */
+    Node child(final String name) {
+      final Node child = children.get(name);
+      if (child == null) {
+        return all ? KEEP : null;
+      }
+      return child == SKIP ? null : child;
+    }
+  }
+}
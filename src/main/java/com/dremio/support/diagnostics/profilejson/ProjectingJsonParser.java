@@ -0,0 +1,97 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.profilejson;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.util.JsonParserDelegate;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Hides the fields outside of a projection from the databinder. Skipped values are passed over
+ * with {@link JsonParser#skipChildren()} so their strings and numbers are never decoded and no
+ * objects are created for them.
+ */
+class ProjectingJsonParser extends JsonParserDelegate {
+  // the projection node of every open object and array
+  private final Deque<ProfileProjection.Node> open = new ArrayDeque<>();
+  // node of the value that follows the last field name
+  private ProfileProjection.Node next;
+
+  ProjectingJsonParser(final JsonParser delegate, final ProfileProjection projection) {
+    super(delegate);
+    this.next = projection.getRoot();
+  }
+
+  @Override
+  public JsonToken nextToken() throws IOException {
+    while (true) {
+      final JsonToken token = delegate.nextToken();
+      if (token == null) {
+        return null;
+      }
+      switch (token) {
+        case FIELD_NAME -> {
+          final ProfileProjection.Node parent = open.peek();
+          final ProfileProjection.Node child =
+              parent == null ? null : parent.child(delegate.currentName());
+          if (child == null) {
+            // move onto the value and past it, for scalars skipChildren is a no-op
+            delegate.nextToken();
+            delegate.skipChildren();
+            continue;
+          }
+          next = child;
+          return token;
+        }
+        case START_OBJECT, START_ARRAY -> {
+          // elements of an array share the node of the array
+          final boolean inArray =
+              delegate.getParsingContext().getParent() != null
+                  && delegate.getParsingContext().getParent().inArray();
+          open.push(inArray ? open.peek() : next);
+          return token;
+        }
+        case END_OBJECT, END_ARRAY -> {
+          open.pop();
+          return token;
+        }
+        default -> {
+          return token;
+        }
+      }
+    }
+  }
+
+  @Override
+  public JsonToken nextValue() throws IOException {
+    final JsonToken token = nextToken();
+    if (token == JsonToken.FIELD_NAME) {
+      return nextToken();
+    }
+    return token;
+  }
+
+  @Override
+  public JsonParser skipChildren() throws IOException {
+    final JsonToken token = delegate.currentToken();
+    if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+      delegate.skipChildren();
+      open.pop();
+    }
+    return this;
+  }
+}
@@ -0,0 +1,98 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.profilejson;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Function;
+
+/**
+ * One pool shared by every profile report in the process. Reports used to create their own thread
+ * pool per call and never shut it down, which leaked threads on every request to the web server.
+ * The pool is a work stealing ForkJoinPool capped at the number of cores minus one, its threads are
+ * daemons so it never keeps the process alive.
+ */
+public final class ReportExecutor {
+  private static final int PARALLELISM =
+      Math.max(Runtime.getRuntime().availableProcessors() - 1, 2);
+  // a few chunks per thread so a slow chunk can be balanced by stealing
+  private static final int CHUNKS_PER_THREAD = 4;
+  private static final ForkJoinPool POOL = new ForkJoinPool(PARALLELISM);
+
+  private ReportExecutor() {}
+
+  public static int getParallelism() {
+    return PARALLELISM;
+  }
+
+  /**
+   * runs independent tasks on the shared pool and waits for all of them
+   *
+   * @param tasks the work to run
+   * @return results in the same order as the tasks
+   * @throws RuntimeException wrapping the first failure of a task
+   */
+  public static <T> List<T> invokeAll(final List<? extends Callable<T>> tasks) {
+    final List<ForkJoinTask<T>> submitted = new ArrayList<>(tasks.size());
+    for (final Callable<T> task : tasks) {
+      submitted.add(POOL.submit(task));
+    }
+    final List<T> results = new ArrayList<>(tasks.size());
+    for (final ForkJoinTask<T> task : submitted) {
+      results.add(task.join());
+    }
+    return results;
+  }
+
+  /**
+   * starts a task on the shared pool without waiting for it, callers bound how many they keep in
+   * flight
+   *
+   * @param task the work to run
+   * @return the submitted task
+   */
+  public static ForkJoinTask<?> submit(final Runnable task) {
+    return POOL.submit(task);
+  }
+
+  /**
+   * splits the items in contiguous ranges and maps every range on the shared pool, small inputs
+   * are mapped on the calling thread since a task would cost more than the work
+   *
+   * @param items items to process
+   * @param minChunkSize smallest range worth handing to another thread
+   * @param mapper maps one range of items to a result
+   * @return one result per range in the order of the items
+   */
+  public static <T, R> List<R> mapChunks(
+      final List<T> items, final int minChunkSize, final Function<List<T>, R> mapper) {
+    if (items.size() <= minChunkSize) {
+      return List.of(mapper.apply(items));
+    }
+    final int chunkSize =
+        Math.max(
+            minChunkSize,
+            (items.size() + PARALLELISM * CHUNKS_PER_THREAD - 1)
+                / (PARALLELISM * CHUNKS_PER_THREAD));
+    final List<Callable<R>> tasks = new ArrayList<>();
+    for (int start = 0; start < items.size(); start += chunkSize) {
+      final List<T> chunk = items.subList(start, Math.min(items.size(), start + chunkSize));
+      tasks.add(() -> mapper.apply(chunk));
+    }
+    return invokeAll(tasks);
+  }
+}
@@ -0,0 +1,508 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.profilejson.compact;
+
+import com.dremio.support.diagnostics.shared.dto.profilejson.FragmentProfile;
+import com.dremio.support.diagnostics.shared.dto.profilejson.InputProfile;
+import com.dremio.support.diagnostics.shared.dto.profilejson.Metric;
+import com.dremio.support.diagnostics.shared.dto.profilejson.MinorFragmentProfile;
+import com.dremio.support.diagnostics.shared.dto.profilejson.OperatorProfile;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The phases, threads and operators of a profile stored as columns of primitives instead of
+ * nested beans. Rows are addressed by ordinal: the threads of phase p are [phaseFirstThread(p),
+ * phaseEndThread(p)), the operators of thread t are [threadFirstOperator(t),
+ * threadEndOperator(t)) and the metrics of operator o are [operatorFirstMetric(o),
+ * operatorEndMetric(o)). Null phases, threads and operators in the source are left out.
+ *
+ * <p>The blocked durations of each thread already have the per resource blocked durations folded
+ * in the same way {@link com.dremio.support.diagnostics.profilejson.ProfileJSONParser} does.
+ */
+public final class CompactProfile {
+  /** a profile without any phases */
+  public static final CompactProfile EMPTY = new Builder().build();
+
+  // phases
+  private final int phases;
+  private final int[] majorFragmentId;
+  private final boolean[] phaseHasThreads;
+  private final int[] phaseFirstThread;
+
+  // threads
+  private final int threads;
+  private final int[] threadPhase;
+  private final long[] minorFragmentId;
+  private final long[] startTime;
+  private final long[] endTime;
+  private final long[] runDuration;
+  private final long[] blockedDuration;
+  private final long[] blockedOnUpstreamDuration;
+  private final long[] blockedOnDownstreamDuration;
+  private final long[] blockedOnSharedResourceDuration;
+  private final long[] sleepingDuration;
+  private final double[] maxMemoryUsed;
+  // index into endpoints, -1 when the thread has no endpoint
+  private final int[] threadEndpoint;
+  private final String[] endpoints;
+  private final int[] threadFirstOperator;
+
+  // operators
+  private final int operators;
+  private final int[] operatorThread;
+  private final long[] operatorId;
+  private final int[] operatorType;
+  private final long[] setupNanos;
+  private final long[] processNanos;
+  private final long[] waitNanos;
+  private final long[] peakLocalMemoryAllocated;
+  // -1 when the operator has no input profile
+  private final int[] inputCount;
+  private final long[] batches;
+  private final long[] records;
+  private final long[] size;
+  private final int[] operatorFirstMetric;
+
+  // metrics
+  private final long[] metricId;
+  private final long[] metricValue;
+
+  private CompactProfile(final Builder b) {
+    this.phases = b.phases;
+    this.majorFragmentId = Arrays.copyOf(b.majorFragmentId, b.phases);
+    this.phaseHasThreads = Arrays.copyOf(b.phaseHasThreads, b.phases);
+    this.phaseFirstThread = offsets(b.phaseFirstThread, b.phases, b.threads);
+    this.threads = b.threads;
+    this.threadPhase = Arrays.copyOf(b.threadPhase, b.threads);
+    this.minorFragmentId = Arrays.copyOf(b.minorFragmentId, b.threads);
+    this.startTime = Arrays.copyOf(b.startTime, b.threads);
+    this.endTime = Arrays.copyOf(b.endTime, b.threads);
+    this.runDuration = Arrays.copyOf(b.runDuration, b.threads);
+    this.blockedDuration = Arrays.copyOf(b.blockedDuration, b.threads);
+    this.blockedOnUpstreamDuration = Arrays.copyOf(b.blockedOnUpstreamDuration, b.threads);
+    this.blockedOnDownstreamDuration = Arrays.copyOf(b.blockedOnDownstreamDuration, b.threads);
+    this.blockedOnSharedResourceDuration =
+        Arrays.copyOf(b.blockedOnSharedResourceDuration, b.threads);
+    this.sleepingDuration = Arrays.copyOf(b.sleepingDuration, b.threads);
+    this.maxMemoryUsed = Arrays.copyOf(b.maxMemoryUsed, b.threads);
+    this.threadEndpoint = Arrays.copyOf(b.threadEndpoint, b.threads);
+    this.endpoints = b.endpointIds.keySet().toArray(new String[0]);
+    for (final Map.Entry<String, Integer> entry : b.endpointIds.entrySet()) {
+      this.endpoints[entry.getValue()] = entry.getKey();
+    }
+    this.threadFirstOperator = offsets(b.threadFirstOperator, b.threads, b.operators);
+    this.operators = b.operators;
+    this.operatorThread = Arrays.copyOf(b.operatorThread, b.operators);
+    this.operatorId = Arrays.copyOf(b.operatorId, b.operators);
+    this.operatorType = Arrays.copyOf(b.operatorType, b.operators);
+    this.setupNanos = Arrays.copyOf(b.setupNanos, b.operators);
+    this.processNanos = Arrays.copyOf(b.processNanos, b.operators);
+    this.waitNanos = Arrays.copyOf(b.waitNanos, b.operators);
+    this.peakLocalMemoryAllocated = Arrays.copyOf(b.peakLocalMemoryAllocated, b.operators);
+    this.inputCount = Arrays.copyOf(b.inputCount, b.operators);
+    this.batches = Arrays.copyOf(b.batches, b.operators);
+    this.records = Arrays.copyOf(b.records, b.operators);
+    this.size = Arrays.copyOf(b.size, b.operators);
+    this.operatorFirstMetric = offsets(b.operatorFirstMetric, b.operators, b.metrics);
+    this.metricId = Arrays.copyOf(b.metricId, b.metrics);
+    this.metricValue = Arrays.copyOf(b.metricValue, b.metrics);
+  }
+
+  // start offsets of each row with the total appended so the end of row i is offsets[i + 1]
+  private static int[] offsets(final int[] starts, final int rows, final int total) {
+    final int[] result = Arrays.copyOf(starts, rows + 1);
+    result[rows] = total;
+    return result;
+  }
+
+  /**
+   * @param fragmentProfiles the phases of a bound profile, may be null
+   * @return the same phases as columns
+   */
+  public static CompactProfile of(final List<FragmentProfile> fragmentProfiles) {
+    if (fragmentProfiles == null) {
+      return EMPTY;
+    }
+    final Builder b = new Builder();
+    for (final FragmentProfile fragment : fragmentProfiles) {
+      if (fragment == null) {
+        continue;
+      }
+      final int phase = b.addPhase();
+      b.majorFragmentId[phase] = fragment.getMajorFragmentId();
+      if (fragment.getMinorFragmentProfile() == null) {
+        continue;
+      }
+      b.phaseHasThreads[phase] = true;
+      for (final MinorFragmentProfile minor : fragment.getMinorFragmentProfile()) {
+        if (minor == null) {
+          continue;
+        }
+        final int t = b.addThread(phase);
+        b.minorFragmentId[t] = minor.getMinorFragmentId();
+        b.startTime[t] = minor.getStartTime();
+        b.endTime[t] = minor.getEndTime();
+        b.runDuration[t] = minor.getRunDuration();
+        b.blockedDuration[t] = minor.getBlockedDuration();
+        b.blockedOnUpstreamDuration[t] = minor.getBlockedOnUpstreamDuration();
+        b.blockedOnDownstreamDuration[t] = minor.getBlockedOnDownstreamDuration();
+        b.blockedOnSharedResourceDuration[t] = minor.getBlockedOnSharedResourceDuration();
+        b.sleepingDuration[t] = minor.getSleepingDuration();
+        b.maxMemoryUsed[t] = minor.getMaxMemoryUsed();
+        if (minor.getEndpoint() != null) {
+          b.setEndpoint(t, minor.getEndpoint().getAddress());
+        }
+        if (minor.getOperatorProfile() == null) {
+          continue;
+        }
+        for (final OperatorProfile operator : minor.getOperatorProfile()) {
+          if (operator == null) {
+            continue;
+          }
+          final int o = b.addOperator(t);
+          b.operatorId[o] = operator.getOperatorId();
+          b.operatorType[o] = operator.getOperatorType();
+          b.setupNanos[o] = operator.getSetupNanos();
+          b.processNanos[o] = operator.getProcessNanos();
+          b.waitNanos[o] = operator.getWaitNanos();
+          b.peakLocalMemoryAllocated[o] = operator.getPeakLocalMemoryAllocated();
+          if (operator.getInputProfile() != null) {
+            b.inputCount[o] = 0;
+            for (final InputProfile input : operator.getInputProfile()) {
+              b.addInput(o, input.getBatches(), input.getRecords(), input.getSize());
+            }
+          }
+          if (operator.getMetric() != null) {
+            for (final Metric metric : operator.getMetric()) {
+              b.addMetric(metric.getMetricId(), metric.getLongValue());
+            }
+          }
+        }
+      }
+    }
+    return b.build();
+  }
+
+  public int phaseCount() {
+    return phases;
+  }
+
+  public int majorFragmentId(final int phase) {
+    return majorFragmentId[phase];
+  }
+
+  /**
+   * @return false when the phase had no minorFragmentProfile list at all
+   */
+  public boolean phaseHasThreads(final int phase) {
+    return phaseHasThreads[phase];
+  }
+
+  public int phaseFirstThread(final int phase) {
+    return phaseFirstThread[phase];
+  }
+
+  public int phaseEndThread(final int phase) {
+    return phaseFirstThread[phase + 1];
+  }
+
+  public int threadCount() {
+    return threads;
+  }
+
+  public int threadPhase(final int thread) {
+    return threadPhase[thread];
+  }
+
+  /**
+   * @return the major fragment id of the phase the thread belongs to
+   */
+  public int threadMajorFragmentId(final int thread) {
+    return majorFragmentId[threadPhase[thread]];
+  }
+
+  public long minorFragmentId(final int thread) {
+    return minorFragmentId[thread];
+  }
+
+  public long startTime(final int thread) {
+    return startTime[thread];
+  }
+
+  public long endTime(final int thread) {
+    return endTime[thread];
+  }
+
+  public long runDuration(final int thread) {
+    return runDuration[thread];
+  }
+
+  public long blockedDuration(final int thread) {
+    return blockedDuration[thread];
+  }
+
+  public long blockedOnUpstreamDuration(final int thread) {
+    return blockedOnUpstreamDuration[thread];
+  }
+
+  public long blockedOnDownstreamDuration(final int thread) {
+    return blockedOnDownstreamDuration[thread];
+  }
+
+  public long blockedOnSharedResourceDuration(final int thread) {
+    return blockedOnSharedResourceDuration[thread];
+  }
+
+  public long sleepingDuration(final int thread) {
+    return sleepingDuration[thread];
+  }
+
+  public double maxMemoryUsed(final int thread) {
+    return maxMemoryUsed[thread];
+  }
+
+  public boolean hasEndpoint(final int thread) {
+    return threadEndpoint[thread] >= 0;
+  }
+
+  /**
+   * @return address of the node the thread ran on, null when there is no endpoint or address
+   */
+  public String endpointAddress(final int thread) {
+    final int endpoint = threadEndpoint[thread];
+    return endpoint < 0 ? null : endpoints[endpoint];
+  }
+
+  public int threadFirstOperator(final int thread) {
+    return threadFirstOperator[thread];
+  }
+
+  public int threadEndOperator(final int thread) {
+    return threadFirstOperator[thread + 1];
+  }
+
+  public int operatorCount() {
+    return operators;
+  }
+
+  public int operatorThread(final int operator) {
+    return operatorThread[operator];
+  }
+
+  public long operatorId(final int operator) {
+    return operatorId[operator];
+  }
+
+  public int operatorType(final int operator) {
+    return operatorType[operator];
+  }
+
+  public long setupNanos(final int operator) {
+    return setupNanos[operator];
+  }
+
+  public long processNanos(final int operator) {
+    return processNanos[operator];
+  }
+
+  public long waitNanos(final int operator) {
+    return waitNanos[operator];
+  }
+
+  public long peakLocalMemoryAllocated(final int operator) {
+    return peakLocalMemoryAllocated[operator];
+  }
+
+  /**
+   * @return false when the operator had no inputProfile list at all
+   */
+  public boolean hasInputProfile(final int operator) {
+    return inputCount[operator] >= 0;
+  }
+
+  /**
+   * @return batches summed over all inputs
+   */
+  public long batches(final int operator) {
+    return batches[operator];
+  }
+
+  /**
+   * @return records summed over all inputs
+   */
+  public long records(final int operator) {
+    return records[operator];
+  }
+
+  /**
+   * @return size summed over all inputs
+   */
+  public long size(final int operator) {
+    return size[operator];
+  }
+
+  public int operatorFirstMetric(final int operator) {
+    return operatorFirstMetric[operator];
+  }
+
+  public int operatorEndMetric(final int operator) {
+    return operatorFirstMetric[operator + 1];
+  }
+
+  public long metricId(final int metric) {
+    return metricId[metric];
+  }
+
+  public long metricValue(final int metric) {
+    return metricValue[metric];
+  }
+
+  /**
+   * @return approximate heap used by the columns
+   */
+  public long estimatedBytes() {
+    return 4L * (phases * 2L + threads * 3L + operators * 5L)
+        + phases
+        + 8L * (threads * 10L + operators * 9L + metricId.length * 2L);
+  }
+
+  /**
+   * Appends rows one at a time. Rows are added as soon as they start so values that appear later
+   * in the json can still be set on them, the columns are written directly by index.
+   */
+  static final class Builder {
+    int phases;
+    int[] majorFragmentId = new int[8];
+    boolean[] phaseHasThreads = new boolean[8];
+    int[] phaseFirstThread = new int[8];
+
+    int threads;
+    int[] threadPhase = new int[64];
+    long[] minorFragmentId = new long[64];
+    long[] startTime = new long[64];
+    long[] endTime = new long[64];
+    long[] runDuration = new long[64];
+    long[] blockedDuration = new long[64];
+    long[] blockedOnUpstreamDuration = new long[64];
+    long[] blockedOnDownstreamDuration = new long[64];
+    long[] blockedOnSharedResourceDuration = new long[64];
+    long[] sleepingDuration = new long[64];
+    double[] maxMemoryUsed = new double[64];
+    int[] threadEndpoint = new int[64];
+    int[] threadFirstOperator = new int[64];
+    final Map<String, Integer> endpointIds = new HashMap<>();
+
+    int operators;
+    int[] operatorThread = new int[256];
+    long[] operatorId = new long[256];
+    int[] operatorType = new int[256];
+    long[] setupNanos = new long[256];
+    long[] processNanos = new long[256];
+    long[] waitNanos = new long[256];
+    long[] peakLocalMemoryAllocated = new long[256];
+    int[] inputCount = new int[256];
+    long[] batches = new long[256];
+    long[] records = new long[256];
+    long[] size = new long[256];
+    int[] operatorFirstMetric = new int[256];
+
+    int metrics;
+    long[] metricId = new long[256];
+    long[] metricValue = new long[256];
+
+    int addPhase() {
+      if (phases == majorFragmentId.length) {
+        final int n = phases * 2;
+        majorFragmentId = Arrays.copyOf(majorFragmentId, n);
+        phaseHasThreads = Arrays.copyOf(phaseHasThreads, n);
+        phaseFirstThread = Arrays.copyOf(phaseFirstThread, n);
+      }
+      phaseFirstThread[phases] = threads;
+      return phases++;
+    }
+
+    int addThread(final int phase) {
+      if (threads == threadPhase.length) {
+        final int n = threads * 2;
+        threadPhase = Arrays.copyOf(threadPhase, n);
+        minorFragmentId = Arrays.copyOf(minorFragmentId, n);
+        startTime = Arrays.copyOf(startTime, n);
+        endTime = Arrays.copyOf(endTime, n);
+        runDuration = Arrays.copyOf(runDuration, n);
+        blockedDuration = Arrays.copyOf(blockedDuration, n);
+        blockedOnUpstreamDuration = Arrays.copyOf(blockedOnUpstreamDuration, n);
+        blockedOnDownstreamDuration = Arrays.copyOf(blockedOnDownstreamDuration, n);
+        blockedOnSharedResourceDuration = Arrays.copyOf(blockedOnSharedResourceDuration, n);
+        sleepingDuration = Arrays.copyOf(sleepingDuration, n);
+        maxMemoryUsed = Arrays.copyOf(maxMemoryUsed, n);
+        threadEndpoint = Arrays.copyOf(threadEndpoint, n);
+        threadFirstOperator = Arrays.copyOf(threadFirstOperator, n);
+      }
+      threadPhase[threads] = phase;
+      threadEndpoint[threads] = -1;
+      threadFirstOperator[threads] = operators;
+      return threads++;
+    }
+
+    void setEndpoint(final int thread, final String address) {
+      threadEndpoint[thread] = endpointIds.computeIfAbsent(address, k -> endpointIds.size());
+    }
+
+    int addOperator(final int thread) {
+      if (operators == operatorThread.length) {
+        final int n = operators * 2;
+        operatorThread = Arrays.copyOf(operatorThread, n);
+        operatorId = Arrays.copyOf(operatorId, n);
+        operatorType = Arrays.copyOf(operatorType, n);
+        setupNanos = Arrays.copyOf(setupNanos, n);
+        processNanos = Arrays.copyOf(processNanos, n);
+        waitNanos = Arrays.copyOf(waitNanos, n);
+        peakLocalMemoryAllocated = Arrays.copyOf(peakLocalMemoryAllocated, n);
+        inputCount = Arrays.copyOf(inputCount, n);
+        batches = Arrays.copyOf(batches, n);
+        records = Arrays.copyOf(records, n);
+        size = Arrays.copyOf(size, n);
+        operatorFirstMetric = Arrays.copyOf(operatorFirstMetric, n);
+      }
+      operatorThread[operators] = thread;
+      inputCount[operators] = -1;
+      operatorFirstMetric[operators] = metrics;
+      return operators++;
+    }
+
+    void addInput(final int operator, final long batches, final long records, final long size) {
+      inputCount[operator] = Math.max(0, inputCount[operator]) + 1;
+      this.batches[operator] += batches;
+      this.records[operator] += records;
+      this.size[operator] += size;
+    }
+
+    void addMetric(final long id, final long value) {
+      if (metrics == metricId.length) {
+        metricId = Arrays.copyOf(metricId, metrics * 2);
+        metricValue = Arrays.copyOf(metricValue, metrics * 2);
+      }
+      metricId[metrics] = id;
+      metricValue[metrics] = value;
+      metrics++;
+    }
+
+    CompactProfile build() {
+      return new CompactProfile(this);
+    }
+  }
+}
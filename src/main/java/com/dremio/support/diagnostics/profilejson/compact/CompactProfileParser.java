@@ -0,0 +1,286 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.profilejson.compact;
+
+import com.dremio.support.diagnostics.profilejson.Parser;
+import com.dremio.support.diagnostics.profilejson.ProfileCaches;
+import com.dremio.support.diagnostics.profilejson.ProfileProjection;
+import com.dremio.support.diagnostics.shared.dto.profilejson.ProfileJSON;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Streams the fragmentProfile section of a profile.json straight into a {@link CompactProfile}
+ * without creating a bean for any phase, thread or operator. The rest of the profile is bound as
+ * usual. The returned profile has no fragmentProfile list, only reports that read {@link
+ * ProfileCaches#compactProfile(ProfileJSON)} see its phases.
+ */
+public class CompactProfileParser implements Parser {
+  private static final ObjectMapper objectMapper = new ObjectMapper();
+  // same categories ProfileJSONParser folds into the blocked durations
+  private static final int UPSTREAM = 0;
+  private static final int DOWNSTREAM = 1;
+  private final ProfileProjection projection;
+
+  /** reads every field of the profile */
+  public CompactProfileParser() {
+    this(ProfileProjection.ALL);
+  }
+
+  /**
+   * @param projection fields to read, applies to the fragmentProfile section too so excluding the
+   *     operator metrics leaves the metric columns empty
+   */
+  public CompactProfileParser(final ProfileProjection projection) {
+    this.projection = projection;
+  }
+
+  @Override
+  public ProfileJSON parseFile(final InputStream file) throws IOException {
+    try (JsonParser p = projection.wrap(objectMapper.createParser(file))) {
+      if (p.nextToken() != JsonToken.START_OBJECT) {
+        throw new JsonParseException(p, "expected a profile.json object");
+      }
+      final CompactProfile.Builder builder = new CompactProfile.Builder();
+      final TokenBuffer header = new TokenBuffer(p, null);
+      header.writeStartObject();
+      while (p.nextToken() == JsonToken.FIELD_NAME) {
+        final String name = p.currentName();
+        p.nextToken();
+        if ("fragmentProfile".equals(name)) {
+          readPhases(p, builder);
+        } else {
+          header.writeFieldName(name);
+          header.copyCurrentStructure(p);
+        }
+      }
+      header.writeEndObject();
+      final ProfileJSON profile;
+      try (JsonParser headerParser = header.asParser(objectMapper)) {
+        profile = objectMapper.readValue(headerParser, ProfileJSON.class);
+      }
+      ProfileCaches.setCompactProfile(profile, builder.build());
+      return profile;
+    }
+  }
+
+  private static void readPhases(final JsonParser p, final CompactProfile.Builder b)
+      throws IOException {
+    if (p.currentToken() != JsonToken.START_ARRAY) {
+      p.skipChildren();
+      return;
+    }
+    while (p.nextToken() != JsonToken.END_ARRAY) {
+      if (p.currentToken() != JsonToken.START_OBJECT) {
+        p.skipChildren();
+        continue;
+      }
+      final int phase = b.addPhase();
+      while (p.nextToken() == JsonToken.FIELD_NAME) {
+        final String name = p.currentName();
+        final JsonToken value = p.nextToken();
+        if ("majorFragmentId".equals(name)) {
+          b.majorFragmentId[phase] = p.getValueAsInt();
+        } else if ("minorFragmentProfile".equals(name) && value == JsonToken.START_ARRAY) {
+          b.phaseHasThreads[phase] = true;
+          readThreads(p, b, phase);
+        } else {
+          p.skipChildren();
+        }
+      }
+    }
+  }
+
+  private static void readThreads(
+      final JsonParser p, final CompactProfile.Builder b, final int phase) throws IOException {
+    while (p.nextToken() != JsonToken.END_ARRAY) {
+      if (p.currentToken() != JsonToken.START_OBJECT) {
+        p.skipChildren();
+        continue;
+      }
+      final int t = b.addThread(phase);
+      long upstream = 0;
+      long downstream = 0;
+      long other = 0;
+      while (p.nextToken() == JsonToken.FIELD_NAME) {
+        final String name = p.currentName();
+        final JsonToken value = p.nextToken();
+        switch (name) {
+          case "minorFragmentId" -> b.minorFragmentId[t] = p.getValueAsLong();
+          case "startTime" -> b.startTime[t] = p.getValueAsLong();
+          case "endTime" -> b.endTime[t] = p.getValueAsLong();
+          case "runDuration" -> b.runDuration[t] = p.getValueAsLong();
+          case "blockedDuration" -> b.blockedDuration[t] = p.getValueAsLong();
+          case "blockedOnUpstreamDuration" -> b.blockedOnUpstreamDuration[t] = p.getValueAsLong();
+          case "blockedOnDownstreamDuration" ->
+              b.blockedOnDownstreamDuration[t] = p.getValueAsLong();
+          case "sleepingDuration" -> b.sleepingDuration[t] = p.getValueAsLong();
+          case "maxMemoryUsed" -> b.maxMemoryUsed[t] = p.getValueAsDouble();
+          case "endpoint" -> readEndpoint(p, b, t);
+          case "perResourceBlockedDuration" -> {
+            if (value != JsonToken.START_ARRAY) {
+              p.skipChildren();
+              break;
+            }
+            while (p.nextToken() != JsonToken.END_ARRAY) {
+              if (p.currentToken() != JsonToken.START_OBJECT) {
+                p.skipChildren();
+                continue;
+              }
+              int category = 0;
+              long duration = 0;
+              while (p.nextToken() == JsonToken.FIELD_NAME) {
+                final String field = p.currentName();
+                p.nextToken();
+                if ("category".equals(field)) {
+                  category = p.getValueAsInt();
+                } else if ("duration".equals(field)) {
+                  duration = p.getValueAsLong();
+                } else {
+                  p.skipChildren();
+                }
+              }
+              switch (category) {
+                case UPSTREAM -> upstream += duration;
+                case DOWNSTREAM -> downstream += duration;
+                default -> other += duration;
+              }
+            }
+          }
+          case "operatorProfile" -> {
+            if (value == JsonToken.START_ARRAY) {
+              readOperators(p, b, t);
+            } else {
+              p.skipChildren();
+            }
+          }
+          default -> p.skipChildren();
+        }
+      }
+      b.blockedOnUpstreamDuration[t] += upstream;
+      b.blockedOnDownstreamDuration[t] += downstream;
+      b.blockedOnSharedResourceDuration[t] = other;
+    }
+  }
+
+  private static void readEndpoint(final JsonParser p, final CompactProfile.Builder b, final int t)
+      throws IOException {
+    if (p.currentToken() != JsonToken.START_OBJECT) {
+      p.skipChildren();
+      return;
+    }
+    String address = null;
+    while (p.nextToken() == JsonToken.FIELD_NAME) {
+      final String name = p.currentName();
+      p.nextToken();
+      if ("address".equals(name)) {
+        address = p.getValueAsString();
+      } else {
+        p.skipChildren();
+      }
+    }
+    b.setEndpoint(t, address);
+  }
+
+  private static void readOperators(final JsonParser p, final CompactProfile.Builder b, final int t)
+      throws IOException {
+    while (p.nextToken() != JsonToken.END_ARRAY) {
+      if (p.currentToken() != JsonToken.START_OBJECT) {
+        p.skipChildren();
+        continue;
+      }
+      final int o = b.addOperator(t);
+      while (p.nextToken() == JsonToken.FIELD_NAME) {
+        final String name = p.currentName();
+        final JsonToken value = p.nextToken();
+        switch (name) {
+          case "operatorId" -> b.operatorId[o] = p.getValueAsLong();
+          case "operatorType" -> b.operatorType[o] = p.getValueAsInt();
+          case "setupNanos" -> b.setupNanos[o] = p.getValueAsLong();
+          case "processNanos" -> b.processNanos[o] = p.getValueAsLong();
+          case "waitNanos" -> b.waitNanos[o] = p.getValueAsLong();
+          case "peakLocalMemoryAllocated" -> b.peakLocalMemoryAllocated[o] = p.getValueAsLong();
+          case "inputProfile" -> {
+            if (value == JsonToken.START_ARRAY) {
+              b.inputCount[o] = 0;
+              readInputs(p, b, o);
+            } else {
+              p.skipChildren();
+            }
+          }
+          case "metric" -> {
+            if (value == JsonToken.START_ARRAY) {
+              readMetrics(p, b);
+            } else {
+              p.skipChildren();
+            }
+          }
+          default -> p.skipChildren();
+        }
+      }
+    }
+  }
+
+  private static void readInputs(final JsonParser p, final CompactProfile.Builder b, final int o)
+      throws IOException {
+    while (p.nextToken() != JsonToken.END_ARRAY) {
+      if (p.currentToken() != JsonToken.START_OBJECT) {
+        p.skipChildren();
+        continue;
+      }
+      long batches = 0;
+      long records = 0;
+      long size = 0;
+      while (p.nextToken() == JsonToken.FIELD_NAME) {
+        final String name = p.currentName();
+        p.nextToken();
+        switch (name) {
+          case "batches" -> batches = p.getValueAsLong();
+          case "records" -> records = p.getValueAsLong();
+          case "size" -> size = p.getValueAsLong();
+          default -> p.skipChildren();
+        }
+      }
+      b.addInput(o, batches, records, size);
+    }
+  }
+
+  private static void readMetrics(final JsonParser p, final CompactProfile.Builder b)
+      throws IOException {
+    // metrics of an operator are contiguous so they always belong to the last operator added
+    while (p.nextToken() != JsonToken.END_ARRAY) {
+      if (p.currentToken() != JsonToken.START_OBJECT) {
+        p.skipChildren();
+        continue;
+      }
+      long id = 0;
+      long value = 0;
+      while (p.nextToken() == JsonToken.FIELD_NAME) {
+        final String name = p.currentName();
+        p.nextToken();
+        switch (name) {
+          case "metricId" -> id = p.getValueAsLong();
+          case "longValue" -> value = p.getValueAsLong();
+          default -> p.skipChildren();
+        }
+      }
+      b.addMetric(id, value);
+    }
+  }
+}
@@ -0,0 +1,206 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.profilejson.corpus;
+
+import com.dremio.support.diagnostics.profilejson.ProfileProjection;
+import com.dremio.support.diagnostics.profilejson.ReportExecutor;
+import com.dremio.support.diagnostics.profilejson.compact.CompactProfileParser;
+import com.dremio.support.diagnostics.repro.ArgSetup;
+import com.dremio.support.diagnostics.shared.PathAndStream;
+import com.dremio.support.diagnostics.shared.dto.profilejson.ProfileJSON;
+import com.dremio.support.diagnostics.shared.zip.ArchiveDetection;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.ArchiveInputStream;
+
+/**
+ * Reads every profile in a directory or in an archive of profiles and hands a {@link ProfileFact}
+ * for each one to a consumer. Profiles are parsed in parallel on the report pool, only a couple of
+ * profiles per thread are in flight at once and each is dropped as soon as its fact row is built.
+ *
+ * <p>Entries of an archive are read in order and spooled to a temp file one at a time, the temp
+ * file is removed once the profile in it has been parsed. Each profile is opened the same way a
+ * single profile is, so zipped and gzipped profiles go through the usual unzipper.
+ */
+public class CorpusScanner {
+  private static final Logger LOGGER = Logger.getLogger(CorpusScanner.class.getName());
+  private static final int LOG_EVERY = 1000;
+  private final Consumer<ProfileFact> facts;
+  private final BiConsumer<String, String> failures;
+  private final int maxInFlight;
+  private final Semaphore inFlight;
+  private final AtomicLong processed = new AtomicLong();
+
+  /**
+   * @param facts receives the fact row of every profile read, called from many threads
+   * @param failures receives the name and error of every profile that could not be read, called
+   *     from many threads
+   */
+  public CorpusScanner(
+      final Consumer<ProfileFact> facts, final BiConsumer<String, String> failures) {
+    this.facts = facts;
+    this.failures = failures;
+    this.maxInFlight = ReportExecutor.getParallelism() * 2;
+    this.inFlight = new Semaphore(maxInFlight);
+  }
+
+  /**
+   * reads every profile under the input and waits until all of them are done
+   *
+   * @param input a directory, a tar, tgz or zip of profiles or a single profile
+   * @return number of profiles attempted
+   * @throws IOException when the input cannot be listed or an archive cannot be read
+   * @throws InterruptedException when interrupted waiting for the parsers
+   */
+  public long scan(final Path input) throws IOException, InterruptedException {
+    try {
+      if (Files.isDirectory(input)) {
+        scanDirectory(input);
+      } else if (isTarball(input.getFileName().toString())
+          || input.getFileName().toString().endsWith(".zip")) {
+        // a zip given directly may hold many profiles or be a single zipped profile, reading its
+        // entries handles both
+        scanArchive(input, input.toString());
+      } else {
+        submit(input.toString(), input, false);
+      }
+    } finally {
+      // wait for the last profiles
+      inFlight.acquire(maxInFlight);
+      inFlight.release(maxInFlight);
+    }
+    return processed.get();
+  }
+
+  private void scanDirectory(final Path dir) throws IOException, InterruptedException {
+    final List<Path> files;
+    try (Stream<Path> walk = Files.walk(dir)) {
+      files = walk.filter(Files::isRegularFile).sorted().toList();
+    }
+    for (final Path file : files) {
+      final String fileName = file.getFileName().toString();
+      if (isTarball(fileName)) {
+        scanArchive(file, file.toString());
+      } else if (isProfile(fileName)) {
+        submit(file.toString(), file, false);
+      }
+    }
+  }
+
+  @SuppressWarnings("rawtypes")
+  private void scanArchive(final Path archive, final String name)
+      throws IOException, InterruptedException {
+    try (InputStream in = Files.newInputStream(archive);
+        ArchiveInputStream entries = ArchiveDetection.getArchive(new PathAndStream(archive, in))) {
+      ArchiveEntry entry;
+      while ((entry = entries.getNextEntry()) != null) {
+        if (entry.isDirectory() || !entries.canReadEntryData(entry)) {
+          continue;
+        }
+        final String entryFileName = Path.of(entry.getName()).getFileName().toString();
+        final boolean tarball = isTarball(entryFileName);
+        if (!tarball && !isProfile(entryFileName)) {
+          continue;
+        }
+        // keep the file name at the end so the extension still picks the right reader
+        final Path spool = Files.createTempFile("dqd-corpus", "-" + entryFileName);
+        try {
+          Files.copy(entries, spool, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+          Files.deleteIfExists(spool);
+          throw e;
+        }
+        final String entryName = name + "!" + entry.getName();
+        if (tarball) {
+          // a tarball inside the tarball, read it in place before moving on
+          try {
+            scanArchive(spool, entryName);
+          } finally {
+            Files.deleteIfExists(spool);
+          }
+        } else {
+          submit(entryName, spool, true);
+        }
+      }
+    }
+  }
+
+  private void submit(final String name, final Path file, final boolean deleteAfter)
+      throws InterruptedException {
+    inFlight.acquire();
+    try {
+      ReportExecutor.submit(
+          () -> {
+            try {
+              read(name, file);
+            } finally {
+              if (deleteAfter) {
+                try {
+                  Files.deleteIfExists(file);
+                } catch (IOException e) {
+                  LOGGER.log(Level.WARNING, "unable to delete %s".formatted(file), e);
+                }
+              }
+              inFlight.release();
+            }
+          });
+    } catch (RuntimeException e) {
+      inFlight.release();
+      throw e;
+    }
+  }
+
+  private void read(final String name, final Path file) {
+    try (InputStream in = Files.newInputStream(file)) {
+      final ProfileJSON profile =
+          ArgSetup.getLocalProfileProvider(
+                  new PathAndStream(file, in), new CompactProfileParser(ProfileProjection.SUMMARY))
+              .getProfile();
+      facts.accept(ProfileFact.from(name, profile));
+    } catch (IOException | RuntimeException e) {
+      // one bad profile should not stop a corpus of thousands
+      LOGGER.log(Level.FINE, "unable to read %s".formatted(name), e);
+      failures.accept(name, String.valueOf(e.getMessage()));
+    }
+    final long count = processed.incrementAndGet();
+    if (count % LOG_EVERY == 0) {
+      LOGGER.info(() -> "%d profiles read".formatted(count));
+    }
+  }
+
+  /** tarballs hold many profiles, a zip inside a directory or archive is one zipped profile */
+  static boolean isTarball(final String fileName) {
+    return fileName.endsWith(".tar") || fileName.endsWith(".tgz") || fileName.endsWith(".tar.gz");
+  }
+
+  static boolean isProfile(final String fileName) {
+    // header.json sits next to the profile in the zips the UI downloads
+    if (fileName.equals("header.json")) {
+      return false;
+    }
+    return fileName.endsWith(".json") || ArchiveDetection.isArchive(fileName);
+  }
+}
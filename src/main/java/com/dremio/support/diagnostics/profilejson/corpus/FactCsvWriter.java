@@ -0,0 +1,96 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.profilejson.corpus;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+/** streams fact rows to a csv file as they are produced, one line per profile */
+public class FactCsvWriter implements Consumer<ProfileFact>, Closeable {
+  static final List<String> HEADER =
+      List.of(
+          "name",
+          "user",
+          "state",
+          "dremio_version",
+          "start_millis",
+          "duration_millis",
+          "phases",
+          "operators",
+          "top_operator_type",
+          "top_operator_nanos",
+          "peak_memory_bytes",
+          "node_skew",
+          "findings");
+  private final Writer writer;
+
+  /**
+   * @param writer destination, closed with this writer
+   * @throws IOException when the header cannot be written
+   */
+  public FactCsvWriter(final Writer writer) throws IOException {
+    this.writer = writer;
+    this.writer.write(String.join(",", HEADER));
+    this.writer.write('\n');
+  }
+
+  @Override
+  public synchronized void accept(final ProfileFact fact) {
+    final String line =
+        String.join(
+            ",",
+            escape(fact.name()),
+            escape(fact.user()),
+            fact.state(),
+            escape(fact.dremioVersion()),
+            String.valueOf(fact.startMillis()),
+            String.valueOf(fact.durationMillis()),
+            String.valueOf(fact.phases()),
+            String.valueOf(fact.operators()),
+            fact.topOperatorType(),
+            String.valueOf(fact.topOperatorNanos()),
+            String.valueOf(fact.peakMemoryBytes()),
+            String.format(Locale.ROOT, "%.3f", fact.nodeSkew()),
+            escape(String.join(";", fact.findings())));
+    try {
+      writer.write(line);
+      writer.write('\n');
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  static String escape(final String value) {
+    if (value == null) {
+      return "";
+    }
+    if (value.indexOf(',') < 0
+        && value.indexOf('"') < 0
+        && value.indexOf('\n') < 0
+        && value.indexOf('\r') < 0) {
+      return value;
+    }
+    return "\"" + value.replace("\"", "\"\"") + "\"";
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    writer.close();
+  }
+}
@@ -0,0 +1,190 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.profilejson.corpus;
+
+import com.dremio.support.diagnostics.shared.QuantileSketch;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * Fleet wide totals of a corpus of profiles. Only counters, sketches and a bounded list of the
+ * slowest queries are kept so memory does not grow with the number of profiles. Safe to feed from
+ * many threads.
+ */
+public class FleetSummary implements Consumer<ProfileFact> {
+  static final int SLOWEST_QUERIES = 50;
+  static final int MAX_FAILURES_KEPT = 100;
+  // the busiest node doing twice the average is worth looking at
+  static final double SKEW_THRESHOLD = 2.0;
+
+  /** a count and a total, used for the per user and per operator tables */
+  public record Total(long count, long total) {}
+
+  private final QuantileSketch durationMillis = new QuantileSketch();
+  private final QuantileSketch peakMemoryBytes = new QuantileSketch();
+  private final QuantileSketch nodeSkew = new QuantileSketch();
+  private final Map<String, Long> byState = new TreeMap<>();
+  private final Map<String, Long> byVersion = new TreeMap<>();
+  private final Map<String, Long> byFinding = new HashMap<>();
+  private final Map<String, long[]> byUser = new HashMap<>();
+  private final Map<String, long[]> byTopOperator = new HashMap<>();
+  private final PriorityQueue<ProfileFact> slowest =
+      new PriorityQueue<>(Comparator.comparingLong(ProfileFact::durationMillis));
+  private final List<String> failures = new ArrayList<>();
+  private long profiles;
+  private long skewedQueries;
+  private long failureCount;
+
+  @Override
+  public synchronized void accept(final ProfileFact fact) {
+    profiles++;
+    durationMillis.add(fact.durationMillis());
+    peakMemoryBytes.add(fact.peakMemoryBytes());
+    nodeSkew.add(fact.nodeSkew());
+    if (fact.nodeSkew() >= SKEW_THRESHOLD) {
+      skewedQueries++;
+    }
+    byState.merge(fact.state(), 1L, Long::sum);
+    byVersion.merge(fact.dremioVersion(), 1L, Long::sum);
+    for (final String finding : fact.findings()) {
+      byFinding.merge(finding, 1L, Long::sum);
+    }
+    final long[] user = byUser.computeIfAbsent(fact.user(), x -> new long[2]);
+    user[0]++;
+    user[1] += fact.durationMillis();
+    if (!fact.topOperatorType().isEmpty()) {
+      final long[] op = byTopOperator.computeIfAbsent(fact.topOperatorType(), x -> new long[2]);
+      op[0]++;
+      op[1] += fact.topOperatorNanos();
+    }
+    slowest.add(fact);
+    if (slowest.size() > SLOWEST_QUERIES) {
+      slowest.poll();
+    }
+  }
+
+  /**
+   * records a profile that could not be read
+   *
+   * @param name file of the profile
+   * @param reason why it failed
+   */
+  public synchronized void addFailure(final String name, final String reason) {
+    failureCount++;
+    if (failures.size() < MAX_FAILURES_KEPT) {
+      failures.add("%s: %s".formatted(name, reason));
+    }
+  }
+
+  public synchronized long getProfiles() {
+    return profiles;
+  }
+
+  public synchronized long getFailureCount() {
+    return failureCount;
+  }
+
+  /**
+   * @return the first failures, at most {@link #MAX_FAILURES_KEPT}
+   */
+  public synchronized List<String> getFailures() {
+    return new ArrayList<>(failures);
+  }
+
+  public synchronized long getSkewedQueries() {
+    return skewedQueries;
+  }
+
+  /**
+   * @param quantile between 0 and 1
+   * @return the query duration at that quantile in millis
+   */
+  public synchronized double getDurationMillis(final double quantile) {
+    return durationMillis.getCount() == 0 ? 0 : durationMillis.quantile(quantile);
+  }
+
+  /**
+   * @param quantile between 0 and 1
+   * @return the peak node memory at that quantile
+   */
+  public synchronized double getPeakMemoryBytes(final double quantile) {
+    return peakMemoryBytes.getCount() == 0 ? 0 : peakMemoryBytes.quantile(quantile);
+  }
+
+  /**
+   * @param quantile between 0 and 1
+   * @return the node skew at that quantile
+   */
+  public synchronized double getNodeSkew(final double quantile) {
+    return nodeSkew.getCount() == 0 ? 1 : nodeSkew.quantile(quantile);
+  }
+
+  public synchronized Map<String, Long> getByState() {
+    return new TreeMap<>(byState);
+  }
+
+  public synchronized Map<String, Long> getByVersion() {
+    return new TreeMap<>(byVersion);
+  }
+
+  /**
+   * @return queries per finding, most common first
+   */
+  public synchronized Map<String, Long> getByFinding() {
+    final Map<String, Long> sorted = new LinkedHashMap<>();
+    byFinding.entrySet().stream()
+        .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+        .forEach(x -> sorted.put(x.getKey(), x.getValue()));
+    return sorted;
+  }
+
+  /**
+   * @return queries and total duration in millis per user, busiest first
+   */
+  public synchronized Map<String, Total> getByUser() {
+    return sortedTotals(byUser);
+  }
+
+  /**
+   * @return queries where the operator type was the most expensive and its total process nanos,
+   *     most common first
+   */
+  public synchronized Map<String, Total> getByTopOperator() {
+    return sortedTotals(byTopOperator);
+  }
+
+  /**
+   * @return the slowest queries, slowest first
+   */
+  public synchronized List<ProfileFact> getSlowest() {
+    final List<ProfileFact> sorted = new ArrayList<>(slowest);
+    sorted.sort(Comparator.comparingLong(ProfileFact::durationMillis).reversed());
+    return sorted;
+  }
+
+  private static Map<String, Total> sortedTotals(final Map<String, long[]> totals) {
+    final Map<String, Total> sorted = new LinkedHashMap<>();
+    totals.entrySet().stream()
+        .sorted((a, b) -> Long.compare(b.getValue()[0], a.getValue()[0]))
+        .forEach(x -> sorted.put(x.getKey(), new Total(x.getValue()[0], x.getValue()[1])));
+    return sorted;
+  }
+}
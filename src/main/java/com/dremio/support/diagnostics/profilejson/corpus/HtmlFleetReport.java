@@ -0,0 +1,228 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.profilejson.corpus;
+
+import static com.dremio.support.diagnostics.shared.HtmlTableDataColumn.col;
+import static com.dremio.support.diagnostics.shared.Human.getHumanBytes1024;
+import static com.dremio.support.diagnostics.shared.Human.getHumanDurationFromMillis;
+import static com.dremio.support.diagnostics.shared.Human.getHumanDurationFromNanos;
+import static com.dremio.support.diagnostics.shared.Human.getHumanNumber;
+
+import com.dremio.support.diagnostics.shared.HtmlTableBuilder;
+import com.dremio.support.diagnostics.shared.HtmlTableDataColumn;
+import com.dremio.support.diagnostics.shared.JsLibraryTextProvider;
+import com.dremio.support.diagnostics.shared.Report;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+
+/** fleet wide html report of a corpus of profiles */
+public class HtmlFleetReport implements Report {
+  private final JsLibraryTextProvider jsLibraryTextProvider = new JsLibraryTextProvider();
+  private final HtmlTableBuilder builder = new HtmlTableBuilder();
+  private final FleetSummary summary;
+
+  public HtmlFleetReport(final FleetSummary summary) {
+    this.summary = summary;
+  }
+
+  private String overviewTable() {
+    final Collection<Collection<HtmlTableDataColumn<String, Number>>> rows = new ArrayList<>();
+    rows.add(row("profiles read", getHumanNumber(summary.getProfiles())));
+    rows.add(row("profiles that failed to read", getHumanNumber(summary.getFailureCount())));
+    for (final double q : new double[] {0.5, 0.95, 0.99, 1.0}) {
+      final String label = q == 1.0 ? "max" : "p" + Math.round(q * 100);
+      rows.add(
+          row(
+              label + " duration",
+              getHumanDurationFromMillis(Math.round(summary.getDurationMillis(q)))));
+    }
+    rows.add(
+        row(
+            "p95 peak node memory",
+            getHumanBytes1024(Math.round(summary.getPeakMemoryBytes(0.95)))));
+    rows.add(row("p95 node skew", "%.2f".formatted(summary.getNodeSkew(0.95))));
+    rows.add(
+        row(
+            "queries with node skew over %.1f".formatted(FleetSummary.SKEW_THRESHOLD),
+            getHumanNumber(summary.getSkewedQueries())));
+    return builder.generateTable(
+        "fleetOverviewTable", "Overview", Arrays.asList("measure", "value"), rows);
+  }
+
+  private static Collection<HtmlTableDataColumn<String, Number>> row(
+      final String name, final String value) {
+    return Arrays.asList(col(name), col(value));
+  }
+
+  private String countTable(
+      final String id, final String caption, final String header, final Map<String, Long> counts) {
+    final Collection<Collection<HtmlTableDataColumn<String, Number>>> rows = new ArrayList<>();
+    final long profiles = Math.max(1, summary.getProfiles());
+    for (final Map.Entry<String, Long> entry : counts.entrySet()) {
+      rows.add(
+          Arrays.asList(
+              col(entry.getKey()),
+              col(getHumanNumber(entry.getValue()), entry.getValue()),
+              col("%.2f%%".formatted(entry.getValue() * 100.0 / profiles), entry.getValue())));
+    }
+    return builder.generateTable(
+        id, caption, Arrays.asList(header, "queries", "% of queries"), rows);
+  }
+
+  private String usersTable() {
+    final Collection<Collection<HtmlTableDataColumn<String, Number>>> rows = new ArrayList<>();
+    for (final Map.Entry<String, FleetSummary.Total> entry : summary.getByUser().entrySet()) {
+      final FleetSummary.Total total = entry.getValue();
+      rows.add(
+          Arrays.asList(
+              col(entry.getKey()),
+              col(getHumanNumber(total.count()), total.count()),
+              col(getHumanDurationFromMillis(total.total()), total.total())));
+    }
+    return builder.generateTable(
+        "fleetUsersTable", "Users", Arrays.asList("user", "queries", "total duration"), rows);
+  }
+
+  private String operatorsTable() {
+    final Collection<Collection<HtmlTableDataColumn<String, Number>>> rows = new ArrayList<>();
+    for (final Map.Entry<String, FleetSummary.Total> entry :
+        summary.getByTopOperator().entrySet()) {
+      final FleetSummary.Total total = entry.getValue();
+      rows.add(
+          Arrays.asList(
+              col(entry.getKey()),
+              col(getHumanNumber(total.count()), total.count()),
+              col(getHumanDurationFromNanos(total.total()), total.total())));
+    }
+    return builder.generateTable(
+        "fleetOperatorsTable",
+        "Most Expensive Operator Type",
+        Arrays.asList("operator", "queries where it was the most expensive", "process time"),
+        rows);
+  }
+
+  private String slowestTable() {
+    final Collection<Collection<HtmlTableDataColumn<String, Number>>> rows = new ArrayList<>();
+    for (final ProfileFact fact : summary.getSlowest()) {
+      rows.add(
+          Arrays.asList(
+              col(fact.name(), true),
+              col(getHumanDurationFromMillis(fact.durationMillis()), fact.durationMillis()),
+              col(fact.user()),
+              col(fact.state()),
+              col(fact.phases() + "", fact.phases()),
+              col(fact.topOperatorType()),
+              col(getHumanBytes1024(fact.peakMemoryBytes()), fact.peakMemoryBytes()),
+              col("%.2f".formatted(fact.nodeSkew()), fact.nodeSkew()),
+              col(String.join(", ", fact.findings()), true)));
+    }
+    return builder.generateTable(
+        "fleetSlowestTable",
+        "Slowest Queries",
+        Arrays.asList(
+            "profile",
+            "duration",
+            "user",
+            "state",
+            "phases",
+            "top operator",
+            "peak node memory",
+            "node skew",
+            "findings"),
+        rows);
+  }
+
+  private String failuresTable() {
+    final Collection<Collection<HtmlTableDataColumn<String, Number>>> rows = new ArrayList<>();
+    for (final String failure : summary.getFailures()) {
+      rows.add(Arrays.asList(col(failure, true)));
+    }
+    return builder.generateTable(
+        "fleetFailuresTable", "Profiles That Failed To Read", Arrays.asList("error"), rows);
+  }
+
+  private static String card(final String content) {
+    return "<div class=\"bg-white rounded-lg shadow-sm p-6 mb-8\">\n" + content + "</div>\n";
+  }
+
+  @Override
+  public String getText() {
+    final StringBuilder body = new StringBuilder();
+    body.append(card(overviewTable()));
+    body.append(
+        card(countTable("fleetStatesTable", "Query States", "state", summary.getByState())));
+    body.append(
+        card(countTable("fleetFindingsTable", "Findings", "finding", summary.getByFinding())));
+    body.append(card(operatorsTable()));
+    body.append(card(usersTable()));
+    body.append(
+        card(
+            countTable(
+                "fleetVersionsTable", "Dremio Versions", "version", summary.getByVersion())));
+    body.append(card(slowestTable()));
+    if (summary.getFailureCount() > 0) {
+      body.append(card(failuresTable()));
+    }
+    return """
+<!doctype html>
+<html lang="en">
+<head>
+  <meta charset="utf-8">
+  <meta name="viewport" content="width=device-width, initial-scale=1">
+  <title>%s</title>
+  <script src="https://cdn.tailwindcss.com"></script>
+  <link rel="stylesheet" href="https://cdnjs.cloudflare.com/ajax/libs/font-awesome/6.4.0/css/all.min.css">
+  <script>%s</script>
+  <script>%s</script>
+  <script>%s</script>
+  <style>%s</style>
+</head>
+<body class="bg-gray-50">
+  <div class="min-h-screen py-8">
+    <div class="max-w-7xl mx-auto px-4 sm:px-6 lg:px-8">
+      <div class="bg-white rounded-lg shadow-sm p-6 mb-8">
+        <div class="flex items-center">
+          <div class="w-12 h-12 bg-indigo-100 rounded-xl flex items-center justify-center mr-4">
+            <i class="fas fa-layer-group text-indigo-600 text-xl"></i>
+          </div>
+          <div>
+            <h1 class="text-2xl font-bold text-gray-800">%s</h1>
+            <p class="text-gray-600 mt-1">%d profiles summarized</p>
+          </div>
+        </div>
+      </div>
+      %s
+    </div>
+  </div>
+</body>
+</html>
+"""
+        .formatted(
+            getTitle(),
+            jsLibraryTextProvider.getCSVExportText(),
+            jsLibraryTextProvider.getSortableText(),
+            jsLibraryTextProvider.getFilterTableText(),
+            jsLibraryTextProvider.getSortableCSSText(),
+            getTitle(),
+            summary.getProfiles(),
+            body);
+  }
+
+  @Override
+  public String getTitle() {
+    return "Profile Corpus Report";
+  }
+}
@@ -0,0 +1,180 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.profilejson.corpus;
+
+import com.dremio.support.diagnostics.profilejson.CoreOperatorType;
+import com.dremio.support.diagnostics.profilejson.ProfileCaches;
+import com.dremio.support.diagnostics.profilejson.QueryState;
+import com.dremio.support.diagnostics.profilejson.compact.CompactProfile;
+import com.dremio.support.diagnostics.profilejson.plan.PlanRelationshipParser;
+import com.dremio.support.diagnostics.profilejson.singlefile.reports.summary.FindingsReport;
+import com.dremio.support.diagnostics.shared.dto.profilejson.NodeProfile;
+import com.dremio.support.diagnostics.shared.dto.profilejson.ProfileJSON;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * The handful of numbers kept for each profile of a corpus. The profile itself is dropped as soon
+ * as this is extracted so a corpus of any size can be analyzed.
+ *
+ * @param name file the profile was read from
+ * @param user user that ran the query
+ * @param state final state of the query
+ * @param dremioVersion version of the coordinator
+ * @param startMillis start of the query in epoch millis
+ * @param durationMillis end minus start of the query
+ * @param phases number of phases (major fragments)
+ * @param operators number of operator instances across every thread
+ * @param topOperatorType operator type with the most process time summed across the query
+ * @param topOperatorNanos process time of that operator type
+ * @param peakMemoryBytes largest memory used on a single node
+ * @param nodeSkew process time of the busiest node divided by the average node, 1 is perfectly even
+ * @param findings kinds of findings reported by {@link FindingsReport}, numbers are masked so
+ *     findings can be counted across queries
+ */
+public record ProfileFact(
+    String name,
+    String user,
+    String state,
+    String dremioVersion,
+    long startMillis,
+    long durationMillis,
+    int phases,
+    long operators,
+    String topOperatorType,
+    long topOperatorNanos,
+    long peakMemoryBytes,
+    double nodeSkew,
+    List<String> findings) {
+
+  private static final Pattern NUMBERS = Pattern.compile("\\d+(\\.\\d+)?");
+  private static final int MAX_FINDING_LENGTH = 80;
+
+  /**
+   * extracts the fact row of a profile
+   *
+   * @param name file the profile was read from
+   * @param profile the parsed profile
+   * @return the fact row
+   */
+  public static ProfileFact from(final String name, final ProfileJSON profile) {
+    final CoreOperatorType[] types = CoreOperatorType.values();
+    final Map<String, Long> processByType = new HashMap<>();
+    final Map<String, Long> processByNode = new HashMap<>();
+    final CompactProfile compact = ProfileCaches.compactProfile(profile);
+    int phases = 0;
+    for (int p = 0; p < compact.phaseCount(); p++) {
+      if (compact.phaseHasThreads(p)) {
+        phases++;
+      }
+    }
+    final long operators = compact.operatorCount();
+    long peakOperatorMemory = 0;
+    for (int o = 0; o < compact.operatorCount(); o++) {
+      final int thread = compact.operatorThread(o);
+      final String node =
+          compact.endpointAddress(thread) != null ? compact.endpointAddress(thread) : "";
+      final int type = compact.operatorType(o);
+      final String kind =
+          type >= 0 && type < types.length ? types[type].name() : String.valueOf(type);
+      processByType.merge(kind, compact.processNanos(o), Long::sum);
+      processByNode.merge(node, compact.processNanos(o), Long::sum);
+      peakOperatorMemory = Math.max(peakOperatorMemory, compact.peakLocalMemoryAllocated(o));
+    }
+    String topOperatorType = "";
+    long topOperatorNanos = 0;
+    for (final Map.Entry<String, Long> entry : processByType.entrySet()) {
+      if (entry.getValue() > topOperatorNanos) {
+        topOperatorType = entry.getKey();
+        topOperatorNanos = entry.getValue();
+      }
+    }
+    long peakMemory = 0;
+    if (profile.getNodeProfile() != null) {
+      for (final NodeProfile node : profile.getNodeProfile()) {
+        peakMemory = Math.max(peakMemory, (long) node.getMaxMemoryUsed());
+      }
+    }
+    if (peakMemory == 0) {
+      // older profiles have no node profiles, the largest operator is the best we have
+      peakMemory = peakOperatorMemory;
+    }
+    final int state = profile.getState();
+    return new ProfileFact(
+        name,
+        profile.getUser() != null ? profile.getUser() : "",
+        state >= 0 && state < QueryState.values().length
+            ? QueryState.values()[state].name()
+            : "UNKNOWN",
+        profile.getDremioVersion() != null ? profile.getDremioVersion() : "",
+        profile.getStart(),
+        Math.max(0, profile.getEnd() - profile.getStart()),
+        phases,
+        operators,
+        topOperatorType,
+        topOperatorNanos,
+        peakMemory,
+        nodeSkew(processByNode.values()),
+        findingKinds(profile));
+  }
+
+  static double nodeSkew(final Iterable<Long> processByNode) {
+    long max = 0;
+    long total = 0;
+    int nodes = 0;
+    for (final long process : processByNode) {
+      max = Math.max(max, process);
+      total += process;
+      nodes++;
+    }
+    if (nodes < 2 || total == 0) {
+      return 1.0;
+    }
+    return max / (total / (double) nodes);
+  }
+
+  private static List<String> findingKinds(final ProfileJSON profile) {
+    final Set<String> kinds = new LinkedHashSet<>();
+    for (final String finding :
+        FindingsReport.searchForFindings(
+            profile, new PlanRelationshipParser().getPlanRelations(profile))) {
+      kinds.add(findingKind(finding));
+    }
+    return new ArrayList<>(kinds);
+  }
+
+  /**
+   * masks the numbers and cuts the details off a finding so the same finding on different queries
+   * counts as one
+   */
+  static String findingKind(final String finding) {
+    String kind = NUMBERS.matcher(finding).replaceAll("#");
+    for (final char stop : new char[] {':', '['}) {
+      final int at = kind.indexOf(stop);
+      if (at > 0) {
+        kind = kind.substring(0, at);
+      }
+    }
+    kind = kind.trim();
+    if (kind.length() > MAX_FINDING_LENGTH) {
+      kind = kind.substring(0, MAX_FINDING_LENGTH);
+    }
+    return kind;
+  }
+}
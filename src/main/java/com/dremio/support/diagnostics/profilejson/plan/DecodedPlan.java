@@ -0,0 +1,201 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.profilejson.plan;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The jsonPlan of a profile decoded once. Reports used to each rewrite the multi-megabyte plan
+ * string with a few replace passes and then parse it again, this reads the string in a single
+ * streaming pass and builds both views they need from the same tokens.
+ *
+ * <ul>
+ *   <li>{@link #getNodes()} typed plan nodes keyed by their phase-operator id, the quotes Dremio
+ *       wraps around keys and values are removed as the relationship parser always did
+ *   <li>{@link #getRawNodes()} the untyped value of every key as written, only the line breaks
+ *       and the extra escaping of quotes that 24.x and later add are removed so plans from
+ *       different versions compare equal
+ * </ul>
+ */
+public final class DecodedPlan {
+  private static final JsonFactory FACTORY = new JsonFactory();
+  private static final DecodedPlan EMPTY =
+      new DecodedPlan(Collections.emptyMap(), Collections.emptyMap());
+
+  private final Map<String, PlanNode> nodes;
+  private final Map<String, Object> rawNodes;
+
+  private DecodedPlan(final Map<String, PlanNode> nodes, final Map<String, Object> rawNodes) {
+    this.nodes = nodes;
+    this.rawNodes = rawNodes;
+  }
+
+  /**
+   * decodes a jsonPlan
+   *
+   * @param jsonPlan the jsonPlan field of a profile, may be null
+   * @return the decoded plan, empty when there is no plan
+   * @throws UncheckedIOException when the plan is not valid json, the cause is the parse error
+   */
+  public static DecodedPlan parse(final String jsonPlan) {
+    if (jsonPlan == null) {
+      return EMPTY;
+    }
+    final Map<String, PlanNode> nodes = new LinkedHashMap<>();
+    final Map<String, Object> rawNodes = new LinkedHashMap<>();
+    try (JsonParser p = FACTORY.createParser(jsonPlan)) {
+      if (p.nextToken() != JsonToken.START_OBJECT) {
+        throw new JsonParseException(p, "expected the plan to be a json object");
+      }
+      while (p.nextToken() == JsonToken.FIELD_NAME) {
+        final String key = p.currentName();
+        p.nextToken();
+        final Decoded value = readValue(p);
+        rawNodes.put(normalize(key), value.raw());
+        if (value.typed() instanceof Map<?, ?> map) {
+          nodes.put(stripQuotes(key), toPlanNode(map));
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return new DecodedPlan(
+        Collections.unmodifiableMap(nodes), Collections.unmodifiableMap(rawNodes));
+  }
+
+  /**
+   * @return the typed plan nodes keyed by phase-operator id, for example 00-01
+   */
+  public Map<String, PlanNode> getNodes() {
+    return nodes;
+  }
+
+  /**
+   * @return the untyped value of every key of the plan, keys are kept as written
+   */
+  public Map<String, Object> getRawNodes() {
+    return rawNodes;
+  }
+
+  /** a value read once and kept in both forms */
+  private record Decoded(Object raw, Object typed) {}
+
+  private static Decoded readValue(final JsonParser p) throws IOException {
+    switch (p.currentToken()) {
+      case START_OBJECT:
+        {
+          final Map<String, Object> raw = new LinkedHashMap<>();
+          final Map<String, Object> typed = new LinkedHashMap<>();
+          while (p.nextToken() == JsonToken.FIELD_NAME) {
+            final String name = p.currentName();
+            p.nextToken();
+            final Decoded value = readValue(p);
+            raw.put(normalize(name), value.raw());
+            typed.put(stripQuotes(name), value.typed());
+          }
+          return new Decoded(raw, typed);
+        }
+      case START_ARRAY:
+        {
+          final List<Object> raw = new ArrayList<>();
+          final List<Object> typed = new ArrayList<>();
+          while (p.nextToken() != JsonToken.END_ARRAY) {
+            final Decoded value = readValue(p);
+            raw.add(value.raw());
+            typed.add(value.typed());
+          }
+          return new Decoded(raw, typed);
+        }
+      case VALUE_STRING:
+        {
+          final String text = p.getText();
+          return new Decoded(normalize(text), stripQuotes(text));
+        }
+      case VALUE_NUMBER_INT:
+      case VALUE_NUMBER_FLOAT:
+        {
+          final Number number = p.getNumberValue();
+          return new Decoded(number, number);
+        }
+      case VALUE_TRUE:
+        return new Decoded(Boolean.TRUE, Boolean.TRUE);
+      case VALUE_FALSE:
+        return new Decoded(Boolean.FALSE, Boolean.FALSE);
+      case VALUE_NULL:
+        return new Decoded(null, null);
+      default:
+        throw new JsonParseException(p, "unexpected token " + p.currentToken());
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static PlanNode toPlanNode(final Map<?, ?> map) {
+    final PlanNode node = new PlanNode();
+    if (map.get("op") instanceof String op) {
+      node.setOp(op);
+    }
+    if (map.get("values") instanceof Map<?, ?> values) {
+      node.setValues((Map<String, Object>) values);
+    }
+    final List<String> inputs = new ArrayList<>();
+    if (map.get("inputs") instanceof List<?> list) {
+      for (final Object input : list) {
+        inputs.add(String.valueOf(input));
+      }
+    }
+    node.setInputs(inputs);
+    if (map.get("rowCount") instanceof Number rowCount) {
+      node.setRowCount(rowCount.doubleValue());
+    }
+    if (map.get("rowType") instanceof String rowType) {
+      node.setRowType(rowType);
+    }
+    if (map.get("cumulativeCost") instanceof String cumulativeCost) {
+      node.setCumulativeCost(cumulativeCost);
+    }
+    return node;
+  }
+
+  /**
+   * Older plans quote every key and value a second time ("\"00-01\"" for example), the
+   * relationship parser has always dropped those quotes.
+   */
+  static String stripQuotes(final String text) {
+    if (text.indexOf('"') < 0) {
+      return text;
+    }
+    return text.replace("\"", "");
+  }
+
+  /**
+   * Removes the line breaks and the escaped line breaks, and unescapes quotes that were escaped
+   * twice. 24.x and later write conditions and expressions this way.
+   */
+  static String normalize(final String text) {
+    if (text.indexOf('\n') < 0 && text.indexOf('\r') < 0 && text.indexOf('\\') < 0) {
+      return text;
+    }
+    return text.replace("\r", "").replace("\\n", "").replace("\n", "").replace("\\\"", "\"");
+  }
+}
@@ -0,0 +1,201 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.profilejson.plan;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Precomputed set of phases upstream and downstream of every plan relation. Each relation gets a
+ * bitset of phase ids, computed once in topological order so shared inputs of a join are only
+ * walked once, after that every lookup is a map get.
+ *
+ * <p>A relation named 02-03 is in phase 02. The phases reachable from a relation do not include the
+ * relation's own phase unless the graph leads back into it.
+ */
+public class PhaseReachability {
+  private final Map<String, BitSet> upstreamByName = new HashMap<>();
+  private final Map<String, BitSet> downstreamByName = new HashMap<>();
+  private final Map<String, Integer> phaseIds = new HashMap<>();
+  private final List<String> phases;
+
+  public PhaseReachability(final Collection<PlanRelation> relations) {
+    // relations can point at instances missing from the collection, collect the whole graph
+    final Map<PlanRelation, Integer> ids = new IdentityHashMap<>();
+    final List<PlanRelation> nodes = new ArrayList<>();
+    final Deque<PlanRelation> toVisit = new ArrayDeque<>(relations);
+    while (!toVisit.isEmpty()) {
+      final PlanRelation relation = toVisit.pop();
+      if (relation == null || ids.containsKey(relation)) {
+        continue;
+      }
+      ids.put(relation, nodes.size());
+      nodes.add(relation);
+      toVisit.addAll(relation.getUpstream());
+      toVisit.addAll(relation.getDownstream());
+    }
+    // sorted so phases come back in name order
+    final TreeSet<String> phaseNames = new TreeSet<>();
+    for (final PlanRelation node : nodes) {
+      phaseNames.add(phaseOf(node.getName()));
+    }
+    this.phases = new ArrayList<>(phaseNames);
+    for (int i = 0; i < phases.size(); i++) {
+      phaseIds.put(phases.get(i), i);
+    }
+    final int[] nodePhase = new int[nodes.size()];
+    final int[][] upstream = new int[nodes.size()][];
+    final int[][] downstream = new int[nodes.size()][];
+    for (int i = 0; i < nodes.size(); i++) {
+      final PlanRelation node = nodes.get(i);
+      nodePhase[i] = phaseIds.get(phaseOf(node.getName()));
+      upstream[i] = toIds(node.getUpstream(), ids);
+      downstream[i] = toIds(node.getDownstream(), ids);
+    }
+    final BitSet[] upstreamClosure = closure(upstream, nodePhase);
+    final BitSet[] downstreamClosure = closure(downstream, nodePhase);
+    for (int i = 0; i < nodes.size(); i++) {
+      final String name = nodes.get(i).getName();
+      upstreamByName.computeIfAbsent(name, k -> new BitSet()).or(upstreamClosure[i]);
+      downstreamByName.computeIfAbsent(name, k -> new BitSet()).or(downstreamClosure[i]);
+    }
+  }
+
+  /**
+   * @param relationName name of the relation like 02-03
+   * @return the phase part of the name, 02 for 02-03
+   */
+  public static String phaseOf(final String relationName) {
+    final int dash = relationName.indexOf('-');
+    return dash < 0 ? relationName : relationName.substring(0, dash);
+  }
+
+  /**
+   * @param relationName name of the relation like 02-03
+   * @return every phase that feeds the relation directly or indirectly, in phase order
+   */
+  public List<String> getUpstreamPhases(final String relationName) {
+    return toNames(upstreamByName.get(relationName));
+  }
+
+  /**
+   * @param relationName name of the relation like 02-03
+   * @return every phase the relation feeds directly or indirectly, in phase order
+   */
+  public List<String> getDownstreamPhases(final String relationName) {
+    return toNames(downstreamByName.get(relationName));
+  }
+
+  /**
+   * @return true if the phase feeds the relation directly or indirectly
+   */
+  public boolean isUpstream(final String relationName, final String phase) {
+    return contains(upstreamByName.get(relationName), phase);
+  }
+
+  /**
+   * @return true if the relation feeds the phase directly or indirectly
+   */
+  public boolean isDownstream(final String relationName, final String phase) {
+    return contains(downstreamByName.get(relationName), phase);
+  }
+
+  private boolean contains(final BitSet set, final String phase) {
+    final Integer id = phaseIds.get(phase);
+    return set != null && id != null && set.get(id);
+  }
+
+  private List<String> toNames(final BitSet set) {
+    final List<String> names = new ArrayList<>();
+    if (set == null) {
+      return names;
+    }
+    for (int i = set.nextSetBit(0); i >= 0; i = set.nextSetBit(i + 1)) {
+      names.add(phases.get(i));
+    }
+    return names;
+  }
+
+  private static int[] toIds(
+      final List<PlanRelation> relations, final Map<PlanRelation, Integer> ids) {
+    return relations.stream().filter(ids::containsKey).mapToInt(ids::get).toArray();
+  }
+
+  /**
+   * computes for every node the phases of all nodes reachable through edges. Nodes are processed
+   * after everything they point at (Kahn's algorithm), so each closure is the union of the closures
+   * of its direct neighbours. Nodes on a cycle, which a valid plan does not have, get whatever was
+   * reachable before the cycle.
+   */
+  private static BitSet[] closure(final int[][] edges, final int[] nodePhase) {
+    final int n = edges.length;
+    final BitSet[] result = new BitSet[n];
+    final int[] pending = new int[n];
+    final List<List<Integer>> dependents = new ArrayList<>(n);
+    for (int i = 0; i < n; i++) {
+      dependents.add(new ArrayList<>());
+    }
+    final Deque<Integer> ready = new ArrayDeque<>();
+    for (int i = 0; i < n; i++) {
+      pending[i] = edges[i].length;
+      for (final int target : edges[i]) {
+        dependents.get(target).add(i);
+      }
+      if (pending[i] == 0) {
+        ready.add(i);
+      }
+    }
+    final boolean[] done = new boolean[n];
+    int processed = 0;
+    while (processed < n) {
+      if (ready.isEmpty()) {
+        // a cycle, break it at the first node left
+        for (int i = 0; i < n; i++) {
+          if (!done[i]) {
+            ready.add(i);
+            break;
+          }
+        }
+      }
+      final int node = ready.poll();
+      if (done[node]) {
+        continue;
+      }
+      final BitSet set = new BitSet();
+      for (final int target : edges[node]) {
+        set.set(nodePhase[target]);
+        if (result[target] != null) {
+          set.or(result[target]);
+        }
+      }
+      result[node] = set;
+      done[node] = true;
+      processed++;
+      for (final int dependent : dependents.get(node)) {
+        if (--pending[dependent] == 0) {
+          ready.add(dependent);
+        }
+      }
+    }
+    return result;
+  }
+}
@@ -0,0 +1,54 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.profilejson.plan;
+
+import java.util.Comparator;
+
+/**
+ * A plan key such as 02-05 parsed once into its phase and operator so plans can be sorted without
+ * splitting the key on every comparison.
+ *
+ * @param phase the major fragment id, the 02 in 02-05
+ * @param operator the operator id inside the phase, the 05 in 02-05
+ * @param id the key without quotes
+ */
+public record PlanKey(int phase, int operator, String id) implements Comparable<PlanKey> {
+  private static final Comparator<PlanKey> ORDER =
+      Comparator.comparingInt(PlanKey::phase)
+          .thenComparingInt(PlanKey::operator)
+          .thenComparing(PlanKey::id);
+
+  /**
+   * @param key a plan key, surrounding quotes are ignored
+   * @return the parsed key, keys that are not in the phase-operator form sort last
+   */
+  public static PlanKey parse(final String key) {
+    final String id = DecodedPlan.stripQuotes(key);
+    final int dash = id.indexOf('-');
+    if (dash > 0) {
+      try {
+        return new PlanKey(
+            Integer.parseInt(id, 0, dash, 10), Integer.parseInt(id, dash + 1, id.length(), 10), id);
+      } catch (NumberFormatException e) {
+        // fall through and sort it after the numeric keys
+      }
+    }
+    return new PlanKey(Integer.MAX_VALUE, Integer.MAX_VALUE, id);
+  }
+
+  @Override
+  public int compareTo(final PlanKey o) {
+    return ORDER.compare(this, o);
+  }
+}
@@ -0,0 +1,54 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.profilejson.plan;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/** Plan relations keyed by name, built once so reports don't scan every relation per operator */
+public class PlanRelationIndex {
+  private final Map<String, List<PlanRelation>> byName = new HashMap<>();
+
+  public PlanRelationIndex(final Collection<PlanRelation> relations) {
+    for (final PlanRelation relation : relations) {
+      byName.computeIfAbsent(relation.getName(), k -> new ArrayList<>()).add(relation);
+    }
+  }
+
+  /**
+   * @param name relation name like 02-03
+   * @return the relations with the name in plan order, empty if there is none
+   */
+  public List<PlanRelation> getByName(final String name) {
+    return byName.getOrDefault(name, Collections.emptyList());
+  }
+
+  /**
+   * @param name relation name like 02-03
+   * @param key key in the values of the relation, for example condition
+   * @return the value of the first relation with the name that has the key, null if none do
+   */
+  public Object getValue(final String name, final String key) {
+    for (final PlanRelation relation : getByName(name)) {
+      if (relation.getValues() != null && relation.getValues().containsKey(key)) {
+        return relation.getValues().get(key);
+      }
+    }
+    return null;
+  }
+}
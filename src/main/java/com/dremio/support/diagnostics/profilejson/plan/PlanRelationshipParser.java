@@ -13,11 +13,8 @@
  */
 package com.dremio.support.diagnostics.profilejson.plan;
 
+import com.dremio.support.diagnostics.profilejson.ProfileCaches;
 import com.dremio.support.diagnostics.shared.dto.profilejson.ProfileJSON;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -46,18 +43,7 @@ public class PlanRelationshipParser {
     if (profileJSON.getJsonPlan() == null) {
       return new ArrayList<>();
     }
-    final ObjectMapper mapper = new ObjectMapper();
-    final String jsonString = profileJSON.getJsonPlan().replaceAll("\\n", "\n").replace("\\\"", "");
-
-    Map<String, PlanNode> map;
-    try {
-      map =
-          mapper.readValue(
-              jsonString.getBytes(StandardCharsets.UTF_8),
-              new TypeReference<Map<String, PlanNode>>() {});
-    } catch (final IOException e) {
-      throw new RuntimeException(e);
-    }
+    final Map<String, PlanNode> map = ProfileCaches.decodedPlan(profileJSON).getNodes();
     List<PlanRelation> planRelations = new ArrayList<>();
     for (final Map.Entry<String, PlanNode> kvp : map.entrySet()) {
       planRelations.add(fromPlanNode(kvp.getKey(), kvp.getValue(), map));
@@ -0,0 +1,206 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.profilejson.plan;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 64 bit hashes of every node of a decoded plan and of the subtree below it. The subtree hash of a
+ * node covers its own values and the subtree hashes of its inputs so when two plans agree on it
+ * the whole subtree can be skipped without looking at any of it.
+ */
+public final class PlanTreeHash {
+  private static final long SEED = 0xcbf29ce484222325L;
+  private static final long PRIME = 0x100000001b3L;
+
+  private final Map<String, String> rawKeys = new HashMap<>();
+  private final Map<String, Object> rawValues = new HashMap<>();
+  private final Map<String, List<String>> inputs = new HashMap<>();
+  private final Map<String, Long> nodeHashes = new HashMap<>();
+  private final Map<String, Long> subtreeHashes = new HashMap<>();
+  private final List<String> roots = new ArrayList<>();
+
+  /**
+   * @param plan the plan to hash, nodes are keyed by their id without quotes
+   */
+  public PlanTreeHash(final DecodedPlan plan) {
+    for (final Map.Entry<String, Object> entry : plan.getRawNodes().entrySet()) {
+      final String id = DecodedPlan.stripQuotes(entry.getKey());
+      rawKeys.put(id, entry.getKey());
+      rawValues.put(id, entry.getValue());
+      nodeHashes.put(id, hash(SEED, entry.getValue()));
+    }
+    for (final String id : rawKeys.keySet()) {
+      final PlanNode node = plan.getNodes().get(id);
+      final List<String> nodeInputs = new ArrayList<>();
+      if (node != null) {
+        for (final String input : node.getInputs()) {
+          // inputs pointing outside the plan cannot change a subtree, leave them out
+          if (rawKeys.containsKey(input)) {
+            nodeInputs.add(input);
+          }
+        }
+      }
+      inputs.put(id, nodeInputs);
+    }
+    final Set<String> consumed = new HashSet<>();
+    for (final List<String> nodeInputs : inputs.values()) {
+      consumed.addAll(nodeInputs);
+    }
+    for (final String id : rawKeys.keySet()) {
+      if (!consumed.contains(id)) {
+        roots.add(id);
+        computeSubtree(id);
+      }
+    }
+    // a cycle has no node that is not consumed, start from any node not reached yet
+    for (final String id : rawKeys.keySet()) {
+      if (!subtreeHashes.containsKey(id)) {
+        roots.add(id);
+        computeSubtree(id);
+      }
+    }
+  }
+
+  /** post order walk with an explicit stack, deep plans would overflow a recursive one */
+  private void computeSubtree(final String start) {
+    final Set<String> onStack = new HashSet<>();
+    final Deque<String> stack = new ArrayDeque<>();
+    stack.push(start);
+    while (!stack.isEmpty()) {
+      final String id = stack.peek();
+      if (subtreeHashes.containsKey(id)) {
+        stack.pop();
+        continue;
+      }
+      if (onStack.add(id)) {
+        for (final String input : inputs.get(id)) {
+          if (!subtreeHashes.containsKey(input) && !onStack.contains(input)) {
+            stack.push(input);
+          }
+        }
+        continue;
+      }
+      stack.pop();
+      onStack.remove(id);
+      long h = nodeHashes.get(id);
+      for (final String input : inputs.get(id)) {
+        // an input still missing is a back edge of a cycle, its id stands in for its hash
+        final Long inputHash = subtreeHashes.get(input);
+        h = mix(h, inputHash != null ? inputHash : hash(SEED, input));
+      }
+      subtreeHashes.put(id, h);
+    }
+  }
+
+  /**
+   * @return ids of every node in the plan
+   */
+  public Set<String> getIds() {
+    return Collections.unmodifiableSet(rawKeys.keySet());
+  }
+
+  /**
+   * @param id node id without quotes
+   * @return the key as written in the plan, null when the node is not in the plan
+   */
+  public String getRawKey(final String id) {
+    return rawKeys.get(id);
+  }
+
+  /**
+   * @param id node id without quotes
+   * @return the untyped value of the node, null when the node is not in the plan
+   */
+  public Object getRawValue(final String id) {
+    return rawValues.get(id);
+  }
+
+  /**
+   * Finds the nodes whose own values differ between two plans or that are only in one of them.
+   * The walk starts at the roots of both plans and stops at any node whose subtree hash matches.
+   *
+   * @param a first plan
+   * @param b second plan
+   * @return ids of the changed nodes
+   */
+  public static Set<String> changedNodes(final PlanTreeHash a, final PlanTreeHash b) {
+    final Set<String> changed = new LinkedHashSet<>();
+    final Set<String> visited = new HashSet<>();
+    final Deque<String> work = new ArrayDeque<>(a.roots);
+    work.addAll(b.roots);
+    while (!work.isEmpty()) {
+      final String id = work.pop();
+      if (!visited.add(id)) {
+        continue;
+      }
+      final Long subtreeA = a.subtreeHashes.get(id);
+      final Long subtreeB = b.subtreeHashes.get(id);
+      if (subtreeA != null && subtreeA.equals(subtreeB)) {
+        continue;
+      }
+      if (subtreeA == null
+          || subtreeB == null
+          || !a.nodeHashes.get(id).equals(b.nodeHashes.get(id))) {
+        changed.add(id);
+      }
+      if (subtreeA != null) {
+        work.addAll(a.inputs.get(id));
+      }
+      if (subtreeB != null) {
+        work.addAll(b.inputs.get(id));
+      }
+    }
+    return changed;
+  }
+
+  private static long mix(final long h, final long value) {
+    long x = (h ^ value) * 0x9e3779b97f4a7c15L;
+    return x ^ (x >>> 31);
+  }
+
+  // ordered hash of the same structure the report prints with toString
+  private static long hash(final long seed, final Object value) {
+    if (value instanceof Map<?, ?> map) {
+      long h = mix(seed, 'm');
+      for (final Map.Entry<?, ?> entry : map.entrySet()) {
+        h = hash(h, entry.getKey());
+        h = hash(h, entry.getValue());
+      }
+      return mix(h, map.size());
+    }
+    if (value instanceof List<?> list) {
+      long h = mix(seed, 'l');
+      for (final Object item : list) {
+        h = hash(h, item);
+      }
+      return mix(h, list.size());
+    }
+    final String text = String.valueOf(value);
+    long h = mix(seed, 's');
+    for (int i = 0; i < text.length(); i++) {
+      h = (h ^ text.charAt(i)) * PRIME;
+    }
+    return mix(h, text.length());
+  }
+}
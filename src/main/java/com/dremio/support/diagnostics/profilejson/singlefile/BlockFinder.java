@@ -16,29 +16,65 @@ package com.dremio.support.diagnostics.profilejson.singlefile;
 import com.dremio.support.diagnostics.shared.dto.profilejson.FragmentProfile;
 import com.dremio.support.diagnostics.shared.dto.profilejson.MinorFragmentProfile;
 import com.dremio.support.diagnostics.shared.dto.profilejson.ProfileJSON;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import org.apache.commons.lang3.StringUtils;
 
 public class BlockFinder {
 
+  /**
+   * @param profileJson profile to index
+   * @return the fragments of the profile keyed by the zero padded phase name, 02 for phase 2
+   */
+  public static Map<String, List<FragmentProfile>> getFragmentsByPhase(
+      final ProfileJSON profileJson) {
+    final Map<String, List<FragmentProfile>> fragmentsByPhase = new HashMap<>();
+    if (profileJson.getFragmentProfile() == null) {
+      return fragmentsByPhase;
+    }
+    for (final FragmentProfile fragmentProfile : profileJson.getFragmentProfile()) {
+      if (fragmentProfile == null || fragmentProfile.getMinorFragmentProfile() == null) {
+        continue;
+      }
+      fragmentsByPhase
+          .computeIfAbsent(
+              StringUtils.leftPad(String.valueOf(fragmentProfile.getMajorFragmentId()), 2, "0"),
+              k -> new ArrayList<>())
+          .add(fragmentProfile);
+    }
+    return fragmentsByPhase;
+  }
+
   public PhaseBlockStats getUpstreamPhaseBlockStats(
       final String phase, final MinorFragmentProfile mostBlocked, final ProfileJSON profileJson) {
+    return getUpstreamPhaseBlockStats(phase, mostBlocked, getFragmentsByPhase(profileJson));
+  }
+
+  /**
+   * same as {@link #getUpstreamPhaseBlockStats(String, MinorFragmentProfile, ProfileJSON)} with
+   * the fragments already grouped by phase, use when looking up many phases of the same profile
+   */
+  public PhaseBlockStats getUpstreamPhaseBlockStats(
+      final String phase,
+      final MinorFragmentProfile mostBlocked,
+      final Map<String, List<FragmentProfile>> fragmentsByPhase) {
     long maxBlock = 0;
     long maxSleep = 0;
     long maxRunTime = 0;
-    for (final FragmentProfile fragmentProfile : profileJson.getFragmentProfile()) {
-      if (StringUtils.leftPad(String.valueOf(fragmentProfile.getMajorFragmentId()), 2, "0")
-          .equals(phase)) {
-        for (MinorFragmentProfile minorFragmentProfile :
-            fragmentProfile.getMinorFragmentProfile()) {
-          if (minorFragmentProfile.getBlockedOnUpstreamDuration() > maxBlock) {
-            maxBlock = minorFragmentProfile.getBlockedOnUpstreamDuration();
-          }
-          if (minorFragmentProfile.getSleepingDuration() > maxSleep) {
-            maxSleep = minorFragmentProfile.getSleepingDuration();
-          }
-          if (minorFragmentProfile.getRunDuration() > maxRunTime) {
-            maxRunTime = minorFragmentProfile.getRunDuration();
-          }
+    for (final FragmentProfile fragmentProfile :
+        fragmentsByPhase.getOrDefault(phase, Collections.emptyList())) {
+      for (MinorFragmentProfile minorFragmentProfile : fragmentProfile.getMinorFragmentProfile()) {
+        if (minorFragmentProfile.getBlockedOnUpstreamDuration() > maxBlock) {
+          maxBlock = minorFragmentProfile.getBlockedOnUpstreamDuration();
+        }
+        if (minorFragmentProfile.getSleepingDuration() > maxSleep) {
+          maxSleep = minorFragmentProfile.getSleepingDuration();
+        }
+        if (minorFragmentProfile.getRunDuration() > maxRunTime) {
+          maxRunTime = minorFragmentProfile.getRunDuration();
         }
       }
     }
@@ -58,23 +94,31 @@ public class BlockFinder {
 
   public PhaseBlockStats getDownstreamPhaseBlockStats(
       final String phase, final MinorFragmentProfile mostBlocked, final ProfileJSON profileJson) {
+    return getDownstreamPhaseBlockStats(phase, mostBlocked, getFragmentsByPhase(profileJson));
+  }
+
+  /**
+   * same as {@link #getDownstreamPhaseBlockStats(String, MinorFragmentProfile, ProfileJSON)} with
+   * the fragments already grouped by phase, use when looking up many phases of the same profile
+   */
+  public PhaseBlockStats getDownstreamPhaseBlockStats(
+      final String phase,
+      final MinorFragmentProfile mostBlocked,
+      final Map<String, List<FragmentProfile>> fragmentsByPhase) {
     long maxBlock = 0;
     long maxSleep = 0;
     long maxRunTime = 0;
-    for (final FragmentProfile fragmentProfile : profileJson.getFragmentProfile()) {
-      if (StringUtils.leftPad(String.valueOf(fragmentProfile.getMajorFragmentId()), 2, "0")
-          .equals(phase)) {
-        for (MinorFragmentProfile minorFragmentProfile :
-            fragmentProfile.getMinorFragmentProfile()) {
-          if (minorFragmentProfile.getBlockedOnDownstreamDuration() > maxBlock) {
-            maxBlock = minorFragmentProfile.getBlockedOnDownstreamDuration();
-          }
-          if (minorFragmentProfile.getSleepingDuration() > maxSleep) {
-            maxSleep = minorFragmentProfile.getSleepingDuration();
-          }
-          if (minorFragmentProfile.getRunDuration() > maxRunTime) {
-            maxRunTime = minorFragmentProfile.getRunDuration();
-          }
+    for (final FragmentProfile fragmentProfile :
+        fragmentsByPhase.getOrDefault(phase, Collections.emptyList())) {
+      for (MinorFragmentProfile minorFragmentProfile : fragmentProfile.getMinorFragmentProfile()) {
+        if (minorFragmentProfile.getBlockedOnDownstreamDuration() > maxBlock) {
+          maxBlock = minorFragmentProfile.getBlockedOnDownstreamDuration();
+        }
+        if (minorFragmentProfile.getSleepingDuration() > maxSleep) {
+          maxSleep = minorFragmentProfile.getSleepingDuration();
+        }
+        if (minorFragmentProfile.getRunDuration() > maxRunTime) {
+          maxRunTime = minorFragmentProfile.getRunDuration();
         }
       }
     }
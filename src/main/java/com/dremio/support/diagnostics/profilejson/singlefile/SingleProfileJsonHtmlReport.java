@@ -15,6 +15,8 @@ package com.dremio.support.diagnostics.profilejson.singlefile;
 
 import com.dremio.support.diagnostics.profilejson.Operator;
 import com.dremio.support.diagnostics.profilejson.PhaseThread;
+import com.dremio.support.diagnostics.profilejson.ProfileCaches;
+import com.dremio.support.diagnostics.profilejson.compact.CompactProfile;
 import com.dremio.support.diagnostics.profilejson.converttorel.ConvertToRelGraph;
 import com.dremio.support.diagnostics.profilejson.converttorel.ConvertToRelGraphParser;
 import com.dremio.support.diagnostics.profilejson.plan.PlanRelation;
@@ -27,9 +29,7 @@ import com.dremio.support.diagnostics.profilejson.singlefile.reports.plots.Timel
 import com.dremio.support.diagnostics.shared.Human;
 import com.dremio.support.diagnostics.shared.JsLibraryTextProvider;
 import com.dremio.support.diagnostics.shared.Report;
-import com.dremio.support.diagnostics.shared.dto.profilejson.FragmentProfile;
-import com.dremio.support.diagnostics.shared.dto.profilejson.MinorFragmentProfile;
-import com.dremio.support.diagnostics.shared.dto.profilejson.OperatorProfile;
+import com.dremio.support.diagnostics.shared.dto.profilejson.MetricsDef;
 import com.dremio.support.diagnostics.shared.dto.profilejson.ProfileJSON;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -143,25 +143,13 @@ public class SingleProfileJsonHtmlReport implements Report {
       sections.add("timeline-section");
       titles.add("Timeline");
       // graph out operators by process time
-      if (this.parsed.getFragmentProfile() != null) {
-        for (final FragmentProfile fragmentProfile : this.parsed.getFragmentProfile()) {
-          if (fragmentProfile != null && fragmentProfile.getMinorFragmentProfile() != null) {
-            final int phaseId = fragmentProfile.getMajorFragmentId();
-            for (final MinorFragmentProfile minorProfile :
-                fragmentProfile.getMinorFragmentProfile()) {
-              if (minorProfile != null && minorProfile.getOperatorProfile() != null) {
-                for (final OperatorProfile operatorProfile : minorProfile.getOperatorProfile()) {
-                  final Operator operator =
-                      Operator.createFromOperatorProfile(
-                          operatorProfile, this.parsed.getOperatorTypeMetricsMap().getMetricsDef());
-                  operator.setParentPhaseId(phaseId);
-                  operator.setThreadId(minorProfile.getMinorFragmentId());
-                  operators.add(operator);
-                }
-              }
-            }
-          }
-        }
+      final CompactProfile compact = ProfileCaches.compactProfile(this.parsed);
+      final List<MetricsDef> metricsDef =
+          this.parsed.getOperatorTypeMetricsMap() == null
+              ? null
+              : this.parsed.getOperatorTypeMetricsMap().getMetricsDef();
+      for (int o = 0; o < compact.operatorCount(); o++) {
+        operators.add(Operator.createFromCompact(compact, o, metricsDef));
       }
       final String[] operatorNames = new String[operators.size()];
       final String[] operatorText = new String[operators.size()];
@@ -614,38 +602,15 @@ public class SingleProfileJsonHtmlReport implements Report {
 
   private List<PhaseThread> getPhaseThreads() {
     final List<PhaseThread> phaseThreads = new ArrayList<>();
-    if (this.parsed != null && this.parsed.getFragmentProfile() != null) {
-      for (final FragmentProfile phase : this.parsed.getFragmentProfile()) {
-        if (phase != null && phase.getMinorFragmentProfile() != null) {
-          final int phaseId = phase.getMajorFragmentId();
-          for (final MinorFragmentProfile phaseThread : phase.getMinorFragmentProfile()) {
-            final long threadId = phaseThread.getMinorFragmentId();
-            final PhaseThread pt = getPhaseThread(phaseThread, phaseId, threadId);
-            phaseThreads.add(pt);
-          }
-        }
+    if (this.parsed != null) {
+      final CompactProfile compact = ProfileCaches.compactProfile(this.parsed);
+      for (int t = 0; t < compact.threadCount(); t++) {
+        phaseThreads.add(PhaseThread.createFromCompact(compact, t));
       }
     }
     return phaseThreads;
   }
 
-  private static PhaseThread getPhaseThread(
-      MinorFragmentProfile phaseThread, int phaseId, long threadId) {
-    final PhaseThread pt = new PhaseThread();
-    pt.setPhaseId(phaseId);
-    pt.setThreadId(threadId);
-    pt.setRunDuration(phaseThread.getRunDuration());
-    pt.setBlockedDuration(phaseThread.getBlockedDuration());
-    pt.setBlockedOnUpstreamDuration(phaseThread.getBlockedOnUpstreamDuration());
-    pt.setBlockedOnDownstreamDuration(phaseThread.getBlockedOnDownstreamDuration());
-    pt.setBlockedOnSharedResourceDuration(phaseThread.getBlockedOnSharedResourceDuration());
-    pt.setSleepingDuration(phaseThread.getSleepingDuration());
-    pt.setTotalTimeMillis(phaseThread.getEndTime() - phaseThread.getStartTime());
-    pt.setEndTime(phaseThread.getEndTime());
-    pt.setStartTime(phaseThread.getEndTime() - pt.getRunDuration());
-    return pt;
-  }
-
   public ProfileJSON getParsed() {
     return parsed;
   }
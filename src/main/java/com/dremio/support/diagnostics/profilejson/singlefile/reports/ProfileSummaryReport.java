@@ -13,6 +13,7 @@
  */
 package com.dremio.support.diagnostics.profilejson.singlefile.reports;
 
+import com.dremio.support.diagnostics.profilejson.ReportExecutor;
 import com.dremio.support.diagnostics.profilejson.plan.PlanRelation;
 import com.dremio.support.diagnostics.profilejson.singlefile.SummaryOut;
 import com.dremio.support.diagnostics.profilejson.singlefile.reports.summary.BlockReport;
@@ -30,6 +31,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 public class ProfileSummaryReport {
 
@@ -51,10 +53,15 @@ public class ProfileSummaryReport {
             new MemoryUsedPerNode(),
             new RowEstimateReport(),
             new BlockReport());
+    // the reports only read the profile so they run side by side on the shared pool
+    final List<Callable<String>> tasks = new ArrayList<>();
     for (final ProfileJSONReport report : reports) {
       sections.add(report.htmlSectionName());
       titles.add(report.htmlTitle());
-      builder.append(report.generateReport(parsed, relations));
+      tasks.add(() -> report.generateReport(parsed, relations));
+    }
+    for (final String html : ReportExecutor.invokeAll(tasks)) {
+      builder.append(html);
     }
     if (showPlanDetails) {
       builder.append(new PlanDetailsReport().generateReport(parsed, relations));
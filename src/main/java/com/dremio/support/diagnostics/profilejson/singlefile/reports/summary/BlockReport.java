@@ -13,6 +13,7 @@
  */
 package com.dremio.support.diagnostics.profilejson.singlefile.reports.summary;
 
+import com.dremio.support.diagnostics.profilejson.plan.PhaseReachability;
 import com.dremio.support.diagnostics.profilejson.plan.PlanRelation;
 import com.dremio.support.diagnostics.profilejson.singlefile.BlockFinder;
 import com.dremio.support.diagnostics.profilejson.singlefile.PhaseBlockStats;
@@ -24,14 +25,13 @@ import com.dremio.support.diagnostics.shared.dto.profilejson.FragmentProfile;
 import com.dremio.support.diagnostics.shared.dto.profilejson.MinorFragmentProfile;
 import com.dremio.support.diagnostics.shared.dto.profilejson.OperatorProfile;
 import com.dremio.support.diagnostics.shared.dto.profilejson.ProfileJSON;
-import com.google.common.base.Splitter;
-import com.google.common.collect.Iterables;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import org.apache.commons.lang3.StringUtils;
 
@@ -258,42 +258,6 @@ public class BlockReport extends ProfileJSONReport {
     }
   }
 
-  private Collection<String> getAllUpstreamPhasesForName(
-      final Collection<PlanRelation> planRelations, final String name) {
-    final List<String> matches = new ArrayList<>();
-    for (final PlanRelation planRelation : planRelations) {
-      if (planRelation.getName().equals(name)) {
-        for (final PlanRelation upstream : planRelation.getUpstream()) {
-          final String upStreamName = upstream.getName();
-          final String phaseOnly = Iterables.get(Splitter.on('-').split(upStreamName), 0);
-          matches.add(phaseOnly);
-          for (final String e : getAllUpstreamPhasesForName(planRelations, upStreamName)) {
-            matches.add(Iterables.get(Splitter.on('-').split(e), 0));
-          }
-        }
-      }
-    }
-    return matches;
-  }
-
-  private Collection<String> getAllDownstreamPhasesForName(
-      final Collection<PlanRelation> planRelations, final String name) {
-    final Set<String> matches = new LinkedHashSet<>();
-    for (final PlanRelation planRelation : planRelations) {
-      if (planRelation.getName().equals(name)) {
-        for (final PlanRelation downStream : planRelation.getDownstream()) {
-          final String downStreamName = downStream.getName();
-          final String phaseOnly = Iterables.get(Splitter.on('-').split(downStreamName), 0);
-          matches.add(phaseOnly);
-          for (final String e : getAllDownstreamPhasesForName(planRelations, downStreamName)) {
-            matches.add(Iterables.get(Splitter.on('-').split(e), 0));
-          }
-        }
-      }
-    }
-    return matches;
-  }
-
   public static MostBlockedReport getBlockingOperatorReport(
       final Collection<PlanRelation> planRelations, final ProfileJSON profileJSON) {
     return new BlockReport().getBlockingOperator(planRelations, profileJSON);
@@ -342,6 +306,9 @@ public class BlockReport extends ProfileJSONReport {
     if (mostBlocked == null) {
       return new MostBlockedReport();
     }
+    final PhaseReachability reachability = new PhaseReachability(planRelations);
+    final Map<String, List<FragmentProfile>> fragmentsByPhase =
+        BlockFinder.getFragmentsByPhase(profileJSON);
     final MostBlockedReport blockedReport = new MostBlockedReport();
     blockedReport.setName(fullName);
     blockedReport.setBlockedDownstreamMillis(mostBlocked.getBlockedOnDownstreamDuration());
@@ -350,9 +317,7 @@ public class BlockReport extends ProfileJSONReport {
     if (mostBlocked.getBlockedOnDownstreamDuration() > 0) {
       final Set<String> downstreamPhases = new LinkedHashSet<>();
       for (final String blockedPhaseOperatorName : blockedPhaseOperatorNames) {
-        final Collection<String> downstream =
-            getAllDownstreamPhasesForName(planRelations, blockedPhaseOperatorName);
-        downstreamPhases.addAll(downstream);
+        downstreamPhases.addAll(reachability.getDownstreamPhases(blockedPhaseOperatorName));
       }
       final List<PhaseBlockStats> downstream = new ArrayList<>();
       for (final String phase : downstreamPhases) {
@@ -360,7 +325,8 @@ public class BlockReport extends ProfileJSONReport {
         if (phase.equals(blockedPhaseName)) {
           continue;
         }
-        downstream.add(blockFinder.getDownstreamPhaseBlockStats(phase, mostBlocked, profileJSON));
+        downstream.add(
+            blockFinder.getDownstreamPhaseBlockStats(phase, mostBlocked, fragmentsByPhase));
       }
       downstream.sort(Comparator.comparing(PhaseBlockStats::getRunTime).reversed());
       blockedReport.setDownstream(downstream);
@@ -368,9 +334,7 @@ public class BlockReport extends ProfileJSONReport {
     if (mostBlocked.getBlockedOnUpstreamDuration() > 0) {
       final Set<String> upstreamPhases = new LinkedHashSet<>();
       for (final String blockedPhaseOperatorName : blockedPhaseOperatorNames) {
-        final Collection<String> upstream =
-            getAllUpstreamPhasesForName(planRelations, blockedPhaseOperatorName);
-        upstreamPhases.addAll(upstream);
+        upstreamPhases.addAll(reachability.getUpstreamPhases(blockedPhaseOperatorName));
       }
 
       final List<PhaseBlockStats> upstream = new ArrayList<>();
@@ -379,7 +343,7 @@ public class BlockReport extends ProfileJSONReport {
         if (phase.equals(blockedPhaseName)) {
           continue;
         }
-        upstream.add(blockFinder.getUpstreamPhaseBlockStats(phase, mostBlocked, profileJSON));
+        upstream.add(blockFinder.getUpstreamPhaseBlockStats(phase, mostBlocked, fragmentsByPhase));
       }
       upstream.sort(Comparator.comparing(PhaseBlockStats::getRunTime).reversed());
       blockedReport.setUpstream(upstream);
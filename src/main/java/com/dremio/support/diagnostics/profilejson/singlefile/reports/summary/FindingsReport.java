@@ -13,6 +13,8 @@
  */
 package com.dremio.support.diagnostics.profilejson.singlefile.reports.summary;
 
+import com.dremio.support.diagnostics.profilejson.ProfileCaches;
+import com.dremio.support.diagnostics.profilejson.compact.CompactProfile;
 import com.dremio.support.diagnostics.profilejson.plan.PlanRelation;
 import com.dremio.support.diagnostics.profilejson.singlefile.reports.ProfileJSONReport;
 import com.dremio.support.diagnostics.profilejson.singlefile.reports.summary.RowEstimateReport.RowEstimateDetail;
@@ -20,9 +22,6 @@ import com.dremio.support.diagnostics.profilejson.singlefile.reports.summary.Sta
 import com.dremio.support.diagnostics.shared.HtmlTableBuilder;
 import com.dremio.support.diagnostics.shared.HtmlTableDataColumn;
 import com.dremio.support.diagnostics.shared.Human;
-import com.dremio.support.diagnostics.shared.dto.profilejson.FragmentProfile;
-import com.dremio.support.diagnostics.shared.dto.profilejson.MinorFragmentProfile;
-import com.dremio.support.diagnostics.shared.dto.profilejson.OperatorProfile;
 import com.dremio.support.diagnostics.shared.dto.profilejson.ProfileJSON;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -62,43 +61,29 @@ public class FindingsReport extends ProfileJSONReport {
   }
 
   private Collection<String> getClientBlocking(final ProfileJSON profileJson) {
-    if (profileJson.getFragmentProfile() == null) {
-      return new ArrayList<>();
-    }
+    final CompactProfile compact = ProfileCaches.compactProfile(profileJson);
     final List<String> result = new ArrayList<>();
-    for (final FragmentProfile fragmentProfile : profileJson.getFragmentProfile()) {
-      if (fragmentProfile == null || fragmentProfile.getMinorFragmentProfile() == null) {
+    for (int o = 0; o < compact.operatorCount(); o++) {
+      final int thread = compact.operatorThread(o);
+      if (compact.threadMajorFragmentId(thread) != 0 || compact.operatorId(o) != 0) {
         continue;
       }
-      for (final MinorFragmentProfile minorFragmentProfile :
-          fragmentProfile.getMinorFragmentProfile()) {
-        if (minorFragmentProfile == null || minorFragmentProfile.getOperatorProfile() == null) {
-          continue;
+      final long blockedOnClient = compact.blockedOnDownstreamDuration(thread);
+      if (blockedOnClient > 0) {
+        final long duration = profileJson.getEnd() - profileJson.getStart();
+        final double percentOfQuery;
+        if (duration == 0) {
+          percentOfQuery = 0.0;
+        } else {
+          percentOfQuery = blockedOnClient * 100.0 / duration;
         }
-        for (final OperatorProfile operatorProfile : minorFragmentProfile.getOperatorProfile()) {
-          if (fragmentProfile.getMajorFragmentId() == 0 && operatorProfile.getOperatorId() == 0) {
-            if (minorFragmentProfile.getBlockedOnDownstreamDuration() > 0) {
-              long duration = profileJson.getEnd() - profileJson.getStart();
-              final double percentOfQuery;
-              if (duration == 0 || minorFragmentProfile.getBlockedOnDownstreamDuration() == 0) {
-                percentOfQuery = 0.0;
-              } else {
-                percentOfQuery =
-                    minorFragmentProfile.getBlockedOnDownstreamDuration() * 100.0 / duration;
-              }
-              if (percentOfQuery > percentageQueryThreshold) {
-                result.add(
-                    String.format(
-                        "Phase 00-%s-00 is blocked by the client for %s which is %.2f%% of query"
-                            + " time",
-                        StringUtils.leftPad(
-                            String.valueOf(minorFragmentProfile.getMinorFragmentId()), 2, "0"),
-                        Human.getHumanDurationFromMillis(
-                            minorFragmentProfile.getBlockedOnDownstreamDuration()),
-                        percentOfQuery));
-              }
-            }
-          }
+        if (percentOfQuery > percentageQueryThreshold) {
+          result.add(
+              String.format(
+                  "Phase 00-%s-00 is blocked by the client for %s which is %.2f%% of query time",
+                  StringUtils.leftPad(String.valueOf(compact.minorFragmentId(thread)), 2, "0"),
+                  Human.getHumanDurationFromMillis(blockedOnClient),
+                  percentOfQuery));
         }
       }
     }
@@ -174,6 +159,11 @@ public class FindingsReport extends ProfileJSONReport {
     List<String> findings = new ArrayList<>();
     Map<String, Set<String>> tablesWithPruning = new HashMap<>();
     Map<String, Set<String>> tablesWithoutPruningAndSignificantQueryTime = new HashMap<>();
+    // first estimate for each phase name, looked up once per relation below
+    Map<String, RowEstimateDetail> estimatesByPhase = new HashMap<>();
+    for (RowEstimateDetail estimate : estimates) {
+      estimatesByPhase.putIfAbsent(estimate.getPhaseName(), estimate);
+    }
     for (PlanRelation relation : relations) {
       if (relation.getOp().contains("IcebergManifestListPrel")) {
         if (relation.getValues().keySet().stream()
@@ -191,9 +181,7 @@ public class FindingsReport extends ProfileJSONReport {
           }
         } else {
           final Optional<RowEstimateDetail> maybeEstimate =
-              estimates.stream()
-                  .filter(x -> x.getPhaseName().equals(relation.getName()))
-                  .findFirst();
+              Optional.ofNullable(estimatesByPhase.get(relation.getName()));
           final RowEstimateDetail rowEstimateDetail;
           if (maybeEstimate.isPresent()) {
             rowEstimateDetail = maybeEstimate.get();
@@ -14,14 +14,13 @@
 package com.dremio.support.diagnostics.profilejson.singlefile.reports.summary;
 
 import com.dremio.support.diagnostics.profilejson.CoreOperatorType;
+import com.dremio.support.diagnostics.profilejson.ProfileCaches;
+import com.dremio.support.diagnostics.profilejson.compact.CompactProfile;
 import com.dremio.support.diagnostics.profilejson.plan.PlanRelation;
 import com.dremio.support.diagnostics.profilejson.singlefile.reports.ProfileJSONReport;
 import com.dremio.support.diagnostics.shared.HtmlTableBuilder;
 import com.dremio.support.diagnostics.shared.HtmlTableDataColumn;
 import com.dremio.support.diagnostics.shared.Human;
-import com.dremio.support.diagnostics.shared.dto.profilejson.FragmentProfile;
-import com.dremio.support.diagnostics.shared.dto.profilejson.MinorFragmentProfile;
-import com.dremio.support.diagnostics.shared.dto.profilejson.OperatorProfile;
 import com.dremio.support.diagnostics.shared.dto.profilejson.ProfileJSON;
 import com.google.common.collect.Iterables;
 import java.util.ArrayList;
@@ -36,34 +35,23 @@ public class MemoryUsed extends ProfileJSONReport {
 
   public static Collection<Collection<HtmlTableDataColumn<String, Long>>>
       generateMemoryByPhaseReport(final ProfileJSON profileJson) {
-    if (profileJson == null || profileJson.getFragmentProfile() == null) {
+    if (profileJson == null) {
       return new ArrayList<>();
     }
+    final CompactProfile compact = ProfileCaches.compactProfile(profileJson);
     final Map<String, Long> memoryUsedByPhase = new HashMap<>();
-    for (final FragmentProfile fragmentProfile : profileJson.getFragmentProfile()) {
-      if (fragmentProfile.getMinorFragmentProfile() == null) {
-        continue;
-      }
-      for (final MinorFragmentProfile minorFragmentProfile :
-          fragmentProfile.getMinorFragmentProfile()) {
-        if (minorFragmentProfile.getOperatorProfile() == null) {
-          continue;
-        }
-        for (final OperatorProfile operatorProfile : minorFragmentProfile.getOperatorProfile()) {
-          final String phaseName =
-              String.format(
-                  "%s-%s %s",
-                  StringUtils.leftPad(String.valueOf(fragmentProfile.getMajorFragmentId()), 2, "0"),
-                  StringUtils.leftPad(String.valueOf(operatorProfile.getOperatorId()), 2, "0"),
-                  CoreOperatorType.values()[operatorProfile.getOperatorType()]);
-          if (memoryUsedByPhase.containsKey(phaseName)) {
-            final long total = memoryUsedByPhase.get(phaseName);
-            memoryUsedByPhase.put(phaseName, total + operatorProfile.getPeakLocalMemoryAllocated());
-          } else {
-            memoryUsedByPhase.put(phaseName, operatorProfile.getPeakLocalMemoryAllocated());
-          }
-        }
-      }
+    for (int o = 0; o < compact.operatorCount(); o++) {
+      final String phaseName =
+          String.format(
+              "%s-%s %s",
+              StringUtils.leftPad(
+                  String.valueOf(compact.threadMajorFragmentId(compact.operatorThread(o))), 2, "0"),
+              StringUtils.leftPad(String.valueOf(compact.operatorId(o)), 2, "0"),
+              CoreOperatorType.values()[compact.operatorType(o)]);
+      // put rather than merge, merge changes the iteration order and so the order of ties
+      memoryUsedByPhase.put(
+          phaseName,
+          memoryUsedByPhase.getOrDefault(phaseName, 0L) + compact.peakLocalMemoryAllocated(o));
     }
     final List<Collection<HtmlTableDataColumn<String, Long>>> rows = new ArrayList<>();
     for (final Map.Entry<String, Long> entry : memoryUsedByPhase.entrySet()) {
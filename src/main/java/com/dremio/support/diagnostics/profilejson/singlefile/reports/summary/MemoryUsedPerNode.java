@@ -16,14 +16,13 @@ package com.dremio.support.diagnostics.profilejson.singlefile.reports.summary;
 import static com.dremio.support.diagnostics.shared.HtmlTableDataColumn.col;
 
 import com.dremio.support.diagnostics.profilejson.CoreOperatorType;
+import com.dremio.support.diagnostics.profilejson.ProfileCaches;
+import com.dremio.support.diagnostics.profilejson.compact.CompactProfile;
 import com.dremio.support.diagnostics.profilejson.plan.PlanRelation;
 import com.dremio.support.diagnostics.profilejson.singlefile.reports.ProfileJSONReport;
 import com.dremio.support.diagnostics.shared.HtmlTableBuilder;
 import com.dremio.support.diagnostics.shared.HtmlTableDataColumn;
 import com.dremio.support.diagnostics.shared.Human;
-import com.dremio.support.diagnostics.shared.dto.profilejson.FragmentProfile;
-import com.dremio.support.diagnostics.shared.dto.profilejson.MinorFragmentProfile;
-import com.dremio.support.diagnostics.shared.dto.profilejson.OperatorProfile;
 import com.dremio.support.diagnostics.shared.dto.profilejson.ProfileJSON;
 import com.google.common.collect.Iterables;
 import java.util.ArrayList;
@@ -38,43 +37,33 @@ public class MemoryUsedPerNode extends ProfileJSONReport {
 
   public static Collection<Collection<HtmlTableDataColumn<String, Long>>>
       generateMemoryByPhaseReport(final ProfileJSON profileJson) {
-    if (profileJson == null || profileJson.getFragmentProfile() == null) {
+    if (profileJson == null) {
       return new ArrayList<>();
     }
+    final CompactProfile compact = ProfileCaches.compactProfile(profileJson);
     final Map<String, Map<String, Long>> memoryUsedByPhasePerNode = new HashMap<>();
-    for (final FragmentProfile fragmentProfile : profileJson.getFragmentProfile()) {
-      if (fragmentProfile.getMinorFragmentProfile() == null) {
+    for (int t = 0; t < compact.threadCount(); t++) {
+      if (!compact.hasEndpoint(t)) {
         continue;
       }
-      for (final MinorFragmentProfile minorFragmentProfile :
-          fragmentProfile.getMinorFragmentProfile()) {
-        if (minorFragmentProfile.getOperatorProfile() == null
-            || minorFragmentProfile.getEndpoint() == null) {
-          continue;
-        }
-
-        final String node = minorFragmentProfile.getEndpoint().getAddress();
-        final Map<String, Long> memoryUsedByPhase;
-        if (memoryUsedByPhasePerNode.containsKey(node)) {
-          memoryUsedByPhase = memoryUsedByPhasePerNode.get(node);
-        } else {
-          memoryUsedByPhase = new HashMap<>();
-        }
-        for (final OperatorProfile operatorProfile : minorFragmentProfile.getOperatorProfile()) {
-          final String phaseName =
-              String.format(
-                  "%s-%s %s",
-                  StringUtils.leftPad(String.valueOf(fragmentProfile.getMajorFragmentId()), 2, "0"),
-                  StringUtils.leftPad(String.valueOf(operatorProfile.getOperatorId()), 2, "0"),
-                  CoreOperatorType.values()[operatorProfile.getOperatorType()]);
-          if (memoryUsedByPhase.containsKey(phaseName)) {
-            final long total = memoryUsedByPhase.get(phaseName);
-            memoryUsedByPhase.put(phaseName, total + operatorProfile.getPeakLocalMemoryAllocated());
-          } else {
-            memoryUsedByPhase.put(phaseName, operatorProfile.getPeakLocalMemoryAllocated());
-          }
-          memoryUsedByPhasePerNode.put(node, memoryUsedByPhase);
-        }
+      final String node = compact.endpointAddress(t);
+      // put rather than merge or computeIfAbsent, they change the iteration order and so the
+      // order of ties
+      final Map<String, Long> memoryUsedByPhase =
+          memoryUsedByPhasePerNode.containsKey(node)
+              ? memoryUsedByPhasePerNode.get(node)
+              : new HashMap<>();
+      for (int o = compact.threadFirstOperator(t); o < compact.threadEndOperator(t); o++) {
+        final String phaseName =
+            String.format(
+                "%s-%s %s",
+                StringUtils.leftPad(String.valueOf(compact.threadMajorFragmentId(t)), 2, "0"),
+                StringUtils.leftPad(String.valueOf(compact.operatorId(o)), 2, "0"),
+                CoreOperatorType.values()[compact.operatorType(o)]);
+        memoryUsedByPhase.put(
+            phaseName,
+            memoryUsedByPhase.getOrDefault(phaseName, 0L) + compact.peakLocalMemoryAllocated(o));
+        memoryUsedByPhasePerNode.put(node, memoryUsedByPhase);
       }
     }
     final List<Collection<HtmlTableDataColumn<String, Long>>> rows = new ArrayList<>();
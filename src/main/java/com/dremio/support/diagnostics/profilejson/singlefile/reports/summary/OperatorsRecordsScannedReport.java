@@ -16,7 +16,9 @@ package com.dremio.support.diagnostics.profilejson.singlefile.reports.summary;
 import static com.dremio.support.diagnostics.shared.HtmlTableDataColumn.col;
 
 import com.dremio.support.diagnostics.profilejson.CoreOperatorType;
+import com.dremio.support.diagnostics.profilejson.ReportExecutor;
 import com.dremio.support.diagnostics.profilejson.plan.PlanRelation;
+import com.dremio.support.diagnostics.profilejson.plan.PlanRelationIndex;
 import com.dremio.support.diagnostics.profilejson.singlefile.reports.ProfileJSONReport;
 import com.dremio.support.diagnostics.shared.HtmlTableBuilder;
 import com.dremio.support.diagnostics.shared.HtmlTableDataColumn;
@@ -27,12 +29,8 @@ import com.dremio.support.diagnostics.shared.dto.profilejson.MinorFragmentProfil
 import com.dremio.support.diagnostics.shared.dto.profilejson.OperatorProfile;
 import com.dremio.support.diagnostics.shared.dto.profilejson.ProfileJSON;
 import java.util.*;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.Callable;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import org.apache.commons.lang3.StringUtils;
 
@@ -109,6 +107,12 @@ public class OperatorsRecordsScannedReport extends ProfileJSONReport {
     }
   }
 
+  /** an operator and the ids of the phase and thread it ran in */
+  private record OperatorEntry(String phaseId, String threadId, OperatorProfile operatorProfile) {}
+
+  // operators are cheap to summarize, only hand off ranges big enough to be worth a task
+  private static final int MIN_OPERATORS_PER_TASK = 256;
+
   public static OperatorRecordsScannedReportResult generateRecordReport(
       ProfileJSON profileJson, Collection<PlanRelation> relations) {
     OperatorRecordsScannedReportResult result = new OperatorRecordsScannedReportResult();
@@ -119,144 +123,117 @@ public class OperatorsRecordsScannedReport extends ProfileJSONReport {
     if (fragmentProfiles == null) {
       return result;
     }
-    final int processors = Math.max(Runtime.getRuntime().availableProcessors() - 1, 2);
-    final ExecutorService threadPoolExecutor = Executors.newFixedThreadPool(processors);
-    final List<Future<?>> futures = new ArrayList<>();
-    final Lock operatorListLock = new ReentrantLock();
-    final List<OperatorRecordDetail> operators = new ArrayList<>();
+    final List<OperatorEntry> entries = new ArrayList<>();
     for (final FragmentProfile fragmentProfile : fragmentProfiles) {
       final List<MinorFragmentProfile> minorFragmentProfiles =
           fragmentProfile.getMinorFragmentProfile();
       if (minorFragmentProfiles == null) {
         continue;
       }
+      final String phaseId =
+          StringUtils.leftPad(String.valueOf(fragmentProfile.getMajorFragmentId()), 2, "0");
       for (final MinorFragmentProfile minorFragmentProfile : minorFragmentProfiles) {
         final List<OperatorProfile> operatorProfiles = minorFragmentProfile.getOperatorProfile();
         if (operatorProfiles == null) {
           continue;
         }
+        final String threadId =
+            StringUtils.leftPad(String.valueOf(minorFragmentProfile.getMinorFragmentId()), 2, "0");
         for (final OperatorProfile operatorProfile : operatorProfiles) {
-          final CoreOperatorType operatorType =
-              CoreOperatorType.values()[operatorProfile.getOperatorType()];
-          final String phaseId =
-              StringUtils.leftPad(String.valueOf(fragmentProfile.getMajorFragmentId()), 2, "0");
-          final String threadId =
-              StringUtils.leftPad(
-                  String.valueOf(minorFragmentProfile.getMinorFragmentId()), 2, "0");
-          final String operatorId =
-              StringUtils.leftPad(String.valueOf(operatorProfile.getOperatorId()), 2, "0");
-          final List<InputProfile> inputProfiles = operatorProfile.getInputProfile();
-          if (inputProfiles == null) {
+          if (operatorProfile.getInputProfile() == null) {
             continue;
           }
-          futures.add(
-              threadPoolExecutor.submit(
-                  () -> {
-                    long records = 0;
-                    long batches = 0;
-                    for (final InputProfile inputProfile : inputProfiles) {
-                      if (inputProfile == null) {
-                        continue;
-                      }
-                      records += inputProfile.getRecords();
-                      batches += inputProfile.getBatches();
-                    }
-                    OperatorRecordDetail detail = new OperatorRecordDetail();
-
-                    detail.setName(
-                        String.format(
-                            "%s-%s-%s %s", phaseId, threadId, operatorId, operatorType.toString()));
-                    detail.setBatches(batches);
-                    detail.setRecords(records);
-                    detail.setRunTimeNanos(operatorProfile.getProcessNanos());
-                    detail.setPeakLocalMemoryAllocated(
-                        operatorProfile.getPeakLocalMemoryAllocated());
-                    for (PlanRelation planRelation : relations) {
-                      String phaseOperatorName = String.format("%s-%s", phaseId, operatorId);
-                      if (planRelation.getName().equals(phaseOperatorName)) {
-                        if (planRelation.getValues().containsKey("condition")) {
-                          detail.setCondition(planRelation.getValues().get("condition").toString());
-                          break;
-                        }
-                      }
-                    }
-                    operatorListLock.lock();
-                    try {
-                      operators.add(detail);
-                    } finally {
-                      operatorListLock.unlock();
-                    }
-                  }));
-        }
-      }
-      for (Future<?> future : futures) {
-        try {
-          future.get();
-        } catch (InterruptedException | ExecutionException e) {
-          throw new RuntimeException(e);
-        }
-      }
-      futures.add(
-          threadPoolExecutor.submit(
-              () -> {
-                final List<OperatorRecordDetail> top10Records =
-                    operators.parallelStream()
-                        .sorted(
-                            (left, right) -> Long.compare(right.getRecords(), left.getRecords()))
-                        .limit(10)
-                        .collect(Collectors.toList());
-                result.setTop10RecordsScanned(top10Records);
-              }));
-      futures.add(
-          threadPoolExecutor.submit(
-              () -> {
-                final List<OperatorRecordDetail> top10Slowest =
-                    operators.parallelStream()
-                        .sorted(
-                            (left, right) ->
-                                Long.compare(right.getRunTimeNanos(), left.getRunTimeNanos()))
-                        .limit(10)
-                        .collect(Collectors.toList());
-                result.setTop10SlowestScanned(top10Slowest);
-              }));
-      futures.add(
-          threadPoolExecutor.submit(
-              () -> {
-                final List<OperatorRecordDetail> top10SlowestRates =
-                    operators.parallelStream()
-                        .filter(x -> x.getRecords() > 0)
-                        .sorted(
-                            Comparator.comparingDouble(OperatorRecordDetail::getRecordsPerSecond))
-                        .limit(10)
-                        .collect(Collectors.toList());
-                result.setTop10SlowestScannedRate(top10SlowestRates);
-              }));
-      futures.add(
-          threadPoolExecutor.submit(
-              () -> {
-                final List<OperatorRecordDetail> top10MostPeakMemory =
-                    operators.parallelStream()
-                        .filter(x -> x.getPeakLocalMemoryAllocated() > 0)
-                        .sorted(
-                            (left, right) ->
-                                Long.compare(
-                                    right.getPeakLocalMemoryAllocated(),
-                                    left.getPeakLocalMemoryAllocated()))
-                        .limit(10)
-                        .collect(Collectors.toList());
-                result.setTop10MostPeakMemory(top10MostPeakMemory);
-              }));
-      for (Future<?> future : futures) {
-        try {
-          future.get();
-        } catch (InterruptedException | ExecutionException e) {
-          throw new RuntimeException(e);
+          entries.add(new OperatorEntry(phaseId, threadId, operatorProfile));
         }
       }
     }
+    final PlanRelationIndex relationIndex = new PlanRelationIndex(relations);
+    final List<OperatorRecordDetail> operators = new ArrayList<>(entries.size());
+    for (final List<OperatorRecordDetail> chunk :
+        ReportExecutor.mapChunks(
+            entries,
+            MIN_OPERATORS_PER_TASK,
+            range -> {
+              final List<OperatorRecordDetail> details = new ArrayList<>(range.size());
+              for (final OperatorEntry entry : range) {
+                details.add(toDetail(entry, relationIndex));
+              }
+              return details;
+            })) {
+      operators.addAll(chunk);
+    }
+    final List<Callable<List<OperatorRecordDetail>>> topTens =
+        Arrays.asList(
+            () ->
+                top10(
+                    operators,
+                    x -> true,
+                    (left, right) -> Long.compare(right.getRecords(), left.getRecords())),
+            () ->
+                top10(
+                    operators,
+                    x -> true,
+                    (left, right) -> Long.compare(right.getRunTimeNanos(), left.getRunTimeNanos())),
+            () ->
+                top10(
+                    operators,
+                    x -> x.getRecords() > 0,
+                    Comparator.comparingDouble(OperatorRecordDetail::getRecordsPerSecond)),
+            () ->
+                top10(
+                    operators,
+                    x -> x.getPeakLocalMemoryAllocated() > 0,
+                    (left, right) ->
+                        Long.compare(
+                            right.getPeakLocalMemoryAllocated(),
+                            left.getPeakLocalMemoryAllocated())));
+    final List<List<OperatorRecordDetail>> results = ReportExecutor.invokeAll(topTens);
+    result.setTop10RecordsScanned(results.get(0));
+    result.setTop10SlowestScanned(results.get(1));
+    result.setTop10SlowestScannedRate(results.get(2));
+    result.setTop10MostPeakMemory(results.get(3));
     return result;
   }
 
+  private static OperatorRecordDetail toDetail(
+      final OperatorEntry entry, final PlanRelationIndex relationIndex) {
+    final OperatorProfile operatorProfile = entry.operatorProfile();
+    final CoreOperatorType operatorType =
+        CoreOperatorType.values()[operatorProfile.getOperatorType()];
+    final String operatorId =
+        StringUtils.leftPad(String.valueOf(operatorProfile.getOperatorId()), 2, "0");
+    long records = 0;
+    long batches = 0;
+    for (final InputProfile inputProfile : operatorProfile.getInputProfile()) {
+      if (inputProfile == null) {
+        continue;
+      }
+      records += inputProfile.getRecords();
+      batches += inputProfile.getBatches();
+    }
+    OperatorRecordDetail detail = new OperatorRecordDetail();
+    detail.setName(
+        String.format(
+            "%s-%s-%s %s", entry.phaseId(), entry.threadId(), operatorId, operatorType.toString()));
+    detail.setBatches(batches);
+    detail.setRecords(records);
+    detail.setRunTimeNanos(operatorProfile.getProcessNanos());
+    detail.setPeakLocalMemoryAllocated(operatorProfile.getPeakLocalMemoryAllocated());
+    final Object condition =
+        relationIndex.getValue(String.format("%s-%s", entry.phaseId(), operatorId), "condition");
+    if (condition != null) {
+      detail.setCondition(condition.toString());
+    }
+    return detail;
+  }
+
+  private static List<OperatorRecordDetail> top10(
+      final List<OperatorRecordDetail> operators,
+      final Predicate<OperatorRecordDetail> filter,
+      final Comparator<OperatorRecordDetail> order) {
+    return operators.stream().filter(filter).sorted(order).limit(10).collect(Collectors.toList());
+  }
+
   @Override
   protected String createReport(ProfileJSON profileJson, Collection<PlanRelation> relations) {
 
@@ -16,15 +16,13 @@ package com.dremio.support.diagnostics.profilejson.singlefile.reports.summary;
 import static com.dremio.support.diagnostics.shared.HtmlTableDataColumn.col;
 
 import com.dremio.support.diagnostics.profilejson.CoreOperatorType;
+import com.dremio.support.diagnostics.profilejson.ProfileCaches;
+import com.dremio.support.diagnostics.profilejson.compact.CompactProfile;
 import com.dremio.support.diagnostics.profilejson.plan.PlanRelation;
 import com.dremio.support.diagnostics.profilejson.singlefile.reports.ProfileJSONReport;
 import com.dremio.support.diagnostics.shared.HtmlTableBuilder;
 import com.dremio.support.diagnostics.shared.HtmlTableDataColumn;
 import com.dremio.support.diagnostics.shared.Human;
-import com.dremio.support.diagnostics.shared.dto.profilejson.FragmentProfile;
-import com.dremio.support.diagnostics.shared.dto.profilejson.InputProfile;
-import com.dremio.support.diagnostics.shared.dto.profilejson.MinorFragmentProfile;
-import com.dremio.support.diagnostics.shared.dto.profilejson.OperatorProfile;
 import com.dremio.support.diagnostics.shared.dto.profilejson.ProfileJSON;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
@@ -149,51 +147,36 @@ public class RowEstimateReport extends ProfileJSONReport {
 
   public static Collection<RowEstimateDetail> getEstimates(
       ProfileJSON profileJson, Collection<PlanRelation> relations) {
-    if (profileJson == null || profileJson.getFragmentProfile() == null) {
+    if (profileJson == null) {
       return Collections.emptyList();
     }
+    final CompactProfile compact = ProfileCaches.compactProfile(profileJson);
     final Map<String, RowEstimateDetail> phasesByRecords = new HashMap<>();
-    for (final FragmentProfile fragmentProfile : profileJson.getFragmentProfile()) {
-      if (fragmentProfile == null || fragmentProfile.getMinorFragmentProfile() == null) {
+    for (int o = 0; o < compact.operatorCount(); o++) {
+      if (!compact.hasInputProfile(o)) {
         continue;
       }
-      for (final MinorFragmentProfile minorFragmentProfile :
-          fragmentProfile.getMinorFragmentProfile()) {
-        if (minorFragmentProfile == null || minorFragmentProfile.getOperatorProfile() == null) {
-          continue;
-        }
-        for (final OperatorProfile operatorProfile : minorFragmentProfile.getOperatorProfile()) {
-          if (operatorProfile == null || operatorProfile.getInputProfile() == null) {
-            continue;
-          }
-          final String phaseName =
-              String.format(
-                  "%s-%s",
-                  StringUtils.leftPad(String.valueOf(fragmentProfile.getMajorFragmentId()), 2, "0"),
-                  StringUtils.leftPad(String.valueOf(operatorProfile.getOperatorId()), 2, "0"));
-          final long operatorRuntime = operatorProfile.getProcessNanos();
-          final String opName =
-              CoreOperatorType.values()[operatorProfile.getOperatorType()].toString();
-          long records = 0;
-          for (final InputProfile inputProfile : operatorProfile.getInputProfile()) {
-            records += inputProfile.getRecords();
-          }
-          if (phasesByRecords.containsKey(phaseName)) {
-            final RowEstimateDetail detail = phasesByRecords.get(phaseName);
-            detail.setActualRows(detail.getActualRows() + records);
-            if (operatorRuntime > detail.getMaxOperatorRuntimeNanos()) {
-              detail.setMaxOperatorRuntimeNanos(operatorRuntime);
-            }
-            phasesByRecords.put(phaseName, detail);
-          } else {
-            final RowEstimateDetail detail = new RowEstimateDetail();
-            detail.setOpName(opName);
-            detail.setPhaseName(phaseName);
-            detail.setActualRows(records);
-            detail.setMaxOperatorRuntimeNanos(operatorRuntime);
-            phasesByRecords.put(phaseName, detail);
-          }
+      final String phaseName =
+          String.format(
+              "%s-%s",
+              StringUtils.leftPad(
+                  String.valueOf(compact.threadMajorFragmentId(compact.operatorThread(o))), 2, "0"),
+              StringUtils.leftPad(String.valueOf(compact.operatorId(o)), 2, "0"));
+      final long operatorRuntime = compact.processNanos(o);
+      final long records = compact.records(o);
+      final RowEstimateDetail existing = phasesByRecords.get(phaseName);
+      if (existing != null) {
+        existing.setActualRows(existing.getActualRows() + records);
+        if (operatorRuntime > existing.getMaxOperatorRuntimeNanos()) {
+          existing.setMaxOperatorRuntimeNanos(operatorRuntime);
         }
+      } else {
+        final RowEstimateDetail detail = new RowEstimateDetail();
+        detail.setOpName(CoreOperatorType.values()[compact.operatorType(o)].toString());
+        detail.setPhaseName(phaseName);
+        detail.setActualRows(records);
+        detail.setMaxOperatorRuntimeNanos(operatorRuntime);
+        phasesByRecords.put(phaseName, detail);
       }
     }
     return relations.stream()
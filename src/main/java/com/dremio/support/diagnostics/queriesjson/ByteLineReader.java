@@ -0,0 +1,127 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.queriesjson;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Splits a stream into lines without decoding them into Strings. Jackson can parse the bytes
+ * directly and we keep the byte offset of every line so a row can be found again in the source.
+ * The line is only valid until the next call to {@link #next()}.
+ */
+class ByteLineReader {
+  private static final int BUFFER_SIZE = 65536;
+  private final InputStream in;
+  private byte[] buf = new byte[BUFFER_SIZE];
+  // valid bytes in buf are [pos, limit)
+  private int pos;
+  private int limit;
+  // absolute offset in the stream of buf[0]
+  private long bufOffset;
+  private boolean eof;
+
+  private int lineStart;
+  private int lineLength;
+
+  ByteLineReader(final InputStream in) {
+    this.in = in;
+  }
+
+  /**
+   * advances to the next line, the line terminator (\n or \r\n) is not part of the line
+   *
+   * @return false when the stream is exhausted
+   * @throws IOException when the underlying stream fails
+   */
+  boolean next() throws IOException {
+    // bytes of the current line already searched, relative to pos since fill can move the data
+    int scanned = 0;
+    while (true) {
+      for (int i = pos + scanned; i < limit; i++) {
+        if (buf[i] == '\n') {
+          setLine(pos, i);
+          pos = i + 1;
+          return true;
+        }
+      }
+      scanned = limit - pos;
+      if (eof || !fill()) {
+        if (pos == limit) {
+          return false;
+        }
+        // last line without a terminator
+        setLine(pos, limit);
+        pos = limit;
+        return true;
+      }
+    }
+  }
+
+  private void setLine(final int start, final int end) {
+    int e = end;
+    if (e > start && buf[e - 1] == '\r') {
+      e--;
+    }
+    lineStart = start;
+    lineLength = e - start;
+  }
+
+  /**
+   * reads more data, compacting or growing the buffer so the current partial line is kept
+   *
+   * @return false when no more data is available
+   */
+  private boolean fill() throws IOException {
+    if (pos > 0) {
+      // move the partial line to the front
+      final int remaining = limit - pos;
+      System.arraycopy(buf, pos, buf, 0, remaining);
+      bufOffset += pos;
+      limit = remaining;
+      pos = 0;
+    }
+    if (limit == buf.length) {
+      // a single line bigger than the buffer, this happens with very large queries
+      buf = Arrays.copyOf(buf, buf.length * 2);
+    }
+    final int read = in.read(buf, limit, buf.length - limit);
+    if (read <= 0) {
+      eof = true;
+      return false;
+    }
+    limit += read;
+    return true;
+  }
+
+  byte[] buffer() {
+    return buf;
+  }
+
+  int lineStart() {
+    return lineStart;
+  }
+
+  int lineLength() {
+    return lineLength;
+  }
+
+  /**
+   * @return absolute byte offset of the current line in the stream
+   */
+  long lineOffset() {
+    return bufOffset + lineStart;
+  }
+}
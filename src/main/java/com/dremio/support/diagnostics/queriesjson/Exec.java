@@ -26,6 +26,22 @@ public class Exec {
    * @param files filepath, directory, or comma separated list of files to read
    */
   public void run(final QueriesJsonHtmlReport report, final Reporter reporter) throws IOException {
-    reporter.output(report);
+    run(report, reporter, new JobMetrics("queries-json"));
+  }
+
+  /**
+   * renders the report and records the time spent in the render stage
+   *
+   * @param report report to render
+   * @param reporter destination of the rendered report
+   * @param metrics job metrics to add the render time to
+   */
+  public void run(
+      final QueriesJsonHtmlReport report, final Reporter reporter, final JobMetrics metrics)
+      throws IOException {
+    try (var timer = metrics.time(JobMetrics.Stage.RENDER)) {
+      reporter.output(report);
+    }
+    metrics.sampleHeap();
   }
 }
@@ -15,13 +15,14 @@ package com.dremio.support.diagnostics.queriesjson;
 
 import com.dremio.support.diagnostics.queriesjson.filters.QueryFilter;
 import com.dremio.support.diagnostics.queriesjson.reporters.QueryReporter;
+import com.dremio.support.diagnostics.shared.JobMetrics;
+import com.dremio.support.diagnostics.shared.MeteredInputStream;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.Collection;
@@ -30,6 +31,11 @@ import java.util.logging.Logger;
 public class QueriesJsonFileParser {
   private static final Logger LOGGER = Logger.getLogger(QueriesJsonFileParser.class.getName());
   private static final ObjectMapper mapper = new ObjectMapper();
+  // used when the query text is loaded later, jackson skips the text without building a string
+  private static final ObjectMapper skipQueryTextMapper =
+      new ObjectMapper().addMixIn(Query.class, SkipQueryText.class);
+  // how often in rows we check the heap usage, Runtime calls are cheap but not free
+  private static final long HEAP_SAMPLE_ROWS = 65536;
 
   /**
    * core logic for the file parse, use if the file is gzipped or if the file is a text file
@@ -44,19 +50,116 @@ public class QueriesJsonFileParser {
   public static SearchedFile parseFile(
       String fileName, InputStream is, Collection<QueryReporter> reports, QueryFilter queryFilter)
       throws JsonMappingException, JsonProcessingException, IOException {
+    return parseFile(
+        fileName,
+        is,
+        reports,
+        queryFilter,
+        new JobMetrics("queries-json"),
+        new QueryDictionaries(),
+        QueryTextStore.inMemory().openSource(null));
+  }
+
+  /**
+   * core logic for the file parse, use if the file is gzipped or if the file is a text file
+   * @param fileName original archive entry name used for reporting purposes only
+   * @param is input stream to parse
+   * @param reports list of reporters to run against each query
+   * @param metrics timers and counters for the job, shared between all files of the job
+   * @param dictionaries encodes the repeated string fields, shared with the reporters of the job
+   * @param textSource decides if the query text is kept or only its offset, closed by this method
+   * @returns a searched file with the file name, number of records parsed and records filtered
+   * @throws JsonMappingException comes from jackson when we're unable to map the string
+   * @throws JsonProcessingException also comes from jackson
+   * @throws IOException when we're unable to read the input stream
+   */
+  public static SearchedFile parseFile(
+      String fileName,
+      InputStream is,
+      Collection<QueryReporter> reports,
+      QueryFilter queryFilter,
+      JobMetrics metrics,
+      QueryDictionaries dictionaries,
+      QueryTextStore.Source textSource)
+      throws JsonMappingException, JsonProcessingException, IOException {
+    return parseFile(fileName, is, reports, queryFilter, metrics, dictionaries, textSource, true);
+  }
+
+  /**
+   * core logic for the file parse, use if the file is gzipped or if the file is a text file
+   * @param fileName original archive entry name used for reporting purposes only
+   * @param is input stream to parse
+   * @param reports list of reporters to run against each query
+   * @param metrics timers and counters for the job, shared between all files of the job
+   * @param dictionaries encodes the repeated string fields, shared with the reporters of the job
+   * @param textSource decides if the query text is kept or only its offset, closed by this method
+   * @param timeReads false when the file was extracted by an outer decompressor that already
+   *     recorded the decompress stage
+   * @returns a searched file with the file name, number of records parsed and records filtered
+   * @throws JsonMappingException comes from jackson when we're unable to map the string
+   * @throws JsonProcessingException also comes from jackson
+   * @throws IOException when we're unable to read the input stream
+   */
+  public static SearchedFile parseFile(
+      String fileName,
+      InputStream is,
+      Collection<QueryReporter> reports,
+      QueryFilter queryFilter,
+      JobMetrics metrics,
+      QueryDictionaries dictionaries,
+      QueryTextStore.Source textSource,
+      boolean timeReads)
+      throws JsonMappingException, JsonProcessingException, IOException {
     LOGGER.info("parsing entry %s".formatted(fileName));
-    try (BufferedReader r = new BufferedReader(new InputStreamReader(is))) {
+    try (is;
+        textSource) {
+      final ByteLineReader r =
+          new ByteLineReader(textSource.wrap(new MeteredInputStream(is, metrics, timeReads)));
+      final boolean lazy = textSource.isLazy();
+      // a filter or reporter on the text needs it parsed even when it is otherwise loaded later
+      final boolean dropText =
+          lazy
+              && (queryFilter.usesQueryText()
+                  || reports.stream().anyMatch(QueryReporter::usesQueryText));
+      final ObjectMapper rowMapper = lazy && !dropText ? skipQueryTextMapper : mapper;
+      final StartFinishScanner scanner =
+          queryFilter.usesStartFinish() ? new StartFinishScanner(mapper.getFactory()) : null;
       final Instant startTime = Instant.now();
-      String line;
       // count is only for reporting how many queries were in each file
       long count = 0;
       long filtered = 0;
-      // we read each line in the file and if the line is null we exit.
-      while (null != (line = r.readLine())) {
-        // standard jackson code to read an object from a string
-        // at some point we should consider the stream api to see if we can get more parsing speed
-        final Query query = mapper.readValue(line, Query.class);
-        if (!queryFilter.isValid(query)) {
+      // we read each line in the file and if there are no more lines we exit.
+      while (r.next()) {
+        // jackson reads the bytes of the line directly, no string is made for the line
+        final long parseStart = System.nanoTime();
+        final byte[] buf = r.buffer();
+        // rows outside of the date range are rejected before jackson builds the Query
+        if (scanner != null
+            && scanner.scan(buf, r.lineStart(), r.lineLength())
+            && !queryFilter.isValidStartFinish(scanner.start(), scanner.finish())) {
+          metrics.addStageNanos(JobMetrics.Stage.PARSE, System.nanoTime() - parseStart);
+          filtered++;
+          continue;
+        }
+        final Query query = rowMapper.readValue(buf, r.lineStart(), r.lineLength(), Query.class);
+        final boolean valid = queryFilter.isValid(query);
+        if (valid) {
+          dictionaries.encode(query);
+          if (lazy) {
+            query.setQueryTextRef(
+                new QueryTextRef(
+                    textSource,
+                    r.lineOffset(),
+                    r.lineLength(),
+                    QueryTextRef.scanPrefix(buf, r.lineStart(), r.lineLength())));
+          }
+        }
+        final long parseEnd = System.nanoTime();
+        metrics.addStageNanos(JobMetrics.Stage.PARSE, parseEnd - parseStart);
+        if ((count + filtered) % HEAP_SAMPLE_ROWS == 0) {
+          metrics.sampleHeap();
+        }
+        if (!valid) {
           filtered++;
           continue;
         }
@@ -65,7 +168,14 @@ public class QueriesJsonFileParser {
         for (QueryReporter reporter : reports) {
           reporter.parseRow(query);
         }
+        // queries kept by a reporter load the text back from the ref when it is rendered
+        if (dropText) {
+          query.setQueryText(null);
+        }
+        metrics.addStageNanos(JobMetrics.Stage.REPORTER, System.nanoTime() - parseEnd);
       }
+      metrics.addRows(count + filtered);
+      metrics.sampleHeap();
       final long totalFiltered = filtered;
       final long totalCount = count;
       final Instant endTime = Instant.now();
@@ -74,9 +184,15 @@ public class QueriesJsonFileParser {
       LOGGER.info(
           () ->
               String.format(
-                  "%d queries parsed (%d filtered by -s and -e flags) in %s millis from file %s",
+                  "%d queries parsed (%d filtered) in %s millis from file %s",
                   totalCount, totalFiltered, totalTime.toMillis(), fileName));
       return new SearchedFile(totalFiltered, totalCount, fileName, "");
     }
   }
+
+  /** mixed into Query when the text is loaded later from a QueryTextRef */
+  @JsonIgnoreProperties(
+      value = {"queryText"},
+      ignoreUnknown = true)
+  private abstract static class SkipQueryText {}
 }
@@ -0,0 +1,131 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.queriesjson;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Finds the queries.json files of an input made of directories, globs or a comma separated list of
+ * them. Used when the logs of every coordinator and every day are kept side by side as plain files
+ * instead of in one archive.
+ */
+public final class QueriesJsonFiles {
+
+  private QueriesJsonFiles() {}
+
+  /**
+   * @param input what the user passed on the command line
+   * @return true when the input names more than one file, a directory, a glob or a list
+   */
+  public static boolean isMultiFile(final String input) {
+    return input.contains(",") || isGlob(input) || Files.isDirectory(Paths.get(input));
+  }
+
+  /**
+   * expands every comma separated part of the input, directories are searched recursively for
+   * files with "queries" in the name ending in .json, .gz or .bzip2
+   *
+   * @param input directories, globs and files separated by commas
+   * @return the files found, largest first so the long parses start early and the threads finish
+   *     together, each file is only listed once
+   * @throws IOException when a directory cannot be walked
+   */
+  public static List<Path> find(final String input) throws IOException {
+    final Set<Path> found = new LinkedHashSet<>();
+    for (final String part : input.split(",")) {
+      final String trimmed = part.trim();
+      if (trimmed.isEmpty()) {
+        continue;
+      }
+      if (isGlob(trimmed)) {
+        final PathMatcher matcher =
+            FileSystems.getDefault().getPathMatcher("glob:" + Paths.get(trimmed).normalize());
+        walk(globRoot(trimmed), p -> matcher.matches(p.normalize()), found);
+      } else {
+        final Path path = Paths.get(trimmed);
+        if (Files.isDirectory(path)) {
+          walk(path, p -> isQueriesFile(p.getFileName().toString()), found);
+        } else {
+          // named explicitly so the name is not checked, a missing file fails when parsed
+          found.add(path);
+        }
+      }
+    }
+    final List<Path> sorted = new ArrayList<>(found);
+    sorted.sort(Comparator.comparingLong(QueriesJsonFiles::size).reversed());
+    return sorted;
+  }
+
+  /**
+   * @param fileName name of the file without the directory
+   * @return true for the files dremio writes its query log to, including the rotated ones
+   */
+  static boolean isQueriesFile(final String fileName) {
+    if (!fileName.contains("queries")) {
+      return false;
+    }
+    // archives of several files are read with ReadArchive instead
+    if (fileName.endsWith(".tar.gz") || fileName.endsWith(".tgz")) {
+      return false;
+    }
+    return fileName.endsWith(".json") || fileName.endsWith(".gz") || fileName.endsWith(".bzip2");
+  }
+
+  private static boolean isGlob(final String input) {
+    return input.contains("*") || input.contains("?") || input.contains("[") || input.contains("{");
+  }
+
+  /** the deepest directory of the glob without any wildcard in it, where the walk starts */
+  private static Path globRoot(final String glob) {
+    Path root = Paths.get(glob).normalize();
+    while (root != null && isGlob(root.toString())) {
+      root = root.getParent();
+    }
+    if (root == null) {
+      return Paths.get("");
+    }
+    return root;
+  }
+
+  private static void walk(final Path root, final Predicate<Path> keep, final Set<Path> found)
+      throws IOException {
+    if (!Files.isDirectory(root)) {
+      return;
+    }
+    try (Stream<Path> files = Files.walk(root)) {
+      files.filter(Files::isRegularFile).filter(keep).sorted().forEach(found::add);
+    }
+  }
+
+  private static long size(final Path path) {
+    try {
+      return Files.size(path);
+    } catch (IOException e) {
+      // reported as an error when the file is parsed
+      return 0;
+    }
+  }
+}
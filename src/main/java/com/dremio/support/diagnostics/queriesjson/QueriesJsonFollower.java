@@ -0,0 +1,198 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.queriesjson;
+
+import com.dremio.support.diagnostics.queriesjson.filters.QueryFilter;
+import com.dremio.support.diagnostics.queriesjson.reporters.QueryReporter;
+import com.dremio.support.diagnostics.shared.JobMetrics;
+import com.google.common.io.ByteStreams;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.logging.Logger;
+import org.apache.commons.io.input.CloseShieldInputStream;
+
+/**
+ * Tails a queries.json that is still being written. Each poll parses only the complete lines added
+ * since the previous poll into the same reporters, so the aggregates grow without rereading the
+ * file.
+ *
+ * <p>Dremio rotates the file by renaming it before compressing it to queries.json.gz. The open
+ * channel keeps pointing at the renamed file, so when a new file shows up at the path the rest of
+ * the old one is read from the channel before switching over and no rows are lost to the rotation.
+ * A file truncated in place is read again from the start.
+ */
+public class QueriesJsonFollower implements Closeable {
+  private static final Logger LOGGER = Logger.getLogger(QueriesJsonFollower.class.getName());
+  private static final int SCAN_BLOCK = 65536;
+  private final Path path;
+  private final Collection<QueryReporter> reporters;
+  private final QueryFilter filter;
+  private final JobMetrics metrics;
+  private final QueryDictionaries dictionaries;
+  // followed rows are aggregated as they are read so the text is never read back
+  private final QueryTextStore textStore = QueryTextStore.inMemory();
+  private FileChannel channel;
+  private Object fileKey;
+  // everything before this byte of the open file has been parsed
+  private long offset;
+  private long parsed;
+  private long filtered;
+  private long rotations;
+
+  public QueriesJsonFollower(
+      final Path path,
+      final Collection<QueryReporter> reporters,
+      final QueryFilter filter,
+      final JobMetrics metrics,
+      final QueryDictionaries dictionaries) {
+    this.path = path;
+    this.reporters = reporters;
+    this.filter = filter;
+    this.metrics = metrics;
+    this.dictionaries = dictionaries;
+  }
+
+  /**
+   * parses the complete lines written since the last poll, a trailing partial line is left for the
+   * next poll
+   *
+   * @return number of rows read, including filtered rows
+   * @throws IOException when the file cannot be read
+   */
+  public long poll() throws IOException {
+    long rows = 0;
+    if (channel == null && !open()) {
+      return rows;
+    }
+    if (rotated()) {
+      // the writer is done with the old file so its last line is complete even without a newline
+      rows += readTo(channel.size());
+      LOGGER.info(() -> "%s was rotated, switching to the new file".formatted(path));
+      rotations++;
+      channel.close();
+      channel = null;
+      if (!open()) {
+        return rows;
+      }
+    } else if (channel.size() < offset) {
+      LOGGER.warning(() -> "%s was truncated, reading it again from the start".formatted(path));
+      offset = 0;
+    }
+    rows += readTo(lastLineEnd());
+    return rows;
+  }
+
+  /**
+   * @return totals of every poll so far, in the shape the html report lists its inputs
+   */
+  public SearchedFile getSearchedFile() {
+    return new SearchedFile(filtered, parsed, path.toString(), "");
+  }
+
+  /**
+   * @return how many times the file was replaced since following started
+   */
+  public long getRotations() {
+    return rotations;
+  }
+
+  private boolean open() throws IOException {
+    if (!Files.isRegularFile(path)) {
+      return false;
+    }
+    channel = FileChannel.open(path, StandardOpenOption.READ);
+    fileKey = Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+    offset = 0;
+    return true;
+  }
+
+  private boolean rotated() throws IOException {
+    if (!Files.isRegularFile(path)) {
+      return true;
+    }
+    // without file keys (windows) only truncation can be detected
+    final Object current = Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+    return fileKey != null && !Objects.equals(fileKey, current);
+  }
+
+  /**
+   * @return the byte after the last newline of the file, or the current offset when no complete
+   *     line was added
+   */
+  private long lastLineEnd() throws IOException {
+    final ByteBuffer block = ByteBuffer.allocate(SCAN_BLOCK);
+    long end = channel.size();
+    while (end > offset) {
+      final long blockStart = Math.max(offset, end - SCAN_BLOCK);
+      block.clear().limit((int) (end - blockStart));
+      while (block.hasRemaining()) {
+        if (channel.read(block, blockStart + block.position()) < 0) {
+          break;
+        }
+      }
+      for (int i = block.position() - 1; i >= 0; i--) {
+        if (block.get(i) == '\n') {
+          return blockStart + i + 1;
+        }
+      }
+      end = blockStart;
+    }
+    return offset;
+  }
+
+  private long readTo(final long end) throws IOException {
+    if (end <= offset) {
+      return 0;
+    }
+    channel.position(offset);
+    // parseFile closes the stream it is given, the channel has to stay open for the next poll
+    final var is =
+        CloseShieldInputStream.wrap(
+            ByteStreams.limit(Channels.newInputStream(channel), end - offset));
+    final SearchedFile searched =
+        QueriesJsonFileParser.parseFile(
+            path.toString(),
+            is,
+            reporters,
+            filter,
+            metrics,
+            dictionaries,
+            textStore.openSource(null));
+    offset = end;
+    parsed += searched.parsed();
+    filtered += searched.filtered();
+    return searched.parsed() + searched.filtered();
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      if (channel != null) {
+        channel.close();
+        channel = null;
+      }
+    } finally {
+      textStore.close();
+    }
+  }
+}
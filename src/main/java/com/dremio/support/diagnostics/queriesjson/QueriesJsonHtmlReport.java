@@ -19,10 +19,12 @@ import static java.util.Arrays.asList;
 import com.dremio.support.diagnostics.queriesjson.html.ConcurrentQueueWriter;
 import com.dremio.support.diagnostics.queriesjson.html.Dates;
 import com.dremio.support.diagnostics.queriesjson.html.FailedQueriesWriter;
+import com.dremio.support.diagnostics.queriesjson.html.LatencyPercentilesWriter;
 import com.dremio.support.diagnostics.queriesjson.html.MaxCPUTimeWriter;
 import com.dremio.support.diagnostics.queriesjson.html.MaxMemoryQueriesWriter;
 import com.dremio.support.diagnostics.queriesjson.html.MaxTimeWriter;
 import com.dremio.support.diagnostics.queriesjson.html.MemoryAllocatedWriter;
+import com.dremio.support.diagnostics.queriesjson.html.QueryShapesWriter;
 import com.dremio.support.diagnostics.queriesjson.html.RequestByQueueWriter;
 import com.dremio.support.diagnostics.queriesjson.html.RequestCounterWriter;
 import com.dremio.support.diagnostics.queriesjson.html.SlowestMetadataRetrievalWriter;
@@ -31,10 +33,15 @@ import com.dremio.support.diagnostics.queriesjson.reporters.ConcurrentQueriesRep
 import com.dremio.support.diagnostics.queriesjson.reporters.ConcurrentQueueReporter;
 import com.dremio.support.diagnostics.queriesjson.reporters.ConcurrentSchemaOpsReporter;
 import com.dremio.support.diagnostics.queriesjson.reporters.FailedQueriesReporter;
+import com.dremio.support.diagnostics.queriesjson.reporters.LatencyPercentilesReporter;
+import com.dremio.support.diagnostics.queriesjson.reporters.LatencyPercentilesReporter.LatencySketches;
 import com.dremio.support.diagnostics.queriesjson.reporters.MaxCPUQueriesReporter;
 import com.dremio.support.diagnostics.queriesjson.reporters.MaxMemoryQueriesReporter;
 import com.dremio.support.diagnostics.queriesjson.reporters.MaxTimeReporter;
 import com.dremio.support.diagnostics.queriesjson.reporters.MemoryAllocatedReporter;
+import com.dremio.support.diagnostics.queriesjson.reporters.QueryShapesReporter;
+import com.dremio.support.diagnostics.queriesjson.reporters.QueryShapesReporter.Rank;
+import com.dremio.support.diagnostics.queriesjson.reporters.QueryShapesReporter.ShapeStats;
 import com.dremio.support.diagnostics.queriesjson.reporters.RequestCounterReporter;
 import com.dremio.support.diagnostics.queriesjson.reporters.RequestsByQueueReporter;
 import com.dremio.support.diagnostics.queriesjson.reporters.SlowestMetadataQueriesReporter;
@@ -50,6 +57,7 @@ import com.dremio.support.diagnostics.shared.Report;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.logging.Logger;
@@ -82,6 +90,11 @@ public class QueriesJsonHtmlReport implements Report {
   private final Collection<Query> mostMemoryQueries;
   private final Collection<Query> mostCpuTimeQueries;
   private final Map<Long, Long> maxPool;
+  private final Map<Long, LatencySketches> percentilesByWindow;
+  private final Map<String, LatencySketches> percentilesByQueue;
+  private final Map<Rank, List<ShapeStats>> queryShapes;
+  // shapes listed per ranking, the reporter keeps many more to rank them correctly
+  private static final int TOP_SHAPES = 25;
 
   public QueriesJsonHtmlReport(
       Collection<SearchedFile> filesSearched,
@@ -94,6 +107,7 @@ public class QueriesJsonHtmlReport implements Report {
       final MaxMemoryQueriesReporter maxMemoryQueriesReporter,
       final MaxCPUQueriesReporter maxCpuQueriesReporter,
       final MaxTimeReporter maxTimeReporter,
+      final LatencyPercentilesReporter latencyPercentilesReporter,
       final MemoryAllocatedReporter memoryAllocatedReporter,
       final RequestCounterReporter requestCounterReporter,
       final RequestsByQueueReporter requestsByQueueReporter,
@@ -102,6 +116,7 @@ public class QueriesJsonHtmlReport implements Report {
       final StartFinishReporter startFinishReporter,
       final TotalQueriesReporter totalQueriesReporter,
       final FailedQueriesReporter failedQueriesReporter,
+      final QueryShapesReporter queryShapesReporter,
       final long problematicQueryLimit) {
     this(
         filesSearched,
@@ -121,12 +136,15 @@ public class QueriesJsonHtmlReport implements Report {
         maxTimeReporter.getQueued(),
         maxTimeReporter.getPlanning(),
         maxTimeReporter.getMaxPool(),
+        latencyPercentilesReporter.getByWindow(),
+        latencyPercentilesReporter.getByQueue(),
         concurrentQueriesReporter.getCounts(),
         concurrentSchemaOpsReporter.getBuckets(),
         concurrentQueueReporter.getQueueBucketCounts(),
         Instant.ofEpochMilli(startFinishReporter.getStart()),
         Instant.ofEpochMilli(startFinishReporter.getFinish()),
         failedQueriesReporter.getFailedQueries(),
+        queryShapesReporter.getTopShapes(TOP_SHAPES),
         problematicQueryLimit);
   }
 
@@ -251,12 +269,15 @@ public class QueriesJsonHtmlReport implements Report {
       final Map<Long, Long> maxQueued,
       final Map<Long, Long> maxPlanning,
       final Map<Long, Long> maxPool,
+      final Map<Long, LatencySketches> percentilesByWindow,
+      final Map<String, LatencySketches> percentilesByQueue,
       final Map<Long, Long> totalQueryCounts,
       final Map<Long, Long> schemaOpsCounts,
       final Map<String, Map<Long, Long>> queueCounts,
       final Instant start,
       final Instant end,
       final Collection<Query> failedQueries,
+      final Map<Rank, List<ShapeStats>> queryShapes,
       final long problematicQueryLimit) {
     this.filesSearched = filesSearched;
     this.startFilter = startFilter;
@@ -270,6 +291,8 @@ public class QueriesJsonHtmlReport implements Report {
     this.maxQueued = maxQueued;
     this.maxPlanning = maxPlanning;
     this.maxPool = maxPool;
+    this.percentilesByWindow = percentilesByWindow;
+    this.percentilesByQueue = percentilesByQueue;
     this.start = start;
     this.end = end;
     this.slowestPlanning = slowestPlanning;
@@ -281,6 +304,7 @@ public class QueriesJsonHtmlReport implements Report {
     this.schemaOpsCounts = schemaOpsCounts;
     this.queueCounts = queueCounts;
     this.failedQueries = failedQueries;
+    this.queryShapes = queryShapes;
     this.problematicQueryLimit = problematicQueryLimit;
   }
 
@@ -362,9 +386,14 @@ public class QueriesJsonHtmlReport implements Report {
                 maxQueued,
                 maxPlanning,
                 maxPool);
+    final String percentilesJs =
+        new LatencyPercentilesWriter(this.bucketSize)
+            .generate(this.start.toEpochMilli(), this.end.toEpochMilli(), percentilesByWindow);
+    final String queuePercentiles = LatencyPercentilesWriter.generateQueueTable(percentilesByQueue);
     final String memoryAllocatedJs =
         new MemoryAllocatedWriter(this.bucketSize)
             .generate(this.start.toEpochMilli(), this.end.toEpochMilli(), this.memoryUsage);
+    final String queryShapesTables = QueryShapesWriter.generate(this.queryShapes);
     final String requestCounter =
         RequestCounterWriter.generate(this.totalQueries, this.requestCounterMap);
     final String requestQueueCounter =
@@ -617,6 +646,9 @@ public class QueriesJsonHtmlReport implements Report {
           <div class="card">%s</div>
           <div class="card">%s</div>
           <div class="card">%s</div>
+          <div class="card">%s</div>
+          <div class="card">%s</div>
+          <div class="card">%s</div>
         </div>
       </section>
 
@@ -688,7 +720,10 @@ public class QueriesJsonHtmlReport implements Report {
             modernizeHtml(maxMemoryQueries),
             modernizeHtml(totalCountsJs),
             modernizeHtml(maxValuesJs),
+            modernizeHtml(percentilesJs),
+            modernizeHtml(queuePercentiles),
             modernizeHtml(memoryAllocatedJs),
+            modernizeHtml(queryShapesTables),
             modernizeHtml(failedQueries),
             modernizeHtml(failedParses));
   }
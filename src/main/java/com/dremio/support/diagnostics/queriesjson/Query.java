@@ -13,6 +13,7 @@
  */
 package com.dremio.support.diagnostics.queriesjson;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import java.util.Objects;
@@ -77,8 +78,68 @@ public class Query {
   // private long waitTimeNs;
   private long memoryAllocated;
 
+  // dictionary codes set by QueryDictionaries#encode, they are not part of queries.json
+  private int usernameCode = StringDictionary.NO_CODE;
+  private int queueNameCode = StringDictionary.NO_CODE;
+  private int engineNameCode = StringDictionary.NO_CODE;
+  private int outcomeCode = StringDictionary.NO_CODE;
+  private int queryTypeCode = StringDictionary.NO_CODE;
+
+  // set instead of queryText when the parser runs with a lazy QueryTextStore
+  private QueryTextRef queryTextRef;
+
   public Query() {}
 
+  @JsonIgnore
+  public int getUsernameCode() {
+    return usernameCode;
+  }
+
+  @JsonIgnore
+  public void setUsernameCode(int usernameCode) {
+    this.usernameCode = usernameCode;
+  }
+
+  @JsonIgnore
+  public int getQueueNameCode() {
+    return queueNameCode;
+  }
+
+  @JsonIgnore
+  public void setQueueNameCode(int queueNameCode) {
+    this.queueNameCode = queueNameCode;
+  }
+
+  @JsonIgnore
+  public int getEngineNameCode() {
+    return engineNameCode;
+  }
+
+  @JsonIgnore
+  public void setEngineNameCode(int engineNameCode) {
+    this.engineNameCode = engineNameCode;
+  }
+
+  @JsonIgnore
+  public int getOutcomeCode() {
+    return outcomeCode;
+  }
+
+  @JsonIgnore
+  public void setOutcomeCode(int outcomeCode) {
+    this.outcomeCode = outcomeCode;
+  }
+
+  @JsonIgnore
+  public int getQueryTypeCode() {
+    return queryTypeCode;
+  }
+
+  @JsonIgnore
+  public void setQueryTypeCode(int queryTypeCode) {
+    this.queryTypeCode = queryTypeCode;
+  }
+
   public String getOutcome() {
     return outcome;
   }
@@ -96,6 +157,10 @@ public class Query {
   }
 
   public String getQueryText() {
+    if (queryText == null && queryTextRef != null) {
+      // only the queries kept for a report get here, so load once and keep it
+      queryText = queryTextRef.load();
+    }
     return queryText;
   }
 
@@ -103,6 +168,32 @@ public class Query {
     this.queryText = queryText;
   }
 
+  @JsonIgnore
+  public QueryTextRef getQueryTextRef() {
+    return queryTextRef;
+  }
+
+  @JsonIgnore
+  public void setQueryTextRef(QueryTextRef queryTextRef) {
+    this.queryTextRef = queryTextRef;
+  }
+
+  /**
+   * checks the start of the query text without loading it when the parser only kept an offset
+   *
+   * @param prefix the prefix to look for, must be shorter than the prefix kept by the parser
+   * @return true if the query text starts with the prefix
+   */
+  public boolean queryTextStartsWith(String prefix) {
+    if (queryText != null) {
+      return queryText.startsWith(prefix);
+    }
+    if (queryTextRef != null && queryTextRef.prefix() != null) {
+      return queryTextRef.prefix().startsWith(prefix);
+    }
+    return false;
+  }
+
   public long getStart() {
     return start;
   }
@@ -0,0 +1,97 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.queriesjson;
+
+/**
+ * The dictionaries for the repeated string fields of {@link Query}. One instance is shared by the
+ * parser and the reporters of a job, the codes set on a query are only meaningful to the instance
+ * that encoded it.
+ */
+public class QueryDictionaries {
+  private final StringDictionary usernames = new StringDictionary();
+  private final StringDictionary queueNames = new StringDictionary();
+  private final StringDictionary engineNames = new StringDictionary();
+  private final StringDictionary outcomes = new StringDictionary();
+  private final StringDictionary queryTypes = new StringDictionary();
+
+  /**
+   * sets the code of each repeated field on the query and replaces the strings with the canonical
+   * instance from the dictionary, this way the handful of queries kept by the reporters do not each
+   * hold their own copy
+   *
+   * @param q freshly parsed query
+   */
+  public void encode(final Query q) {
+    final int username = usernames.code(q.getUsername());
+    q.setUsername(usernames.value(username));
+    q.setUsernameCode(username);
+    // the getter maps empty queue and engine names to Default so we encode that value
+    final int queueName = queueNames.code(q.getQueueName());
+    q.setQueueName(queueNames.value(queueName));
+    q.setQueueNameCode(queueName);
+    final int engineName = engineNames.code(q.getEngineName());
+    q.setEngineName(engineNames.value(engineName));
+    q.setEngineNameCode(engineName);
+    final int outcome = outcomes.code(q.getOutcome());
+    q.setOutcome(outcomes.value(outcome));
+    q.setOutcomeCode(outcome);
+    final int queryType = queryTypes.code(q.getQueryType());
+    q.setQueryType(queryTypes.value(queryType));
+    q.setQueryTypeCode(queryType);
+  }
+
+  public StringDictionary getUsernames() {
+    return usernames;
+  }
+
+  public StringDictionary getQueueNames() {
+    return queueNames;
+  }
+
+  public StringDictionary getEngineNames() {
+    return engineNames;
+  }
+
+  public StringDictionary getOutcomes() {
+    return outcomes;
+  }
+
+  public StringDictionary getQueryTypes() {
+    return queryTypes;
+  }
+
+  /**
+   * @param q query that may or may not have been encoded
+   * @return the queue code of the query, looking it up if the query was never encoded
+   */
+  public int queueNameCode(final Query q) {
+    final int code = q.getQueueNameCode();
+    if (code != StringDictionary.NO_CODE) {
+      return code;
+    }
+    return queueNames.code(q.getQueueName());
+  }
+
+  /**
+   * @param q query that may or may not have been encoded
+   * @return the outcome code of the query, looking it up if the query was never encoded
+   */
+  public int outcomeCode(final Query q) {
+    final int code = q.getOutcomeCode();
+    if (code != StringDictionary.NO_CODE) {
+      return code;
+    }
+    return outcomes.code(q.getOutcome());
+  }
+}
@@ -0,0 +1,270 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.queriesjson;
+
+/**
+ * Reduces a query to its shape so the runs of the same statement with different values can be
+ * added up: literals become ?, lists of literals such as IN (1, 2, 3) become a single ?, comments
+ * are dropped, whitespace is normalized and unquoted words are lower cased. Quoted identifiers are
+ * kept as written since their case matters.
+ *
+ * <p>The tokenizer walks the text once and writes to a sink, {@link #hash(CharSequence)} only
+ * updates a long for every character so a row can be matched against the known shapes without
+ * building a String, the text of a shape is only built with {@link #normalize(CharSequence, int)}
+ * the first time it is seen.
+ */
+public final class QueryFingerprint {
+  private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+  private static final long FNV_PRIME = 0x100000001b3L;
+  // words followed by a space before (, any other word before ( is taken as a function name
+  private static final String[] KEYWORDS_BEFORE_PARENS = {
+    "and", "as", "exists", "from", "in", "join", "not", "on", "or", "over", "select", "then",
+    "using", "values", "when", "where", "with"
+  };
+
+  private QueryFingerprint() {}
+
+  /** receives the characters of the normalized query */
+  private interface Sink {
+    /**
+     * @return false to stop the tokenizer early
+     */
+    boolean append(char c);
+  }
+
+  private static final class HashSink implements Sink {
+    private long hash = FNV_OFFSET;
+
+    @Override
+    public boolean append(final char c) {
+      hash = (hash ^ c) * FNV_PRIME;
+      return true;
+    }
+  }
+
+  /**
+   * @param sql query text
+   * @return 64 bit FNV-1a hash of the normalized query, equal for queries of the same shape
+   */
+  public static long hash(final CharSequence sql) {
+    final HashSink sink = new HashSink();
+    tokenize(sql, sink);
+    return sink.hash;
+  }
+
+  /**
+   * @param sql query text
+   * @param maxLength the shape is cut after this many characters
+   * @return the normalized query
+   */
+  public static String normalize(final CharSequence sql, final int maxLength) {
+    final StringBuilder builder = new StringBuilder(Math.min(sql.length(), maxLength));
+    tokenize(
+        sql,
+        c -> {
+          builder.append(c);
+          return builder.length() < maxLength;
+        });
+    return builder.toString();
+  }
+
+  private enum Token {
+    NONE,
+    WORD,
+    LITERAL,
+    PUNCT
+  }
+
+  private static void tokenize(final CharSequence sql, final Sink sink) {
+    final int length = sql.length();
+    Token last = Token.NONE;
+    char lastPunct = 0;
+    // where the last word is in the text, to tell function calls from keywords
+    int lastWordStart = 0;
+    int lastWordEnd = 0;
+    // a comma right after a literal is held back, if another literal follows both are dropped
+    boolean pendingComma = false;
+    int i = 0;
+    while (i < length) {
+      final char c = sql.charAt(i);
+      // whitespace and comments only separate tokens
+      if (Character.isWhitespace(c)) {
+        i++;
+        continue;
+      }
+      if (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-') {
+        while (i < length && sql.charAt(i) != '\n') {
+          i++;
+        }
+        continue;
+      }
+      if (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+        i += 2;
+        while (i < length
+            && !(sql.charAt(i) == '*' && i + 1 < length && sql.charAt(i + 1) == '/')) {
+          i++;
+        }
+        i += 2;
+        continue;
+      }
+      final int start = i;
+      final Token token;
+      if (c == '\'') {
+        // string literal, '' is an escaped quote
+        i++;
+        while (i < length) {
+          if (sql.charAt(i) == '\'') {
+            if (i + 1 < length && sql.charAt(i + 1) == '\'') {
+              i += 2;
+              continue;
+            }
+            i++;
+            break;
+          }
+          i++;
+        }
+        token = Token.LITERAL;
+      } else if (isDigit(c) || (c == '.' && i + 1 < length && isDigit(sql.charAt(i + 1)))) {
+        i++;
+        while (i < length) {
+          final char d = sql.charAt(i);
+          if (isDigit(d) || d == '.') {
+            i++;
+          } else if ((d == 'e' || d == 'E')
+              && i + 1 < length
+              && (isDigit(sql.charAt(i + 1))
+                  || sql.charAt(i + 1) == '-'
+                  || sql.charAt(i + 1) == '+')) {
+            i += 2;
+          } else {
+            break;
+          }
+        }
+        token = Token.LITERAL;
+      } else if (c == '"' || c == '`') {
+        i++;
+        while (i < length && sql.charAt(i) != c) {
+          i++;
+        }
+        i = Math.min(i + 1, length);
+        token = Token.WORD;
+      } else if (isWordChar(c)) {
+        while (i < length && isWordChar(sql.charAt(i))) {
+          i++;
+        }
+        token = Token.WORD;
+      } else if (isOperatorChar(c)) {
+        while (i < length && isOperatorChar(sql.charAt(i))) {
+          i++;
+        }
+        token = Token.PUNCT;
+      } else {
+        i++;
+        token = Token.PUNCT;
+      }
+
+      if (token == Token.LITERAL && pendingComma) {
+        // another value of a list, the list stays a single ?
+        pendingComma = false;
+        continue;
+      }
+      if (pendingComma) {
+        pendingComma = false;
+        if (!emit(sink, ',', false)) {
+          return;
+        }
+        lastPunct = ',';
+        last = Token.PUNCT;
+      }
+      if (token == Token.PUNCT && c == ',' && i - start == 1 && last == Token.LITERAL) {
+        pendingComma = true;
+        continue;
+      }
+      final boolean functionCall =
+          last == Token.WORD && c == '(' && !isKeyword(sql, lastWordStart, lastWordEnd);
+      if (last != Token.NONE && !functionCall && needsSpace(last, lastPunct, token, c)) {
+        if (!emit(sink, ' ', false)) {
+          return;
+        }
+      }
+      if (token == Token.LITERAL) {
+        if (!emit(sink, '?', false)) {
+          return;
+        }
+      } else {
+        // quoted identifiers keep their case
+        final boolean lower = token == Token.WORD && c != '"' && c != '`';
+        for (int k = start; k < i; k++) {
+          if (!emit(sink, sql.charAt(k), lower)) {
+            return;
+          }
+        }
+      }
+      last = token;
+      lastPunct = token == Token.PUNCT ? c : 0;
+      if (token == Token.WORD) {
+        lastWordStart = start;
+        lastWordEnd = i;
+      }
+    }
+    if (pendingComma) {
+      emit(sink, ',', false);
+    }
+  }
+
+  private static boolean emit(final Sink sink, final char c, final boolean lower) {
+    return sink.append(lower && c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c);
+  }
+
+  private static boolean needsSpace(
+      final Token last, final char lastPunct, final Token next, final char nextFirst) {
+    if (last == Token.PUNCT && (lastPunct == '(' || lastPunct == '.')) {
+      return false;
+    }
+    if (next == Token.PUNCT
+        && (nextFirst == ',' || nextFirst == ')' || nextFirst == '.' || nextFirst == ';')) {
+      return false;
+    }
+    return true;
+  }
+
+  private static boolean isKeyword(final CharSequence sql, final int start, final int end) {
+    outer:
+    for (String keyword : KEYWORDS_BEFORE_PARENS) {
+      if (keyword.length() != end - start) {
+        continue;
+      }
+      for (int k = 0; k < keyword.length(); k++) {
+        if (Character.toLowerCase(sql.charAt(start + k)) != keyword.charAt(k)) {
+          continue outer;
+        }
+      }
+      return true;
+    }
+    return false;
+  }
+
+  private static boolean isDigit(final char c) {
+    return c >= '0' && c <= '9';
+  }
+
+  private static boolean isWordChar(final char c) {
+    return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+  }
+
+  /** comparison and concatenation operators are kept as one token, <= stays together */
+  private static boolean isOperatorChar(final char c) {
+    return c == '<' || c == '>' || c == '=' || c == '!' || c == '|' || c == ':';
+  }
+}
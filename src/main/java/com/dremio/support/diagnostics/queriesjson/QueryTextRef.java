@@ -0,0 +1,88 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.queriesjson;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Points at the row of a query in its source so the query text can be loaded when it is rendered.
+ *
+ * @param source file the row was parsed from
+ * @param offset byte offset of the row
+ * @param length length in bytes of the row
+ * @param prefix the first few characters of the query text, enough for reporters that look at the
+ *     leading keyword of every row
+ */
+public record QueryTextRef(QueryTextStore.Source source, long offset, int length, String prefix) {
+  private static final ObjectMapper mapper = new ObjectMapper();
+
+  // long enough for the keywords checked by ConcurrentSchemaOpsReporter
+  static final int PREFIX_LENGTH = 16;
+
+  /**
+   * @return the query text read back from the source
+   */
+  public String load() {
+    try {
+      final JsonNode row = mapper.readTree(source.read(offset, length));
+      final JsonNode text = row.get("queryText");
+      if (text == null || text.isNull()) {
+        return null;
+      }
+      return text.asText();
+    } catch (IOException e) {
+      throw new UncheckedIOException("unable to read query text at offset %d".formatted(offset), e);
+    }
+  }
+
+  /**
+   * finds the start of the queryText value in a raw row without parsing it, escaped characters end
+   * the prefix early since a prefix only has to be good enough for a startsWith check
+   *
+   * @param buf buffer holding the row
+   * @param start start of the row in the buffer
+   * @param length length of the row
+   * @return up to {@link #PREFIX_LENGTH} characters of the query text, null if there is none
+   */
+  static String scanPrefix(final byte[] buf, final int start, final int length) {
+    final byte[] key = "\"queryText\"".getBytes(StandardCharsets.US_ASCII);
+    final int end = start + length;
+    outer:
+    for (int i = start; i <= end - key.length; i++) {
+      for (int k = 0; k < key.length; k++) {
+        if (buf[i + k] != key[k]) {
+          continue outer;
+        }
+      }
+      int p = i + key.length;
+      while (p < end && (buf[p] == ' ' || buf[p] == ':')) {
+        p++;
+      }
+      if (p >= end || buf[p] != '"') {
+        return null;
+      }
+      p++;
+      int q = p;
+      while (q < end && q - p < PREFIX_LENGTH && buf[q] != '"' && buf[q] != '\\') {
+        q++;
+      }
+      return new String(buf, p, q - p, StandardCharsets.UTF_8);
+    }
+    return null;
+  }
+}
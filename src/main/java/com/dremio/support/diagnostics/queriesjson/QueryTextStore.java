@@ -0,0 +1,179 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.queriesjson;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Decides where the parser keeps the query text of each row. The default keeps the text on every
+ * Query like it always has. The lazy store only keeps the byte offset of the row, the few queries
+ * that make it into a report re-read their row when the text is rendered.
+ *
+ * <p>Compressed inputs are spooled decompressed to a temp file as they are parsed so the rows can
+ * be found again, plain files on disk are read in place. The temp files are removed on close so
+ * the store must stay open until the report has been rendered.
+ */
+public class QueryTextStore implements Closeable {
+  private static final Logger LOGGER = Logger.getLogger(QueryTextStore.class.getName());
+  private final boolean lazy;
+  private final List<Path> spools = new ArrayList<>();
+
+  private QueryTextStore(final boolean lazy) {
+    this.lazy = lazy;
+  }
+
+  /**
+   * @return a store that keeps the full query text on every query
+   */
+  public static QueryTextStore inMemory() {
+    return new QueryTextStore(false);
+  }
+
+  /**
+   * @return a store that keeps only offsets and re-reads the text when rendering
+   */
+  public static QueryTextStore lazy() {
+    return new QueryTextStore(true);
+  }
+
+  public boolean isLazy() {
+    return lazy;
+  }
+
+  /**
+   * opens a source for one parsed file
+   *
+   * @param plainFile the file on disk if the stream being parsed is that file uncompressed, null
+   *     otherwise. When null the stream is spooled to a temp file.
+   * @return a source to wrap the parsed stream with
+   * @throws IOException when the spool file cannot be created
+   */
+  public Source openSource(final Path plainFile) throws IOException {
+    if (!lazy) {
+      return new Source(null, null);
+    }
+    if (plainFile != null) {
+      return new Source(plainFile, null);
+    }
+    final Path spool = Files.createTempFile("dqd-query-text", ".json");
+    synchronized (spools) {
+      spools.add(spool);
+    }
+    return new Source(spool, new BufferedOutputStream(Files.newOutputStream(spool), 65536));
+  }
+
+  /** removes the spool files */
+  @Override
+  public void close() {
+    synchronized (spools) {
+      for (Path spool : spools) {
+        try {
+          Files.deleteIfExists(spool);
+        } catch (IOException e) {
+          LOGGER.log(Level.WARNING, "unable to delete spool file %s".formatted(spool), e);
+        }
+      }
+      spools.clear();
+    }
+  }
+
+  /** the rows of a single parsed file */
+  public static class Source implements Closeable {
+    private final Path path;
+    private final OutputStream spool;
+
+    private Source(final Path path, final OutputStream spool) {
+      this.path = path;
+      this.spool = spool;
+    }
+
+    /**
+     * @return true if the parser should only record offsets for this source
+     */
+    public boolean isLazy() {
+      return path != null;
+    }
+
+    /**
+     * @param in the decompressed stream that is about to be parsed
+     * @return the same stream, or one that copies everything read to the spool file
+     */
+    public InputStream wrap(final InputStream in) {
+      if (spool == null) {
+        return in;
+      }
+      return new FilterInputStream(in) {
+        @Override
+        public int read() throws IOException {
+          final int b = super.read();
+          if (b != -1) {
+            spool.write(b);
+          }
+          return b;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+          final int read = super.read(b, off, len);
+          if (read > 0) {
+            spool.write(b, off, read);
+          }
+          return read;
+        }
+      };
+    }
+
+    /**
+     * reads a row back from the source, only valid after the source is closed
+     *
+     * @param offset byte offset of the row
+     * @param length length in bytes of the row
+     * @return raw bytes of the row
+     * @throws IOException when the file is no longer readable
+     */
+    byte[] read(final long offset, final int length) throws IOException {
+      final ByteBuffer buffer = ByteBuffer.allocate(length);
+      try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+        while (buffer.hasRemaining()) {
+          if (channel.read(buffer, offset + buffer.position()) < 0) {
+            break;
+          }
+        }
+      }
+      return buffer.array();
+    }
+
+    /** flushes the spool file so rows can be read back */
+    @Override
+    public void close() throws IOException {
+      if (spool != null) {
+        spool.close();
+      }
+    }
+  }
+}
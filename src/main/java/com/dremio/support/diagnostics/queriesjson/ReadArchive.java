@@ -13,8 +13,9 @@
  */
 package com.dremio.support.diagnostics.queriesjson;
 
-import com.dremio.support.diagnostics.queriesjson.filters.DateRangeQueryFilter;
+import com.dremio.support.diagnostics.queriesjson.filters.QueryFilter;
 import com.dremio.support.diagnostics.queriesjson.reporters.QueryReporter;
+import com.dremio.support.diagnostics.shared.JobMetrics;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonMappingException;
 import java.io.File;
@@ -54,17 +55,55 @@ public class ReadArchive {
   private static final Logger LOGGER = Logger.getLogger(ReadArchive.class.getName());
 
   /**
-   * proivdes the filtering of dates so that we do not see data outside of the range requested
+   * proivdes the filtering of dates and the other filters so that we do not see data outside of the range requested
    */
-  private final DateRangeQueryFilter dateFilter;
+  private final QueryFilter dateFilter;
+
+  /**
+   * timers and counters for the job, shared by all the parsing threads
+   */
+  private final JobMetrics metrics;
+
+  /**
+   * dictionaries for the repeated string fields, shared with the reporters
+   */
+  private final QueryDictionaries dictionaries;
+
+  /**
+   * decides if the query text is kept in memory or only the offset of each row
+   */
+  private final QueryTextStore textStore;
 
   /**
    * Parses zip and tgz files for queries.json files either unzipped or in a gzipped format
    * (the original format Dremio stores the files in)
    * @param dateFilter limits the queries that show up in the report. The filter is based on start epoch of the timestamp
    */
-  public ReadArchive(final DateRangeQueryFilter dateFilter) {
+  public ReadArchive(final QueryFilter dateFilter) {
+    this(
+        dateFilter,
+        new JobMetrics("queries-json"),
+        new QueryDictionaries(),
+        QueryTextStore.inMemory());
+  }
+
+  /**
+   * Parses zip and tgz files for queries.json files either unzipped or in a gzipped format
+   * (the original format Dremio stores the files in)
+   * @param dateFilter limits the queries that show up in the report. The filter is based on start epoch of the timestamp
+   * @param metrics timers and counters that the parsing of every file will add to
+   * @param dictionaries encodes the repeated string fields, must be the instance given to the reporters
+   * @param textStore where the query text is kept, must stay open until the report is rendered
+   */
+  public ReadArchive(
+      final QueryFilter dateFilter,
+      final JobMetrics metrics,
+      final QueryDictionaries dictionaries,
+      final QueryTextStore textStore) {
     this.dateFilter = dateFilter;
+    this.metrics = metrics;
+    this.dictionaries = dictionaries;
+    this.textStore = textStore;
   }
 
   /**
@@ -77,11 +116,29 @@ public class ReadArchive {
    */
   public SearchedFile parseGzip(String fileName, Path source, Collection<QueryReporter> reports)
       throws IOException {
+    return parseGzip(fileName, source, reports, true);
+  }
+
+  /**
+   * @param timeReads false when the gzip was extracted from an archive whose decompression was
+   *     already timed
+   */
+  private SearchedFile parseGzip(
+      String fileName, Path source, Collection<QueryReporter> reports, boolean timeReads)
+      throws IOException {
     try (var tmpFileStream = Files.newInputStream(source)) {
       GZIPInputStream gzis;
       try {
         gzis = new GZIPInputStream(tmpFileStream);
-        return QueriesJsonFileParser.parseFile(fileName, gzis, reports, dateFilter);
+        return QueriesJsonFileParser.parseFile(
+            fileName,
+            gzis,
+            reports,
+            dateFilter,
+            metrics,
+            dictionaries,
+            textStore.openSource(null),
+            timeReads);
       } catch (ZipException ex) {
         // not a valid gzip so no reason to continue
         LOGGER.warning("invalid gzip skipping entry %s".formatted(fileName));
@@ -95,6 +152,8 @@ public class ReadArchive {
   }
 
   /**
+   * only used for files extracted from an archive, the extraction already recorded the decompress
+   * stage so reading the extracted file is not timed again
    *
    * @param fileName original archive entry name used for reporting purposes only
    * @param source the location of the file that we will parse
@@ -104,7 +163,15 @@ public class ReadArchive {
   private SearchedFile parseJSON(String fileName, Path source, Collection<QueryReporter> reports)
       throws IOException {
     try (var tmpFileStream = Files.newInputStream(source)) {
-      return QueriesJsonFileParser.parseFile(fileName, tmpFileStream, reports, dateFilter);
+      return QueriesJsonFileParser.parseFile(
+          fileName,
+          tmpFileStream,
+          reports,
+          dateFilter,
+          metrics,
+          dictionaries,
+          textStore.openSource(null),
+          false);
     }
   }
 
@@ -159,10 +226,14 @@ public class ReadArchive {
           // only parse files gzips and json files
           if (isJson || isMaybeGZip || isBzip2) {
             final Path tmpFile = Files.createTempFile("oa-", "-ta");
+            // the archive decompression is timed here, the parse of the extracted file then only
+            // counts bytes so the stage is recorded once
             // this is probably hacky but I've not yet figured out a way to write a temp file in
             // java and
             // get the stream back.
-            Files.copy(is, tmpFile, StandardCopyOption.REPLACE_EXISTING);
+            try (var timer = metrics.time(JobMetrics.Stage.DECOMPRESS)) {
+              Files.copy(is, tmpFile, StandardCopyOption.REPLACE_EXISTING);
+            }
             final boolean isGzip = isValidGzip(tmpFile.toFile());
             // check to see if the file is too small to have anything meaningful inside
             final long size = tmpFile.toFile().length();
@@ -181,7 +252,7 @@ public class ReadArchive {
                     () -> {
                       try {
                         if (isGzip) {
-                          entries.add(parseGzip(fileName, tmpFile, reporters));
+                          entries.add(parseGzip(fileName, tmpFile, reporters, false));
                         } else if (isJson) {
                           entries.add(parseJSON(fileName, tmpFile, reporters));
                         } else if (isBzip2) {
@@ -228,6 +299,59 @@ public class ReadArchive {
     return entries;
   }
 
+  /**
+   * parses plain files already on disk, for example every queries.json.gz found in a directory.
+   * The files are submitted in the order given, pass them largest first so a big file does not
+   * start last and leave the other threads idle while it finishes.
+   *
+   * @param files queries.json, gzip or bzip2 files to parse
+   * @param reporters reporters to run against each query that is parsed, they will need to be thread safe if threads > 1
+   * @param threads concurrent number of files that will be parsed
+   * @return files that were searched
+   * @throws InterruptedException if there is a threading problem
+   * @throws ExecutionException if there is a thread pool issue
+   */
+  public Collection<SearchedFile> readFiles(
+      final Collection<Path> files, final Collection<QueryReporter> reporters, final int threads)
+      throws InterruptedException, ExecutionException {
+    final ExecutorService executorService = Executors.newFixedThreadPool(threads);
+    final List<Future<SearchedFile>> futures = new ArrayList<>();
+    try {
+      for (final Path file : files) {
+        futures.add(executorService.submit(() -> readFile(file, reporters)));
+      }
+      final List<SearchedFile> entries = new ArrayList<>();
+      for (Future<SearchedFile> future : futures) {
+        entries.add(future.get());
+      }
+      return entries;
+    } finally {
+      executorService.shutdown();
+    }
+  }
+
+  private SearchedFile readFile(final Path file, final Collection<QueryReporter> reporters) {
+    final String fileName = file.toString();
+    try {
+      if (fileName.endsWith(".bzip2")) {
+        return parseBzip2(fileName, reporters);
+      }
+      if (isValidGzip(file.toFile())) {
+        return parseGzip(fileName, file, reporters);
+      }
+      // the file is on disk for the whole job so the lazy text store can read the text back
+      try (var is = Files.newInputStream(file)) {
+        return QueriesJsonFileParser.parseFile(
+            fileName, is, reporters, dateFilter, metrics, dictionaries, textStore.openSource(file));
+      }
+    } catch (IOException | InterruptedException | ExecutionException e) {
+      LOGGER.log(Level.SEVERE, "error parsing file %s: %s".formatted(fileName, e.getMessage()), e);
+      return new SearchedFile(0, 0, fileName, e.getMessage());
+    } finally {
+      System.out.print(".");
+    }
+  }
+
   /**
    * logic ot read a tar.gz or tgz file
    * @param targz the gzipped tarball to read
@@ -308,7 +432,8 @@ public class ReadArchive {
       throws IOException, InterruptedException, ExecutionException {
     try (FileInputStream st = new FileInputStream(bzip2)) {
       try (BZip2CompressorInputStream bzi = new BZip2CompressorInputStream(st)) {
-        return QueriesJsonFileParser.parseFile(bzip2, bzi, reporters, dateFilter);
+        return QueriesJsonFileParser.parseFile(
+            bzip2, bzi, reporters, dateFilter, metrics, dictionaries, textStore.openSource(null));
       } catch (Exception ex) {
         // not a valid bzip2 so no reason to continue
         LOGGER.log(Level.WARNING, "invalid bzip2 skipping entry %s".formatted(bzip2), ex);
@@ -0,0 +1,77 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.queriesjson;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+
+/**
+ * Reads only the start and finish of a row so the filters can reject it before it is deserialized.
+ * Walks the top level tokens of the row and stops as soon as both fields are found, nested values
+ * are skipped and strings like the query text are never decoded.
+ */
+class StartFinishScanner {
+  private final JsonFactory factory;
+  private long start;
+  private long finish;
+
+  StartFinishScanner(final JsonFactory factory) {
+    this.factory = factory;
+  }
+
+  /**
+   * @param buf buffer holding the row
+   * @param offset start of the row in the buffer
+   * @param length length of the row
+   * @return false if the row is not a json object or start and finish are not both integers, the
+   *     caller should then parse it in full so jackson can coerce them like any other row
+   */
+  boolean scan(final byte[] buf, final int offset, final int length) {
+    start = 0;
+    finish = 0;
+    boolean foundStart = false;
+    boolean foundFinish = false;
+    try (JsonParser p = factory.createParser(buf, offset, length)) {
+      if (p.nextToken() != JsonToken.START_OBJECT) {
+        return false;
+      }
+      while (!(foundStart && foundFinish) && p.nextToken() == JsonToken.FIELD_NAME) {
+        final String name = p.getCurrentName();
+        final JsonToken value = p.nextToken();
+        if ("start".equals(name) && value == JsonToken.VALUE_NUMBER_INT) {
+          start = p.getLongValue();
+          foundStart = true;
+        } else if ("finish".equals(name) && value == JsonToken.VALUE_NUMBER_INT) {
+          finish = p.getLongValue();
+          foundFinish = true;
+        } else {
+          p.skipChildren();
+        }
+      }
+      return foundStart && foundFinish;
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  long start() {
+    return start;
+  }
+
+  long finish() {
+    return finish;
+  }
+}
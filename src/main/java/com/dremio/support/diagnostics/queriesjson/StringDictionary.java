@@ -0,0 +1,95 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.queriesjson;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps low cardinality strings (queue names, users, outcomes...) to small dense int codes so
+ * reporters can index arrays instead of hashing strings for every row. The dictionary is shared by
+ * all parser threads of a job: looking up an existing value never locks, only the first sighting
+ * of a new value takes the lock, which for a few hundred distinct values is negligible.
+ *
+ * <p>Code 0 is reserved for null so that missing values can still be counted.
+ */
+public class StringDictionary {
+
+  /** code for a null value */
+  public static final int NULL_CODE = 0;
+
+  /** code stored on rows that have not been encoded by a dictionary */
+  public static final int NO_CODE = -1;
+
+  private final ConcurrentHashMap<String, Integer> codes = new ConcurrentHashMap<>();
+  // written only under the lock, read without it. A reader always gets its code from the
+  // concurrent map first, which happens after the value was written to the array below.
+  private volatile String[] values = new String[16];
+  private int size = 1;
+
+  /**
+   * @param value value to look up, may be null
+   * @return the code of the value, adding it to the dictionary if it is new
+   */
+  public int code(final String value) {
+    if (value == null) {
+      return NULL_CODE;
+    }
+    final Integer code = codes.get(value);
+    if (code != null) {
+      return code;
+    }
+    return add(value);
+  }
+
+  private synchronized int add(final String value) {
+    final Integer existing = codes.get(value);
+    if (existing != null) {
+      return existing;
+    }
+    final int code = size;
+    String[] current = values;
+    if (code == current.length) {
+      current = Arrays.copyOf(current, current.length * 2);
+    }
+    current[code] = value;
+    values = current;
+    size++;
+    codes.put(value, code);
+    return code;
+  }
+
+  /**
+   * @param code code returned by {@link #code(String)}
+   * @return the canonical instance of the value for the code, null for {@link #NULL_CODE}
+   */
+  public String value(final int code) {
+    return values[code];
+  }
+
+  /**
+   * @param value value to look up, may be null
+   * @return the canonical instance of the value, so rows that are kept share one copy
+   */
+  public String intern(final String value) {
+    return value(code(value));
+  }
+
+  /**
+   * @return number of codes handed out including the null code, codes are always below this value
+   */
+  public synchronized int size() {
+    return size;
+  }
+}
@@ -27,12 +27,22 @@ public class DateRangeQueryFilter implements QueryFilter {
 
   @Override
   public boolean isValid(Query q) {
-    if (q.getStart() == 0) {
+    return isValidStartFinish(q.getStart(), q.getFinish());
+  }
+
+  @Override
+  public boolean isValidStartFinish(long start, long finish) {
+    if (start == 0) {
       return false;
     }
-    if (q.getFinish() == 0) {
+    if (finish == 0) {
       return false;
     }
-    return q.getStart() < epochEnd && q.getStart() > epochStart;
+    return start < epochEnd && start > epochStart;
+  }
+
+  @Override
+  public boolean usesStartFinish() {
+    return true;
   }
 }
@@ -0,0 +1,151 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.queriesjson.filters;
+
+import com.dremio.support.diagnostics.queriesjson.Query;
+import com.google.common.hash.Hashing;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Drops rows whose queryId was already seen, for when the queries.json of several coordinators or
+ * overlapping rotations are read together and the same query shows up more than once. Add it last
+ * to a {@link QueryFilterChain} so only the ids of rows that pass the other filters are kept.
+ *
+ * <p>Dremio query ids are 128 bit hex ids, they are kept as two longs so the check is exact and
+ * takes 16 bytes per id instead of a String. Other ids are hashed to 128 bits. The ids are spread
+ * over stripes so the parsing threads rarely wait on each other, and each stripe spills sorted runs
+ * to a temp directory once its share of the memory budget is used.
+ */
+public class DuplicateQueryFilter implements QueryFilter, Closeable {
+  private static final Logger LOGGER = Logger.getLogger(DuplicateQueryFilter.class.getName());
+  private static final int STRIPES = 16;
+  private final SpillingIdSet[] stripes = new SpillingIdSet[STRIPES];
+  private final Path spillDir;
+  private final LongAdder duplicates = new LongAdder();
+
+  /**
+   * @param memoryBytes memory the ids kept in memory may use, bloom filters of spilled ids take
+   *     about 1.2 bytes per spilled id on top of this
+   * @throws IOException when the temp directory for spilled runs cannot be created
+   */
+  public DuplicateQueryFilter(final long memoryBytes) throws IOException {
+    this.spillDir = Files.createTempDirectory("dqd-dedup");
+    for (int i = 0; i < STRIPES; i++) {
+      // every stripe numbers its runs from 0 so they each get a directory
+      stripes[i] =
+          new SpillingIdSet(
+              memoryBytes / STRIPES,
+              Files.createDirectory(spillDir.resolve("stripe-%02d".formatted(i))));
+    }
+  }
+
+  @Override
+  public boolean isValid(final Query q) {
+    final String queryId = q.getQueryId();
+    // without an id there is nothing to compare so the row is kept
+    if (queryId == null || queryId.isEmpty()) {
+      return true;
+    }
+    final long hi;
+    final long lo;
+    if (isHexId(queryId)) {
+      hi = parseHex(queryId, 0, 18);
+      lo = parseHex(queryId, 19, 36);
+    } else {
+      final ByteBuffer hash =
+          ByteBuffer.wrap(
+              Hashing.murmur3_128().hashString(queryId, StandardCharsets.UTF_8).asBytes());
+      hi = hash.getLong(0);
+      lo = hash.getLong(8);
+    }
+    // the high bits of an id are partly a timestamp, mix them before picking the stripe
+    final SpillingIdSet stripe = stripes[(int) (((hi ^ lo) * 0x9E3779B97F4A7C15L) >>> 60)];
+    final boolean added;
+    synchronized (stripe) {
+      added = stripe.add(hi, lo);
+    }
+    if (!added) {
+      duplicates.increment();
+    }
+    return added;
+  }
+
+  /**
+   * @return rows dropped because their queryId was seen before
+   */
+  public long getDuplicates() {
+    return duplicates.sum();
+  }
+
+  /**
+   * @return ids written to disk because the memory budget was used up
+   */
+  public long getSpilled() {
+    long spilled = 0;
+    for (SpillingIdSet stripe : stripes) {
+      synchronized (stripe) {
+        spilled += stripe.getSpilled();
+      }
+    }
+    return spilled;
+  }
+
+  /** the 8-4-4-4-12 hex layout of a dremio query id */
+  static boolean isHexId(final String id) {
+    if (id.length() != 36) {
+      return false;
+    }
+    for (int i = 0; i < 36; i++) {
+      final char c = id.charAt(i);
+      if (i == 8 || i == 13 || i == 18 || i == 23) {
+        if (c != '-') {
+          return false;
+        }
+      } else if (Character.digit(c, 16) < 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static long parseHex(final String id, final int from, final int to) {
+    long value = 0;
+    for (int i = from; i < to; i++) {
+      final char c = id.charAt(i);
+      if (c != '-') {
+        value = (value << 4) | Character.digit(c, 16);
+      }
+    }
+    return value;
+  }
+
+  @Override
+  public void close() throws IOException {
+    for (int i = 0; i < STRIPES; i++) {
+      synchronized (stripes[i]) {
+        stripes[i].close();
+      }
+      Files.deleteIfExists(spillDir.resolve("stripe-%02d".formatted(i)));
+    }
+    Files.deleteIfExists(spillDir);
+    LOGGER.fine(() -> "%d duplicate queries dropped".formatted(getDuplicates()));
+  }
+}
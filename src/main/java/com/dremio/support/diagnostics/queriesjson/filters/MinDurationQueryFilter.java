@@ -0,0 +1,41 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.queriesjson.filters;
+
+import com.dremio.support.diagnostics.queriesjson.Query;
+
+/** only keeps queries that ran for at least the given duration, measured from start to finish */
+public class MinDurationQueryFilter implements QueryFilter {
+
+  private final long minDurationMillis;
+
+  public MinDurationQueryFilter(long minDurationMillis) {
+    this.minDurationMillis = minDurationMillis;
+  }
+
+  @Override
+  public boolean isValid(Query q) {
+    return isValidStartFinish(q.getStart(), q.getFinish());
+  }
+
+  @Override
+  public boolean isValidStartFinish(long start, long finish) {
+    return finish - start >= minDurationMillis;
+  }
+
+  @Override
+  public boolean usesStartFinish() {
+    return true;
+  }
+}
@@ -15,6 +15,40 @@ package com.dremio.support.diagnostics.queriesjson.filters;
 
 import com.dremio.support.diagnostics.queriesjson.Query;
 
+/**
+ * Decides which rows of a queries.json make it to the reporters. Filters that only look at the
+ * start and finish of a row can reject it before the row is deserialized, see {@link
+ * #isValidStartFinish(long, long)}.
+ */
 public interface QueryFilter {
   boolean isValid(Query q);
+
+  /**
+   * checked by the parser with the start and finish read from a partial scan of the row, before the
+   * rest of the row is parsed. Rows rejected here never reach {@link #isValid(Query)}, so this must
+   * never reject a row that isValid would accept.
+   *
+   * @param start start of the query in epoch millis, 0 when missing
+   * @param finish finish of the query in epoch millis, 0 when missing
+   * @return false if the row can be skipped without parsing it
+   */
+  default boolean isValidStartFinish(long start, long finish) {
+    return true;
+  }
+
+  /**
+   * @return true if {@link #isValidStartFinish(long, long)} can reject rows, the parser only scans
+   *     for start and finish when a filter needs it
+   */
+  default boolean usesStartFinish() {
+    return false;
+  }
+
+  /**
+   * @return true if the filter reads the query text, the parser then keeps the text long enough to
+   *     filter even when the text is otherwise loaded lazily
+   */
+  default boolean usesQueryText() {
+    return false;
+  }
 }
@@ -0,0 +1,70 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.queriesjson.filters;
+
+import com.dremio.support.diagnostics.queriesjson.Query;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Combines filters so a query has to pass all of them. Filters run in the order they are added so
+ * add the cheap ones first, the regex on the query text should come last.
+ */
+public class QueryFilterChain implements QueryFilter {
+
+  private final List<QueryFilter> filters = new ArrayList<>();
+
+  public QueryFilterChain(QueryFilter first) {
+    filters.add(first);
+  }
+
+  /**
+   * @param filter filter to add to the end of the chain
+   * @return this chain
+   */
+  public QueryFilterChain and(QueryFilter filter) {
+    filters.add(filter);
+    return this;
+  }
+
+  @Override
+  public boolean isValid(Query q) {
+    for (QueryFilter filter : filters) {
+      if (!filter.isValid(q)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public boolean isValidStartFinish(long start, long finish) {
+    for (QueryFilter filter : filters) {
+      if (!filter.isValidStartFinish(start, finish)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public boolean usesStartFinish() {
+    return filters.stream().anyMatch(QueryFilter::usesStartFinish);
+  }
+
+  @Override
+  public boolean usesQueryText() {
+    return filters.stream().anyMatch(QueryFilter::usesQueryText);
+  }
+}
@@ -0,0 +1,38 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.queriesjson.filters;
+
+import com.dremio.support.diagnostics.queriesjson.Query;
+import java.util.regex.Pattern;
+
+/** keeps queries where the regex is found anywhere in the query text */
+public class QueryTextRegexFilter implements QueryFilter {
+
+  private final Pattern pattern;
+
+  public QueryTextRegexFilter(String regex) {
+    this.pattern = Pattern.compile(regex, Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+  }
+
+  @Override
+  public boolean isValid(Query q) {
+    final String text = q.getQueryText();
+    return text != null && pattern.matcher(text).find();
+  }
+
+  @Override
+  public boolean usesQueryText() {
+    return true;
+  }
+}
@@ -0,0 +1,362 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.queriesjson.filters;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnel;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Exact set of 128 bit keys that keeps at most a fixed number of keys in memory. When the in memory
+ * table is full its keys are sorted and written to a run file on disk, later lookups check the
+ * table first and then every run. Each run has a bloom filter in memory so a key that was never
+ * seen rarely touches the disk, and runs are merged into one when there are too many of them.
+ *
+ * <p>Not thread safe.
+ */
+final class SpillingIdSet implements Closeable {
+  static final int ENTRY_BYTES = 16;
+  private static final int MIN_SLOTS = 16;
+  private static final int INITIAL_SLOTS = 1024;
+  // keeps the table addressable by an int index into the long array
+  private static final int MAX_SLOTS = 1 << 29;
+  private static final int MAX_RUNS = 8;
+  private static final double BLOOM_FPP = 0.01;
+  private static final Funnel<long[]> KEY_FUNNEL =
+      (key, into) -> into.putLong(key[0]).putLong(key[1]);
+
+  private final Path spillDir;
+  private final int maxSlots;
+  // open addressing, slot i holds hi at 2i and lo at 2i + 1, all zeros marks an empty slot
+  private long[] table;
+  private int size;
+  // the key 0,0 can't be stored in the table since it marks empty slots
+  private boolean hasZeroKey;
+  private final List<Run> runs = new ArrayList<>();
+  private int runCounter;
+  private long spilled;
+
+  /**
+   * @param memoryBytes the most the in memory table may use, a small minimum is always kept
+   * @param spillDir directory for the run files, it must exist
+   */
+  SpillingIdSet(final long memoryBytes, final Path spillDir) {
+    this.spillDir = spillDir;
+    int slots = MIN_SLOTS;
+    while ((long) slots * 2 * ENTRY_BYTES <= memoryBytes && slots < MAX_SLOTS) {
+      slots *= 2;
+    }
+    this.maxSlots = slots;
+    this.table = new long[Math.min(INITIAL_SLOTS, maxSlots) * 2];
+  }
+
+  /**
+   * @return true if the key was not in the set and has been added
+   * @throws UncheckedIOException when a run cannot be read or written
+   */
+  boolean add(final long hi, final long lo) {
+    if (containsInMemory(hi, lo) || containsSpilled(hi, lo)) {
+      return false;
+    }
+    if (hi == 0 && lo == 0) {
+      hasZeroKey = true;
+      return true;
+    }
+    // stay at or under 3/4 full so probes stay short
+    if ((size + 1) * 4L > table.length / 2 * 3L) {
+      if (table.length / 2 < maxSlots) {
+        resize(table.length);
+      } else {
+        spill();
+      }
+    }
+    insert(table, hi, lo);
+    size++;
+    return true;
+  }
+
+  /**
+   * @return number of keys written to disk so far
+   */
+  long getSpilled() {
+    return spilled;
+  }
+
+  /**
+   * @return number of run files currently on disk
+   */
+  int getRunCount() {
+    return runs.size();
+  }
+
+  private boolean containsInMemory(final long hi, final long lo) {
+    if (hi == 0 && lo == 0) {
+      return hasZeroKey;
+    }
+    final int mask = table.length / 2 - 1;
+    int slot = slot(hi, lo, mask);
+    while (true) {
+      final long h = table[slot * 2];
+      final long l = table[slot * 2 + 1];
+      if (h == 0 && l == 0) {
+        return false;
+      }
+      if (h == hi && l == lo) {
+        return true;
+      }
+      slot = (slot + 1) & mask;
+    }
+  }
+
+  private boolean containsSpilled(final long hi, final long lo) {
+    final long[] key = {hi, lo};
+    for (Run run : runs) {
+      if (run.bloom.mightContain(key) && run.contains(hi, lo)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static int slot(final long hi, final long lo, final int mask) {
+    long h = hi * 0x9E3779B97F4A7C15L ^ lo;
+    h ^= h >>> 33;
+    h *= 0xFF51AFD7ED558CCDL;
+    h ^= h >>> 33;
+    return (int) h & mask;
+  }
+
+  private static void insert(final long[] into, final long hi, final long lo) {
+    final int mask = into.length / 2 - 1;
+    int slot = slot(hi, lo, mask);
+    while (into[slot * 2] != 0 || into[slot * 2 + 1] != 0) {
+      slot = (slot + 1) & mask;
+    }
+    into[slot * 2] = hi;
+    into[slot * 2 + 1] = lo;
+  }
+
+  private void resize(final int newSlots) {
+    final long[] bigger = new long[newSlots * 2];
+    for (int i = 0; i < table.length; i += 2) {
+      if (table[i] != 0 || table[i + 1] != 0) {
+        insert(bigger, table[i], table[i + 1]);
+      }
+    }
+    table = bigger;
+  }
+
+  /** writes the table sorted to a new run and empties it, sorting in place needs no copy */
+  private void spill() {
+    final int count = size + (hasZeroKey ? 1 : 0);
+    int n = 0;
+    for (int i = 0; i < table.length; i += 2) {
+      if (table[i] != 0 || table[i + 1] != 0) {
+        table[n++] = table[i];
+        table[n++] = table[i + 1];
+      }
+    }
+    // the table is at most 3/4 full so there is room for the 0,0 key after the others
+    table[n++] = 0;
+    table[n] = 0;
+    sortPairs(table, 0, count - 1);
+    try {
+      final Path file = nextRunFile();
+      final BloomFilter<long[]> bloom = BloomFilter.create(KEY_FUNNEL, count, BLOOM_FPP);
+      try (var out =
+          new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 65536))) {
+        for (int i = 0; i < count * 2; i += 2) {
+          out.writeLong(table[i]);
+          out.writeLong(table[i + 1]);
+          bloom.put(new long[] {table[i], table[i + 1]});
+        }
+      }
+      runs.add(new Run(file, count, bloom));
+      if (runs.size() > MAX_RUNS) {
+        mergeRuns();
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    spilled += count;
+    Arrays.fill(table, 0);
+    size = 0;
+    hasZeroKey = false;
+  }
+
+  /** k way merge of all the runs into one, the runs never share a key */
+  private void mergeRuns() throws IOException {
+    final long total = runs.stream().mapToLong(r -> r.count).sum();
+    final Path merged = nextRunFile();
+    final BloomFilter<long[]> bloom = BloomFilter.create(KEY_FUNNEL, total, BLOOM_FPP);
+    final List<DataInputStream> inputs = new ArrayList<>();
+    try (var out =
+        new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(merged), 65536))) {
+      // each head is {hi, lo, index of the input}
+      final PriorityQueue<long[]> heads =
+          new PriorityQueue<>((a, b) -> comparePairs(a[0], a[1], b[0], b[1]));
+      for (Run run : runs) {
+        final var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(run.file)));
+        inputs.add(in);
+        if (run.count > 0) {
+          heads.add(new long[] {in.readLong(), in.readLong(), inputs.size() - 1});
+        }
+      }
+      final long[] remaining = runs.stream().mapToLong(r -> r.count - 1).toArray();
+      while (!heads.isEmpty()) {
+        final long[] head = heads.poll();
+        out.writeLong(head[0]);
+        out.writeLong(head[1]);
+        bloom.put(new long[] {head[0], head[1]});
+        final int input = (int) head[2];
+        if (remaining[input] > 0) {
+          remaining[input]--;
+          final DataInputStream in = inputs.get(input);
+          heads.add(new long[] {in.readLong(), in.readLong(), input});
+        }
+      }
+    } finally {
+      for (DataInputStream in : inputs) {
+        in.close();
+      }
+    }
+    for (Run run : runs) {
+      run.close();
+      Files.deleteIfExists(run.file);
+    }
+    runs.clear();
+    runs.add(new Run(merged, total, bloom));
+  }
+
+  private Path nextRunFile() {
+    return spillDir.resolve("run-%05d.bin".formatted(runCounter++));
+  }
+
+  static int comparePairs(final long hi1, final long lo1, final long hi2, final long lo2) {
+    final int c = Long.compare(hi1, hi2);
+    return c != 0 ? c : Long.compare(lo1, lo2);
+  }
+
+  /** quicksort of the pairs from index lo to hi inclusive, indexes count pairs not longs */
+  private static void sortPairs(final long[] pairs, int from, int to) {
+    while (from < to) {
+      final int p = from + ThreadLocalRandom.current().nextInt(to - from + 1);
+      final long pivotHi = pairs[p * 2];
+      final long pivotLo = pairs[p * 2 + 1];
+      int i = from;
+      int j = to;
+      while (i <= j) {
+        while (comparePairs(pairs[i * 2], pairs[i * 2 + 1], pivotHi, pivotLo) < 0) {
+          i++;
+        }
+        while (comparePairs(pairs[j * 2], pairs[j * 2 + 1], pivotHi, pivotLo) > 0) {
+          j--;
+        }
+        if (i <= j) {
+          swap(pairs, i++, j--);
+        }
+      }
+      // recurse into the smaller half so the stack stays shallow
+      if (j - from < to - i) {
+        sortPairs(pairs, from, j);
+        from = i;
+      } else {
+        sortPairs(pairs, i, to);
+        to = j;
+      }
+    }
+  }
+
+  private static void swap(final long[] pairs, final int a, final int b) {
+    final long hi = pairs[a * 2];
+    final long lo = pairs[a * 2 + 1];
+    pairs[a * 2] = pairs[b * 2];
+    pairs[a * 2 + 1] = pairs[b * 2 + 1];
+    pairs[b * 2] = hi;
+    pairs[b * 2 + 1] = lo;
+  }
+
+  @Override
+  public void close() throws IOException {
+    for (Run run : runs) {
+      run.close();
+      Files.deleteIfExists(run.file);
+    }
+    runs.clear();
+  }
+
+  /** a sorted file of keys, searched with positional reads so it is never loaded in memory */
+  private static final class Run implements Closeable {
+    private final Path file;
+    private final long count;
+    private final BloomFilter<long[]> bloom;
+    private final FileChannel channel;
+    private final ByteBuffer probe = ByteBuffer.allocate(ENTRY_BYTES);
+
+    Run(final Path file, final long count, final BloomFilter<long[]> bloom) throws IOException {
+      this.file = file;
+      this.count = count;
+      this.bloom = bloom;
+      this.channel = FileChannel.open(file, StandardOpenOption.READ);
+    }
+
+    boolean contains(final long hi, final long lo) {
+      long low = 0;
+      long high = count - 1;
+      try {
+        while (low <= high) {
+          final long mid = (low + high) >>> 1;
+          probe.clear();
+          while (probe.hasRemaining()) {
+            if (channel.read(probe, mid * ENTRY_BYTES + probe.position()) < 0) {
+              throw new IOException("run %s is shorter than expected".formatted(file));
+            }
+          }
+          final int c = comparePairs(probe.getLong(0), probe.getLong(8), hi, lo);
+          if (c == 0) {
+            return true;
+          } else if (c < 0) {
+            low = mid + 1;
+          } else {
+            high = mid - 1;
+          }
+        }
+        return false;
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      channel.close();
+    }
+  }
+}
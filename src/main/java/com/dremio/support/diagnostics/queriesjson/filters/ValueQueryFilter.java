@@ -0,0 +1,61 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.queriesjson.filters;
+
+import com.dremio.support.diagnostics.queriesjson.Query;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Keeps queries where a string field matches one of the given values, case is ignored. Queries with
+ * no value for the field are matched against the empty string, queues and engines without a name
+ * are matched as Default like they are shown in the report.
+ */
+public class ValueQueryFilter implements QueryFilter {
+
+  private final Function<Query, String> field;
+  private final Set<String> values = new HashSet<>();
+
+  public ValueQueryFilter(Function<Query, String> field, Collection<String> values) {
+    this.field = field;
+    for (String value : values) {
+      this.values.add(value.trim().toLowerCase(Locale.ROOT));
+    }
+  }
+
+  public static ValueQueryFilter users(Collection<String> users) {
+    return new ValueQueryFilter(Query::getUsername, users);
+  }
+
+  public static ValueQueryFilter queues(Collection<String> queues) {
+    return new ValueQueryFilter(Query::getQueueName, queues);
+  }
+
+  public static ValueQueryFilter outcomes(Collection<String> outcomes) {
+    return new ValueQueryFilter(Query::getOutcome, outcomes);
+  }
+
+  public static ValueQueryFilter engines(Collection<String> engines) {
+    return new ValueQueryFilter(Query::getEngineName, engines);
+  }
+
+  @Override
+  public boolean isValid(Query q) {
+    final String value = field.apply(q);
+    return values.contains(value == null ? "" : value.toLowerCase(Locale.ROOT));
+  }
+}
@@ -0,0 +1,132 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.queriesjson.html;
+
+import static com.dremio.support.diagnostics.shared.HtmlTableDataColumn.col;
+
+import com.dremio.support.diagnostics.queriesjson.reporters.LatencyPercentilesReporter.LatencySketches;
+import com.dremio.support.diagnostics.queriesjson.reporters.LatencyPercentilesReporter.Measure;
+import com.dremio.support.diagnostics.shared.HtmlTableBuilder;
+import com.dremio.support.diagnostics.shared.HtmlTableDataColumn;
+import com.dremio.support.diagnostics.shared.Human;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+public class LatencyPercentilesWriter {
+  private static final double[] QUANTILES = {0.5, 0.95, 0.99};
+  private final PlotlyWriter plotly = new PlotlyWriter();
+  private final long window;
+
+  public LatencyPercentilesWriter(final long window) {
+    this.window = window;
+  }
+
+  private Function<Long, String> genFunction(
+      final Map<Long, LatencySketches> byWindow, final Measure measure, final double quantile) {
+    return (bucket) -> {
+      final LatencySketches sketches = byWindow.get(bucket);
+      if (sketches == null || sketches.getCount() == 0) {
+        // leave a gap in the line, no query started in this window
+        return "null";
+      }
+      final var sketch = sketches.get(measure);
+      final double seconds = quantile < 0 ? sketch.getMax() : sketch.quantile(quantile);
+      // the value goes into javascript so it must not use the decimal comma of some locales
+      return String.format(Locale.ROOT, "%.3f", seconds);
+    };
+  }
+
+  /**
+   * generates one plot per measure with the p50, p95, p99 and max of the queries that started in
+   * each window
+   */
+  public String generate(
+      final long startEpochMs,
+      final long finishEpochMs,
+      final Map<Long, LatencySketches> byWindow) {
+    Supplier<Dates.BucketIterator> genDates =
+        () -> new Dates.BucketIterator(startEpochMs, finishEpochMs, this.window);
+    final StringBuilder builder = new StringBuilder();
+    for (Measure measure : Measure.values()) {
+      final String id = measure.name().toLowerCase(Locale.ROOT).replace("_", "");
+      final List<String> traceIds = new ArrayList<>();
+      final List<String> traces = new ArrayList<>();
+      for (double quantile : QUANTILES) {
+        final String name = "p%d".formatted(Math.round(quantile * 100));
+        traceIds.add(name + id);
+        traces.add(
+            plotly.writeTraceHtml(
+                name + id,
+                "%s seconds %s".formatted(name, measure.label()),
+                genDates.get(),
+                genFunction(byWindow, measure, quantile)));
+      }
+      traceIds.add("max" + id);
+      traces.add(
+          plotly.writeTraceHtml(
+              "max" + id,
+              "max seconds %s".formatted(measure.label()),
+              genDates.get(),
+              genFunction(byWindow, measure, -1)));
+      builder.append(
+          plotly.writePlotHtml(
+              "Queries.json %s percentiles per %s"
+                  .formatted(measure.label(), Human.getHumanDurationFromMillis(window)),
+              "percentiles_" + id,
+              traceIds.toArray(new String[0]),
+              traces.toArray(new String[0])));
+    }
+    return builder.toString();
+  }
+
+  /**
+   * generates a html table with the p50, p95 and p99 of every measure for each queue
+   *
+   * @param byQueue sketches for the whole report keyed by queue name
+   */
+  public static String generateQueueTable(final Map<String, LatencySketches> byQueue) {
+    if (byQueue.isEmpty()) {
+      return "<h2>Latency Percentiles by Queue</h2><p>No Queries Found</p>";
+    }
+    final List<String> headers = new ArrayList<>();
+    headers.add("Queue");
+    headers.add("count");
+    for (Measure measure : Measure.values()) {
+      for (double quantile : QUANTILES) {
+        headers.add("%s p%d (s)".formatted(measure.label(), Math.round(quantile * 100)));
+      }
+    }
+    final Collection<Collection<HtmlTableDataColumn<String, Number>>> rows = new ArrayList<>();
+    for (Map.Entry<String, LatencySketches> entry : byQueue.entrySet()) {
+      final LatencySketches sketches = entry.getValue();
+      final List<HtmlTableDataColumn<String, Number>> row = new ArrayList<>();
+      row.add(col(entry.getKey()));
+      row.add(col(String.format("%,d", sketches.getCount()), sketches.getCount()));
+      for (Measure measure : Measure.values()) {
+        for (double quantile : QUANTILES) {
+          final double seconds = sketches.get(measure).quantile(quantile);
+          row.add(col(String.format(Locale.ROOT, "%.3f", seconds), seconds));
+        }
+      }
+      rows.add(row);
+    }
+    return new HtmlTableBuilder()
+        .generateTable("latencyPercentilesByQueue", "Latency Percentiles by Queue", headers, rows);
+  }
+}
@@ -0,0 +1,107 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.queriesjson.html;
+
+import static com.dremio.support.diagnostics.shared.HtmlTableDataColumn.col;
+
+import com.dremio.support.diagnostics.queriesjson.reporters.QueryShapesReporter.Rank;
+import com.dremio.support.diagnostics.queriesjson.reporters.QueryShapesReporter.ShapeStats;
+import com.dremio.support.diagnostics.shared.HtmlTableBuilder;
+import com.dremio.support.diagnostics.shared.HtmlTableDataColumn;
+import com.dremio.support.diagnostics.shared.Human;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+public class QueryShapesWriter {
+
+  /**
+   * generates one html table per ranking with the totals of the heaviest query shapes
+   *
+   * @param topShapes heaviest shapes of every ranking, heaviest first
+   */
+  public static String generate(final Map<Rank, List<ShapeStats>> topShapes) {
+    final StringBuilder builder = new StringBuilder();
+    for (Map.Entry<Rank, List<ShapeStats>> entry : topShapes.entrySet()) {
+      final String title = "Query Shapes by " + entry.getKey().label();
+      if (entry.getValue().isEmpty()) {
+        builder.append("<h2>%s</h2><p>No Queries Found</p>".formatted(title));
+        continue;
+      }
+      final Collection<Collection<HtmlTableDataColumn<String, Number>>> rows = new ArrayList<>();
+      for (ShapeStats stats : entry.getValue()) {
+        final long count = stats.getCount();
+        final double p95 = stats.getDurationMillis(0.95);
+        rows.add(
+            Arrays.asList(
+                col(stats.getShape(), true),
+                col(String.format("%,d", count), count),
+                col(formatWeight(entry.getKey(), stats.getOvercount()), stats.getOvercount()),
+                col(
+                    Human.getHumanDurationFromMillis(stats.getTotalDurationMillis()),
+                    stats.getTotalDurationMillis()),
+                col(
+                    Human.getHumanDurationFromMillis(Math.round(stats.getAverageDurationMillis())),
+                    stats.getAverageDurationMillis()),
+                col(Human.getHumanDurationFromMillis(Math.round(p95)), p95),
+                col(
+                    Human.getHumanDurationFromNanos(stats.getTotalCpuNanos()),
+                    stats.getTotalCpuNanos()),
+                col(
+                    Human.getHumanDurationFromNanos(stats.getTotalCpuNanos() / count),
+                    stats.getTotalCpuNanos() / count),
+                col(
+                    Human.getHumanBytes1024(stats.getTotalMemoryAllocated()),
+                    stats.getTotalMemoryAllocated()),
+                col(
+                    Human.getHumanBytes1024(stats.getTotalMemoryAllocated() / count),
+                    stats.getTotalMemoryAllocated() / count)));
+      }
+      builder.append(
+          new HtmlTableBuilder()
+              .generateTable(
+                  "queryShapesBy" + entry.getKey().name().toLowerCase(Locale.ROOT),
+                  title,
+                  Arrays.asList(
+                      "query shape",
+                      "count",
+                      "max overcount",
+                      "total duration",
+                      "avg duration",
+                      "p95 duration",
+                      "total cpu time",
+                      "avg cpu time",
+                      "total memory allocated",
+                      "avg memory allocated"),
+                  rows));
+    }
+    return builder.toString();
+  }
+
+  /**
+   * @param rank ranking the weight belongs to
+   * @param weight weight in the unit of the ranking
+   * @return the weight formatted like the column of the ranking
+   */
+  static String formatWeight(final Rank rank, final long weight) {
+    return switch (rank) {
+      case COUNT -> String.format("%,d", weight);
+      case CPU -> Human.getHumanDurationFromNanos(weight);
+      case MEMORY -> Human.getHumanBytes1024(weight);
+    };
+  }
+}
@@ -14,24 +14,50 @@
 package com.dremio.support.diagnostics.queriesjson.reporters;
 
 import com.dremio.support.diagnostics.queriesjson.Query;
+import com.dremio.support.diagnostics.queriesjson.QueryDictionaries;
 import com.dremio.support.diagnostics.shared.TimeUtils;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
 public class ConcurrentQueueReporter implements QueryReporter {
-  private Map<String, Map<Long, Long>> queueBucketCounts = new HashMap<>();
+  // indexed by queue name code, each entry is the count of queries active per bucket
+  private final List<Map<Long, Long>> queueBucketCounts = new ArrayList<>();
+  private final QueryDictionaries dictionaries;
 
   public Map<String, Map<Long, Long>> getQueueBucketCounts() {
-    return queueBucketCounts;
+    lock.lock();
+    try {
+      final Map<String, Map<Long, Long>> byName = new HashMap<>();
+      for (int code = 0; code < queueBucketCounts.size(); code++) {
+        final Map<Long, Long> perQueueCounts = queueBucketCounts.get(code);
+        if (perQueueCounts != null) {
+          byName.put(dictionaries.getQueueNames().value(code), perQueueCounts);
+        }
+      }
+      return byName;
+    } finally {
+      lock.unlock();
+    }
   }
 
   private final Lock lock = new ReentrantLock();
   private final long window;
 
   public ConcurrentQueueReporter(final long window) {
+    this(window, new QueryDictionaries());
+  }
+
+  /**
+   * @param window bucket size in milliseconds
+   * @param dictionaries the dictionaries used by the parser to encode the queries
+   */
+  public ConcurrentQueueReporter(final long window, final QueryDictionaries dictionaries) {
     this.window = window;
+    this.dictionaries = dictionaries;
   }
 
   @Override
@@ -42,36 +68,24 @@ public class ConcurrentQueueReporter implements QueryReporter {
     // counting and
     // therefore the finish will not added to the counts map
     var finish = TimeUtils.truncateEpoch(q.getFinish(), this.window) + this.window;
-    var queueName = q.getQueueName();
-    while (start < finish) {
-      lock.lock();
-      try {
-        if (queueBucketCounts.containsKey(queueName)) {
-          // nested map sorry this is hard to read, but I'm checking to see if the bucket
-          // is
-          // in the queueBucketCounts
-          var perQueueCounts = queueBucketCounts.get(queueName);
-          if (perQueueCounts.containsKey(start)) {
-            // ok so now we have a bucket count. let's increment it by one
-            var count = perQueueCounts.get(start);
-            perQueueCounts.put(start, count + 1L);
-          } else {
-            // there is no previous count for this bucket, go ahead and set it to 1
-            perQueueCounts.put(start, 1L);
-          }
-          // ok so now that we've done everything with the perQueueCounts that we need to
-          // go ahead and ovewrite the previous value
-          queueBucketCounts.put(queueName, perQueueCounts);
-        } else {
-          final Map<Long, Long> values = new HashMap<>();
-          values.put(start, 1L);
-          queueBucketCounts.put(queueName, values);
-        }
-        // we are now safe to unlock
-      } finally {
-        lock.unlock();
+    final int code = dictionaries.queueNameCode(q);
+    lock.lock();
+    try {
+      while (queueBucketCounts.size() <= code) {
+        queueBucketCounts.add(null);
+      }
+      var perQueueCounts = queueBucketCounts.get(code);
+      if (perQueueCounts == null) {
+        perQueueCounts = new HashMap<>();
+        queueBucketCounts.set(code, perQueueCounts);
+      }
+      while (start < finish) {
+        perQueueCounts.merge(start, 1L, Long::sum);
+        start += this.window;
       }
-      start += this.window;
+      // we are now safe to unlock
+    } finally {
+      lock.unlock();
     }
   }
 }
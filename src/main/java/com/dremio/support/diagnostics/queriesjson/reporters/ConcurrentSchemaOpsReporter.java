@@ -33,11 +33,11 @@ public class ConcurrentSchemaOpsReporter implements QueryReporter {
 
   @Override
   public synchronized void parseRow(Query q) {
-    if (q.getQueryText() != null
-        && (q.getQueryText().startsWith("DROP")
-            || q.getQueryText().startsWith("CREATE")
-            || q.getQueryText().startsWith("REFRESH")
-            || q.getQueryText().startsWith("ALTER"))) {
+    // queryTextStartsWith avoids loading the full text when the parser only kept an offset
+    if (q.queryTextStartsWith("DROP")
+        || q.queryTextStartsWith("CREATE")
+        || q.queryTextStartsWith("REFRESH")
+        || q.queryTextStartsWith("ALTER")) {
       long start = TimeUtils.truncateEpoch(q.getStart(), this.window);
       // we add another interval to make sure we count the last bucket. this value
       // when reached will stop the
@@ -0,0 +1,166 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.queriesjson.reporters;
+
+import com.dremio.support.diagnostics.queriesjson.Query;
+import com.dremio.support.diagnostics.shared.QuantileSketch;
+import com.dremio.support.diagnostics.shared.TimeUtils;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Keeps a quantile sketch of the latencies of every query per window and per queue so the report
+ * can show p50/p95/p99 next to the max values. Memory depends on the number of windows and queues,
+ * not on the number of rows.
+ *
+ * <p>Each parser thread adds to its own set of sketches so rows never wait on each other, they are
+ * merged when the results are read.
+ */
+public class LatencyPercentilesReporter implements QueryReporter {
+
+  /** the latencies tracked for each query */
+  public enum Measure {
+    DURATION("total duration"),
+    PLANNING("planning"),
+    QUEUE_WAIT("queue wait"),
+    CPU("execution cpu");
+
+    private final String label;
+
+    Measure(final String label) {
+      this.label = label;
+    }
+
+    public String label() {
+      return label;
+    }
+
+    /**
+     * @return the value in seconds for the query
+     */
+    double seconds(final Query q) {
+      return switch (this) {
+        case DURATION -> (q.getFinish() - q.getStart()) / 1000.0;
+        case PLANNING -> q.getPlanningTime() / 1000.0;
+        case QUEUE_WAIT -> q.getQueuedTime() / 1000.0;
+        case CPU -> q.getExecutionCpuTimeNs() / 1_000_000_000.0;
+      };
+    }
+  }
+
+  /** one sketch per measure */
+  public static class LatencySketches {
+    private final QuantileSketch[] sketches = new QuantileSketch[Measure.values().length];
+
+    LatencySketches() {
+      for (int i = 0; i < sketches.length; i++) {
+        sketches[i] = new QuantileSketch();
+      }
+    }
+
+    void add(final Query q) {
+      for (Measure measure : Measure.values()) {
+        sketches[measure.ordinal()].add(measure.seconds(q));
+      }
+    }
+
+    void merge(final LatencySketches other) {
+      for (int i = 0; i < sketches.length; i++) {
+        sketches[i].merge(other.sketches[i]);
+      }
+    }
+
+    public QuantileSketch get(final Measure measure) {
+      return sketches[measure.ordinal()];
+    }
+
+    public long getCount() {
+      return sketches[0].getCount();
+    }
+  }
+
+  /** the sketches filled by a single thread */
+  private static class Partial {
+    private final Map<Long, LatencySketches> byWindow = new HashMap<>();
+    private final Map<String, LatencySketches> byQueue = new HashMap<>();
+  }
+
+  private final long window;
+  private final List<Partial> partials = new ArrayList<>();
+  private final ThreadLocal<Partial> partial =
+      ThreadLocal.withInitial(
+          () -> {
+            final Partial p = new Partial();
+            synchronized (partials) {
+              partials.add(p);
+            }
+            return p;
+          });
+
+  public LatencyPercentilesReporter(final long window) {
+    this.window = window;
+  }
+
+  @Override
+  public void parseRow(final Query q) {
+    final Partial p = partial.get();
+    final long bucket = TimeUtils.truncateEpoch(q.getStart(), this.window);
+    // only this thread writes to the partial, the lock is uncontended and makes the
+    // writes visible to the thread that merges
+    synchronized (p) {
+      p.byWindow.computeIfAbsent(bucket, k -> new LatencySketches()).add(q);
+      p.byQueue.computeIfAbsent(q.getQueueName(), k -> new LatencySketches()).add(q);
+    }
+  }
+
+  /**
+   * @return sketches of the queries that started in each window, keyed by the window start
+   */
+  public Map<Long, LatencySketches> getByWindow() {
+    final Map<Long, LatencySketches> merged = new TreeMap<>();
+    synchronized (partials) {
+      for (Partial p : partials) {
+        synchronized (p) {
+          mergeInto(merged, p.byWindow);
+        }
+      }
+    }
+    return merged;
+  }
+
+  /**
+   * @return sketches of the queries of each queue for the whole report
+   */
+  public Map<String, LatencySketches> getByQueue() {
+    final Map<String, LatencySketches> merged = new TreeMap<>();
+    synchronized (partials) {
+      for (Partial p : partials) {
+        synchronized (p) {
+          mergeInto(merged, p.byQueue);
+        }
+      }
+    }
+    return merged;
+  }
+
+  private static <K> void mergeInto(
+      final Map<K, LatencySketches> target, final Map<K, LatencySketches> source) {
+    for (Map.Entry<K, LatencySketches> entry : source.entrySet()) {
+      target.computeIfAbsent(entry.getKey(), k -> new LatencySketches()).merge(entry.getValue());
+    }
+  }
+}
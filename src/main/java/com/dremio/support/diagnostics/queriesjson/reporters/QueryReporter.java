@@ -17,4 +17,12 @@ import com.dremio.support.diagnostics.queriesjson.Query;
 
 public interface QueryReporter {
   void parseRow(Query q);
+
+  /**
+   * @return true if the reporter reads the query text of every row, the parser then keeps the text
+   *     until the reporters have run even when it is otherwise loaded lazily
+   */
+  default boolean usesQueryText() {
+    return false;
+  }
 }
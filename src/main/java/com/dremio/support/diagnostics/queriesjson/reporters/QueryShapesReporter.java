@@ -0,0 +1,313 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.queriesjson.reporters;
+
+import com.dremio.support.diagnostics.queriesjson.Query;
+import com.dremio.support.diagnostics.queriesjson.QueryFingerprint;
+import com.dremio.support.diagnostics.shared.QuantileSketch;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Adds up the duration, cpu and memory of every query shape (see {@link QueryFingerprint}) to find
+ * the statements that cost the most in total, not only the single most expensive runs.
+ *
+ * <p>There can be as many shapes as rows so each ranking keeps a space saving sketch of a fixed
+ * number of shapes: when a new shape arrives and the sketch is full the lightest shape is replaced
+ * and the newcomer inherits its weight as a possible overcount. Any shape heavier than total weight
+ * / capacity is guaranteed to be kept, the totals of a shape only include the rows seen since it
+ * last entered the sketch.
+ *
+ * <p>The shape needs the text of every row, with --lazy-query-text the parser still decodes it for
+ * this reporter and drops it once the reporters have run.
+ */
+public class QueryShapesReporter implements QueryReporter {
+  public static final int DEFAULT_CAPACITY = 1024;
+  // long statements are told apart well before this
+  private static final int MAX_SHAPE_LENGTH = 4000;
+
+  /** what the shapes are ranked by, every ranking has its own sketch */
+  public enum Rank {
+    COUNT("query count"),
+    CPU("execution cpu time"),
+    MEMORY("memory allocated");
+
+    private final String label;
+
+    Rank(final String label) {
+      this.label = label;
+    }
+
+    public String label() {
+      return label;
+    }
+
+    long weight(final Query q) {
+      return switch (this) {
+        case COUNT -> 1;
+        case CPU -> q.getExecutionCpuTimeNs();
+        case MEMORY -> q.getMemoryAllocated();
+      };
+    }
+  }
+
+  /** totals of one query shape */
+  public static class ShapeStats {
+    private final String shape;
+    private final long hash;
+    // weight in the ranking, includes the overcount
+    private long weight;
+    private final long overcount;
+    private long count;
+    private long totalDurationMillis;
+    private long totalCpuNanos;
+    private long totalMemoryAllocated;
+    private final QuantileSketch durationMillis;
+    // position in the heap of the sketch
+    private int heapIndex;
+
+    ShapeStats(final String shape, final long hash, final long overcount) {
+      this.shape = shape;
+      this.hash = hash;
+      this.weight = overcount;
+      this.overcount = overcount;
+      this.durationMillis = new QuantileSketch(0.02, 512);
+    }
+
+    private ShapeStats(final ShapeStats other) {
+      this(other.shape, other.hash, other.overcount);
+      this.weight = other.weight;
+      this.count = other.count;
+      this.totalDurationMillis = other.totalDurationMillis;
+      this.totalCpuNanos = other.totalCpuNanos;
+      this.totalMemoryAllocated = other.totalMemoryAllocated;
+      this.durationMillis.merge(other.durationMillis);
+    }
+
+    void add(final Query q) {
+      final long duration = q.getFinish() - q.getStart();
+      count++;
+      totalDurationMillis += duration;
+      totalCpuNanos += q.getExecutionCpuTimeNs();
+      totalMemoryAllocated += q.getMemoryAllocated();
+      durationMillis.add(duration);
+    }
+
+    public String getShape() {
+      return shape;
+    }
+
+    /**
+     * @return weight the shape is ranked by, at most {@link #getOvercount()} more than its real
+     *     weight
+     */
+    public long getWeight() {
+      return weight;
+    }
+
+    /**
+     * @return weight that may belong to shapes evicted before this one entered the sketch, 0 when
+     *     the totals are exact
+     */
+    public long getOvercount() {
+      return overcount;
+    }
+
+    public long getCount() {
+      return count;
+    }
+
+    public long getTotalDurationMillis() {
+      return totalDurationMillis;
+    }
+
+    public long getTotalCpuNanos() {
+      return totalCpuNanos;
+    }
+
+    public long getTotalMemoryAllocated() {
+      return totalMemoryAllocated;
+    }
+
+    public double getAverageDurationMillis() {
+      return count == 0 ? 0 : (double) totalDurationMillis / count;
+    }
+
+    /**
+     * @param quantile between 0 and 1
+     * @return duration in millis, within 2%
+     */
+    public double getDurationMillis(final double quantile) {
+      return durationMillis.quantile(quantile);
+    }
+  }
+
+  /**
+   * space saving sketch keeping the capacity heaviest shapes, the lightest is found with a min heap
+   */
+  private static final class SpaceSaving {
+    private final Rank rank;
+    private final Map<Long, ShapeStats> byHash = new HashMap<>();
+    private final ShapeStats[] heap;
+    private int size;
+
+    SpaceSaving(final Rank rank, final int capacity) {
+      this.rank = rank;
+      this.heap = new ShapeStats[capacity];
+    }
+
+    void add(final long hash, final Query q, final ShapeText text) {
+      final long weight = rank.weight(q);
+      ShapeStats stats = byHash.get(hash);
+      if (stats == null) {
+        // a weightless row can't make a shape heavier than one already kept
+        if (weight <= 0 && rank != Rank.COUNT) {
+          return;
+        }
+        if (size < heap.length) {
+          stats = new ShapeStats(text.get(), hash, 0);
+          stats.heapIndex = size;
+          heap[size++] = stats;
+          siftUp(stats.heapIndex);
+        } else {
+          final ShapeStats lightest = heap[0];
+          byHash.remove(lightest.hash);
+          stats = new ShapeStats(text.get(), hash, lightest.weight);
+          stats.heapIndex = 0;
+          heap[0] = stats;
+        }
+        byHash.put(hash, stats);
+      }
+      stats.weight += weight;
+      stats.add(q);
+      siftDown(stats.heapIndex);
+    }
+
+    List<ShapeStats> top(final int limit) {
+      final List<ShapeStats> sorted = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        sorted.add(new ShapeStats(heap[i]));
+      }
+      sorted.sort(Comparator.comparingLong(ShapeStats::getWeight).reversed());
+      return sorted.subList(0, Math.min(limit, sorted.size()));
+    }
+
+    private void siftUp(int i) {
+      while (i > 0) {
+        final int parent = (i - 1) / 2;
+        if (heap[parent].weight <= heap[i].weight) {
+          return;
+        }
+        swap(i, parent);
+        i = parent;
+      }
+    }
+
+    private void siftDown(int i) {
+      while (true) {
+        final int left = i * 2 + 1;
+        if (left >= size) {
+          return;
+        }
+        final int right = left + 1;
+        final int lighter = right < size && heap[right].weight < heap[left].weight ? right : left;
+        if (heap[i].weight <= heap[lighter].weight) {
+          return;
+        }
+        swap(i, lighter);
+        i = lighter;
+      }
+    }
+
+    private void swap(final int a, final int b) {
+      final ShapeStats tmp = heap[a];
+      heap[a] = heap[b];
+      heap[b] = tmp;
+      heap[a].heapIndex = a;
+      heap[b].heapIndex = b;
+    }
+  }
+
+  /** builds the shape text at most once per row and only when a sketch needs it */
+  private static final class ShapeText {
+    private final String queryText;
+    private String shape;
+
+    ShapeText(final String queryText) {
+      this.queryText = queryText;
+    }
+
+    String get() {
+      if (shape == null) {
+        shape = QueryFingerprint.normalize(queryText, MAX_SHAPE_LENGTH);
+      }
+      return shape;
+    }
+  }
+
+  private final Map<Rank, SpaceSaving> sketches = new EnumMap<>(Rank.class);
+
+  public QueryShapesReporter() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * @param capacity shapes kept per ranking, memory grows linearly with it
+   */
+  public QueryShapesReporter(final int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("capacity must be at least 1 but was " + capacity);
+    }
+    for (Rank rank : Rank.values()) {
+      sketches.put(rank, new SpaceSaving(rank, capacity));
+    }
+  }
+
+  @Override
+  public boolean usesQueryText() {
+    return true;
+  }
+
+  @Override
+  public void parseRow(final Query q) {
+    final String text = q.getQueryText();
+    if (text == null || text.isBlank()) {
+      return;
+    }
+    // the tokenizer runs outside of the lock, only the sketch updates are serialized
+    final long hash = QueryFingerprint.hash(text);
+    final ShapeText shapeText = new ShapeText(text);
+    synchronized (this) {
+      for (SpaceSaving sketch : sketches.values()) {
+        sketch.add(hash, q, shapeText);
+      }
+    }
+  }
+
+  /**
+   * @param limit most shapes returned per ranking
+   * @return copies of the heaviest shapes of every ranking, heaviest first
+   */
+  public synchronized Map<Rank, List<ShapeStats>> getTopShapes(final int limit) {
+    final Map<Rank, List<ShapeStats>> top = new EnumMap<>(Rank.class);
+    for (Map.Entry<Rank, SpaceSaving> entry : sketches.entrySet()) {
+      top.put(entry.getKey(), entry.getValue().top(limit));
+    }
+    return top;
+  }
+}
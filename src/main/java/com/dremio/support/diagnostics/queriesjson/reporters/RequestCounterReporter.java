@@ -14,12 +14,27 @@
 package com.dremio.support.diagnostics.queriesjson.reporters;
 
 import com.dremio.support.diagnostics.queriesjson.Query;
+import com.dremio.support.diagnostics.queriesjson.QueryDictionaries;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
 public class RequestCounterReporter implements QueryReporter {
 
-  private final Map<String, Long> requestCounterMap = new HashMap<>();
+  private final QueryDictionaries dictionaries;
+  // indexed by outcome code
+  private long[] requestCounts = new long[16];
+
+  public RequestCounterReporter() {
+    this(new QueryDictionaries());
+  }
+
+  /**
+   * @param dictionaries the dictionaries used by the parser to encode the queries
+   */
+  public RequestCounterReporter(final QueryDictionaries dictionaries) {
+    this.dictionaries = dictionaries;
+  }
 
   /**
    * getter for report
@@ -27,17 +42,23 @@ public class RequestCounterReporter implements QueryReporter {
    * @return map of request counts
    */
   public synchronized Map<String, Long> getRequestCounterMap() {
+    final Map<String, Long> requestCounterMap = new HashMap<>();
+    for (int code = 0; code < requestCounts.length; code++) {
+      if (requestCounts[code] > 0) {
+        requestCounterMap.put(dictionaries.getOutcomes().value(code), requestCounts[code]);
+      }
+    }
     return requestCounterMap;
   }
 
   @Override
-  public synchronized void parseRow(final Query q) {
-    final String outcome = q.getOutcome();
-    if (requestCounterMap.containsKey(outcome)) {
-      final Long total = requestCounterMap.get(outcome);
-      requestCounterMap.put(outcome, total + 1L);
-    } else {
-      requestCounterMap.put(outcome, 1L);
+  public void parseRow(final Query q) {
+    final int code = dictionaries.outcomeCode(q);
+    synchronized (this) {
+      if (code >= requestCounts.length) {
+        requestCounts = Arrays.copyOf(requestCounts, Math.max(code + 1, requestCounts.length * 2));
+      }
+      requestCounts[code]++;
     }
   }
 }
@@ -14,26 +14,48 @@
 package com.dremio.support.diagnostics.queriesjson.reporters;
 
 import com.dremio.support.diagnostics.queriesjson.Query;
+import com.dremio.support.diagnostics.queriesjson.QueryDictionaries;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
 public class RequestsByQueueReporter implements QueryReporter {
-  private final Map<String, Long> requestsByQueue = new HashMap<>();
+  private final QueryDictionaries dictionaries;
+  // indexed by queue name code
+  private long[] requestsByQueue = new long[16];
+
+  public RequestsByQueueReporter() {
+    this(new QueryDictionaries());
+  }
+
+  /**
+   * @param dictionaries the dictionaries used by the parser to encode the queries
+   */
+  public RequestsByQueueReporter(final QueryDictionaries dictionaries) {
+    this.dictionaries = dictionaries;
+  }
 
   /** defensive copy of requestsByQueue */
   public synchronized Map<String, Long> getRequestsByQueue() {
-    return Collections.unmodifiableMap(requestsByQueue);
+    final Map<String, Long> byName = new HashMap<>();
+    for (int code = 0; code < requestsByQueue.length; code++) {
+      if (requestsByQueue[code] > 0) {
+        byName.put(dictionaries.getQueueNames().value(code), requestsByQueue[code]);
+      }
+    }
+    return Collections.unmodifiableMap(byName);
   }
 
   @Override
-  public synchronized void parseRow(Query q) {
-    final String queueName = q.getQueueName();
-    if (requestsByQueue.containsKey(queueName)) {
-      Long count = requestsByQueue.get(queueName);
-      requestsByQueue.put(queueName, count + 1L);
-    } else {
-      requestsByQueue.put(queueName, 1L);
+  public void parseRow(Query q) {
+    final int code = dictionaries.queueNameCode(q);
+    synchronized (this) {
+      if (code >= requestsByQueue.length) {
+        requestsByQueue =
+            Arrays.copyOf(requestsByQueue, Math.max(code + 1, requestsByQueue.length * 2));
+      }
+      requestsByQueue[code]++;
     }
   }
 }
@@ -0,0 +1,70 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.replay;
+
+import com.dremio.support.diagnostics.shared.QuantileSketch;
+
+/** client side results of the replayed queries of one queue, thread safe */
+public class QueueReplayStats {
+  private final String queueName;
+  private final QuantileSketch latencyMillis = new QuantileSketch();
+  private long succeeded;
+  private long failed;
+  private long late;
+
+  QueueReplayStats(final String queueName) {
+    this.queueName = queueName;
+  }
+
+  synchronized void record(final long millis, final boolean success, final boolean wasLate) {
+    latencyMillis.add(millis);
+    if (success) {
+      succeeded++;
+    } else {
+      failed++;
+    }
+    if (wasLate) {
+      late++;
+    }
+  }
+
+  public String getQueueName() {
+    return queueName;
+  }
+
+  /**
+   * @param quantile between 0 and 1, 0.99 is the p99
+   * @return latency in millis from the scheduled submission to the job completing, NaN when no
+   *     query ran
+   */
+  public synchronized double getLatencyMillis(final double quantile) {
+    return latencyMillis.quantile(quantile);
+  }
+
+  public synchronized long getSucceeded() {
+    return succeeded;
+  }
+
+  public synchronized long getFailed() {
+    return failed;
+  }
+
+  /**
+   * @return queries that could not be submitted at their scheduled time because the replay was
+   *     behind, either reading the file or waiting for a free slot in the queue
+   */
+  public synchronized long getLate() {
+    return late;
+  }
+}
@@ -0,0 +1,43 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.replay;
+
+import java.util.concurrent.TimeUnit;
+
+/** time source of a replay, tests swap it for one they move by hand */
+interface ReplayClock {
+  ReplayClock SYSTEM =
+      new ReplayClock() {
+        @Override
+        public long nanoTime() {
+          return System.nanoTime();
+        }
+
+        @Override
+        public void sleepNanos(final long nanos) throws InterruptedException {
+          TimeUnit.NANOSECONDS.sleep(nanos);
+        }
+      };
+
+  /**
+   * @return current time in nanoseconds, only meaningful compared to another reading
+   */
+  long nanoTime();
+
+  /**
+   * @param nanos how long to wait
+   * @throws InterruptedException when interrupted while waiting
+   */
+  void sleepNanos(long nanos) throws InterruptedException;
+}
@@ -0,0 +1,222 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.replay;
+
+import com.dremio.support.diagnostics.queriesjson.Query;
+import com.dremio.support.diagnostics.queriesjson.reporters.QueryReporter;
+import com.dremio.support.diagnostics.repro.apiout.DremioApi;
+import com.dremio.support.diagnostics.repro.apiout.DremioApiResponse;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Replays the queries of a queries.json against a cluster at the pace they originally started.
+ * Rows are handed over by QueriesJsonFileParser as the file streams by, so the whole file is never
+ * in memory.
+ *
+ * <p>queries.json is written as queries finish, so rows are only roughly in start order. A row is
+ * held in a small buffer until a row that started reorderWindowMillis later has been read, which
+ * puts every query that ran for less than the window back in start order.
+ *
+ * <p>Each queue gets its own pool with maxConcurrencyPerQueue threads, so a queue never has more
+ * queries in flight than the cap and the rest wait for a free slot like they would in the queue on
+ * the cluster. Latency is measured from the scheduled submission, so the wait shows up in it.
+ *
+ * <p>Internal work such as reflection refreshes and metadata refreshes is skipped, the cluster
+ * schedules that itself.
+ */
+public class WorkloadReplayer implements QueryReporter {
+  private static final Logger logger = Logger.getLogger(WorkloadReplayer.class.getName());
+  // starting this much after the scheduled time counts as late
+  private static final long LATE_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+  private static final String[] INTERNAL_QUERY_TYPE_PREFIXES =
+      new String[] {
+        "ACCELERATOR", "INTERNAL", "UI_INTERNAL", "METADATA_REFRESH", "PREPARE_INTERNAL"
+      };
+
+  private final DremioApi api;
+  private final ReplayClock clock;
+  private final double speedup;
+  private final int maxConcurrencyPerQueue;
+  private final long reorderWindowMillis;
+  private final PriorityQueue<Query> pending =
+      new PriorityQueue<>(Comparator.comparingLong(Query::getStart));
+  private final Map<String, ExecutorService> queues = new HashMap<>();
+  private final Map<String, QueueReplayStats> stats = new TreeMap<>();
+  private long latestStart = Long.MIN_VALUE;
+  // wall clock and queries.json time the replay is anchored to, set by the first dispatch
+  private long replayStartNanos;
+  private long firstStartMillis = -1;
+  private long skipped;
+
+  /**
+   * @param api submits the queries and waits for them to complete
+   * @param speedup how much faster than the original the workload is replayed, 1 is real time and
+   *     2 submits the queries twice as close together
+   * @param maxConcurrencyPerQueue most queries in flight at once for one queue
+   * @param reorderWindowMillis how far out of start order a row can be and still be replayed in
+   *     order
+   */
+  public WorkloadReplayer(
+      final DremioApi api,
+      final double speedup,
+      final int maxConcurrencyPerQueue,
+      final long reorderWindowMillis) {
+    this(api, speedup, maxConcurrencyPerQueue, reorderWindowMillis, ReplayClock.SYSTEM);
+  }
+
+  /** same as the public constructor but the time is read from and waited on with clock */
+  WorkloadReplayer(
+      final DremioApi api,
+      final double speedup,
+      final int maxConcurrencyPerQueue,
+      final long reorderWindowMillis,
+      final ReplayClock clock) {
+    if (!(speedup > 0)) {
+      throw new IllegalArgumentException("speedup must be more than 0 but was " + speedup);
+    }
+    if (maxConcurrencyPerQueue < 1) {
+      throw new IllegalArgumentException(
+          "max concurrency per queue must be at least 1 but was " + maxConcurrencyPerQueue);
+    }
+    this.api = api;
+    this.clock = clock;
+    this.speedup = speedup;
+    this.maxConcurrencyPerQueue = maxConcurrencyPerQueue;
+    this.reorderWindowMillis = Math.max(0, reorderWindowMillis);
+  }
+
+  /** called by the parser for each row, blocks until the rows it releases are submitted */
+  @Override
+  public void parseRow(final Query q) {
+    final String queryText = q.getQueryText();
+    if (queryText == null || queryText.isBlank() || isInternal(q.getQueryType())) {
+      skipped++;
+      return;
+    }
+    pending.add(q);
+    latestStart = Math.max(latestStart, q.getStart());
+    while (!pending.isEmpty() && pending.peek().getStart() <= latestStart - reorderWindowMillis) {
+      dispatch(pending.poll());
+    }
+  }
+
+  /**
+   * submits the buffered rows and waits for every replayed query to complete
+   *
+   * @return the results per queue sorted by queue name
+   * @throws InterruptedException when interrupted while waiting for the queries
+   */
+  public List<QueueReplayStats> finish() throws InterruptedException {
+    while (!pending.isEmpty()) {
+      dispatch(pending.poll());
+    }
+    for (final ExecutorService executor : queues.values()) {
+      executor.shutdown();
+    }
+    for (final ExecutorService executor : queues.values()) {
+      while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+        logger.info("waiting for replayed queries to complete");
+      }
+    }
+    synchronized (stats) {
+      return new ArrayList<>(stats.values());
+    }
+  }
+
+  /**
+   * @return rows that were not replayed because they had no query text or were internal work
+   */
+  public long getSkipped() {
+    return skipped;
+  }
+
+  private static boolean isInternal(final String queryType) {
+    if (queryType == null) {
+      return false;
+    }
+    final String upper = queryType.toUpperCase(Locale.US);
+    for (final String prefix : INTERNAL_QUERY_TYPE_PREFIXES) {
+      if (upper.startsWith(prefix)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void dispatch(final Query q) {
+    if (firstStartMillis < 0) {
+      firstStartMillis = q.getStart();
+      replayStartNanos = clock.nanoTime();
+    }
+    final long offsetNanos =
+        (long) (TimeUnit.MILLISECONDS.toNanos(q.getStart() - firstStartMillis) / speedup);
+    final long scheduledNanos = replayStartNanos + offsetNanos;
+    final long waitNanos = scheduledNanos - clock.nanoTime();
+    if (waitNanos > 0) {
+      try {
+        clock.sleepNanos(waitNanos);
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("interrupted while waiting to replay a query", e);
+      }
+    }
+    final String queueName = q.getQueueName();
+    final QueueReplayStats queueStats;
+    synchronized (stats) {
+      queueStats = stats.computeIfAbsent(queueName, QueueReplayStats::new);
+    }
+    final String queryText = q.getQueryText();
+    final String queryId = q.getQueryId();
+    queues
+        .computeIfAbsent(queueName, x -> Executors.newFixedThreadPool(maxConcurrencyPerQueue))
+        .submit(() -> run(queryId, queryText, scheduledNanos, queueStats));
+  }
+
+  private void run(
+      final String queryId,
+      final String queryText,
+      final long scheduledNanos,
+      final QueueReplayStats queueStats) {
+    final boolean late = clock.nanoTime() - scheduledNanos > LATE_NANOS;
+    boolean success;
+    try {
+      final DremioApiResponse response = api.runSQL(queryText, "replay of %s".formatted(queryId));
+      success = response != null && response.isCreated();
+      if (!success) {
+        logger.fine(
+            () ->
+                "replay of %s failed: %s"
+                    .formatted(queryId, response != null ? response.getErrorMessage() : null));
+      }
+    } catch (final IOException | RuntimeException e) {
+      logger.log(Level.FINE, e, () -> "replay of %s failed".formatted(queryId));
+      success = false;
+    }
+    queueStats.record(
+        TimeUnit.NANOSECONDS.toMillis(clock.nanoTime() - scheduledNanos), success, late);
+  }
+}
@@ -15,12 +15,15 @@ package com.dremio.support.diagnostics.repro;
 
 import static com.dremio.support.diagnostics.shared.zip.ArchiveDetection.isArchive;
 
+import com.dremio.support.diagnostics.profilejson.Parser;
 import com.dremio.support.diagnostics.profilejson.ProfileJSONParser;
+import com.dremio.support.diagnostics.profilejson.ProfileProjection;
 import com.dremio.support.diagnostics.repro.apiout.*;
 import com.dremio.support.diagnostics.repro.consoleout.ConsoleOutput;
 import com.dremio.support.diagnostics.repro.fileout.DirectoryOutput;
 import com.dremio.support.diagnostics.repro.fileout.SqlDebugLogOutput;
 import com.dremio.support.diagnostics.repro.fileout.ZipFileOutput;
+import com.dremio.support.diagnostics.repro.parse.ArrowFileDeserializer;
 import com.dremio.support.diagnostics.repro.parse.ArrowFormatDeserializer;
 import com.dremio.support.diagnostics.repro.parse.ColumnDefYaml;
 import com.dremio.support.diagnostics.repro.parse.ReproProfileParserImpl;
@@ -73,16 +76,106 @@ public class ArgSetup {
       String baseNasDir,
       boolean ignoreSSL)
       throws IOException {
+    return getSqlOutput(
+        username,
+        password,
+        host,
+        zipOutput,
+        outputDir,
+        sqlDebugLog,
+        timeoutSeconds,
+        baseNasDir,
+        ignoreSSL,
+        1);
+  }
+
+  /**
+   * from the parameters passed in create the correct strategies for output writers.
+   *
+   * @param username dremio rest api username
+   * @param password dremio rest api password
+   * @param host location of dremio host without the trailing slash @link <a
+   *     href="http://localhost:9047">http://localhost:9047</a> for example
+   * @param zipOutput output zip file to use
+   * @param outputDir the directory for file output, if null or empty no files will be written.
+   * @param sqlDebugLog debugging log for profile reproduction. this will contain all dataset sql
+   *     found in the profile
+   * @param timeoutSeconds the number of seconds runSQL operations (create pds and vds) will wait to
+   *     complete in api calls and in the scripts generated by the repro tool
+   * @param apiParallelism the most datasets the api output creates at once, only datasets that do
+   *     not depend on each other are created together
+   * @return an array of output strategies, this allows to combine args, if I provide hostname,
+   *     password, host and the file the software will try and write to the API and a script and
+   *     some sql to a directory
+   * @throws IOException due to writing to a location that is not writeable or if the host is not
+   *     accessible
+   */
+  public static SqlOutput[] getSqlOutput(
+      final String username,
+      final String password,
+      final String host,
+      final ZipOutputStream zipOutput,
+      final String outputDir,
+      String sqlDebugLog,
+      int timeoutSeconds,
+      String baseNasDir,
+      boolean ignoreSSL,
+      int apiParallelism)
+      throws IOException {
     // make a list so we can do both api output and file output if both are requested
     List<SqlOutput> outputs = new ArrayList<>();
     if (sqlDebugLog != null && !sqlDebugLog.trim().equals("")) {
       outputs.add(new SqlDebugLogOutput(sqlDebugLog));
     }
-    final FileMaker fileMaker;
-    if (baseNasDir == null || "".equals(baseNasDir.trim())) {
-      fileMaker = new SchemaDeserializer.TmpMaker();
-    } else {
-      fileMaker = new DirectoryMaker(baseNasDir);
+    return getSqlOutput(
+        username,
+        password,
+        host,
+        zipOutput,
+        outputDir,
+        sqlDebugLog,
+        timeoutSeconds,
+        getFileMaker(baseNasDir),
+        ignoreSSL,
+        apiParallelism);
+  }
+
+  /**
+   * from the parameters passed in create the correct strategies for output writers.
+   *
+   * @param username dremio rest api username
+   * @param password dremio rest api password
+   * @param host location of dremio host without the trailing slash @link <a
+   *     href="http://localhost:9047">http://localhost:9047</a> for example
+   * @param zipOutput output zip file to use
+   * @param outputDir the directory for file output, if null or empty no files will be written.
+   * @param sqlDebugLog debugging log for profile reproduction. this will contain all dataset sql
+   *     found in the profile
+   * @param timeoutSeconds the number of seconds runSQL operations (create pds and vds) will wait to
+   *     complete in api calls and in the scripts generated by the repro tool
+   * @param fileMaker provides the directories NAS sources are created over
+   * @param apiParallelism the most datasets the api output creates at once, only datasets that do
+   *     not depend on each other are created together
+   * @return an array of output strategies
+   * @throws IOException due to writing to a location that is not writeable or if the host is not
+   *     accessible
+   */
+  public static SqlOutput[] getSqlOutput(
+      final String username,
+      final String password,
+      final String host,
+      final ZipOutputStream zipOutput,
+      final String outputDir,
+      String sqlDebugLog,
+      int timeoutSeconds,
+      FileMaker fileMaker,
+      boolean ignoreSSL,
+      int apiParallelism)
+      throws IOException {
+    // make a list so we can do both api output and file output if both are requested
+    List<SqlOutput> outputs = new ArrayList<>();
+    if (sqlDebugLog != null && !sqlDebugLog.trim().equals("")) {
+      outputs.add(new SqlDebugLogOutput(sqlDebugLog));
     }
     if (username != null
         && !"".equals(username)
@@ -90,10 +183,10 @@ public class ArgSetup {
         && !"".equals(password)
         && host != null
         && !"".equals(host)) {
-      HttpApiCall apiCall = new HttpApiCall(ignoreSSL);
+      ApiCall apiCall = new HttpClientApiCall(ignoreSSL);
       HttpAuth auth = new HttpAuth(username, password);
       DremioApi api = new DremioV3Api(apiCall, auth, host, fileMaker, timeoutSeconds);
-      outputs.add(new ApiOutput(api));
+      outputs.add(new ApiOutput(api, apiParallelism));
     }
     // as long as this is not blank we will try and write to it
     if (zipOutput != null) {
@@ -109,6 +202,17 @@ public class ArgSetup {
     return outputs.toArray(new SqlOutput[0]);
   }
 
+  /**
+   * @param baseNasDir base dir for NAS sources, when blank temporary directories are used
+   * @return the file maker for NAS source directories
+   */
+  public static FileMaker getFileMaker(final String baseNasDir) {
+    if (baseNasDir == null || "".equals(baseNasDir.trim())) {
+      return new SchemaDeserializer.TmpMaker();
+    }
+    return new DirectoryMaker(baseNasDir);
+  }
+
   /**
    * Decides to use zip or text parsers, would be the ideal place to add more formats
    *
@@ -116,6 +220,59 @@ public class ArgSetup {
    * @return either a zip reader or a text file reader depending on what type of file it is
    */
   public static ProfileProvider getProfileProvider(final PathAndStream pathAndStream) {
+    return getProfileProvider(pathAndStream, ProfileProjection.ALL);
+  }
+
+  /**
+   * Decides to use zip or text parsers and only binds the fields in the projection
+   *
+   * @param pathAndStream path and stream of the json profile
+   * @param projection fields of the profile the caller reads
+   * @return either a zip reader or a text file reader depending on what type of file it is
+   */
+  public static ProfileProvider getProfileProvider(
+      final PathAndStream pathAndStream, final ProfileProjection projection) {
+    return getProfileProvider(pathAndStream, new ProfileJSONParser(projection));
+  }
+
+  /**
+   * Decides to use zip or text providers and reads the profile with the given parser
+   *
+   * @param pathAndStream path and stream of the json profile
+   * @param parser parser that turns the json into a profile
+   * @return either a zip reader or a text file reader depending on what type of file it is
+   */
+  public static ProfileProvider getProfileProvider(
+      final PathAndStream pathAndStream, final Parser parser) {
+    return getProfileProvider(pathAndStream, parser, false);
+  }
+
+  /**
+   * Decides to use zip or text parsers for a profile read from the local filesystem, a zip is read
+   * from its path directly. Use {@link #getProfileProvider(PathAndStream)} for uploads
+   *
+   * @param pathAndStream local path of the json profile and the stream opened from it
+   * @return either a zip reader or a text file reader depending on what type of file it is
+   */
+  public static ProfileProvider getLocalProfileProvider(final PathAndStream pathAndStream) {
+    return getLocalProfileProvider(pathAndStream, new ProfileJSONParser(ProfileProjection.ALL));
+  }
+
+  /**
+   * Decides to use zip or text providers for a profile read from the local filesystem and reads it
+   * with the given parser, a zip is read from its path directly
+   *
+   * @param pathAndStream local path of the json profile and the stream opened from it
+   * @param parser parser that turns the json into a profile
+   * @return either a zip reader or a text file reader depending on what type of file it is
+   */
+  public static ProfileProvider getLocalProfileProvider(
+      final PathAndStream pathAndStream, final Parser parser) {
+    return getProfileProvider(pathAndStream, parser, true);
+  }
+
+  private static ProfileProvider getProfileProvider(
+      final PathAndStream pathAndStream, final Parser parser, final boolean localFile) {
     if (pathAndStream == null
         || pathAndStream.filePath() == null
         || pathAndStream.stream() == null) {
@@ -123,9 +280,9 @@ public class ArgSetup {
     }
     String fileName = pathAndStream.filePath().getFileName().toString();
     if (isArchive(fileName)) {
-      return new ZipProfileProvider(new ProfileJSONParser(), new UnzipperImpl(), pathAndStream);
+      return new ZipProfileProvider(parser, UnzipperImpl.shared(), pathAndStream, localFile);
     }
-    return new JsonTextProfileProvider(pathAndStream);
+    return new JsonTextProfileProvider(pathAndStream, parser);
   }
 
   /**
@@ -142,4 +299,39 @@ public class ArgSetup {
         new TableRefFinder(),
         new ArrowFormatDeserializer(records, columnDefYaml));
   }
+
+  /**
+   * factory method for the Parsing a profile.json for creating a reproduction script
+   *
+   * @param records number or records to generated for PDSs
+   * @param pdsFormat SQL to inline the generated rows into CREATE TABLE AS statements or ARROW to
+   *     write them to arrow files in the source directory and create the tables from those
+   * @param sourceDirectoryMaker directories of the sources, the same instance has to be passed to
+   *     the outputs so the sources are created over the written files
+   * @param sizeFromProfile generate as many records for each PDS as the profile scanned from it,
+   *     records is only used for PDSs the profile has no count for
+   * @param maxRecords cap on the records generated for one PDS sized from the profile
+   * @return a strategy to handle parsing profiles and turning them into useful objects
+   */
+  public static ReproProfileParserImpl getReproProfile(
+      final long records,
+      final ColumnDefYaml columnDefYaml,
+      final String pdsFormat,
+      final SourceDirectoryMaker sourceDirectoryMaker,
+      final boolean sizeFromProfile,
+      final long maxRecords) {
+    final SchemaDeserializer schemaDeserializer;
+    if ("ARROW".equalsIgnoreCase(pdsFormat)) {
+      schemaDeserializer = new ArrowFileDeserializer(records, columnDefYaml, sourceDirectoryMaker);
+    } else {
+      schemaDeserializer = new ArrowFormatDeserializer(records, columnDefYaml);
+    }
+    return new ReproProfileParserImpl(
+        columnDefYaml,
+        new SortTableDependencies(),
+        new TableRefFinder(),
+        schemaDeserializer,
+        sizeFromProfile,
+        maxRecords);
+  }
 }
@@ -18,10 +18,8 @@ import static java.lang.String.format;
 import com.dremio.support.diagnostics.shared.ProfileProvider;
 import com.dremio.support.diagnostics.shared.dto.profilejson.ProfileJSON;
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
-import java.util.Locale;
 import java.util.Optional;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -68,47 +66,6 @@ public class Exec {
     this.parser = parser;
   }
 
-  private VdsReference createVdsReference(
-      final VdsSql vds,
-      final Collection<VdsSql> vdsCollection,
-      final Collection<PdsSql> pdsCollection) {
-    final Locale locale = Locale.US;
-    String lowerCaseName = vds.getTableName().toLowerCase(locale);
-    List<String> references = new ArrayList<>();
-    List<String> missingReferences = new ArrayList<>();
-    for (final String ref : vds.getTableReferences()) {
-      final String lowerCaseRefName = ref.toLowerCase(locale);
-      boolean isVds = false;
-      for (VdsSql v : vdsCollection) {
-        String vName = v.getTableName().toLowerCase(locale);
-        if (vName.equals(lowerCaseRefName)) {
-          // need to set this so we avoid adding this to the missing list later
-          isVds = true;
-          references.add(lowerCaseRefName);
-          // founce we can break now
-          break;
-        }
-      }
-      boolean isPds = false;
-      if (!isVds) {
-        for (PdsSql p : pdsCollection) {
-          String pName = p.getTableName().toLowerCase(locale);
-          if (pName.equals(lowerCaseRefName)) {
-            // need to set this so we avoid adding this to the missing list later
-            isPds = true;
-            references.add(lowerCaseRefName);
-            // founce we can break now
-            break;
-          }
-        }
-      }
-      if (!isVds && !isPds) {
-        missingReferences.add(lowerCaseRefName);
-      }
-    }
-    return new VdsReference(lowerCaseName, missingReferences, references);
-  }
-
   /**
    * run() is the entry point for the repro subcommand, and runs without any of the picocli code.
    * This is therefore the best place to look for the actual command logic.
@@ -143,8 +100,13 @@ public class Exec {
       final Collection<String> sources = this.parser.parseSources(profileJSON);
       final Collection<Collection<String>> folders = this.parser.parseFolders(profileJSON);
       final Collection<String> spaces = this.parser.parseSpaces(profileJSON);
-      final Collection<VdsReference> vdsReferenceInfo =
-          vdss.stream().map(x -> createVdsReference(x, vdss, pdss)).collect(Collectors.toList());
+      final TableDependencyGraph graph =
+          new TableDependencyGraph(
+              vdss, pdss.stream().map(PdsSql::getTableName).collect(Collectors.toList()));
+      for (final List<String> cycle : graph.getCycles()) {
+        LOGGER.warning(() -> "vds reference cycle found: %s".formatted(String.join(" -> ", cycle)));
+      }
+      final Collection<VdsReference> vdsReferenceInfo = graph.getReferences();
       LOGGER.info("vds order will be");
       vdsReferenceInfo.forEach(
           x ->
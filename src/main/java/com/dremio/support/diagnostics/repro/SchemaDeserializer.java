@@ -29,6 +29,16 @@ public interface SchemaDeserializer {
    */
   String readSchema(DatasetProfile dp);
 
+  /**
+   * readSchema with the number of records to generate for this dataset instead of the default
+   *
+   * @param dp dataset profile to convert into a PDS
+   * @param records number of records to generate
+   */
+  default String readSchema(DatasetProfile dp, long records) {
+    return readSchema(dp);
+  }
+
   /** uses the tmp file system to create new directories */
   class TmpMaker implements FileMaker {
     /**
@@ -0,0 +1,77 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.repro;
+
+import com.dremio.support.diagnostics.shared.FileMaker;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * hands out one directory per source name so that the files generated for a PDS land in the same
+ * directory the NAS source is later created over. Any other request for a new directory is passed
+ * on to the wrapped FileMaker. Thread safe.
+ */
+public class SourceDirectoryMaker implements FileMaker {
+  private final FileMaker fileMaker;
+  private final Map<String, Path> sourceDirs = new HashMap<>();
+
+  /**
+   * @param fileMaker creates the directories handed out
+   */
+  public SourceDirectoryMaker(final FileMaker fileMaker) {
+    this.fileMaker = fileMaker;
+  }
+
+  @Override
+  public Path getNewDir() throws IOException {
+    return fileMaker.getNewDir();
+  }
+
+  /**
+   * the directory backing a source, created on first request
+   *
+   * @param sourceName source name, quoted or not, compared case insensitively
+   * @return the same directory for every spelling of the source name
+   * @throws IOException when the directory cannot be created
+   */
+  public synchronized Path getSourceDir(final String sourceName) throws IOException {
+    final String key = sourceName.replace("\"", "").toLowerCase(Locale.US);
+    Path dir = sourceDirs.get(key);
+    if (dir == null) {
+      dir = fileMaker.getNewDir();
+      sourceDirs.put(key, dir);
+    }
+    return dir;
+  }
+
+  /**
+   * picks the directory for a new source, reusing the source directory when the file maker is a
+   * SourceDirectoryMaker
+   *
+   * @param fileMaker file maker of the output
+   * @param sourceName source that is about to be created
+   * @return directory to create the source over
+   * @throws IOException when the directory cannot be created
+   */
+  public static Path dirForSource(final FileMaker fileMaker, final String sourceName)
+      throws IOException {
+    if (fileMaker instanceof SourceDirectoryMaker) {
+      return ((SourceDirectoryMaker) fileMaker).getSourceDir(sourceName);
+    }
+    return fileMaker.getNewDir();
+  }
+}
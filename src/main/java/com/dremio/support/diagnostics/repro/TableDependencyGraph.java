@@ -0,0 +1,202 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.repro;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * dependency graph of the VDSs in a profile. Names are normalized once into a hash index and the
+ * creation order comes from Kahn's algorithm, so sorting is O(V+E) however deep the view chains
+ * go. VDSs that sit on a reference cycle, or that depend on one, cannot be ordered, they are
+ * reported through {@link #getCycles()} and placed at the end in the order they were given.
+ */
+public final class TableDependencyGraph {
+  private static final Locale locale = Locale.US;
+
+  private final List<VdsSql> vdss;
+  private final List<VdsReference> references;
+  private final List<VdsSql> sorted;
+  private final List<List<String>> cycles;
+
+  /**
+   * @param vdss the VDSs to order, the order given is kept between VDSs that do not depend on each
+   *     other
+   * @param pdsNames names of the PDSs, references to them are valid but do not order anything
+   */
+  public TableDependencyGraph(final Collection<VdsSql> vdss, final Collection<String> pdsNames) {
+    this.vdss = new ArrayList<>(vdss);
+    final int n = this.vdss.size();
+    final Map<String, Integer> vdsIndex = new HashMap<>(n * 2);
+    for (int i = 0; i < n; i++) {
+      vdsIndex.putIfAbsent(normalize(this.vdss.get(i).getTableName()), i);
+    }
+    final Set<String> pdsIndex = new HashSet<>(pdsNames.size() * 2);
+    for (final String pds : pdsNames) {
+      pdsIndex.add(normalize(pds));
+    }
+
+    // dependsOn[i] lists the VDSs that have to exist before VDS i can be created
+    final int[][] dependsOn = new int[n][];
+    final int[] dependentCount = new int[n];
+    this.references = new ArrayList<>(n);
+    for (int i = 0; i < n; i++) {
+      final VdsSql vds = this.vdss.get(i);
+      final String[] refs =
+          vds.getTableReferences() == null ? new String[0] : vds.getTableReferences();
+      final List<String> valid = new ArrayList<>();
+      final List<String> missing = new ArrayList<>();
+      final int[] deps = new int[refs.length];
+      int depCount = 0;
+      for (final String ref : refs) {
+        final String key = normalize(ref);
+        final Integer vdsRef = vdsIndex.get(key);
+        if (vdsRef != null) {
+          valid.add(ref.toLowerCase(locale));
+          if (vdsRef != i) {
+            deps[depCount++] = vdsRef;
+            dependentCount[vdsRef]++;
+          }
+        } else if (pdsIndex.contains(key)) {
+          valid.add(ref.toLowerCase(locale));
+        } else {
+          missing.add(ref.toLowerCase(locale));
+        }
+      }
+      dependsOn[i] = depCount == deps.length ? deps : Arrays.copyOf(deps, depCount);
+      this.references.add(new VdsReference(vds.getTableName().toLowerCase(locale), missing, valid));
+    }
+
+    // invert the edges so finishing a VDS can release the ones waiting on it
+    final int[][] dependents = new int[n][];
+    for (int i = 0; i < n; i++) {
+      dependents[i] = new int[dependentCount[i]];
+    }
+    final int[] filled = new int[n];
+    final int[] waitingOn = new int[n];
+    for (int i = 0; i < n; i++) {
+      for (final int dep : dependsOn[i]) {
+        dependents[dep][filled[dep]++] = i;
+        waitingOn[i]++;
+      }
+    }
+
+    final ArrayDeque<Integer> ready = new ArrayDeque<>();
+    for (int i = 0; i < n; i++) {
+      if (waitingOn[i] == 0) {
+        ready.add(i);
+      }
+    }
+    final boolean[] placed = new boolean[n];
+    this.sorted = new ArrayList<>(n);
+    while (!ready.isEmpty()) {
+      final int next = ready.poll();
+      placed[next] = true;
+      this.sorted.add(this.vdss.get(next));
+      for (final int dependent : dependents[next]) {
+        if (--waitingOn[dependent] == 0) {
+          ready.add(dependent);
+        }
+      }
+    }
+    this.cycles = findCycles(dependsOn, placed);
+    for (int i = 0; i < n; i++) {
+      if (!placed[i]) {
+        this.sorted.add(this.vdss.get(i));
+      }
+    }
+  }
+
+  /**
+   * every VDS left unplaced waits on at least one other unplaced VDS, so following those links
+   * from any of them has to come back around to a cycle. Each VDS is walked once.
+   */
+  private List<List<String>> findCycles(final int[][] dependsOn, final boolean[] placed) {
+    final List<List<String>> found = new ArrayList<>();
+    final int n = dependsOn.length;
+    // 0 not visited, 1 on the current walk, 2 finished
+    final byte[] state = new byte[n];
+    final List<Integer> walk = new ArrayList<>();
+    for (int start = 0; start < n; start++) {
+      if (placed[start] || state[start] != 0) {
+        continue;
+      }
+      walk.clear();
+      int current = start;
+      while (current >= 0 && state[current] == 0) {
+        state[current] = 1;
+        walk.add(current);
+        int next = -1;
+        for (final int dep : dependsOn[current]) {
+          if (!placed[dep]) {
+            next = dep;
+            break;
+          }
+        }
+        current = next;
+      }
+      if (current >= 0 && state[current] == 1) {
+        final List<String> cycle = new ArrayList<>();
+        for (int i = walk.indexOf(current); i < walk.size(); i++) {
+          cycle.add(this.vdss.get(walk.get(i)).getTableName());
+        }
+        found.add(Collections.unmodifiableList(cycle));
+      }
+      for (final int visited : walk) {
+        state[visited] = 2;
+      }
+    }
+    return Collections.unmodifiableList(found);
+  }
+
+  /**
+   * normalizes a table name for comparison: lower case and without quotes
+   *
+   * @param name table name as it appears in the profile or the sql
+   * @return the key used to match references to tables
+   */
+  public static String normalize(final String name) {
+    return name.toLowerCase(locale).replace("\"", "");
+  }
+
+  /**
+   * @return the VDSs in an order they can be created in, any VDS on or behind a cycle is last
+   */
+  public List<VdsSql> getSorted() {
+    return Collections.unmodifiableList(sorted);
+  }
+
+  /**
+   * @return the references of every VDS in the order the VDSs were given
+   */
+  public List<VdsReference> getReferences() {
+    return Collections.unmodifiableList(references);
+  }
+
+  /**
+   * @return each reference cycle as the table names on it, empty when the VDSs can all be ordered
+   */
+  public List<List<String>> getCycles() {
+    return cycles;
+  }
+}
@@ -17,15 +17,38 @@ import com.dremio.support.diagnostics.repro.*;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
 
-/** ApiOutput orchestrates making api calls to an api */
+/**
+ * ApiOutput orchestrates making api calls to an api. Objects that do not depend on each other are
+ * created concurrently up to the parallelism cap: folders wait on their parent folders and VDSs on
+ * the VDSs they select from, everything else only waits on the previous step.
+ */
 public class ApiOutput implements SqlOutput {
   private final DremioApi api;
+  private final DependencyRunner runner;
 
+  /**
+   * makes one api call at a time
+   *
+   * @param api the dremio api to call
+   */
   public ApiOutput(DremioApi api) {
+    this(api, 1);
+  }
+
+  /**
+   * @param api the dremio api to call
+   * @param parallelism the most api calls that will be in flight at once
+   */
+  public ApiOutput(DremioApi api, int parallelism) {
     this.api = api;
+    this.runner = new DependencyRunner(parallelism);
   }
 
   /**
@@ -44,28 +67,17 @@ public class ApiOutput implements SqlOutput {
    */
   @Override
   public JobResult spaceOutput(Collection<String> spaces) {
-    JobResult result = new JobResult();
-    result.setSuccess(true);
-    List<String> spacesAdded = new ArrayList<>();
+    List<String> labels = new ArrayList<>();
+    List<DependencyRunner.Call> calls = new ArrayList<>();
     for (String space : spaces) {
-      try {
-        System.out.printf("making space: %s%n", space);
-        DremioApiResponse response = this.api.createSpace(space);
-        if (!response.isCreated()) {
-          result.setSuccess(false);
-          // go ahead and exit now that we failed
-          break;
-        }
-        spacesAdded.add(space);
-      } catch (IOException e) {
-        result.setSuccess(false);
-        result.setFailure(e.getMessage());
-        // go ahead and exit now that we failed
-        break;
-      }
+      labels.add(space);
+      calls.add(
+          () -> {
+            System.out.printf("making space: %s%n", space);
+            return this.api.createSpace(space);
+          });
     }
-    result.added(spacesAdded);
-    return result;
+    return runner.run(labels, calls, noDependencies(calls.size()));
   }
 
   /**
@@ -74,28 +86,32 @@ public class ApiOutput implements SqlOutput {
    */
   @Override
   public JobResult folderOutput(Collection<Collection<String>> folders) {
-    JobResult result = new JobResult();
-    result.setSuccess(true);
-    List<String> foldersAdded = new ArrayList<>();
+    List<String> labels = new ArrayList<>();
+    List<DependencyRunner.Call> calls = new ArrayList<>();
+    Map<List<String>, Integer> indexByPath = new HashMap<>();
+    for (Collection<String> folder : folders) {
+      indexByPath.putIfAbsent(new ArrayList<>(folder), calls.size());
+      labels.add(String.format("[ %s ]", String.join(", ", folder)));
+      calls.add(
+          () -> {
+            System.out.printf("making folder: %s%n", folder);
+            return this.api.createFolder(folder);
+          });
+    }
+    // a nested folder can only be made once its parent folders are there
+    List<List<Integer>> dependsOn = new ArrayList<>();
     for (Collection<String> folder : folders) {
-      try {
-        System.out.printf("making folder: %s%n", folder);
-        DremioApiResponse response = this.api.createFolder(folder);
-        if (!response.isCreated()) {
-          result.setSuccess(false);
-          // go ahead and exit now that we failed
-          break;
+      List<String> path = new ArrayList<>(folder);
+      List<Integer> parents = new ArrayList<>();
+      for (int length = 1; length < path.size(); length++) {
+        Integer parent = indexByPath.get(path.subList(0, length));
+        if (parent != null) {
+          parents.add(parent);
         }
-        foldersAdded.add(String.format("[ %s ]", String.join(", ", folder)));
-      } catch (IOException e) {
-        result.setSuccess(false);
-        result.setFailure(e.getMessage());
-        // go ahead and exit now that we failed
-        break;
       }
+      dependsOn.add(parents);
     }
-    result.added(foldersAdded);
-    return result;
+    return runner.run(labels, calls, dependsOn);
   }
 
   /**
@@ -104,29 +120,17 @@ public class ApiOutput implements SqlOutput {
    */
   @Override
   public JobResult writePDSs(Collection<PdsSql> pdsSql) {
-    JobResult result = new JobResult();
-    result.setSuccess(true);
-    List<String> pdsAdded = new ArrayList<>();
+    List<String> labels = new ArrayList<>();
+    List<DependencyRunner.Call> calls = new ArrayList<>();
     for (PdsSql sql : pdsSql) {
-      try {
-        System.out.printf("making pds: %s%n", sql.getTableName());
-        DremioApiResponse response = this.api.runSQL(sql.getSql(), sql.getTableName());
-        if (!response.isCreated()) {
-          result.setSuccess(false);
-          result.setFailure(response.getErrorMessage());
-          // go ahead and exit now that we failed
-          break;
-        }
-        pdsAdded.add(sql.getTableName());
-      } catch (IOException e) {
-        result.setSuccess(false);
-        result.setFailure(e.getMessage());
-        // go ahead and exit now that we failed
-        break;
-      }
+      labels.add(sql.getTableName());
+      calls.add(
+          () -> {
+            System.out.printf("making pds: %s%n", sql.getTableName());
+            return this.api.runSQL(sql.getSql(), sql.getTableName());
+          });
     }
-    result.added(pdsAdded);
-    return result;
+    return runner.run(labels, calls, noDependencies(calls.size()));
   }
 
   /**
@@ -137,29 +141,33 @@ public class ApiOutput implements SqlOutput {
   @Override
   public JobResult writeVDSs(
       final Collection<VdsSql> vdsSql, final Collection<VdsReference> vdsReferenceInfo) {
-    JobResult result = new JobResult();
-    result.setSuccess(true);
-    List<String> vdsAdded = new ArrayList<>();
-
+    List<String> labels = new ArrayList<>();
+    List<DependencyRunner.Call> calls = new ArrayList<>();
+    Map<String, Integer> indexByName = new HashMap<>();
     for (VdsSql sql : vdsSql) {
-      try {
-        System.out.printf("making vds: %s%n", sql.getTableName());
-        DremioApiResponse response = this.api.runSQL(sql.getSql(), sql.getTableName());
-        if (!response.isCreated()) {
-          result.setSuccess(false);
-          // go ahead and exit now that we failed
-          break;
+      indexByName.putIfAbsent(dependencyKey(sql.getTableName()), calls.size());
+      labels.add(sql.getTableName());
+      calls.add(
+          () -> {
+            System.out.printf("making vds: %s%n", sql.getTableName());
+            return this.api.runSQL(sql.getSql(), sql.getTableName());
+          });
+    }
+    // a vds can only be made once the vdss it selects from are there, pds are already created
+    List<List<Integer>> dependsOn = new ArrayList<>();
+    for (VdsSql sql : vdsSql) {
+      List<Integer> inputs = new ArrayList<>();
+      if (sql.getTableReferences() != null) {
+        for (String ref : sql.getTableReferences()) {
+          Integer input = indexByName.get(dependencyKey(ref));
+          if (input != null) {
+            inputs.add(input);
+          }
         }
-        vdsAdded.add(sql.getTableName());
-      } catch (IOException e) {
-        result.setSuccess(false);
-        result.setFailure(e.getMessage());
-        // go ahead and exit now that we failed
-        break;
       }
+      dependsOn.add(inputs);
     }
-    result.added(vdsAdded);
-    return result;
+    return runner.run(labels, calls, dependsOn);
   }
 
   /**
@@ -168,28 +176,29 @@ public class ApiOutput implements SqlOutput {
    */
   @Override
   public JobResult sourceOutput(Collection<String> sources, Optional<String> defaultCtasFormat) {
-    JobResult result = new JobResult();
-    result.setSuccess(true);
-    List<String> pdsAdded = new ArrayList<>();
+    List<String> labels = new ArrayList<>();
+    List<DependencyRunner.Call> calls = new ArrayList<>();
     for (String source : sources) {
-      try {
-        System.out.printf("making source: %s%n", source);
-        DremioApiResponse response = this.api.createSource(source, defaultCtasFormat);
-        if (!response.isCreated()) {
-          result.setSuccess(false);
-          // go ahead and exit now that we failed
-          break;
-        }
-        pdsAdded.add(source);
-      } catch (IOException e) {
-        result.setSuccess(false);
-        result.setFailure(e.getMessage());
-        // go ahead and exit now that we failed
-        break;
-      }
+      labels.add(source);
+      calls.add(
+          () -> {
+            System.out.printf("making source: %s%n", source);
+            return this.api.createSource(source, defaultCtasFormat);
+          });
     }
-    result.added(pdsAdded);
-    return result;
+    return runner.run(labels, calls, noDependencies(calls.size()));
+  }
+
+  /**
+   * dataset paths keep their quotes while the references found in the sql have them stripped, so
+   * both are compared lower case and without quotes
+   */
+  private static String dependencyKey(final String name) {
+    return name.toLowerCase(Locale.US).replace("\"", "");
+  }
+
+  private static List<List<Integer>> noDependencies(int count) {
+    return Collections.nCopies(count, Collections.emptyList());
   }
 
   /**
@@ -0,0 +1,181 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.repro.apiout;
+
+import com.dremio.support.diagnostics.repro.JobResult;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Logger;
+
+/**
+ * DependencyRunner makes api calls on a bounded pool, a call is only started once every call it
+ * depends on has succeeded. Calls that are ready at the same time run side by side up to the
+ * parallelism cap and are started in the order they were given, so with a cap of 1 and no
+ * dependencies this is the same as making the calls in a loop. After the first failure no new
+ * calls are started, the ones in flight are allowed to finish.
+ */
+class DependencyRunner {
+  private static final Logger logger = Logger.getLogger(DependencyRunner.class.getName());
+
+  /** a single api call */
+  interface Call {
+    DremioApiResponse call() throws IOException;
+  }
+
+  private final int parallelism;
+
+  /**
+   * @param parallelism maximum number of calls in flight at once
+   */
+  DependencyRunner(final int parallelism) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException(
+          "parallelism must be at least 1 but was %d".formatted(parallelism));
+    }
+    this.parallelism = parallelism;
+  }
+
+  /** outcome of one call, exactly one of response and error is set */
+  private record Outcome(int index, DremioApiResponse response, IOException error) {}
+
+  /**
+   * @param labels what to report in the added list of the result for each call
+   * @param calls the calls to make
+   * @param dependsOn for each call the indexes of the calls that have to succeed before it starts,
+   *     indexes that are out of range or point at the call itself are ignored
+   * @return success when every call created its object, the added list is in the order of labels
+   */
+  JobResult run(
+      final List<String> labels,
+      final List<Call> calls,
+      final List<? extends Iterable<Integer>> dependsOn) {
+    final int n = calls.size();
+    final int[] waitingOn = new int[n];
+    final List<List<Integer>> dependents = new ArrayList<>(n);
+    for (int i = 0; i < n; i++) {
+      dependents.add(new ArrayList<>());
+    }
+    for (int i = 0; i < n; i++) {
+      for (Integer dep : dependsOn.get(i)) {
+        if (dep == null || dep == i || dep < 0 || dep >= n) {
+          continue;
+        }
+        dependents.get(dep).add(i);
+        waitingOn[i]++;
+      }
+    }
+    final PriorityQueue<Integer> ready = new PriorityQueue<>();
+    for (int i = 0; i < n; i++) {
+      if (waitingOn[i] == 0) {
+        ready.add(i);
+      }
+    }
+    final boolean[] started = new boolean[n];
+    final boolean[] created = new boolean[n];
+    int startedCount = 0;
+    int inFlight = 0;
+    String failure = null;
+    boolean failed = false;
+    final ExecutorService executor =
+        Executors.newFixedThreadPool(Math.min(parallelism, Math.max(n, 1)));
+    final CompletionService<Outcome> completion = new ExecutorCompletionService<>(executor);
+    try {
+      while (true) {
+        while (!failed && inFlight < parallelism && !ready.isEmpty()) {
+          final int next = ready.poll();
+          if (started[next]) {
+            continue;
+          }
+          started[next] = true;
+          startedCount++;
+          inFlight++;
+          final Call call = calls.get(next);
+          completion.submit(
+              () -> {
+                try {
+                  return new Outcome(next, call.call(), null);
+                } catch (IOException e) {
+                  return new Outcome(next, null, e);
+                }
+              });
+        }
+        if (inFlight == 0) {
+          if (failed || startedCount == n) {
+            break;
+          }
+          // what is left waits on itself through a cycle, try them in the order given as that is
+          // all that could be done before
+          for (int i = 0; i < n; i++) {
+            if (!started[i]) {
+              final String label = labels.get(i);
+              logger.warning(
+                  () -> "%s depends on a cycle, creating it without its inputs".formatted(label));
+              ready.add(i);
+              break;
+            }
+          }
+          continue;
+        }
+        final Outcome outcome = completion.take().get();
+        inFlight--;
+        if (outcome.error() != null) {
+          failed = true;
+          if (failure == null) {
+            failure = outcome.error().getMessage();
+          }
+        } else if (outcome.response() == null || !outcome.response().isCreated()) {
+          failed = true;
+          if (failure == null && outcome.response() != null) {
+            failure = outcome.response().getErrorMessage();
+          }
+        } else {
+          created[outcome.index()] = true;
+          for (int dependent : dependents.get(outcome.index())) {
+            if (--waitingOn[dependent] == 0) {
+              ready.add(dependent);
+            }
+          }
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      throw new RuntimeException(e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+    final List<String> added = new ArrayList<>();
+    for (int i = 0; i < n; i++) {
+      if (created[i]) {
+        added.add(labels.get(i));
+      }
+    }
+    final JobResult result = new JobResult();
+    result.setSuccess(!failed);
+    result.setFailure(failure);
+    result.added(added);
+    return result;
+  }
+}
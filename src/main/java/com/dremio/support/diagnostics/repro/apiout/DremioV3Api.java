@@ -13,6 +13,7 @@
  */
 package com.dremio.support.diagnostics.repro.apiout;
 
+import com.dremio.support.diagnostics.repro.SourceDirectoryMaker;
 import com.dremio.support.diagnostics.shared.FileMaker;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.IOException;
@@ -36,8 +37,10 @@ public class DremioV3Api implements DremioApi {
   private final ApiCall apiCall;
 
   private static final Logger logger = Logger.getLogger(DremioV3Api.class.getName());
+  private static final ObjectMapper mapper = new ObjectMapper();
   private final FileMaker fileMaker;
   private final int timeoutSeconds;
+  private final JobPollBackoff pollBackoff;
 
   /**
    * DremioApi provides the business logic for making API calls. The constructor will connect to the
@@ -55,7 +58,33 @@ public class DremioV3Api implements DremioApi {
   public DremioV3Api(
       ApiCall apiCall, HttpAuth auth, String baseUrl, FileMaker fileMaker, int timeoutSeconds)
       throws IOException {
+    this(apiCall, auth, baseUrl, fileMaker, timeoutSeconds, JobPollBackoff.DEFAULT);
+  }
+
+  /**
+   * DremioApi provides the business logic for making API calls. The constructor will connect to the
+   * auth api, so we can store the auth token for subsequent requests.
+   *
+   * @param apiCall implementation that makes the http calls
+   * @param auth generates a valid auth header
+   * @param baseUrl base url for the api typically http/https hostname and port. Does not include
+   *     the ending /
+   * @param fileMaker creates files for nfs data sources
+   * @param timeoutSeconds how long to try runSQL operations
+   * @param pollBackoff how long to wait between job status checks in runSQL
+   * @throws IOException throws when unable to read the response body or unable to attach a request
+   *     body
+   */
+  public DremioV3Api(
+      ApiCall apiCall,
+      HttpAuth auth,
+      String baseUrl,
+      FileMaker fileMaker,
+      int timeoutSeconds,
+      JobPollBackoff pollBackoff)
+      throws IOException {
     this.apiCall = apiCall;
+    this.pollBackoff = pollBackoff;
     this.fileMaker = fileMaker;
     this.timeoutSeconds = timeoutSeconds;
     Map<String, String> headers = new HashMap<>();
@@ -97,7 +126,7 @@ public class DremioV3Api implements DremioApi {
     DremioApiResponse status = new DremioApiResponse();
     params.put("entityType", "space");
     params.put("name", space);
-    String json = new ObjectMapper().writeValueAsString(params);
+    String json = mapper.writeValueAsString(params);
     try {
       HttpApiResponse response = apiCall.submitPost(url, this.baseHeaders, json);
       if (response != null && response.getResponseCode() == 409) {
@@ -145,7 +174,7 @@ public class DremioV3Api implements DremioApi {
     params.put("path", folderPath);
     // avoid the calculation unless logging is enabled
     logger.fine(() -> String.format("folder path is: [%s]", String.join(", ", folderPath)));
-    String json = new ObjectMapper().writeValueAsString(params);
+    String json = mapper.writeValueAsString(params);
     try {
       HttpApiResponse response = apiCall.submitPost(url, this.baseHeaders, json);
       if (response != null && response.getResponseCode() == 409) {
@@ -193,7 +222,7 @@ public class DremioV3Api implements DremioApi {
     }
     URL url = new URL(this.baseUrl + "/api/v3/catalog");
     Map<String, Object> params = new HashMap<>();
-    Path nasPath = this.fileMaker.getNewDir();
+    Path nasPath = SourceDirectoryMaker.dirForSource(this.fileMaker, sourceName);
     params.put("entityType", "source");
     // cannot use quotes in source name
     params.put("name", sourceName.replace("\"", ""));
@@ -213,7 +242,7 @@ public class DremioV3Api implements DremioApi {
     metaDataPolicy.put("deleteUnavailableDatasets", true);
     metaDataPolicy.put("autoPromoteDatasets", true);
     params.put("metadataPolicy", metaDataPolicy);
-    String json = new ObjectMapper().writeValueAsString(params);
+    String json = mapper.writeValueAsString(params);
     DremioApiResponse status = new DremioApiResponse();
     try {
       HttpApiResponse response = apiCall.submitPost(url, this.baseHeaders, json);
@@ -309,7 +338,7 @@ public class DremioV3Api implements DremioApi {
     URL url = new URL(baseUrl + "/api/v3/sql");
     Map<String, String> params = new HashMap<>();
     params.put("sql", sql);
-    String json = new ObjectMapper().writeValueAsString(params);
+    String json = mapper.writeValueAsString(params);
     HttpApiResponse response = apiCall.submitPost(url, this.baseHeaders, json);
     if (response == null
         || response.getResponse() == null
@@ -327,10 +356,12 @@ public class DremioV3Api implements DremioApi {
     JobStatusResponse status = new JobStatusResponse();
     status.setStatus("UNKNOWN");
     Instant timeout = Instant.now().plus(timeoutSeconds, ChronoUnit.SECONDS);
+    String jobId = String.valueOf(response.getResponse().get("id"));
+    int checks = 0;
     while (!Instant.now().isAfter(timeout)) {
-      String jobId = String.valueOf(response.getResponse().get("id"));
       status = this.checkJobStatus(jobId);
       if (status == null) {
+        waitForNextCheck(checks++, timeout);
         continue;
       }
       if ("COMPLETED".equals(status.getStatus())) {
@@ -350,11 +381,7 @@ public class DremioV3Api implements DremioApi {
         success.setErrorMessage(String.format("Reponse status is '%s'", status.getMessage()));
         return success;
       }
-      try {
-        Thread.sleep(500);
-      } catch (InterruptedException e) {
-        throw new RuntimeException(e);
-      }
+      waitForNextCheck(checks++, timeout);
     }
     DremioApiResponse failed = new DremioApiResponse();
     failed.setCreated(false);
@@ -366,6 +393,23 @@ public class DremioV3Api implements DremioApi {
     return failed;
   }
 
+  /**
+   * sleeps until the next job status check, never past the timeout
+   *
+   * @param checks number of checks made so far
+   * @param timeout when runSQL gives up on the job
+   */
+  private void waitForNextCheck(int checks, Instant timeout) {
+    long untilTimeout = Instant.now().until(timeout, ChronoUnit.MILLIS);
+    long delay = Math.min(pollBackoff.delayMillis(checks), Math.max(untilTimeout, 0));
+    try {
+      Thread.sleep(delay);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    }
+  }
+
   /**
    * @return return the url used to access Dremio
    */
@@ -0,0 +1,178 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.repro.apiout;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.PushbackInputStream;
+import java.net.Socket;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.X509ExtendedTrustManager;
+
+/**
+ * HttpClientApiCall is an ApiCall on top of java.net.http.HttpClient. One client is kept for the
+ * life of the object so connections are reused between calls and HTTP/2 is used when the server
+ * offers it. Response bodies are decoded straight from the stream with a shared mapper. Safe to use
+ * from many threads at once.
+ */
+public class HttpClientApiCall implements ApiCall {
+  private static final ObjectMapper mapper = new ObjectMapper();
+  private static final TypeReference<Map<String, Object>> mapType = new TypeReference<>() {};
+  private final HttpClient client;
+  private final Duration requestTimeout;
+
+  /**
+   * @param ignoreSSL trust any certificate and host name for this client only
+   */
+  public HttpClientApiCall(final boolean ignoreSSL) {
+    this(ignoreSSL, Duration.ofSeconds(60));
+  }
+
+  /**
+   * @param ignoreSSL trust any certificate and host name for this client only
+   * @param requestTimeout how long to wait for each response
+   */
+  public HttpClientApiCall(final boolean ignoreSSL, final Duration requestTimeout) {
+    this.requestTimeout = requestTimeout;
+    final HttpClient.Builder builder =
+        HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .connectTimeout(Duration.ofSeconds(30));
+    if (ignoreSSL) {
+      try {
+        SSLContext context = SSLContext.getInstance("TLS");
+        // the host name is checked by the trust manager, a plain X509TrustManager gets wrapped in
+        // one that still checks it so the extended one is needed to skip it for this client only
+        context.init(
+            null,
+            new X509ExtendedTrustManager[] {
+              new X509ExtendedTrustManager() {
+                @Override
+                public void checkClientTrusted(X509Certificate[] chain, String authType) {}
+
+                @Override
+                public void checkServerTrusted(X509Certificate[] chain, String authType) {}
+
+                @Override
+                public void checkClientTrusted(
+                    X509Certificate[] chain, String authType, Socket socket) {}
+
+                @Override
+                public void checkServerTrusted(
+                    X509Certificate[] chain, String authType, Socket socket) {}
+
+                @Override
+                public void checkClientTrusted(
+                    X509Certificate[] chain, String authType, SSLEngine engine) {}
+
+                @Override
+                public void checkServerTrusted(
+                    X509Certificate[] chain, String authType, SSLEngine engine) {}
+
+                @Override
+                public X509Certificate[] getAcceptedIssuers() {
+                  return new X509Certificate[0];
+                }
+              }
+            },
+            new SecureRandom());
+        builder.sslContext(context);
+      } catch (Exception e) {
+        throw new RuntimeException(e);
+      }
+    }
+    this.client = builder.build();
+  }
+
+  @Override
+  public HttpApiResponse submitPost(
+      final URL url, final Map<String, String> headers, final String body) throws IOException {
+    final HttpRequest.BodyPublisher publisher =
+        body == null
+            ? HttpRequest.BodyPublishers.noBody()
+            : HttpRequest.BodyPublishers.ofString(body, StandardCharsets.UTF_8);
+    return send(request(url, headers).POST(publisher).build());
+  }
+
+  @Override
+  public HttpApiResponse submitGet(final URL url, final Map<String, String> headers)
+      throws IOException {
+    return send(request(url, headers).GET().build());
+  }
+
+  private HttpRequest.Builder request(final URL url, final Map<String, String> headers)
+      throws IOException {
+    final HttpRequest.Builder builder;
+    try {
+      builder = HttpRequest.newBuilder(url.toURI()).timeout(requestTimeout);
+    } catch (URISyntaxException e) {
+      throw new IOException("invalid url %s".formatted(url), e);
+    }
+    for (Map.Entry<String, String> kvp : headers.entrySet()) {
+      builder.header(kvp.getKey(), kvp.getValue());
+    }
+    return builder;
+  }
+
+  private HttpApiResponse send(final HttpRequest request) throws IOException {
+    final HttpResponse<InputStream> httpResponse;
+    try {
+      httpResponse = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("interrupted calling %s".formatted(request.uri()));
+    }
+    final HttpApiResponse response = new HttpApiResponse();
+    response.setResponseCode(httpResponse.statusCode());
+    try (InputStream body = httpResponse.body()) {
+      if (httpResponse.statusCode() > 199 && httpResponse.statusCode() < 400) {
+        response.setMessage(String.valueOf(httpResponse.statusCode()));
+        response.setResponse(readJson(body));
+      } else {
+        response.setMessage(
+            httpResponse.statusCode()
+                + " ----- "
+                + new String(body.readAllBytes(), StandardCharsets.UTF_8));
+      }
+    }
+    return response;
+  }
+
+  /** decodes the body as it arrives, an empty body is an empty map */
+  private static Map<String, Object> readJson(final InputStream body) throws IOException {
+    final PushbackInputStream stream = new PushbackInputStream(body);
+    final int first = stream.read();
+    if (first == -1) {
+      return new HashMap<>();
+    }
+    stream.unread(first);
+    return mapper.readValue(stream, mapType);
+  }
+}
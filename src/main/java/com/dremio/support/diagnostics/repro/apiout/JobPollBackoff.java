@@ -0,0 +1,60 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.repro.apiout;
+
+import java.time.Duration;
+
+/**
+ * JobPollBackoff decides how long to wait between job status checks. Checks start close together
+ * so the short DDL jobs the repro tool submits are seen as soon as they finish, and the wait grows
+ * by a fixed factor up to a ceiling so long running jobs do not flood the coordinator.
+ */
+public final class JobPollBackoff {
+  /** 25ms growing by half each check up to 1 second */
+  public static final JobPollBackoff DEFAULT =
+      new JobPollBackoff(Duration.ofMillis(25), Duration.ofSeconds(1), 1.5);
+
+  private final long initialMillis;
+  private final long maxMillis;
+  private final double multiplier;
+
+  /**
+   * @param initial wait before the second check
+   * @param max the longest wait between two checks
+   * @param multiplier growth of the wait after every check, 1 is a fixed interval
+   */
+  public JobPollBackoff(final Duration initial, final Duration max, final double multiplier) {
+    if (initial.isNegative() || max.compareTo(initial) < 0) {
+      throw new IllegalArgumentException(
+          "invalid poll interval, initial %s must be positive and no more than max %s"
+              .formatted(initial, max));
+    }
+    if (multiplier < 1.0) {
+      throw new IllegalArgumentException(
+          "multiplier must be at least 1 but was %s".formatted(multiplier));
+    }
+    this.initialMillis = initial.toMillis();
+    this.maxMillis = max.toMillis();
+    this.multiplier = multiplier;
+  }
+
+  /**
+   * @param check how many status checks have been made already, starting at 0
+   * @return how long to wait before the next check in milliseconds
+   */
+  public long delayMillis(final int check) {
+    final double delay = initialMillis * Math.pow(multiplier, Math.max(check, 0));
+    return (long) Math.min(delay, maxMillis);
+  }
+}
@@ -326,7 +326,7 @@ public abstract class FileOutput implements SqlOutput {
       bufferedWriter.write(log);
       try {
         bufferedWriter.write("mkdiriflocal ");
-        Path newDir = this.fileMaker.getNewDir();
+        Path newDir = SourceDirectoryMaker.dirForSource(this.fileMaker, source);
         bufferedWriter.write(format("%s", newDir));
         bufferedWriter.write("\n");
         bufferedWriter.write(
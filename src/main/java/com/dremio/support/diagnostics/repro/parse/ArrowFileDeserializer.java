@@ -0,0 +1,423 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.repro.parse;
+
+import com.dremio.support.diagnostics.repro.PDSDataProvider;
+import com.dremio.support.diagnostics.repro.SchemaDeserializer;
+import com.dremio.support.diagnostics.repro.SourceDirectoryMaker;
+import com.dremio.support.diagnostics.shared.dto.profilejson.DatasetProfile;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.BaseLargeVariableWidthVector;
+import org.apache.arrow.vector.BaseVariableWidthVector;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.BitVector;
+import org.apache.arrow.vector.DateDayVector;
+import org.apache.arrow.vector.DateMilliVector;
+import org.apache.arrow.vector.Decimal256Vector;
+import org.apache.arrow.vector.DecimalVector;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.FixedSizeBinaryVector;
+import org.apache.arrow.vector.Float4Vector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.SmallIntVector;
+import org.apache.arrow.vector.TimeMicroVector;
+import org.apache.arrow.vector.TimeMilliVector;
+import org.apache.arrow.vector.TimeNanoVector;
+import org.apache.arrow.vector.TimeSecVector;
+import org.apache.arrow.vector.TimeStampVector;
+import org.apache.arrow.vector.TinyIntVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.ipc.ArrowFileWriter;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.FieldType;
+import org.apache.arrow.vector.types.pojo.Schema;
+
+/**
+ * ArrowFileDeserializer writes the generated rows of each PDS as an Arrow IPC file in the directory
+ * of its source instead of inlining them into a CREATE TABLE AS VALUES statement. Rows are written
+ * in fixed size batches so memory stays flat regardless of the number of records, and the returned
+ * SQL only has to copy the files into the table, which keeps large reproductions from producing
+ * multi megabyte statements. The files are read with the arrow format named in the statement so
+ * nothing depends on how the source detects formats.
+ */
+public class ArrowFileDeserializer implements SchemaDeserializer {
+
+  private static final Logger logger = Logger.getLogger(ArrowFileDeserializer.class.getName());
+  // rows per record batch
+  static final int BATCH_SIZE = 4096;
+  // folder of each source the files are written under, the tables themselves are made by CTAS
+  static final String STAGING_FOLDER = "repro_arrow_files";
+  // number or records to generate for each file
+  private final long records;
+  // provides random values
+  private final PDSDataProvider random;
+  // provides known values
+  private final PDSDataProvider constant;
+  // overrides for column datas
+  private final ColumnDefYaml columnDef;
+  // directories the sources are created over
+  private final SourceDirectoryMaker sourceDirectoryMaker;
+
+  /**
+   * @param records the number the records to generate per file
+   * @param columnDef overrides for column data, may be null
+   * @param sourceDirectoryMaker provides the directory of the source each file is written to
+   */
+  public ArrowFileDeserializer(
+      final long records,
+      final ColumnDefYaml columnDef,
+      final SourceDirectoryMaker sourceDirectoryMaker) {
+    this(
+        records,
+        new PDSConstantDataProvider(),
+        new PDSRandomDataProvider(),
+        columnDef,
+        sourceDirectoryMaker);
+  }
+
+  /**
+   * @param records the number the records to generate per file
+   * @param constant the data provider strategy for the "constant" provider, this is used on the
+   *     first row
+   * @param random the data provider strategy for the random, this is used on most rows
+   * @param columnDef overrides for column data, may be null
+   * @param sourceDirectoryMaker provides the directory of the source each file is written to
+   */
+  public ArrowFileDeserializer(
+      final long records,
+      final PDSDataProvider constant,
+      final PDSDataProvider random,
+      final ColumnDefYaml columnDef,
+      final SourceDirectoryMaker sourceDirectoryMaker) {
+    this.records = records;
+    this.constant = constant;
+    this.random = random;
+    this.columnDef = columnDef;
+    this.sourceDirectoryMaker = sourceDirectoryMaker;
+  }
+
+  /**
+   * writes the data file for the PDS
+   *
+   * @param dp dataset profile to convert into a PDS, this needs to be a type 1, or it will fail
+   * @return the statement that creates the PDS from the written files
+   */
+  @Override
+  public String readSchema(final DatasetProfile dp) {
+    return readSchema(dp, this.records);
+  }
+
+  /**
+   * @param dp dataset profile to convert into a PDS, this needs to be a type 1, or it will fail
+   * @param records number of records to generate for this PDS
+   * @return same as {@link #readSchema(DatasetProfile)}
+   */
+  @Override
+  public String readSchema(final DatasetProfile dp, final long records) {
+    final List<Field> fields = ArrowFormatDeserializer.readFields(dp);
+    final ColumnOverrides overrides = new ColumnOverrides(dp.getDatasetPath(), columnDef, fields);
+    final List<String> tokens = splitPath(dp.getDatasetPath());
+    if (tokens.size() < 2) {
+      throw new IllegalArgumentException(
+          String.format("dataset path %s has no source to write to", dp.getDatasetPath()));
+    }
+    try {
+      Path dir = sourceDirectoryMaker.getSourceDir(tokens.get(0)).resolve(STAGING_FOLDER);
+      for (final String token : tokens.subList(1, tokens.size())) {
+        dir = dir.resolve(token);
+      }
+      Files.createDirectories(dir);
+      write(dir.resolve("data-0.arrow"), fields, overrides, records);
+    } catch (final IOException e) {
+      throw new UncheckedIOException(
+          String.format("unable to write data file for %s", dp.getDatasetPath()), e);
+    }
+    final List<String> staged = new ArrayList<>();
+    staged.add(tokens.get(0));
+    staged.add(STAGING_FOLDER);
+    staged.addAll(tokens.subList(1, tokens.size()));
+    return String.format(
+        "CREATE TABLE %s AS SELECT * FROM TABLE(%s(type => 'arrow'));",
+        dp.getDatasetPath(), quotePath(staged));
+  }
+
+  /**
+   * @param tokens elements of a dataset path
+   * @return the path with every element quoted
+   */
+  static String quotePath(final List<String> tokens) {
+    return tokens.stream()
+        .map(token -> "\"" + token.replace("\"", "\"\"") + "\"")
+        .collect(Collectors.joining("."));
+  }
+
+  private void write(
+      final Path file,
+      final List<Field> fields,
+      final ColumnOverrides overrides,
+      final long records)
+      throws IOException {
+    // dictionary encoded fields are written with their values, there are no dictionaries to ship
+    final Schema schema =
+        new Schema(
+            fields.stream()
+                .map(
+                    f ->
+                        new Field(
+                            f.getName(),
+                            new FieldType(true, f.getType(), null, f.getMetadata()),
+                            f.getChildren()))
+                .collect(Collectors.toList()));
+    try (BufferAllocator allocator = new RootAllocator();
+        VectorSchemaRoot root = VectorSchemaRoot.create(schema, allocator);
+        FileChannel channel =
+            FileChannel.open(
+                file,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+        ArrowFileWriter writer = new ArrowFileWriter(root, null, channel)) {
+      // resolve how each column is written once rather than once per value
+      final List<ValueWriter> writers = new ArrayList<>();
+      for (final FieldVector vector : root.getFieldVectors()) {
+        writers.add(writerFor(vector));
+      }
+      writer.start();
+      long written = 0;
+      while (written < records) {
+        final int rows = (int) Math.min(BATCH_SIZE, records - written);
+        root.allocateNew();
+        for (int row = 0; row < rows; row++) {
+          // we want to throw one predictable row in there for legacy reasons
+          final PDSDataProvider provider = written == 0 && row == 0 ? constant : random;
+          for (int j = 0; j < writers.size(); j++) {
+            final ValueWriter valueWriter = writers.get(j);
+            if (valueWriter == null) {
+              continue;
+            }
+            final PDSDataProvider override = overrides.get(j);
+            valueWriter.write(row, override != null ? override : provider);
+          }
+        }
+        root.setRowCount(rows);
+        writer.writeBatch();
+        written += rows;
+      }
+      writer.end();
+    }
+  }
+
+  /** writes one value of a column */
+  @FunctionalInterface
+  private interface ValueWriter {
+    void write(int row, PDSDataProvider dataProvider);
+  }
+
+  /**
+   * @param vector column to write to
+   * @return the writer for the column or null when the type is not supported, in which case the
+   *     column is left null
+   */
+  private static ValueWriter writerFor(final FieldVector vector) {
+    if (vector instanceof BitVector) {
+      final BitVector v = (BitVector) vector;
+      return (row, p) -> v.setSafe(row, p.getBoolean() ? 1 : 0);
+    }
+    if (vector instanceof TinyIntVector) {
+      final TinyIntVector v = (TinyIntVector) vector;
+      return (row, p) -> v.setSafe(row, (byte) p.getInt());
+    }
+    if (vector instanceof SmallIntVector) {
+      final SmallIntVector v = (SmallIntVector) vector;
+      return (row, p) -> v.setSafe(row, (short) p.getInt());
+    }
+    if (vector instanceof IntVector) {
+      final IntVector v = (IntVector) vector;
+      return (row, p) -> v.setSafe(row, p.getInt());
+    }
+    if (vector instanceof BigIntVector) {
+      final BigIntVector v = (BigIntVector) vector;
+      return (row, p) -> v.setSafe(row, p.getLong());
+    }
+    if (vector instanceof Float4Vector) {
+      final Float4Vector v = (Float4Vector) vector;
+      return (row, p) -> v.setSafe(row, p.getFloat());
+    }
+    if (vector instanceof Float8Vector) {
+      final Float8Vector v = (Float8Vector) vector;
+      return (row, p) -> v.setSafe(row, p.getDouble());
+    }
+    if (vector instanceof BaseVariableWidthVector) {
+      return bytesWriter(vector, ((BaseVariableWidthVector) vector)::setSafe);
+    }
+    if (vector instanceof BaseLargeVariableWidthVector) {
+      return bytesWriter(vector, ((BaseLargeVariableWidthVector) vector)::setSafe);
+    }
+    if (vector instanceof FixedSizeBinaryVector) {
+      final FixedSizeBinaryVector v = (FixedSizeBinaryVector) vector;
+      return bytesWriter(v, (row, bytes) -> v.setSafe(row, Arrays.copyOf(bytes, v.getByteWidth())));
+    }
+    if (vector instanceof DecimalVector) {
+      final DecimalVector v = (DecimalVector) vector;
+      return (row, p) -> {
+        final BigDecimal d = decimal(p.getDouble(), v.getPrecision(), v.getScale());
+        if (d == null) {
+          v.setNull(row);
+        } else {
+          v.setSafe(row, d);
+        }
+      };
+    }
+    if (vector instanceof Decimal256Vector) {
+      final Decimal256Vector v = (Decimal256Vector) vector;
+      return (row, p) -> {
+        final BigDecimal d = decimal(p.getDouble(), v.getPrecision(), v.getScale());
+        if (d == null) {
+          v.setNull(row);
+        } else {
+          v.setSafe(row, d);
+        }
+      };
+    }
+    if (vector instanceof DateDayVector) {
+      final DateDayVector v = (DateDayVector) vector;
+      return (row, p) -> v.setSafe(row, (int) p.getLocalDate().toEpochDay());
+    }
+    if (vector instanceof DateMilliVector) {
+      final DateMilliVector v = (DateMilliVector) vector;
+      return (row, p) -> v.setSafe(row, p.getLocalDate().toEpochDay() * 86_400_000L);
+    }
+    if (vector instanceof TimeSecVector) {
+      final TimeSecVector v = (TimeSecVector) vector;
+      return (row, p) -> v.setSafe(row, p.getTime().toSecondOfDay());
+    }
+    if (vector instanceof TimeMilliVector) {
+      final TimeMilliVector v = (TimeMilliVector) vector;
+      return (row, p) -> v.setSafe(row, (int) (p.getTime().toNanoOfDay() / 1_000_000L));
+    }
+    if (vector instanceof TimeMicroVector) {
+      final TimeMicroVector v = (TimeMicroVector) vector;
+      return (row, p) -> v.setSafe(row, p.getTime().toNanoOfDay() / 1_000L);
+    }
+    if (vector instanceof TimeNanoVector) {
+      final TimeNanoVector v = (TimeNanoVector) vector;
+      return (row, p) -> v.setSafe(row, p.getTime().toNanoOfDay());
+    }
+    if (vector instanceof TimeStampVector) {
+      final TimeStampVector v = (TimeStampVector) vector;
+      final ArrowType.Timestamp type = (ArrowType.Timestamp) vector.getField().getType();
+      switch (type.getUnit()) {
+        case SECOND:
+          return (row, p) -> v.setSafe(row, p.getInstant().getEpochSecond());
+        case MILLISECOND:
+          return (row, p) -> v.setSafe(row, p.getInstant().toEpochMilli());
+        case MICROSECOND:
+          return (row, p) -> {
+            final Instant i = p.getInstant();
+            v.setSafe(row, i.getEpochSecond() * 1_000_000L + i.getNano() / 1_000L);
+          };
+        case NANOSECOND:
+          return (row, p) -> {
+            final Instant i = p.getInstant();
+            v.setSafe(row, i.getEpochSecond() * 1_000_000_000L + i.getNano());
+          };
+        default:
+          break;
+      }
+    }
+    logger.warning(
+        () ->
+            String.format(
+                "%s type detected for column %s and not currently supported in arrow files, the"
+                    + " column will be null",
+                vector.getField().getType().getTypeID(), vector.getName()));
+    return null;
+  }
+
+  /** sets the bytes of one value */
+  @FunctionalInterface
+  private interface BytesSetter {
+    void set(int row, byte[] bytes);
+  }
+
+  /**
+   * @return writes the UTF-8 bytes of the provided string, or null when there is no string
+   */
+  private static ValueWriter bytesWriter(final FieldVector vector, final BytesSetter setter) {
+    return (row, p) -> {
+      final String s = p.getString();
+      if (s == null) {
+        vector.setNull(row);
+      } else {
+        setter.set(row, s.getBytes(StandardCharsets.UTF_8));
+      }
+    };
+  }
+
+  /**
+   * @return the value at the scale of the column, null if it does not fit the precision
+   */
+  private static BigDecimal decimal(final double value, final int precision, final int scale) {
+    final BigDecimal d = BigDecimal.valueOf(value).setScale(scale, RoundingMode.HALF_UP);
+    if (d.precision() > precision) {
+      return null;
+    }
+    return d;
+  }
+
+  /**
+   * splits a dataset path on the periods that are not inside double quotes, dropping the quotes
+   *
+   * @param datasetPath path to split, example "a.b".c.d
+   * @return the tokens of the path, example a.b, c, d
+   */
+  static List<String> splitPath(final String datasetPath) {
+    final List<String> tokens = new ArrayList<>();
+    final StringBuilder currentToken = new StringBuilder();
+    boolean quoted = false;
+    for (int i = 0; i < datasetPath.length(); i++) {
+      final char c = datasetPath.charAt(i);
+      if (c == '"') {
+        quoted = !quoted;
+      } else if (c == '.' && !quoted) {
+        tokens.add(currentToken.toString());
+        currentToken.setLength(0);
+      } else {
+        currentToken.append(c);
+      }
+    }
+    if (currentToken.length() > 0) {
+      tokens.add(currentToken.toString());
+    }
+    return tokens;
+  }
+}
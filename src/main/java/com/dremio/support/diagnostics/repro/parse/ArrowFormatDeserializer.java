@@ -23,10 +23,8 @@ import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Base64;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
-import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -103,27 +101,20 @@ public class ArrowFormatDeserializer implements SchemaDeserializer {
    */
   @Override
   public String readSchema(final DatasetProfile dp) {
-    final Base64.Decoder d = Base64.getDecoder();
-    // assuming UTF-8
-    final byte[] schemaBytes = dp.getBatchSchema().getBytes(StandardCharsets.UTF_8);
-    // assume it is base64 and decode it
-    final byte[] base64Decoded = d.decode(schemaBytes);
-    // drop it in a byte buffer and get schema object
-    final Schema schema = Schema.getRootAsSchema(ByteBuffer.wrap(base64Decoded));
-    // conver to a vector schema, I am not sure why we do this, but we do it in the
-    // reproduction
-    // tool as it was
-    final org.apache.arrow.vector.types.pojo.Schema s =
-        org.apache.arrow.vector.types.pojo.Schema.convertSchema(schema);
-    // the string that makes the the output file
-    final StringBuilder builder = new StringBuilder();
+    return readSchema(dp, this.records);
+  }
 
-    // remove the $_dremio_$_update_$ field
+  /**
+   * @param dp dataset profile to convert into a PDS, this needs to be a type 1, or it will fail
+   * @param records number of records to generate for this PDS
+   * @return same as {@link #readSchema(DatasetProfile)}
+   */
+  @Override
+  public String readSchema(final DatasetProfile dp, final long records) {
     // use this as a base for all other field operations
-    final List<Field> fields =
-        s.getFields().stream()
-            .filter(x -> !"$_dremio_$_update_$".equals(x.getName()))
-            .collect(Collectors.toList());
+    final List<Field> fields = readFields(dp);
+    // the string that makes the the output file
+    final StringBuilder builder = new StringBuilder();
     // quote the field names
     final String[] fieldNames =
         fields.stream().map(x -> String.format("\"%s\"", x.getName())).toArray(String[]::new);
@@ -135,66 +126,27 @@ public class ArrowFormatDeserializer implements SchemaDeserializer {
             "CREATE TABLE %s as %nSELECT %s %nFROM (values ", dp.getDatasetPath(), fieldNameString);
     // append statement
     builder.append(createTableStatement);
-    final String table = dp.getDatasetPath();
-    final boolean hasTable;
-    if (columnDef != null && columnDef.getTables() != null) {
-      hasTable = columnDef.getTables().stream().anyMatch(x -> x.getName().equalsIgnoreCase(table));
-    } else {
-      hasTable = false;
-    }
-    final List<ColumnDef> overrides;
-    if (!hasTable) {
-      overrides = new ArrayList<>();
-    } else {
-      final TableDef tableDef =
-          columnDef.getTables().stream()
-              .filter(x -> x.getName().equalsIgnoreCase(table))
-              .findFirst()
-              .orElse(new TableDef());
-      overrides = tableDef.getColumns();
-    }
+    // resolve the overrides once per field instead of once per value
+    final ColumnOverrides overrides = new ColumnOverrides(dp.getDatasetPath(), columnDef, fields);
     final List<String> rows = new ArrayList<>();
-    final Set<String> columnsOverriden = new HashSet<>();
-    for (int i = 0; i < this.records; i++) {
+    for (int i = 0; i < records; i++) {
       final List<String> fieldsForRow = new ArrayList<>();
-      for (final Field f : fields) {
-        if (overrides.stream().anyMatch(x -> x.getName().equalsIgnoreCase(f.getName()))) {
-          final ArrayList<String> possibleValues = new ArrayList<>();
-          for (final ColumnDef c : overrides) {
-            if (c.getName().equalsIgnoreCase(f.getName())) {
-              columnsOverriden.add(c.getName());
-              for (final String v : c.getValues()) {
-                possibleValues.add(v);
-              }
-            }
-          }
-          fieldsForRow.add(
-              fieldToData(f, new PDSOverrideDataProvider(possibleValues.toArray(new String[0]))));
+      for (int j = 0; j < fields.size(); j++) {
+        final Field f = fields.get(j);
+        final PDSDataProvider override = overrides.get(j);
+        if (override != null) {
+          fieldsForRow.add(fieldToData(f, override));
+        } else if (i > 0) {
+          // all rows after first use random data
+          fieldsForRow.add(fieldToData(f, random));
         } else {
-          if (i > 0) {
-            // all rows after first use random data
-            fieldsForRow.add(fieldToData(f, random));
-          } else {
-            // we want to throw one predictable row in there for legacy reasons
-            fieldsForRow.add(fieldToData(f, constant));
-          }
+          // we want to throw one predictable row in there for legacy reasons
+          fieldsForRow.add(fieldToData(f, constant));
         }
       }
       // wrap in parens
       rows.add(String.format("(%s)", String.join(",", fieldsForRow)));
     }
-    if (columnsOverriden.size() != overrides.size()) {
-      final List<String> missingColumns =
-          overrides.stream()
-              .map(x -> x.getName())
-              .filter(x -> !columnsOverriden.contains(x))
-              .collect(Collectors.toList());
-      throw new InvalidColumnOverrideException(
-          table,
-          missingColumns,
-          columnsOverriden.stream().collect(Collectors.toList()),
-          fields.stream().map(x -> x.getName()).collect(Collectors.toList()));
-    }
     // for readability reasons add a new line and comma separate all the rows
     builder.append(String.join(",\n", rows));
     // finally, close the parens and set the fields inside of an alias using the t()
@@ -204,6 +156,31 @@ public class ArrowFormatDeserializer implements SchemaDeserializer {
     return builder.toString();
   }
 
+  /**
+   * decodes the batchSchema of the dataset profile
+   *
+   * @param dp dataset profile with a base64 encoded arrow schema
+   * @return the fields of the dataset without the internal $_dremio_$_update_$ field
+   */
+  static List<Field> readFields(final DatasetProfile dp) {
+    final Base64.Decoder d = Base64.getDecoder();
+    // assuming UTF-8
+    final byte[] schemaBytes = dp.getBatchSchema().getBytes(StandardCharsets.UTF_8);
+    // assume it is base64 and decode it
+    final byte[] base64Decoded = d.decode(schemaBytes);
+    // drop it in a byte buffer and get schema object
+    final Schema schema = Schema.getRootAsSchema(ByteBuffer.wrap(base64Decoded));
+    // conver to a vector schema, I am not sure why we do this, but we do it in the
+    // reproduction
+    // tool as it was
+    final org.apache.arrow.vector.types.pojo.Schema s =
+        org.apache.arrow.vector.types.pojo.Schema.convertSchema(schema);
+    // remove the $_dremio_$_update_$ field
+    return s.getFields().stream()
+        .filter(x -> !"$_dremio_$_update_$".equals(x.getName()))
+        .collect(Collectors.toList());
+  }
+
   /**
    * convert the filed to a valid data string
    *
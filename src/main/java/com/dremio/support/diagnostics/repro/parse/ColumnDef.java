@@ -21,6 +21,8 @@ public class ColumnDef {
 
   private String name;
   private List<String> values;
+  private Long cardinality;
+  private Double skew;
 
   /**
    * gettier for the name of the column
@@ -59,4 +61,40 @@ public class ColumnDef {
       this.values = Collections.unmodifiableList(new ArrayList<>(values));
     }
   }
+
+  /**
+   * getter for the number of distinct keys to generate when no values are given
+   *
+   * @return number of distinct keys, null when not set
+   */
+  public Long getCardinality() {
+    return cardinality;
+  }
+
+  /**
+   * setter for the number of distinct keys to generate when no values are given
+   *
+   * @param cardinality number of distinct keys
+   */
+  public void setCardinality(final Long cardinality) {
+    this.cardinality = cardinality;
+  }
+
+  /**
+   * getter for the zipf exponent used to pick values or keys
+   *
+   * @return zipf exponent, null when values are picked uniformly
+   */
+  public Double getSkew() {
+    return skew;
+  }
+
+  /**
+   * setter for the zipf exponent used to pick values or keys, the first value is the most frequent
+   *
+   * @param skew zipf exponent, 0 is uniform
+   */
+  public void setSkew(final Double skew) {
+    this.skew = skew;
+  }
 }
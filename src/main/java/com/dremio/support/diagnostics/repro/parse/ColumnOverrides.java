@@ -0,0 +1,119 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.repro.parse;
+
+import com.dremio.support.diagnostics.repro.PDSDataProvider;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.apache.arrow.vector.types.pojo.Field;
+
+/**
+ * the column overrides of one table resolved against its fields once, so generating a row is an
+ * array lookup per field rather than a search of the override list
+ */
+final class ColumnOverrides {
+  private final PDSDataProvider[] providers;
+
+  /**
+   * @param table dataset path of the table
+   * @param columnDef the user supplied overrides, may be null
+   * @param fields fields of the table in column order
+   * @throws InvalidColumnOverrideException when an override names a column the table does not have
+   * @throws IllegalArgumentException when a cardinality or skew is out of range
+   */
+  ColumnOverrides(final String table, final ColumnDefYaml columnDef, final List<Field> fields) {
+    final List<ColumnDef> overrides = overridesFor(table, columnDef);
+    this.providers = new PDSDataProvider[fields.size()];
+    final Set<String> columnsOverriden = new LinkedHashSet<>();
+    for (int i = 0; i < fields.size(); i++) {
+      final String fieldName = fields.get(i).getName();
+      final List<String> possibleValues = new ArrayList<>();
+      Long cardinality = null;
+      Double skew = null;
+      for (final ColumnDef c : overrides) {
+        if (c.getName().equalsIgnoreCase(fieldName)) {
+          columnsOverriden.add(c.getName());
+          if (c.getValues() != null) {
+            possibleValues.addAll(c.getValues());
+          }
+          if (c.getCardinality() != null) {
+            cardinality = c.getCardinality();
+          }
+          if (c.getSkew() != null) {
+            skew = c.getSkew();
+          }
+        }
+      }
+      try {
+        this.providers[i] = provider(possibleValues, cardinality, skew);
+      } catch (final IllegalArgumentException e) {
+        throw new IllegalArgumentException(
+            String.format(
+                "invalid override for column %s of %s: %s", fieldName, table, e.getMessage()),
+            e);
+      }
+    }
+    if (columnsOverriden.size() != overrides.size()) {
+      final List<String> missingColumns =
+          overrides.stream()
+              .map(ColumnDef::getName)
+              .filter(x -> !columnsOverriden.contains(x))
+              .collect(Collectors.toList());
+      throw new InvalidColumnOverrideException(
+          table,
+          missingColumns,
+          new ArrayList<>(columnsOverriden),
+          fields.stream().map(Field::getName).collect(Collectors.toList()));
+    }
+  }
+
+  private static PDSDataProvider provider(
+      final List<String> possibleValues, final Long cardinality, final Double skew) {
+    if (!possibleValues.isEmpty()) {
+      final String[] values = possibleValues.toArray(new String[0]);
+      if (skew != null) {
+        return new PDSOverrideDataProvider(skew, values);
+      }
+      return new PDSOverrideDataProvider(values);
+    }
+    if (cardinality != null) {
+      return new PDSKeyDataProvider(cardinality, skew != null ? skew : 0.0);
+    }
+    // no values and no keys leaves the column to the default generation
+    return null;
+  }
+
+  private static List<ColumnDef> overridesFor(final String table, final ColumnDefYaml columnDef) {
+    if (columnDef == null || columnDef.getTables() == null) {
+      return Collections.emptyList();
+    }
+    return columnDef.getTables().stream()
+        .filter(x -> x.getName().equalsIgnoreCase(table))
+        .findFirst()
+        .map(TableDef::getColumns)
+        .orElse(Collections.emptyList());
+  }
+
+  /**
+   * @param field index of the field
+   * @return the provider of override values for the field, null when it is not overriden
+   */
+  PDSDataProvider get(final int field) {
+    return providers[field];
+  }
+}
@@ -0,0 +1,107 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.repro.parse;
+
+import com.dremio.support.diagnostics.repro.PDSDataProvider;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * generates key values for join and group by columns. Each value is derived from a rank drawn from
+ * a zipf distribution, so the column has exactly the configured number of distinct values and the
+ * lower ranks show up as often as the skew dictates. This is what makes joins fan out and
+ * aggregations hit hot keys the way they did on the original data.
+ */
+public class PDSKeyDataProvider implements PDSDataProvider {
+  // dates and timestamps count up from here one day or second per rank
+  private static final LocalDate BASE_DATE = LocalDate.of(2000, 1, 1);
+  private static final Instant BASE_INSTANT = Instant.parse("2000-01-01T00:00:00Z");
+  private final ZipfSampler sampler;
+
+  /**
+   * @param cardinality number of distinct keys
+   * @param skew zipf exponent, 0 is uniform and around 1 is typical of real world keys
+   */
+  public PDSKeyDataProvider(final long cardinality, final double skew) {
+    this(cardinality, skew, new Random());
+  }
+
+  /**
+   * @param cardinality number of distinct keys
+   * @param skew zipf exponent, 0 is uniform and around 1 is typical of real world keys
+   * @param random source of randomness
+   */
+  public PDSKeyDataProvider(final long cardinality, final double skew, final Random random) {
+    this.sampler = new ZipfSampler(cardinality, skew, random);
+  }
+
+  @Override
+  public long getLong() {
+    return sampler.next();
+  }
+
+  @Override
+  public float getFloat() {
+    return sampler.next();
+  }
+
+  @Override
+  public double getDouble() {
+    return sampler.next();
+  }
+
+  @Override
+  public int getInt() {
+    return (int) Math.min(Integer.MAX_VALUE, sampler.next());
+  }
+
+  @Override
+  public String getString() {
+    return "key" + sampler.next();
+  }
+
+  @Override
+  public LocalDate getLocalDate() {
+    return BASE_DATE.plusDays(sampler.next() - 1);
+  }
+
+  @Override
+  public Instant getInstant() {
+    return BASE_INSTANT.plusSeconds(sampler.next() - 1);
+  }
+
+  @Override
+  public LocalTime getTime() {
+    return LocalTime.ofSecondOfDay((sampler.next() - 1) % 86_400);
+  }
+
+  @Override
+  public String getInterval() {
+    return String.format("INTERVAL '%d' DAY", sampler.next());
+  }
+
+  @Override
+  public boolean getBoolean() {
+    return sampler.next() % 2 == 1;
+  }
+
+  @Override
+  public List<String> getList() {
+    return Collections.singletonList(getString());
+  }
+}
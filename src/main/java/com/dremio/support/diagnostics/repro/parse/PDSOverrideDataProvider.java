@@ -26,12 +26,28 @@ public class PDSOverrideDataProvider implements PDSDataProvider {
 
   private final Random random = new Random();
   private final String[] possibleValues;
+  // null when values are picked uniformly
+  private final ZipfSampler sampler;
 
   public PDSOverrideDataProvider(final String... possibleValues) {
     this.possibleValues = possibleValues.clone();
+    this.sampler = null;
+  }
+
+  /**
+   * @param skew zipf exponent used to pick values, the first value is the most frequent one and 0
+   *     picks uniformly
+   * @param possibleValues values to pick from
+   */
+  public PDSOverrideDataProvider(final double skew, final String... possibleValues) {
+    this.possibleValues = possibleValues.clone();
+    this.sampler = new ZipfSampler(this.possibleValues.length, skew, random);
   }
 
   private String rawValue() {
+    if (sampler != null) {
+      return this.possibleValues[(int) sampler.next() - 1];
+    }
     return this.possibleValues[random.nextInt(this.possibleValues.length)];
   }
 
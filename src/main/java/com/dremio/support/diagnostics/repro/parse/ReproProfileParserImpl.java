@@ -13,6 +13,7 @@
  */
 package com.dremio.support.diagnostics.repro.parse;
 
+import com.dremio.support.diagnostics.profilejson.plan.PlanRelationshipParser;
 import com.dremio.support.diagnostics.repro.*;
 import com.dremio.support.diagnostics.shared.dto.profilejson.DatasetProfile;
 import com.dremio.support.diagnostics.shared.dto.profilejson.ProfileJSON;
@@ -31,6 +32,10 @@ public class ReproProfileParserImpl implements ReproProfileParser {
   private final TableRefFinder tableRefFinder;
   private final SchemaDeserializer schemaDeserializer;
   private final ColumnDefYaml columnDef;
+  // when set each PDS gets the records it was scanned with instead of a fixed count
+  private final boolean sizeFromProfile;
+  // upper bound of the records generated for one PDS when sizing from the profile
+  private final long maxRecords;
 
   /**
    * the coordination class that will convert a profile.json into a set of instructions for a
@@ -50,10 +55,34 @@ public class ReproProfileParserImpl implements ReproProfileParser {
       final VdsSorter vdsSorter,
       final TableRefFinder tableRefFinder,
       final SchemaDeserializer schemaDeserializer) {
+    this(columnDef, vdsSorter, tableRefFinder, schemaDeserializer, false, 0);
+  }
+
+  /**
+   * same as {@link #ReproProfileParserImpl(ColumnDefYaml, VdsSorter, TableRefFinder,
+   * SchemaDeserializer)} with each PDS sized to the records the profile scanned from it
+   *
+   * @param columnDef override definitions for data
+   * @param vdsSorter the logic for sorting VDS order
+   * @param tableRefFinder finds the table references in a VDS.
+   * @param schemaDeserializer responsible for convert PDSs into Create table statements
+   * @param sizeFromProfile when true the records of each PDS come from its scan in the profile, a
+   *     PDS the profile has no count for keeps the default of the schemaDeserializer
+   * @param maxRecords cap on the records generated for a single PDS sized from the profile
+   */
+  public ReproProfileParserImpl(
+      final ColumnDefYaml columnDef,
+      final VdsSorter vdsSorter,
+      final TableRefFinder tableRefFinder,
+      final SchemaDeserializer schemaDeserializer,
+      final boolean sizeFromProfile,
+      final long maxRecords) {
     this.columnDef = columnDef;
     this.vdsSorter = vdsSorter;
     this.tableRefFinder = tableRefFinder;
     this.schemaDeserializer = schemaDeserializer;
+    this.sizeFromProfile = sizeFromProfile;
+    this.maxRecords = maxRecords;
   }
 
   /**
@@ -101,6 +130,14 @@ public class ReproProfileParserImpl implements ReproProfileParser {
   public Collection<PdsSql> parsePDSs(ProfileJSON profileJSON) {
     List<PdsSql> pds = new ArrayList<>();
     final List<String> pdsTableNames = new ArrayList<>();
+    final ScanRecordCounts scanRecordCounts;
+    if (sizeFromProfile) {
+      scanRecordCounts =
+          ScanRecordCounts.fromProfile(
+              profileJSON, new PlanRelationshipParser().getPlanRelations(profileJSON));
+    } else {
+      scanRecordCounts = null;
+    }
     for (DatasetProfile dp : profileJSON.getDatasetProfile()) {
       if (dp.getType() == 1) {
         // type 1 is a PDS
@@ -113,7 +150,22 @@ public class ReproProfileParserImpl implements ReproProfileParser {
         pdsTableNames.add(dp.getDatasetPath());
         // generate a pds depending on the deserializer passed in, it can use anything from the
         // datasetProfile
-        String schema = this.schemaDeserializer.readSchema(dp);
+        final OptionalLong scanned =
+            scanRecordCounts != null
+                ? scanRecordCounts.get(dp.getDatasetPath())
+                : OptionalLong.empty();
+        final String schema;
+        if (scanned.isPresent()) {
+          final long records = Math.min(scanned.getAsLong(), maxRecords);
+          logger.info(
+              () ->
+                  String.format(
+                      "pds %s was scanned with %d records, generating %d",
+                      dp.getDatasetPath(), scanned.getAsLong(), records));
+          schema = this.schemaDeserializer.readSchema(dp, records);
+        } else {
+          schema = this.schemaDeserializer.readSchema(dp);
+        }
         pds.add(new PdsSql(dp.getDatasetPath(), schema));
       }
     }
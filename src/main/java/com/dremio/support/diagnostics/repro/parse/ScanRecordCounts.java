@@ -0,0 +1,120 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.repro.parse;
+
+import com.dremio.support.diagnostics.profilejson.plan.PlanRelation;
+import com.dremio.support.diagnostics.repro.TableDependencyGraph;
+import com.dremio.support.diagnostics.shared.dto.profilejson.FragmentProfile;
+import com.dremio.support.diagnostics.shared.dto.profilejson.InputProfile;
+import com.dremio.support.diagnostics.shared.dto.profilejson.MinorFragmentProfile;
+import com.dremio.support.diagnostics.shared.dto.profilejson.OperatorProfile;
+import com.dremio.support.diagnostics.shared.dto.profilejson.ProfileJSON;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.OptionalLong;
+
+/**
+ * the number of records each table was scanned with in a profile. The scans are found in the plan
+ * by their table value, and the records are the input records of the matching scan operator summed
+ * over all its threads, the same numbers the operator records report shows. When the profile has
+ * no operator stats for a scan the planner row count estimate is used instead. A table scanned more
+ * than once keeps its largest count.
+ */
+public final class ScanRecordCounts {
+  private final Map<String, Long> records;
+
+  private ScanRecordCounts(final Map<String, Long> records) {
+    this.records = records;
+  }
+
+  /**
+   * @param profileJson profile to read the operator stats from
+   * @param relations plan relations of the profile
+   * @return record counts keyed by normalized table name
+   */
+  public static ScanRecordCounts fromProfile(
+      final ProfileJSON profileJson, final Collection<PlanRelation> relations) {
+    // input records by phase and operator id, summed over every thread
+    final Map<String, Long> operatorRecords = new HashMap<>();
+    if (profileJson != null && profileJson.getFragmentProfile() != null) {
+      for (final FragmentProfile fragmentProfile : profileJson.getFragmentProfile()) {
+        if (fragmentProfile.getMinorFragmentProfile() == null) {
+          continue;
+        }
+        for (final MinorFragmentProfile minor : fragmentProfile.getMinorFragmentProfile()) {
+          if (minor.getOperatorProfile() == null) {
+            continue;
+          }
+          for (final OperatorProfile operator : minor.getOperatorProfile()) {
+            if (operator.getInputProfile() == null) {
+              continue;
+            }
+            long sum = 0;
+            for (final InputProfile input : operator.getInputProfile()) {
+              if (input != null) {
+                sum += input.getRecords();
+              }
+            }
+            final String key =
+                operatorKey(fragmentProfile.getMajorFragmentId(), operator.getOperatorId());
+            operatorRecords.put(key, operatorRecords.getOrDefault(key, 0L) + sum);
+          }
+        }
+      }
+    }
+    final Map<String, Long> records = new HashMap<>();
+    for (final PlanRelation relation : relations) {
+      if (relation.getValues() == null) {
+        continue;
+      }
+      final Object table = relation.getValues().get("table");
+      if (table == null) {
+        continue;
+      }
+      final Long scanned = operatorRecords.get(relationKey(relation.getName()));
+      final long count = scanned != null ? scanned : (long) Math.ceil(relation.getRowCount());
+      final String name = TableDependencyGraph.normalize(table.toString());
+      records.put(name, Math.max(count, records.getOrDefault(name, 0L)));
+    }
+    return new ScanRecordCounts(records);
+  }
+
+  private static String operatorKey(final long phase, final long operator) {
+    return phase + "-" + operator;
+  }
+
+  /** relation names look like 02-05, the phase and operator id padded with zeros */
+  private static String relationKey(final String name) {
+    final int dash = name.indexOf('-');
+    if (dash < 0) {
+      return name;
+    }
+    try {
+      return operatorKey(
+          Long.parseLong(name.substring(0, dash)), Long.parseLong(name.substring(dash + 1)));
+    } catch (final NumberFormatException e) {
+      return name;
+    }
+  }
+
+  /**
+   * @param datasetPath dataset path as it appears in the dataset profile
+   * @return the records the table was scanned with, empty when the profile never scans it
+   */
+  public OptionalLong get(final String datasetPath) {
+    final Long count = records.get(TableDependencyGraph.normalize(datasetPath));
+    return count != null ? OptionalLong.of(count) : OptionalLong.empty();
+  }
+}
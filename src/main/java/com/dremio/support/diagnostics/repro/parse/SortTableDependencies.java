@@ -13,10 +13,12 @@
  */
 package com.dremio.support.diagnostics.repro.parse;
 
+import com.dremio.support.diagnostics.repro.TableDependencyGraph;
 import com.dremio.support.diagnostics.repro.VdsSorter;
 import com.dremio.support.diagnostics.repro.VdsSql;
+import java.util.Collections;
 import java.util.List;
-import java.util.Locale;
+import java.util.logging.Logger;
 
 /**
  * sorts the vds by table references so that the VDSs can be executed in order that will allow them
@@ -24,7 +26,7 @@ import java.util.Locale;
  */
 public class SortTableDependencies implements VdsSorter {
 
-  private static final Locale locale = Locale.US;
+  private static final Logger logger = Logger.getLogger(SortTableDependencies.class.getName());
 
   /**
    * sort the VDS list passed in. This ATTEMPTS to search the list of table references in the query,
@@ -32,27 +34,23 @@ public class SortTableDependencies implements VdsSorter {
    * instead of a full sql parser that would require matching versions of dremio to the sql text.
    * This was judged too difficult and time consuming at the time. Only trust this as a best effort.
    *
+   * <p>The references are put in a {@link TableDependencyGraph} and sorted topologically, VDSs
+   * that reference each other in a cycle are logged and left at the end.
+   *
    * @param vds list of VDSs to sort this is mutated by reference
    */
   @Override
   public void sortVds(List<VdsSql> vds) {
-    vds.sort(
-        (v1, v2) -> {
-          for (String ref : v2.getTableReferences()) {
-            if (ref.toLowerCase(locale)
-                .replace("\"", "")
-                .equals(v1.getTableName().toLowerCase(locale).replace("\"", ""))) {
-              return -1;
-            }
-          }
-          for (String ref : v1.getTableReferences()) {
-            if (ref.toLowerCase(locale)
-                .replace("\"", "")
-                .equals(v2.getTableName().toLowerCase(locale).replace("\"", ""))) {
-              return 1;
-            }
-          }
-          return 0;
-        });
+    final TableDependencyGraph graph = new TableDependencyGraph(vds, Collections.emptyList());
+    for (final List<String> cycle : graph.getCycles()) {
+      logger.warning(
+          () ->
+              "vds reference cycle %s, these cannot be created in a working order"
+                  .formatted(String.join(" -> ", cycle)));
+    }
+    final List<VdsSql> sorted = graph.getSorted();
+    for (int i = 0; i < sorted.size(); i++) {
+      vds.set(i, sorted.get(i));
+    }
   }
 }
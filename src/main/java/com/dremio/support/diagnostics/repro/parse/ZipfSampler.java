@@ -0,0 +1,107 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.repro.parse;
+
+import java.util.Random;
+
+/**
+ * draws ranks 1..n where rank k is picked with a probability proportional to 1/k^skew, a skew of 0
+ * is uniform. Uses rejection inversion (Hörmann and Derflinger, "Rejection-inversion to generate
+ * variates from monotone discrete distributions") so a sample is constant time and no table of
+ * probabilities is kept, which matters for cardinalities in the millions.
+ */
+final class ZipfSampler {
+  private final Random random;
+  private final long n;
+  private final double skew;
+  private final double hIntegralX1;
+  private final double hIntegralN;
+  private final double s;
+
+  /**
+   * @param n number of distinct ranks, at least 1
+   * @param skew exponent of the distribution, at least 0
+   * @param random source of randomness
+   */
+  ZipfSampler(final long n, final double skew, final Random random) {
+    if (n < 1) {
+      throw new IllegalArgumentException("cardinality must be at least 1 but was " + n);
+    }
+    if (skew < 0 || Double.isNaN(skew)) {
+      throw new IllegalArgumentException("skew must be 0 or more but was " + skew);
+    }
+    this.random = random;
+    this.n = n;
+    this.skew = skew;
+    this.hIntegralX1 = hIntegral(1.5) - 1.0;
+    this.hIntegralN = hIntegral(n + 0.5);
+    this.s = 2.0 - hIntegralInverse(hIntegral(2.5) - h(2.0));
+  }
+
+  /**
+   * @return a rank between 1 and n, 1 being the most frequent
+   */
+  long next() {
+    if (skew == 0) {
+      return 1 + (long) (random.nextDouble() * n);
+    }
+    while (true) {
+      final double u = hIntegralN + random.nextDouble() * (hIntegralX1 - hIntegralN);
+      final double x = hIntegralInverse(u);
+      long k = (long) (x + 0.5);
+      if (k < 1) {
+        k = 1;
+      } else if (k > n) {
+        k = n;
+      }
+      if (k - x <= s || u >= hIntegral(k + 0.5) - h(k)) {
+        return k;
+      }
+    }
+  }
+
+  private double hIntegral(final double x) {
+    final double logX = Math.log(x);
+    return helper2((1.0 - skew) * logX) * logX;
+  }
+
+  private double h(final double x) {
+    return Math.exp(-skew * Math.log(x));
+  }
+
+  private double hIntegralInverse(final double x) {
+    double t = x * (1.0 - skew);
+    if (t < -1.0) {
+      // numerical error can push t just below -1
+      t = -1.0;
+    }
+    return Math.exp(helper1(t) * x);
+  }
+
+  /** log1p(x)/x with the limit at 0 */
+  private static double helper1(final double x) {
+    if (Math.abs(x) > 1e-8) {
+      return Math.log1p(x) / x;
+    }
+    return 1.0 - x * (0.5 - x * (1.0 / 3.0 - 0.25 * x));
+  }
+
+  /** expm1(x)/x with the limit at 0 */
+  private static double helper2(final double x) {
+    if (Math.abs(x) > 1e-8) {
+      return Math.expm1(x) / x;
+    }
+    return 1.0 + x * 0.5 * (1.0 + x * 1.0 / 3.0 * (1.0 + 0.25 * x));
+  }
+}
@@ -13,6 +13,7 @@
  */
 package com.dremio.support.diagnostics.server;
 
+import com.dremio.support.diagnostics.shared.MetricsRegistry;
 import com.dremio.support.diagnostics.shared.UsageLogger;
 import com.dremio.support.diagnostics.simple.ProfileJSONSimplified;
 import io.javalin.Javalin;
@@ -40,24 +41,28 @@ public class DQDWebServer {
   private final Handler getAbout;
   private final Handler postIOStat;
   private final Handler postTop;
+  private final Handler getMetrics;
 
   /**
    * Starts a web server
    *
    * @param usageLogger
+   * @param metricsRegistry collects the job metrics served on /metrics
    * @throws IOException occurs when we are unable to read the index.html file
    */
-  public DQDWebServer(final UsageLogger usageLogger) throws IOException {
+  public DQDWebServer(final UsageLogger usageLogger, final MetricsRegistry metricsRegistry)
+      throws IOException {
     this(
         new GetIndex(),
         new PostProfile(usageLogger),
         new PostProfiles(usageLogger),
         new PostReproduction(usageLogger),
-        new PostQueriesJson(usageLogger),
+        new PostQueriesJson(usageLogger, metricsRegistry),
         new ProfileJSONSimplified.ProfileHTTPEndpoint(usageLogger),
         new GetAbout(),
         new PostIOStat(),
-        new PostTop());
+        new PostTop(),
+        new GetMetrics(metricsRegistry));
   }
 
   /**
@@ -72,6 +77,7 @@ public class DQDWebServer {
    * @param getAbout          wired up to /about.json with a GET action
    * @param postIOStats       wired up to /iostats with a GET action
    * @param postTop           wired up to /top with a GET action
+   * @param getMetrics        wired up to /metrics with a GET action
    *
    */
   public DQDWebServer(
@@ -83,7 +89,8 @@ public class DQDWebServer {
       final Handler postSimpleProfile,
       final Handler getAbout,
       final Handler postIOStats,
-      final Handler postTop) {
+      final Handler postTop,
+      final Handler getMetrics) {
     this.getIndex = getIndex;
     this.postProfile = postProfile;
     this.postProfiles = postProfiles;
@@ -93,6 +100,7 @@ public class DQDWebServer {
     this.getAbout = getAbout;
     this.postIOStat = postIOStats;
     this.postTop = postTop;
+    this.getMetrics = getMetrics;
   }
 
   /**
@@ -117,6 +125,7 @@ public class DQDWebServer {
     app.post("/reproduction", this.postReproduction);
     app.post("/simple-profile", this.postSimpleProfile);
     app.get("/about.json", this.getAbout);
+    app.get("/metrics", this.getMetrics);
     Runtime.getRuntime().addShutdownHook(new Thread(app::stop));
     try {
       Thread.currentThread().join();
@@ -136,6 +145,6 @@ public class DQDWebServer {
     final UsageLogger usageLogger;
     LOGGER.warning("logging usage to local logs");
     usageLogger = new LocalUsageLogger();
-    new DQDWebServer(usageLogger).launch(port);
+    new DQDWebServer(usageLogger, new MetricsRegistry()).launch(port);
   }
 }
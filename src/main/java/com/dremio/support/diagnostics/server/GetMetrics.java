@@ -0,0 +1,35 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.server;
+
+import com.dremio.support.diagnostics.shared.MetricsRegistry;
+import io.javalin.http.Context;
+import io.javalin.http.Handler;
+import org.jetbrains.annotations.NotNull;
+
+// GetMetrics returns the job metrics in the prometheus text format
+public class GetMetrics implements Handler {
+
+  private final MetricsRegistry metricsRegistry;
+
+  public GetMetrics(final MetricsRegistry metricsRegistry) {
+    this.metricsRegistry = metricsRegistry;
+  }
+
+  @Override
+  public void handle(@NotNull Context ctx) throws Exception {
+    ctx.contentType("text/plain; version=0.0.4; charset=utf-8");
+    ctx.result(metricsRegistry.toPrometheusText());
+  }
+}
@@ -13,7 +13,10 @@
  */
 package com.dremio.support.diagnostics.server;
 
+import com.dremio.support.diagnostics.profilejson.BatchComparison;
+import com.dremio.support.diagnostics.profilejson.BatchExec;
 import com.dremio.support.diagnostics.profilejson.Difference;
+import com.dremio.support.diagnostics.profilejson.HtmlBatchComparisonReport;
 import com.dremio.support.diagnostics.profilejson.HtmlProfileComparisonReport;
 import com.dremio.support.diagnostics.profilejson.ProfileDifferenceReport;
 import com.dremio.support.diagnostics.repro.ArgSetup;
@@ -24,9 +27,11 @@ import com.dremio.support.diagnostics.shared.UsageLogger;
 import com.dremio.support.diagnostics.shared.dto.profilejson.ProfileJSON;
 import io.javalin.http.Context;
 import io.javalin.http.Handler;
+import io.javalin.http.UploadedFile;
 import java.nio.file.Paths;
 import java.security.InvalidParameterException;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -49,12 +54,25 @@ public class PostProfiles implements Handler {
         throw new InvalidParameterException("no files");
       }
       final int expectedNumber = 2;
-      if (files.size() > expectedNumber) {
-        throw new InvalidParameterException("too many files");
-      }
       if (files.size() < expectedNumber) {
         throw new InvalidParameterException("not enough files");
       }
+      if (files.size() > expectedNumber) {
+        // many runs of the same query, compare them all against the first one
+        final List<String> names = new ArrayList<>();
+        final List<ProfileProvider> providers = new ArrayList<>();
+        for (final UploadedFile file : files) {
+          names.add(file.filename());
+          providers.add(
+              ArgSetup.getProfileProvider(
+                  new PathAndStream(Paths.get(file.filename()), file.content())));
+        }
+        logger.info(() -> "comparing %d profiles".formatted(files.size()));
+        final BatchComparison comparison =
+            BatchComparison.compare(names, BatchExec.parseAll(providers));
+        ctx.html(new HtmlBatchComparisonReport(comparison).getText());
+        return;
+      }
       var profile1 = files.get(0);
       var profile2 = files.get(1);
       // hard coded now
@@ -15,10 +15,18 @@ package com.dremio.support.diagnostics.server;
 
 import com.dremio.support.diagnostics.queriesjson.QueriesJsonFileParser;
 import com.dremio.support.diagnostics.queriesjson.QueriesJsonHtmlReport;
+import com.dremio.support.diagnostics.queriesjson.QueryDictionaries;
+import com.dremio.support.diagnostics.queriesjson.QueryTextStore;
 import com.dremio.support.diagnostics.queriesjson.ReadArchive;
 import com.dremio.support.diagnostics.queriesjson.SearchedFile;
 import com.dremio.support.diagnostics.queriesjson.filters.DateRangeQueryFilter;
+import com.dremio.support.diagnostics.queriesjson.filters.MinDurationQueryFilter;
+import com.dremio.support.diagnostics.queriesjson.filters.QueryFilterChain;
+import com.dremio.support.diagnostics.queriesjson.filters.QueryTextRegexFilter;
+import com.dremio.support.diagnostics.queriesjson.filters.ValueQueryFilter;
 import com.dremio.support.diagnostics.queriesjson.reporters.*;
+import com.dremio.support.diagnostics.shared.JobMetrics;
+import com.dremio.support.diagnostics.shared.MetricsRegistry;
 import com.dremio.support.diagnostics.shared.StreamWriterReporter;
 import com.dremio.support.diagnostics.shared.UsageEntry;
 import com.dremio.support.diagnostics.shared.UsageLogger;
@@ -42,9 +50,11 @@ import org.jetbrains.annotations.NotNull;
 public class PostQueriesJson implements Handler {
   private static final Logger logger = Logger.getLogger(PostQueriesJson.class.getName());
   private final UsageLogger usageLogger;
+  private final MetricsRegistry metricsRegistry;
 
-  public PostQueriesJson(final UsageLogger usageLogger) {
+  public PostQueriesJson(final UsageLogger usageLogger, final MetricsRegistry metricsRegistry) {
     this.usageLogger = usageLogger;
+    this.metricsRegistry = metricsRegistry;
   }
 
   @Override
@@ -56,6 +66,8 @@ public class PostQueriesJson implements Handler {
     }
     var file = files.get(0);
     var fields = ctx.formParamMap();
+    final JobMetrics metrics = new JobMetrics("queries-json");
+    final QueryDictionaries dictionaries = new QueryDictionaries();
     try (InputStream is = file.content()) {
 
       try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
@@ -116,7 +128,8 @@ public class PostQueriesJson implements Handler {
         final ConcurrentQueriesReporter concurrentQueriesReporter =
             new ConcurrentQueriesReporter(window);
         reporters.add(concurrentQueriesReporter);
-        final ConcurrentQueueReporter concurrentQueueReporter = new ConcurrentQueueReporter(window);
+        final ConcurrentQueueReporter concurrentQueueReporter =
+            new ConcurrentQueueReporter(window, dictionaries);
         reporters.add(concurrentQueueReporter);
         final ConcurrentSchemaOpsReporter concurrentSchemaOpsReporter =
             new ConcurrentSchemaOpsReporter(window);
@@ -128,11 +141,16 @@ public class PostQueriesJson implements Handler {
         reporters.add(maxCPUQueriesReporter);
         final MaxTimeReporter maxTimeReporter = new MaxTimeReporter(window);
         reporters.add(maxTimeReporter);
+        final LatencyPercentilesReporter latencyPercentilesReporter =
+            new LatencyPercentilesReporter(window);
+        reporters.add(latencyPercentilesReporter);
         final MemoryAllocatedReporter memoryAllocatedReporter = new MemoryAllocatedReporter(window);
         reporters.add(memoryAllocatedReporter);
-        final RequestCounterReporter requestCounterReporter = new RequestCounterReporter();
+        final RequestCounterReporter requestCounterReporter =
+            new RequestCounterReporter(dictionaries);
         reporters.add(requestCounterReporter);
-        final RequestsByQueueReporter requestsByQueueReporter = new RequestsByQueueReporter();
+        final RequestsByQueueReporter requestsByQueueReporter =
+            new RequestsByQueueReporter(dictionaries);
         reporters.add(requestsByQueueReporter);
         final SlowestMetadataQueriesReporter slowestMetadataQueriesReporter =
             new SlowestMetadataQueriesReporter(limit);
@@ -146,8 +164,36 @@ public class PostQueriesJson implements Handler {
         reporters.add(totalQueriesReporter);
         final FailedQueriesReporter failedQueriesReporter = new FailedQueriesReporter(limit);
         reporters.add(failedQueriesReporter);
-        var filter = new DateRangeQueryFilter(start.toEpochMilli(), end.toEpochMilli());
-        var archive = new ReadArchive(filter);
+        final QueryShapesReporter queryShapesReporter = new QueryShapesReporter();
+        reporters.add(queryShapesReporter);
+        var filter =
+            new QueryFilterChain(
+                new DateRangeQueryFilter(start.toEpochMilli(), end.toEpochMilli()));
+        final String minDurationParam = formValue(fields, "min_duration");
+        if (!minDurationParam.isEmpty()) {
+          filter.and(new MinDurationQueryFilter(Long.parseLong(minDurationParam)));
+        }
+        final List<String> users = formList(fields, "users");
+        if (!users.isEmpty()) {
+          filter.and(ValueQueryFilter.users(users));
+        }
+        final List<String> queues = formList(fields, "queues");
+        if (!queues.isEmpty()) {
+          filter.and(ValueQueryFilter.queues(queues));
+        }
+        final List<String> outcomes = formList(fields, "outcomes");
+        if (!outcomes.isEmpty()) {
+          filter.and(ValueQueryFilter.outcomes(outcomes));
+        }
+        final List<String> engines = formList(fields, "engines");
+        if (!engines.isEmpty()) {
+          filter.and(ValueQueryFilter.engines(engines));
+        }
+        final String queryTextRegex = formValue(fields, "query_text");
+        if (!queryTextRegex.isEmpty()) {
+          filter.and(new QueryTextRegexFilter(queryTextRegex));
+        }
+        var archive = new ReadArchive(filter, metrics, dictionaries, QueryTextStore.inMemory());
         var cpus = Runtime.getRuntime().availableProcessors() / 2;
         var tmpFile = Files.createTempFile("dqd", "tmp");
         try (FileOutputStream os = new FileOutputStream(tmpFile.toFile())) {
@@ -177,7 +223,10 @@ public class PostQueriesJson implements Handler {
                     tmpFile.toString(),
                     newInputStream,
                     reporters,
-                    new DateRangeQueryFilter(start.toEpochMilli(), end.toEpochMilli())));
+                    filter,
+                    metrics,
+                    dictionaries,
+                    QueryTextStore.inMemory().openSource(null)));
           }
         } else {
           throw new RuntimeException(
@@ -199,6 +248,7 @@ public class PostQueriesJson implements Handler {
                     maxMemoryQueriesReporter,
                     maxCPUQueriesReporter,
                     maxTimeReporter,
+                    latencyPercentilesReporter,
                     memoryAllocatedReporter,
                     requestCounterReporter,
                     requestsByQueueReporter,
@@ -207,8 +257,10 @@ public class PostQueriesJson implements Handler {
                     startFinishReporter,
                     totalQueriesReporter,
                     failedQueriesReporter,
+                    queryShapesReporter,
                     limit),
-                reporter);
+                reporter,
+                metrics);
         ctx.html(baos.toString(StandardCharsets.UTF_8));
       }
     } catch (Exception ex) {
@@ -216,10 +268,35 @@ public class PostQueriesJson implements Handler {
       ctx.html("<html><body>" + ex.getMessage() + "</body>");
     } finally {
       logger.info("queries.json report generated");
+      metricsRegistry.record(metrics);
       var end = Instant.now();
       usageLogger.LogUsage(
           new UsageEntry(
               functionStart.getEpochSecond(), end.getEpochSecond(), "queries-json", ctx.ip()));
     }
   }
+
+  /**
+   * @return the trimmed value of a single form field, empty when the field was not sent
+   */
+  private static String formValue(final Map<String, List<String>> fields, final String name) {
+    final List<String> values = fields.getOrDefault(name, List.of());
+    if (values.size() != 1) {
+      return "";
+    }
+    return values.get(0).trim();
+  }
+
+  /**
+   * @return the comma separated values of a form field, empty when the field was not sent
+   */
+  private static List<String> formList(final Map<String, List<String>> fields, final String name) {
+    final List<String> values = new ArrayList<>();
+    for (String value : formValue(fields, name).split(",")) {
+      if (!value.isBlank()) {
+        values.add(value.trim());
+      }
+    }
+    return values;
+  }
 }
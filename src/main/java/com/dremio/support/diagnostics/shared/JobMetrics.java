@@ -0,0 +1,162 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.shared;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Timers and counters for a single job (one CLI run or one web request). All methods are thread
+ * safe so the same instance can be shared by every parser thread working on the job.
+ */
+public class JobMetrics {
+
+  /** the stages of a job that we time separately */
+  public enum Stage {
+    DECOMPRESS,
+    PARSE,
+    REPORTER,
+    RENDER;
+
+    /**
+     * @return lower case name used for labels and console output
+     */
+    public String label() {
+      return name().toLowerCase(Locale.US);
+    }
+  }
+
+  private final String job;
+  private final Map<Stage, LongAdder> stageNanos = new EnumMap<>(Stage.class);
+  private final LongAdder bytesRead = new LongAdder();
+  private final LongAdder rowsParsed = new LongAdder();
+  private final AtomicLong heapHighWater = new AtomicLong();
+
+  /**
+   * @param job name of the job, for example queries-json, used as a label when exported
+   */
+  public JobMetrics(final String job) {
+    this.job = job;
+    for (Stage stage : Stage.values()) {
+      stageNanos.put(stage, new LongAdder());
+    }
+  }
+
+  public String getJob() {
+    return job;
+  }
+
+  /**
+   * starts a timer for the stage, use with try-with-resources so the elapsed time is always
+   * recorded
+   *
+   * @param stage stage to attribute the elapsed time to
+   * @return timer that adds the elapsed time to the stage when closed
+   */
+  public Timer time(final Stage stage) {
+    return new Timer(stage, System.nanoTime());
+  }
+
+  public void addStageNanos(final Stage stage, final long nanos) {
+    stageNanos.get(stage).add(nanos);
+  }
+
+  public void addBytesRead(final long bytes) {
+    bytesRead.add(bytes);
+  }
+
+  public void addRows(final long rows) {
+    rowsParsed.add(rows);
+  }
+
+  /** records the currently used heap if it is higher than the previous high-water mark */
+  public void sampleHeap() {
+    final Runtime runtime = Runtime.getRuntime();
+    final long used = runtime.totalMemory() - runtime.freeMemory();
+    heapHighWater.accumulateAndGet(used, Math::max);
+  }
+
+  public long getStageNanos(final Stage stage) {
+    return stageNanos.get(stage).sum();
+  }
+
+  public long getBytesRead() {
+    return bytesRead.sum();
+  }
+
+  public long getRowsParsed() {
+    return rowsParsed.sum();
+  }
+
+  public long getHeapHighWater() {
+    return heapHighWater.get();
+  }
+
+  /**
+   * rows per second is based on the time spent decompressing, parsing and running reporters. When
+   * several threads parse in parallel the stage times are summed across threads so this is the per
+   * thread rate.
+   *
+   * @return rows processed per second or 0 if no time has been recorded
+   */
+  public double getRowsPerSecond() {
+    final long nanos =
+        getStageNanos(Stage.DECOMPRESS)
+            + getStageNanos(Stage.PARSE)
+            + getStageNanos(Stage.REPORTER);
+    if (nanos == 0) {
+      return 0.0;
+    }
+    return getRowsParsed() / (nanos / 1_000_000_000.0);
+  }
+
+  /**
+   * @return human readable per-stage breakdown suitable for the console
+   */
+  public String getSummary() {
+    final StringBuilder sb = new StringBuilder();
+    sb.append(String.format("timings for %s%n", job));
+    for (Stage stage : Stage.values()) {
+      sb.append(
+          String.format(
+              "  %-12s %s%n",
+              stage.label(), Human.getHumanDurationFromNanos(getStageNanos(stage))));
+    }
+    sb.append(String.format("  %-12s %s%n", "bytes read", Human.getHumanBytes1024(getBytesRead())));
+    sb.append(String.format("  %-12s %s%n", "rows", Human.getHumanNumber(getRowsParsed())));
+    sb.append(String.format("  %-12s %s%n", "rows/sec", Human.getHumanNumber(getRowsPerSecond())));
+    sb.append(
+        String.format("  %-12s %s%n", "heap peak", Human.getHumanBytes1024(getHeapHighWater())));
+    return sb.toString();
+  }
+
+  /** adds the elapsed time since creation to a stage when closed */
+  public class Timer implements AutoCloseable {
+    private final Stage stage;
+    private final long startNanos;
+
+    private Timer(final Stage stage, final long startNanos) {
+      this.stage = stage;
+      this.startNanos = startNanos;
+    }
+
+    @Override
+    public void close() {
+      addStageNanos(stage, System.nanoTime() - startNanos);
+    }
+  }
+}
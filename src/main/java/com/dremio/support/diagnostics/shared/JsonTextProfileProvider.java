@@ -13,6 +13,7 @@
  */
 package com.dremio.support.diagnostics.shared;
 
+import com.dremio.support.diagnostics.profilejson.Parser;
 import com.dremio.support.diagnostics.profilejson.ProfileJSONParser;
 import com.dremio.support.diagnostics.shared.dto.profilejson.ProfileJSON;
 import java.io.IOException;
@@ -25,11 +26,20 @@ public class JsonTextProfileProvider implements ProfileProvider {
 
   private final InputStream file;
   private final Path filePath;
+  private final Parser parser;
 
   /**
    * @param pathAndStream stream of the json file and it's path
    */
   public JsonTextProfileProvider(final PathAndStream pathAndStream) {
+    this(pathAndStream, new ProfileJSONParser());
+  }
+
+  /**
+   * @param pathAndStream stream of the json file and it's path
+   * @param parser parser to read the json with
+   */
+  public JsonTextProfileProvider(final PathAndStream pathAndStream, final Parser parser) {
     if (pathAndStream == null
         || pathAndStream.filePath() == null
         || pathAndStream.stream() == null) {
@@ -37,6 +47,7 @@ public class JsonTextProfileProvider implements ProfileProvider {
     }
     this.file = pathAndStream.stream();
     this.filePath = pathAndStream.filePath();
+    this.parser = parser;
   }
 
   /**
@@ -44,7 +55,6 @@ public class JsonTextProfileProvider implements ProfileProvider {
    */
   @Override
   public final ProfileJSON getProfile() throws IOException {
-    ProfileJSONParser parser = new ProfileJSONParser();
     return parser.parseFile(this.file);
   }
 
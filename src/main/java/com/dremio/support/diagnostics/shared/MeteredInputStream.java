@@ -0,0 +1,72 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.shared;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Counts the bytes read from the wrapped stream and the time spent waiting on it. The time is
+ * attributed to the decompress stage since the wrapped stream is usually a gzip or bzip2 stream,
+ * for plain text files it is the time spent on IO. When the stream reads data that an outer stream
+ * already decompressed and timed, for example a file extracted from a tarball, only the bytes are
+ * counted so the stage is not recorded twice.
+ */
+public class MeteredInputStream extends FilterInputStream {
+  private final JobMetrics metrics;
+  private final boolean timeReads;
+
+  public MeteredInputStream(final InputStream in, final JobMetrics metrics) {
+    this(in, metrics, true);
+  }
+
+  /**
+   * @param in stream to count
+   * @param metrics metrics of the job
+   * @param timeReads false when an outer stream already records the decompress stage
+   */
+  public MeteredInputStream(
+      final InputStream in, final JobMetrics metrics, final boolean timeReads) {
+    super(in);
+    this.metrics = metrics;
+    this.timeReads = timeReads;
+  }
+
+  @Override
+  public int read() throws IOException {
+    final long start = System.nanoTime();
+    final int b = super.read();
+    if (timeReads) {
+      metrics.addStageNanos(JobMetrics.Stage.DECOMPRESS, System.nanoTime() - start);
+    }
+    if (b != -1) {
+      metrics.addBytesRead(1);
+    }
+    return b;
+  }
+
+  @Override
+  public int read(final byte[] b, final int off, final int len) throws IOException {
+    final long start = System.nanoTime();
+    final int read = super.read(b, off, len);
+    if (timeReads) {
+      metrics.addStageNanos(JobMetrics.Stage.DECOMPRESS, System.nanoTime() - start);
+    }
+    if (read > 0) {
+      metrics.addBytesRead(read);
+    }
+    return read;
+  }
+}
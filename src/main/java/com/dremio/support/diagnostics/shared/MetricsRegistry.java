@@ -0,0 +1,117 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.shared;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Accumulates the metrics of finished jobs so they can be scraped. Totals are kept per job name,
+ * rows per second and heap high-water mark are kept for the most recent job of each name.
+ */
+public class MetricsRegistry {
+
+  private static final class JobTotals {
+    private final long[] stageNanos = new long[JobMetrics.Stage.values().length];
+    private long jobs;
+    private long bytesRead;
+    private long rowsParsed;
+    private double lastRowsPerSecond;
+    private long lastHeapHighWater;
+  }
+
+  // sorted so the output is stable between scrapes
+  private final Map<String, JobTotals> totals = new TreeMap<>();
+
+  /**
+   * adds a finished job to the totals
+   *
+   * @param metrics metrics of the finished job
+   */
+  public synchronized void record(final JobMetrics metrics) {
+    final JobTotals t = totals.computeIfAbsent(metrics.getJob(), k -> new JobTotals());
+    for (JobMetrics.Stage stage : JobMetrics.Stage.values()) {
+      t.stageNanos[stage.ordinal()] += metrics.getStageNanos(stage);
+    }
+    t.jobs++;
+    t.bytesRead += metrics.getBytesRead();
+    t.rowsParsed += metrics.getRowsParsed();
+    t.lastRowsPerSecond = metrics.getRowsPerSecond();
+    t.lastHeapHighWater = metrics.getHeapHighWater();
+  }
+
+  /**
+   * @return all recorded metrics in the prometheus text exposition format
+   */
+  public synchronized String toPrometheusText() {
+    final StringBuilder sb = new StringBuilder();
+    header(sb, "dqd_jobs_total", "counter", "number of jobs completed");
+    for (Map.Entry<String, JobTotals> e : totals.entrySet()) {
+      line(sb, "dqd_jobs_total", e.getKey(), null, Long.toString(e.getValue().jobs));
+    }
+    header(sb, "dqd_stage_seconds_total", "counter", "time spent in each stage of a job");
+    for (Map.Entry<String, JobTotals> e : totals.entrySet()) {
+      for (JobMetrics.Stage stage : JobMetrics.Stage.values()) {
+        final double seconds = e.getValue().stageNanos[stage.ordinal()] / 1_000_000_000.0;
+        line(sb, "dqd_stage_seconds_total", e.getKey(), stage.label(), format(seconds));
+      }
+    }
+    header(sb, "dqd_bytes_read_total", "counter", "bytes read from inputs after decompression");
+    for (Map.Entry<String, JobTotals> e : totals.entrySet()) {
+      line(sb, "dqd_bytes_read_total", e.getKey(), null, Long.toString(e.getValue().bytesRead));
+    }
+    header(sb, "dqd_rows_parsed_total", "counter", "rows parsed");
+    for (Map.Entry<String, JobTotals> e : totals.entrySet()) {
+      line(sb, "dqd_rows_parsed_total", e.getKey(), null, Long.toString(e.getValue().rowsParsed));
+    }
+    header(sb, "dqd_rows_per_second", "gauge", "rows parsed per second by the last job");
+    for (Map.Entry<String, JobTotals> e : totals.entrySet()) {
+      line(sb, "dqd_rows_per_second", e.getKey(), null, format(e.getValue().lastRowsPerSecond));
+    }
+    header(sb, "dqd_heap_high_water_bytes", "gauge", "highest heap usage seen by the last job");
+    for (Map.Entry<String, JobTotals> e : totals.entrySet()) {
+      line(
+          sb,
+          "dqd_heap_high_water_bytes",
+          e.getKey(),
+          null,
+          Long.toString(e.getValue().lastHeapHighWater));
+    }
+    return sb.toString();
+  }
+
+  private static void header(
+      final StringBuilder sb, final String name, final String type, final String help) {
+    sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+    sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+  }
+
+  private static void line(
+      final StringBuilder sb,
+      final String name,
+      final String job,
+      final String stage,
+      final String value) {
+    sb.append(name).append("{job=\"").append(job).append('"');
+    if (stage != null) {
+      sb.append(",stage=\"").append(stage).append('"');
+    }
+    sb.append("} ").append(value).append('\n');
+  }
+
+  private static String format(final double value) {
+    return String.format(Locale.US, "%.6f", value);
+  }
+}
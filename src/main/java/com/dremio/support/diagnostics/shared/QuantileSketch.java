@@ -0,0 +1,183 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.shared;
+
+/**
+ * A mergeable quantile sketch with a relative error guarantee, following the DDSketch approach.
+ * Values are counted in logarithmically sized buckets so any quantile is returned within the
+ * relative accuracy of the real value. Memory depends only on the range of values seen and is
+ * capped at maxBuckets, when the cap is reached the lowest buckets are folded together which keeps
+ * the upper quantiles we care about for latency accurate.
+ *
+ * <p>Not thread safe, give each thread its own sketch and {@link #merge(QuantileSketch)} them.
+ */
+public class QuantileSketch {
+  public static final double DEFAULT_RELATIVE_ACCURACY = 0.01;
+  public static final int DEFAULT_MAX_BUCKETS = 2048;
+  private static final int INITIAL_BUCKETS = 32;
+
+  private final double relativeAccuracy;
+  private final double gamma;
+  private final double logGamma;
+  private final int maxBuckets;
+  // counts[i] holds the values of bucket index offset + i
+  private long[] counts;
+  private int offset;
+  // values of zero or less, durations are often exactly 0
+  private long zeroCount;
+  private long count;
+  private double min = Double.POSITIVE_INFINITY;
+  private double max = Double.NEGATIVE_INFINITY;
+
+  public QuantileSketch() {
+    this(DEFAULT_RELATIVE_ACCURACY, DEFAULT_MAX_BUCKETS);
+  }
+
+  /**
+   * @param relativeAccuracy how far a quantile may be from the real value, 0.01 is 1%
+   * @param maxBuckets upper bound on the number of buckets kept
+   */
+  public QuantileSketch(final double relativeAccuracy, final int maxBuckets) {
+    if (relativeAccuracy <= 0 || relativeAccuracy >= 1) {
+      throw new IllegalArgumentException(
+          "relative accuracy must be between 0 and 1 but was %f".formatted(relativeAccuracy));
+    }
+    if (maxBuckets < 1) {
+      throw new IllegalArgumentException(
+          "max buckets must be at least 1 but was %d".formatted(maxBuckets));
+    }
+    this.relativeAccuracy = relativeAccuracy;
+    this.gamma = (1 + relativeAccuracy) / (1 - relativeAccuracy);
+    this.logGamma = Math.log(gamma);
+    this.maxBuckets = maxBuckets;
+  }
+
+  public void add(final double value) {
+    if (value <= 0) {
+      zeroCount++;
+    } else {
+      // slot can replace counts so it has to run before counts is read
+      final int slot = slot((int) Math.ceil(Math.log(value) / logGamma));
+      counts[slot]++;
+    }
+    count++;
+    min = Math.min(min, value);
+    max = Math.max(max, value);
+  }
+
+  /**
+   * adds all the values of another sketch to this one
+   *
+   * @param other sketch made with the same relative accuracy
+   */
+  public void merge(final QuantileSketch other) {
+    if (other.relativeAccuracy != relativeAccuracy) {
+      throw new IllegalArgumentException(
+          "cannot merge a sketch with relative accuracy %f into one with %f"
+              .formatted(other.relativeAccuracy, relativeAccuracy));
+    }
+    if (other.count == 0) {
+      return;
+    }
+    if (other.counts != null) {
+      for (int i = 0; i < other.counts.length; i++) {
+        if (other.counts[i] != 0) {
+          final int slot = slot(other.offset + i);
+          counts[slot] += other.counts[i];
+        }
+      }
+    }
+    zeroCount += other.zeroCount;
+    count += other.count;
+    min = Math.min(min, other.min);
+    max = Math.max(max, other.max);
+  }
+
+  /**
+   * @param quantile between 0 and 1, 0.99 is the p99
+   * @return the estimated value at the quantile, NaN when the sketch is empty
+   */
+  public double quantile(final double quantile) {
+    if (quantile < 0 || quantile > 1) {
+      throw new IllegalArgumentException(
+          "quantile must be between 0 and 1 but was %f".formatted(quantile));
+    }
+    if (count == 0) {
+      return Double.NaN;
+    }
+    final double rank = quantile * (count - 1);
+    long seen = zeroCount;
+    if (seen > rank) {
+      return Math.max(min, Math.min(0, max));
+    }
+    for (int i = 0; i < counts.length; i++) {
+      seen += counts[i];
+      if (seen > rank) {
+        final double estimate = 2 * Math.pow(gamma, offset + i) / (gamma + 1);
+        // the estimate can fall outside what was seen for the lowest and highest buckets
+        return Math.max(min, Math.min(max, estimate));
+      }
+    }
+    return max;
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  /**
+   * @return smallest value added, NaN when empty
+   */
+  public double getMin() {
+    return count == 0 ? Double.NaN : min;
+  }
+
+  /**
+   * @return largest value added, NaN when empty
+   */
+  public double getMax() {
+    return count == 0 ? Double.NaN : max;
+  }
+
+  /**
+   * finds the position of a bucket index in counts, growing the array or folding the lowest
+   * buckets when it does not fit
+   */
+  private int slot(final int index) {
+    if (counts == null) {
+      counts = new long[Math.min(INITIAL_BUCKETS, maxBuckets)];
+      offset = index - counts.length / 2;
+    }
+    if (index >= offset && index < offset + counts.length) {
+      return index - offset;
+    }
+    int low = Math.min(offset, index);
+    final int high = Math.max(offset + counts.length - 1, index);
+    if (high - low + 1 > maxBuckets) {
+      low = high - maxBuckets + 1;
+    }
+    // leave room to grow again on the side that just grew
+    final int length = Math.min(maxBuckets, Math.max(high - low + 1, counts.length * 2));
+    final int newOffset = index < offset ? high - length + 1 : low;
+    final long[] resized = new long[length];
+    for (int i = 0; i < counts.length; i++) {
+      if (counts[i] != 0) {
+        resized[Math.max(offset + i, newOffset) - newOffset] += counts[i];
+      }
+    }
+    counts = resized;
+    offset = newOffset;
+    return Math.max(index, newOffset) - newOffset;
+  }
+}
@@ -27,6 +27,7 @@ public class ZipProfileProvider implements ProfileProvider {
   private final Parser parser;
   private final Unzipper unzipper;
   private final PathAndStream file;
+  private final boolean localFile;
 
   /**
    * @param parser the parser strategy used to process files
@@ -35,7 +36,23 @@ public class ZipProfileProvider implements ProfileProvider {
    */
   public ZipProfileProvider(
       final Parser parser, final Unzipper unzipper, final PathAndStream pathAndStream) {
+    this(parser, unzipper, pathAndStream, false);
+  }
+
+  /**
+   * @param parser the parser strategy used to process files
+   * @param unzipper The logical to unzip files and iterate through entries
+   * @param pathAndStream location of the zip file and it's stream
+   * @param localFile the path is the local file the stream was opened from and the zip may be read
+   *     from it directly, never true for uploads
+   */
+  public ZipProfileProvider(
+      final Parser parser,
+      final Unzipper unzipper,
+      final PathAndStream pathAndStream,
+      final boolean localFile) {
     this.parser = parser;
+    this.localFile = localFile;
     this.unzipper = unzipper;
     if (pathAndStream == null
         || pathAndStream.stream() == null
@@ -52,7 +69,7 @@ public class ZipProfileProvider implements ProfileProvider {
    */
   @Override
   public ProfileJSON getProfile() throws IOException {
-    try (Extraction extraction = this.unzipper.unzipProfileJSON(this.file)) {
+    try (Extraction extraction = this.unzipper.unzipProfileJSON(this.file, this.localFile)) {
       if (extraction == null || extraction.getPathAndStreams() == null) {
         throw new RuntimeException(
             "unable to extract zip %s due to no value being unzipped".formatted(this.file));
@@ -30,4 +30,14 @@ public interface Unzipper {
    * @return path to profile.json to analyze
    */
   Extraction unzipProfileJSON(PathAndStream zipFile) throws IOException;
+
+  /**
+   * takes a zip file and returns the Path to profile.json located inside
+   *
+   * @param zipFile zip file to search
+   * @param localFile the file path is the local file the stream was opened from and may be read
+   *     directly, false when it is only a name such as the one of an upload
+   * @return path to profile.json to analyze
+   */
+  Extraction unzipProfileJSON(PathAndStream zipFile, boolean localFile) throws IOException;
 }
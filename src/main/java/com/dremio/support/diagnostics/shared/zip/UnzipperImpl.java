@@ -20,26 +20,86 @@ import com.dremio.support.diagnostics.shared.gzip.TmpFileUnGzipper;
 import com.dremio.support.diagnostics.shared.gzip.UnGzipper;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.nio.channels.SeekableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
 import org.apache.commons.compress.archivers.ArchiveEntry;
 import org.apache.commons.compress.archivers.ArchiveInputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
 import org.apache.commons.io.IOUtils;
 
 public class UnzipperImpl implements Unzipper {
   private final UnGzipper unGzipper = new TmpFileUnGzipper();
   private static final Logger logger = Logger.getLogger(UnzipperImpl.class.getName());
+  // bounded to the cores so concurrent extractions never add up to more threads than that, the
+  // threads of a ForkJoinPool are daemons so it never keeps the process alive
+  private static final UnzipperImpl SHARED =
+      new UnzipperImpl(
+          Math.max(Runtime.getRuntime().availableProcessors(), 2),
+          new ForkJoinPool(Math.max(Runtime.getRuntime().availableProcessors(), 2)));
+  private final int threads;
+  private final ExecutorService sharedExecutor;
+
+  /** walks nested archives one after another on the calling thread */
+  public UnzipperImpl() {
+    this(1);
+  }
+
+  /**
+   * @param threads number of nested archives and gzip members extracted at once, 1 keeps the
+   *     single threaded walk
+   */
+  public UnzipperImpl(final int threads) {
+    if (threads < 1) {
+      throw new IllegalArgumentException(
+          "threads must be at least 1 but was %d".formatted(threads));
+    }
+    this.threads = threads;
+    this.sharedExecutor = null;
+  }
+
+  private UnzipperImpl(final int threads, final ExecutorService sharedExecutor) {
+    this.threads = threads;
+    this.sharedExecutor = sharedExecutor;
+  }
+
+  /**
+   * @return an unzipper extracting nested archives on one pool shared by the whole process, safe to
+   *     use from many threads at once
+   */
+  public static UnzipperImpl shared() {
+    return SHARED;
+  }
 
   @Override
   public Collection<Extraction> unzipAllFiles(
       PathAndStream zipFile, Function<String, Boolean> filter) throws IOException {
+    if (this.threads > 1) {
+      return Collections.singletonList(unzipAllFiles(zipFile, filter, x -> {}));
+    }
     List<Extraction> extractions = new ArrayList<>();
     List<PathAndStream> streams = new ArrayList<>();
     var tempDir = Files.createTempDirectory("dqd-extract-simple");
@@ -161,13 +221,215 @@ public class UnzipperImpl implements Unzipper {
   }
 
   /**
-   * takes a zip file and returns the Path to profile.json located inside
+   * extracts every file matching the filter on a pool of the configured number of threads. The
+   * outer archive is read on the calling thread while each nested archive and gzip member becomes
+   * its own task, so the per node archives of a support bundle are unpacked side by side. The
+   * filter is checked against the entry name before any bytes are written and every extracted file
+   * is handed to onReady as soon as it is on disk, from whichever pool thread produced it.
+   *
+   * @param zipFile archive to extract
+   * @param filter entry names to keep, archives have to pass it to be opened
+   * @param onReady called with each file as it becomes available, must be thread safe
+   * @return a single extraction holding every file, closing it removes them all
+   * @throws IOException when an archive cannot be read or the temp files cannot be written
+   */
+  public Extraction unzipAllFiles(
+      PathAndStream zipFile, Function<String, Boolean> filter, Consumer<PathAndStream> onReady)
+      throws IOException {
+    if (zipFile == null) {
+      throw new RuntimeException("cannot use a null zip file");
+    }
+    if (zipFile.filePath() == null) {
+      throw new RuntimeException("cannot have a null file path");
+    }
+    final Path tempDir = Files.createTempDirectory("dqd-extract-parallel");
+    final List<PathAndStream> streams = Collections.synchronizedList(new ArrayList<>());
+    final var extraction = new TmpFileExtraction(tempDir, streams);
+    final var job = new ParallelExtraction(filter, onReady, streams);
+    try {
+      final String name = zipFile.filePath().getFileName().toString();
+      if (isCompressed(name)) {
+        job.gunzip(zipFile.stream(), tempDir.resolve(stripGz(name)));
+      } else {
+        job.walk(zipFile, tempDir);
+      }
+      job.await();
+    } catch (IOException | RuntimeException ex) {
+      extraction.close();
+      throw ex;
+    } finally {
+      job.close();
+    }
+    return extraction;
+  }
+
+  private static String stripGz(final String name) {
+    return name.substring(0, name.length() - ".gz".length());
+  }
+
+  /** state shared by the tasks of one parallel extraction */
+  private final class ParallelExtraction {
+    private final ExecutorService executor =
+        sharedExecutor != null ? sharedExecutor : Executors.newFixedThreadPool(threads);
+    private final Queue<Future<?>> pending = new ConcurrentLinkedQueue<>();
+    private final Function<String, Boolean> filter;
+    private final Consumer<PathAndStream> onReady;
+    private final List<PathAndStream> streams;
+
+    ParallelExtraction(
+        Function<String, Boolean> filter,
+        Consumer<PathAndStream> onReady,
+        List<PathAndStream> streams) {
+      this.filter = filter;
+      this.onReady = onReady;
+      this.streams = streams;
+    }
+
+    /** reads the entries of an archive into dir, nested archives and gzips are queued as tasks */
+    void walk(PathAndStream archive, Path dir) throws IOException {
+      try (@SuppressWarnings("rawtypes")
+          ArchiveInputStream i = getArchive(archive)) {
+        ArchiveEntry entry;
+        while ((entry = i.getNextEntry()) != null) {
+          if (entry.isDirectory() || !i.canReadEntryData(entry)) {
+            continue;
+          }
+          final String entryName = entry.getName();
+          if (!filter.apply(entryName)) {
+            logger.fine(
+                () -> "skipping %s as it did not match our file filter".formatted(entryName));
+            continue;
+          }
+          final Path target = dir.resolve(entryName).normalize();
+          if (!target.startsWith(dir)) {
+            throw new IOException(
+                "entry %s in %s points outside of the extraction directory"
+                    .formatted(entryName, archive.filePath()));
+          }
+          Files.createDirectories(target.getParent());
+          // archives may repeat an entry name, the last copy wins like with unzip -o
+          Files.copy(i, target, StandardCopyOption.REPLACE_EXISTING);
+          final String fileName = target.getFileName().toString();
+          if (isCompressed(fileName)) {
+            pending.add(
+                executor.submit(
+                    () -> {
+                      try (InputStream in = Files.newInputStream(target)) {
+                        gunzip(in, target.resolveSibling(stripGz(fileName)));
+                      } catch (IOException ex) {
+                        logger.warning(
+                            "unable to read file %s due to %s".formatted(target, ex.getMessage()));
+                      } finally {
+                        Files.deleteIfExists(target);
+                      }
+                      return null;
+                    }));
+          } else if (isArchive(fileName)) {
+            logger.fine(() -> "is nested archive file: %s".formatted(fileName));
+            pending.add(
+                executor.submit(
+                    () -> {
+                      nested(target);
+                      return null;
+                    }));
+          } else {
+            emit(new PathAndStream(target, Files.newInputStream(target)));
+          }
+        }
+      }
+    }
+
+    /** inflates a gzip member next to where it was, opening it as an archive when it is one */
+    void gunzip(InputStream compressed, Path output) throws IOException {
+      try (InputStream in = new GZIPInputStream(compressed)) {
+        Files.copy(in, output, StandardCopyOption.REPLACE_EXISTING);
+      }
+      final String fileName = output.getFileName().toString();
+      if (isArchive(fileName)) {
+        nested(output);
+      } else {
+        emit(new PathAndStream(output, Files.newInputStream(output)));
+      }
+    }
+
+    private void nested(Path archiveFile) throws IOException {
+      final Path dir = Files.createTempDirectory(archiveFile.getParent(), "nested");
+      try (InputStream in = Files.newInputStream(archiveFile)) {
+        walk(new PathAndStream(archiveFile, in), dir);
+      } finally {
+        Files.deleteIfExists(archiveFile);
+      }
+    }
+
+    /** stops the tasks still queued, a shared pool is left running for other extractions */
+    void close() {
+      if (sharedExecutor == null) {
+        executor.shutdownNow();
+        return;
+      }
+      Future<?> future;
+      while ((future = pending.poll()) != null) {
+        future.cancel(true);
+      }
+    }
+
+    private void emit(PathAndStream pathAndStream) {
+      streams.add(pathAndStream);
+      onReady.accept(pathAndStream);
+    }
+
+    /**
+     * waits for every task, tasks only queue their children before they finish so the queue is
+     * empty once the last one is done
+     */
+    void await() throws IOException {
+      Future<?> future;
+      while ((future = pending.poll()) != null) {
+        try {
+          future.get();
+        } catch (InterruptedException ex) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException("interrupted while extracting archives");
+        } catch (ExecutionException ex) {
+          if (ex.getCause() instanceof IOException io) {
+            throw io;
+          }
+          throw new RuntimeException(ex.getCause());
+        }
+      }
+    }
+  }
+
+  /**
+   * takes a zip file and returns the Path to profile.json located inside. Only the stream is read,
+   * the file path is just a name, so a zip is copied to a temp file before its central directory
+   * is read
    *
    * @param zipFile zip file to search
    * @return path to profile.json to analyze
    */
   @Override
   public Extraction unzipProfileJSON(PathAndStream zipFile) throws IOException {
+    return unzipProfileJSON(zipFile, false);
+  }
+
+  /**
+   * takes a zip file and returns the Path to profile.json located inside
+   *
+   * @param zipFile zip file to search
+   * @param localFile the file path is the local file the stream was opened from, so a zip can be
+   *     read from disk directly. Never pass true for a name supplied by a client such as an upload
+   * @return path to profile.json to analyze
+   */
+  @Override
+  public Extraction unzipProfileJSON(PathAndStream zipFile, boolean localFile) throws IOException {
+    if (!localFile && isZip(zipFile)) {
+      return spoolAndUnzipProfileJSON(zipFile);
+    }
+    final Extraction direct = localFile ? readProfileJSONFromZipFile(zipFile) : null;
+    if (direct != null) {
+      return direct;
+    }
     final var extractions = unzipAllFiles(zipFile, ArchiveDetection::isProfileJson);
     if (extractions == null) {
       throw new RuntimeException("invalid profile.json unable to extract anything");
@@ -179,4 +441,132 @@ public class UnzipperImpl implements Unzipper {
     }
     return extractions.iterator().next();
   }
+
+  private static boolean isZip(final PathAndStream zipFile) {
+    return zipFile != null
+        && zipFile.filePath() != null
+        && zipFile.stream() != null
+        && zipFile.filePath().toString().endsWith(".zip");
+  }
+
+  /** copies the stream to a temp zip and reads that, the temp zip is removed with the extraction */
+  private Extraction spoolAndUnzipProfileJSON(final PathAndStream zipFile) throws IOException {
+    final Path spooled = Files.createTempFile("dqd-profile", ".zip");
+    InputStream in = null;
+    try {
+      Files.copy(zipFile.stream(), spooled, StandardCopyOption.REPLACE_EXISTING);
+      in = Files.newInputStream(spooled);
+      final Extraction extraction = unzipProfileJSON(new PathAndStream(spooled, in), true);
+      return new SpooledExtraction(extraction, in, spooled);
+    } catch (IOException | RuntimeException ex) {
+      if (in != null) {
+        in.close();
+      }
+      Files.deleteIfExists(spooled);
+      throw ex;
+    }
+  }
+
+  /** extraction over a temp copy of an uploaded zip, closing it also removes the copy */
+  private static final class SpooledExtraction extends Extraction {
+    private final Extraction extraction;
+    private final InputStream in;
+    private final Path spooled;
+
+    SpooledExtraction(Extraction extraction, InputStream in, Path spooled) {
+      super(extraction.getPathAndStreams());
+      this.extraction = extraction;
+      this.in = in;
+      this.spooled = spooled;
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        this.extraction.close();
+        this.in.close();
+      } finally {
+        Files.deleteIfExists(this.spooled);
+      }
+    }
+  }
+
+  /**
+   * reads profile.json straight out of a zip on disk using the central directory, so only the one
+   * entry is ever inflated and nothing is copied to a temp directory. A gzipped profile.json entry
+   * is inflated in memory as it is read.
+   * The zip is opened from the file path, so it must only be called with local files.
+   *
+   * @param zipFile zip file to search
+   * @return an extraction over the single profile.json entry, or null when the file is not a zip
+   *     on disk or its layout (nested archives, no or several profiles) needs the full extraction
+   */
+  Extraction readProfileJSONFromZipFile(PathAndStream zipFile) throws IOException {
+    if (zipFile == null || zipFile.filePath() == null) {
+      return null;
+    }
+    final Path path = zipFile.filePath();
+    if (!path.toString().endsWith(".zip") || !Files.isRegularFile(path)) {
+      return null;
+    }
+    final SeekableByteChannel channel = Files.newByteChannel(path, StandardOpenOption.READ);
+    final ZipFile zip;
+    try {
+      zip = ZipFile.builder().setSeekableByteChannel(channel).get();
+    } catch (IOException ex) {
+      channel.close();
+      logger.fine(
+          () ->
+              "unable to read central directory of %s, falling back to full extraction: %s"
+                  .formatted(path, ex.getMessage()));
+      return null;
+    }
+    boolean handedOff = false;
+    try {
+      ZipArchiveEntry profileEntry = null;
+      final Enumeration<ZipArchiveEntry> entries = zip.getEntries();
+      while (entries.hasMoreElements()) {
+        final ZipArchiveEntry entry = entries.nextElement();
+        if (entry.isDirectory()) {
+          continue;
+        }
+        final String name = entry.getName();
+        if (isGzippedProfileJson(name) || (isProfileJson(name) && !isArchive(name))) {
+          if (profileEntry != null || !zip.canReadEntryData(entry)) {
+            return null;
+          }
+          profileEntry = entry;
+        } else if (isArchive(name)) {
+          // nested archives may hold a profile too, let the full extraction sort it out
+          return null;
+        }
+      }
+      if (profileEntry == null) {
+        return null;
+      }
+      final String entryName = profileEntry.getName();
+      logger.fine(() -> "reading %s directly from %s".formatted(entryName, path));
+      InputStream stream = zip.getInputStream(profileEntry);
+      Path entryPath = Paths.get(entryName);
+      if (isGzippedProfileJson(entryName)) {
+        stream = new GZIPInputStream(stream);
+        entryPath = Paths.get(entryName.substring(0, entryName.length() - ".gz".length()));
+      }
+      final var extraction =
+          new ZipEntryExtraction(
+              zip, Collections.singletonList(new PathAndStream(entryPath, stream)));
+      handedOff = true;
+      return extraction;
+    } finally {
+      if (!handedOff) {
+        zip.close();
+      }
+    }
+  }
+
+  private static boolean isGzippedProfileJson(final String name) {
+    return isCompressed(name)
+        && !isArchive(name.substring(0, name.length() - ".gz".length()))
+        && isProfileJson(name.substring(0, name.length() - ".gz".length()));
+  }
 }
@@ -0,0 +1,55 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.shared.zip;
+
+import com.dremio.support.diagnostics.shared.PathAndStream;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.logging.Logger;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+
+/**
+ * extraction backed directly by an open zip file, the streams are inflated from the archive on
+ * read so there is nothing on disk to clean up, closing releases the streams and the zip file
+ */
+public class ZipEntryExtraction extends Extraction {
+  private final ZipFile zipFile;
+  private static final Logger logger = Logger.getLogger(ZipEntryExtraction.class.getName());
+
+  public ZipEntryExtraction(ZipFile zipFile, Collection<PathAndStream> pathAndStreams) {
+    super(pathAndStreams);
+    this.zipFile = zipFile;
+  }
+
+  @Override
+  public void close() {
+    for (var pathAndStream : getPathAndStreams()) {
+      if (pathAndStream.stream() != null) {
+        try {
+          pathAndStream.stream().close();
+        } catch (IOException e) {
+          logger.warning(
+              () ->
+                  "unable to close stream for entry %s with error %s"
+                      .formatted(pathAndStream.filePath(), e.getMessage()));
+        }
+      }
+    }
+    try {
+      this.zipFile.close();
+    } catch (IOException e) {
+      logger.warning(() -> "unable to close zip file due to error %s".formatted(e.getMessage()));
+    }
+  }
+}
@@ -19,7 +19,11 @@ import static com.dremio.support.diagnostics.shared.Human.getHumanDurationFromNa
 import static com.dremio.support.diagnostics.shared.Human.getHumanNumber;
 
 import com.dremio.support.diagnostics.profilejson.CoreOperatorType;
+import com.dremio.support.diagnostics.profilejson.ProfileCaches;
+import com.dremio.support.diagnostics.profilejson.ProfileProjection;
 import com.dremio.support.diagnostics.profilejson.QueryState;
+import com.dremio.support.diagnostics.profilejson.compact.CompactProfile;
+import com.dremio.support.diagnostics.profilejson.compact.CompactProfileParser;
 import com.dremio.support.diagnostics.profilejson.plan.PlanRelation;
 import com.dremio.support.diagnostics.profilejson.plan.PlanRelationshipParser;
 import com.dremio.support.diagnostics.profilejson.singlefile.reports.summary.FindingsReport;
@@ -32,10 +36,6 @@ import com.dremio.support.diagnostics.shared.PathAndStream;
 import com.dremio.support.diagnostics.shared.ProfileProvider;
 import com.dremio.support.diagnostics.shared.UsageEntry;
 import com.dremio.support.diagnostics.shared.UsageLogger;
-import com.dremio.support.diagnostics.shared.dto.profilejson.FragmentProfile;
-import com.dremio.support.diagnostics.shared.dto.profilejson.InputProfile;
-import com.dremio.support.diagnostics.shared.dto.profilejson.MinorFragmentProfile;
-import com.dremio.support.diagnostics.shared.dto.profilejson.OperatorProfile;
 import com.dremio.support.diagnostics.shared.dto.profilejson.ProfileJSON;
 import io.javalin.http.Context;
 import io.javalin.http.Handler;
@@ -137,80 +137,49 @@ public class ProfileJSONSimplified {
           new PlanRelationshipParser().getPlanRelations(parsedProfileJSON);
 
       var findings = FindingsReport.searchForFindings(parsedProfileJSON, planRelations);
-      if (parsedProfileJSON.getFragmentProfile() != null) {
-        start = parsedProfileJSON.getStart();
-        end = parsedProfileJSON.getEnd();
-        if (parsedProfileJSON.getUser() != null && !parsedProfileJSON.getUser().isEmpty()) {
-          user = parsedProfileJSON.getUser();
-        }
-        if (parsedProfileJSON.getState() < QueryState.values().length) {
-          queryPhase = QueryState.values()[parsedProfileJSON.getState()].name();
-        }
-        if (parsedProfileJSON.getDremioVersion() != null
-            && !parsedProfileJSON.getDremioVersion().isEmpty()) {
-          dremioVersion = parsedProfileJSON.getDremioVersion();
-        }
-        for (final FragmentProfile fragmentProfile : parsedProfileJSON.getFragmentProfile()) {
-          if (fragmentProfile != null) {
-            final int phaseId = fragmentProfile.getMajorFragmentId();
-            totalPhases++;
-            for (final MinorFragmentProfile minorFragmentProfile :
-                fragmentProfile.getMinorFragmentProfile()) {
-              if (minorFragmentProfile != null
-                  && minorFragmentProfile.getOperatorProfile() != null) {
-                final long threadId = minorFragmentProfile.getMinorFragmentId();
-                String hostName = "";
-                if (minorFragmentProfile.getEndpoint() != null
-                    && minorFragmentProfile.getEndpoint().getAddress() != null) {
-                  hostName = minorFragmentProfile.getEndpoint().getAddress();
-                }
-                for (final OperatorProfile operatorProfile :
-                    minorFragmentProfile.getOperatorProfile()) {
-                  long batches = 0;
-                  long records = 0;
-                  long size = 0;
-                  if (operatorProfile.getInputProfile() != null) {
-                    for (final InputProfile inputProfile : operatorProfile.getInputProfile()) {
-                      batches += inputProfile.getBatches();
-                      records += inputProfile.getRecords();
-                      size += inputProfile.getSize();
-                    }
-                  }
-                  final int operatorTypeId = operatorProfile.getOperatorType();
-                  final long operatorId = operatorProfile.getOperatorId();
-                  final long processNanos = operatorProfile.getProcessNanos();
-                  final long setupNanos = operatorProfile.getSetupNanos();
-                  final long waitNanos = operatorProfile.getWaitNanos();
-                  final long totalDurationNanos = processNanos + setupNanos + waitNanos;
-                  final long peakLocalMemoryAllocated =
-                      operatorProfile.getPeakLocalMemoryAllocated();
-                  final CoreOperatorType[] coreOperatorTypes = CoreOperatorType.values();
-                  CoreOperatorType operatorType = null;
-                  if ((long) operatorTypeId < coreOperatorTypes.length) {
-                    operatorType = coreOperatorTypes[operatorTypeId];
-                  }
-                  final OperatorRow row =
-                      new OperatorRow(
-                          hostName,
-                          batches,
-                          records,
-                          size,
-                          operatorId,
-                          phaseId,
-                          threadId,
-                          processNanos,
-                          setupNanos,
-                          waitNanos,
-                          totalDurationNanos,
-                          peakLocalMemoryAllocated,
-                          operatorType,
-                          hostName);
-                  rows.add(row);
-                }
-              }
-            }
-          }
+      start = parsedProfileJSON.getStart();
+      end = parsedProfileJSON.getEnd();
+      if (parsedProfileJSON.getUser() != null && !parsedProfileJSON.getUser().isEmpty()) {
+        user = parsedProfileJSON.getUser();
+      }
+      if (parsedProfileJSON.getState() < QueryState.values().length) {
+        queryPhase = QueryState.values()[parsedProfileJSON.getState()].name();
+      }
+      if (parsedProfileJSON.getDremioVersion() != null
+          && !parsedProfileJSON.getDremioVersion().isEmpty()) {
+        dremioVersion = parsedProfileJSON.getDremioVersion();
+      }
+      final CompactProfile compact = ProfileCaches.compactProfile(parsedProfileJSON);
+      totalPhases = compact.phaseCount();
+      final CoreOperatorType[] coreOperatorTypes = CoreOperatorType.values();
+      for (int o = 0; o < compact.operatorCount(); o++) {
+        final int thread = compact.operatorThread(o);
+        final String hostName =
+            compact.endpointAddress(thread) != null ? compact.endpointAddress(thread) : "";
+        final long processNanos = compact.processNanos(o);
+        final long setupNanos = compact.setupNanos(o);
+        final long waitNanos = compact.waitNanos(o);
+        final int operatorTypeId = compact.operatorType(o);
+        CoreOperatorType operatorType = null;
+        if ((long) operatorTypeId < coreOperatorTypes.length) {
+          operatorType = coreOperatorTypes[operatorTypeId];
         }
+        rows.add(
+            new OperatorRow(
+                hostName,
+                compact.batches(o),
+                compact.records(o),
+                compact.size(o),
+                compact.operatorId(o),
+                compact.threadMajorFragmentId(thread),
+                compact.minorFragmentId(thread),
+                processNanos,
+                setupNanos,
+                waitNanos,
+                processNanos + setupNanos + waitNanos,
+                compact.peakLocalMemoryAllocated(o),
+                operatorType,
+                hostName));
       }
       return new Summary(
           dremioVersion,
@@ -250,7 +219,8 @@ public class ProfileJSONSimplified {
       try (InputStream is = ctx.uploadedFiles().get(0).content()) {
         ProfileProvider profileProvider =
             ArgSetup.getProfileProvider(
-                new PathAndStream(Paths.get(ctx.uploadedFiles().get(0).filename()), is));
+                new PathAndStream(Paths.get(ctx.uploadedFiles().get(0).filename()), is),
+                new CompactProfileParser(ProfileProjection.SUMMARY));
         ProfileJSON p = profileProvider.getProfile();
         final Summary summary = new Summarize().singleProfile(p);
         final int unlimitedRows = -1;
@@ -743,7 +713,9 @@ public class ProfileJSONSimplified {
       if (args.comparePath() == null) {
         try (final InputStream stream = Files.newInputStream(args.path().toPath())) {
           var profile =
-              ArgSetup.getProfileProvider(new PathAndStream(args.path().toPath(), stream));
+              ArgSetup.getLocalProfileProvider(
+                  new PathAndStream(args.path().toPath(), stream),
+                  new CompactProfileParser(ProfileProjection.SUMMARY));
           final Summarize summarize = new Summarize();
           try {
             final Summary summary = summarize.singleProfile(profile.getProfile());
@@ -760,10 +732,13 @@ public class ProfileJSONSimplified {
           try (final InputStream compareStream =
               Files.newInputStream(args.comparePath().toPath())) {
             var profile =
-                ArgSetup.getProfileProvider(new PathAndStream(args.path().toPath(), stream));
+                ArgSetup.getLocalProfileProvider(
+                    new PathAndStream(args.path().toPath(), stream),
+                    new CompactProfileParser(ProfileProjection.SUMMARY));
             var compareProfile =
-                ArgSetup.getProfileProvider(
-                    new PathAndStream(args.comparePath().toPath(), compareStream));
+                ArgSetup.getLocalProfileProvider(
+                    new PathAndStream(args.comparePath().toPath(), compareStream),
+                    new CompactProfileParser(ProfileProjection.SUMMARY));
             final Summarize summarize = new Summarize();
             try {
               SummaryCompare compare =
@@ -0,0 +1,109 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.profilejson;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.dremio.support.diagnostics.shared.dto.profilejson.FragmentProfile;
+import com.dremio.support.diagnostics.shared.dto.profilejson.InputProfile;
+import com.dremio.support.diagnostics.shared.dto.profilejson.MinorFragmentProfile;
+import com.dremio.support.diagnostics.shared.dto.profilejson.OperatorProfile;
+import com.dremio.support.diagnostics.shared.dto.profilejson.ProfileJSON;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class BatchComparisonTest {
+
+  private static OperatorProfile operator(int id, long processMillis, long records) {
+    var op = new OperatorProfile();
+    op.setOperatorId(id);
+    op.setOperatorType(CoreOperatorType.PROJECT.ordinal());
+    op.setProcessNanos(processMillis * 1_000_000L);
+    op.setPeakLocalMemoryAllocated(records * 8);
+    var input = new InputProfile();
+    input.setRecords(records);
+    op.setInputProfile(List.of(input));
+    return op;
+  }
+
+  // one phase with two threads, operator 1 takes processMillis on each thread
+  private static ProfileJSON profile(long durationMillis, long processMillis) {
+    var fragment = new FragmentProfile();
+    fragment.setMajorFragmentId(1);
+    var threads = new ArrayList<MinorFragmentProfile>();
+    for (int t = 0; t < 2; t++) {
+      var minor = new MinorFragmentProfile();
+      minor.setMinorFragmentId(t);
+      minor.setOperatorProfile(List.of(operator(0, 5, 100), operator(1, processMillis, 50)));
+      threads.add(minor);
+    }
+    fragment.setMinorFragmentProfile(threads);
+    var profile = new ProfileJSON();
+    profile.setStart(1000);
+    profile.setEnd(1000 + durationMillis);
+    profile.setFragmentProfile(List.of(fragment));
+    return profile;
+  }
+
+  @Test
+  public void testDistributionsAndOutliers() {
+    var names = List.of("base", "run2", "run3", "run4", "slow");
+    var profiles =
+        List.of(
+            profile(1000, 100),
+            profile(1010, 110),
+            profile(990, 90),
+            profile(1005, 105),
+            profile(9000, 2000));
+    var comparison = BatchComparison.compare(names, profiles);
+
+    assertEquals(2, comparison.getOperators().size());
+    var fast = comparison.getOperators().get(0);
+    assertEquals("01-00", fast.key().id());
+    assertEquals(5, fast.runs());
+    assertEquals(10_000_000L, fast.processNanos().median());
+    assertEquals(200, fast.records().baseline());
+    assertEquals(800, fast.peakMemoryBytes().max());
+    assertTrue(fast.outlierRuns().isEmpty());
+
+    var slowOp = comparison.getOperators().get(1);
+    assertEquals("01-01", slowOp.key().id());
+    assertEquals(200_000_000L, slowOp.processNanos().baseline());
+    assertEquals(180_000_000L, slowOp.processNanos().min());
+    assertEquals(210_000_000L, slowOp.processNanos().median());
+    assertEquals(4_000_000_000L, slowOp.processNanos().max());
+    assertEquals(List.of("slow"), slowOp.outlierRuns());
+
+    var runs = comparison.getRuns();
+    assertEquals("base", runs.get(0).name());
+    assertFalse(runs.get(0).durationOutlier());
+    assertTrue(runs.get(4).durationOutlier());
+    assertEquals(List.of("01-01"), runs.get(4).outlierOperators());
+    assertThat(new HtmlBatchComparisonReport(comparison).getText())
+        .contains("batchOperatorsTable")
+        .contains("5 runs compared against the baseline base, 1 flagged as outliers");
+  }
+
+  @Test
+  public void testIdenticalRunsHaveNoOutliers() {
+    var flags = BatchComparison.slowOutliers(new long[] {100, 100, 100, 100}, 0);
+    assertThat(flags).containsOnly(false);
+    // too few runs to call anything an outlier
+    assertThat(BatchComparison.slowOutliers(new long[] {1, 1_000_000_000L}, 0)).containsOnly(false);
+  }
+}
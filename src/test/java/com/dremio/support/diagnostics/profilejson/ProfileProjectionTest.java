@@ -0,0 +1,127 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.profilejson;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.dremio.support.diagnostics.profilejson.plan.PlanRelationshipParser;
+import com.dremio.support.diagnostics.profilejson.singlefile.reports.summary.FindingsReport;
+import com.dremio.support.diagnostics.shared.dto.profilejson.OperatorProfile;
+import com.dremio.support.diagnostics.shared.dto.profilejson.ProfileJSON;
+import com.dremio.support.diagnostics.simple.ProfileJSONSimplified;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+
+public class ProfileProjectionTest {
+  private static final Path PROFILE =
+      Path.of("src/test/resources/com/dremio/support/diagnostics/profilejson/profile1.json");
+
+  private static ProfileJSON parse(final ProfileProjection projection) throws IOException {
+    try (InputStream in = Files.newInputStream(PROFILE)) {
+      return new ProfileJSONParser(projection).parseFile(in);
+    }
+  }
+
+  private static ProfileJSON parse(final ProfileProjection projection, final String json)
+      throws IOException {
+    return new ProfileJSONParser(projection)
+        .parseFile(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+  }
+
+  @Test
+  public void testSummaryMatchesFullBind() throws IOException {
+    final ProfileJSON full = parse(ProfileProjection.ALL);
+    final ProfileJSON summary = parse(ProfileProjection.SUMMARY);
+    assertNotNull(full.getPlan());
+    assertNull(summary.getPlan());
+    assertNull(summary.getPlanPhases());
+    assertNull(summary.getOperatorTypeMetricsMap());
+    assertEquals(full.getUser(), summary.getUser());
+    assertEquals(full.getStart(), summary.getStart());
+    assertEquals(full.getEnd(), summary.getEnd());
+    assertEquals(full.getJsonPlan(), summary.getJsonPlan());
+    assertEquals(full.getFragmentProfile().size(), summary.getFragmentProfile().size());
+    final OperatorProfile fullOp =
+        full.getFragmentProfile()
+            .get(0)
+            .getMinorFragmentProfile()
+            .get(0)
+            .getOperatorProfile()
+            .get(0);
+    final OperatorProfile summaryOp =
+        summary
+            .getFragmentProfile()
+            .get(0)
+            .getMinorFragmentProfile()
+            .get(0)
+            .getOperatorProfile()
+            .get(0);
+    assertEquals(fullOp.getProcessNanos(), summaryOp.getProcessNanos());
+    assertEquals(fullOp.getInputProfile().size(), summaryOp.getInputProfile().size());
+    assertNull(summaryOp.getMetric());
+    assertEquals(
+        FindingsReport.searchForFindings(full, new PlanRelationshipParser().getPlanRelations(full)),
+        FindingsReport.searchForFindings(
+            summary, new PlanRelationshipParser().getPlanRelations(summary)));
+    final ProfileJSONSimplified.Summarize summarize = new ProfileJSONSimplified.Summarize();
+    assertEquals(summarize.singleProfile(full), summarize.singleProfile(summary));
+  }
+
+  @Test
+  public void testNestedPathsAndSkippedSubtrees() throws IOException {
+    final String json =
+        """
+        {"plan": "big", "user": "u",
+         "unknownObject": {"a": [1, {"b": 2}]},
+         "fragmentProfile": [
+           {"majorFragmentId": 1, "minorFragmentProfile": [{"minorFragmentId": 3}]},
+           {"majorFragmentId": 2, "extra": {"x": [[]]}}
+         ],
+         "end": 10}
+        """;
+    final ProfileProjection projection =
+        ProfileProjection.builder()
+            .include("fragmentProfile.majorFragmentId", "fragmentProfile.extra", "end")
+            .build();
+    final ProfileJSON profile = parse(projection, json);
+    assertNull(profile.getPlan());
+    assertNull(profile.getUser());
+    assertEquals(10, profile.getEnd());
+    assertEquals(2, profile.getFragmentProfile().size());
+    assertEquals(1, profile.getFragmentProfile().get(0).getMajorFragmentId());
+    assertEquals(2, profile.getFragmentProfile().get(1).getMajorFragmentId());
+    assertNull(profile.getFragmentProfile().get(0).getMinorFragmentProfile());
+  }
+
+  @Test
+  public void testExcludeInsideIncludedSubtree() throws IOException {
+    final String json =
+        """
+        {"user": "u", "state": 2, "dremioVersion": "24"}
+        """;
+    final ProfileProjection projection =
+        ProfileProjection.builder().include("user", "state").exclude("state").build();
+    final ProfileJSON profile = parse(projection, json);
+    assertEquals("u", profile.getUser());
+    assertEquals(0, profile.getState());
+    assertNull(profile.getDremioVersion());
+  }
+}
@@ -0,0 +1,71 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.profilejson;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+public class ReportExecutorTest {
+
+  @Test
+  public void testMapChunksKeepsOrder() {
+    var items = IntStream.range(0, 10_000).boxed().toList();
+    var chunks = ReportExecutor.mapChunks(items, 100, range -> new ArrayList<>(range));
+    assertTrue(chunks.size() > 1);
+    var flattened = new ArrayList<Integer>();
+    chunks.forEach(flattened::addAll);
+    assertEquals(items, flattened);
+  }
+
+  @Test
+  public void testSmallInputsStayOnTheCallingThread() {
+    var caller = Thread.currentThread();
+    var threads = ReportExecutor.mapChunks(List.of(1, 2, 3), 100, range -> Thread.currentThread());
+    assertEquals(List.of(caller), threads);
+  }
+
+  @Test
+  public void testNestedInvokeAllDoesNotStarve() {
+    // more outer tasks than threads, each waiting on inner tasks
+    var outer = new ArrayList<Callable<Integer>>();
+    for (int i = 0; i < ReportExecutor.getParallelism() * 4; i++) {
+      outer.add(
+          () ->
+              ReportExecutor.invokeAll(List.<Callable<Integer>>of(() -> 1, () -> 2)).stream()
+                  .mapToInt(Integer::intValue)
+                  .sum());
+    }
+    var results = ReportExecutor.invokeAll(outer);
+    assertEquals(outer.size() * 3, results.stream().mapToInt(Integer::intValue).sum());
+  }
+
+  @Test
+  public void testFailuresArePropagated() {
+    assertThrows(
+        RuntimeException.class,
+        () ->
+            ReportExecutor.invokeAll(
+                List.<Callable<Integer>>of(
+                    () -> {
+                      throw new IllegalStateException("boom");
+                    })));
+  }
+}
@@ -0,0 +1,218 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.profilejson.compact;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.dremio.support.diagnostics.profilejson.Operator;
+import com.dremio.support.diagnostics.profilejson.ProfileCaches;
+import com.dremio.support.diagnostics.profilejson.ProfileJSONParser;
+import com.dremio.support.diagnostics.profilejson.plan.PlanRelationshipParser;
+import com.dremio.support.diagnostics.profilejson.singlefile.reports.summary.FindingsReport;
+import com.dremio.support.diagnostics.profilejson.singlefile.reports.summary.MemoryUsedPerNode;
+import com.dremio.support.diagnostics.shared.dto.profilejson.ProfileJSON;
+import com.dremio.support.diagnostics.simple.ProfileJSONSimplified;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class CompactProfileTest {
+
+  private static ProfileJSON parse(final String resource, final boolean compact)
+      throws IOException {
+    try (InputStream in =
+        Files.newInputStream(
+            Path.of("src/test/resources/com/dremio/support/diagnostics/profilejson/" + resource))) {
+      return compact
+          ? new CompactProfileParser().parseFile(in)
+          : new ProfileJSONParser().parseFile(in);
+    }
+  }
+
+  private static ProfileJSON parseText(final String json) throws IOException {
+    return new CompactProfileParser()
+        .parseFile(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+  }
+
+  // every column of every row, so two profiles can be compared with one assert
+  private static List<String> rows(final CompactProfile c) {
+    final List<String> rows = new ArrayList<>();
+    for (int p = 0; p < c.phaseCount(); p++) {
+      rows.add(
+          "phase %d %s %d-%d"
+              .formatted(
+                  c.majorFragmentId(p),
+                  c.phaseHasThreads(p),
+                  c.phaseFirstThread(p),
+                  c.phaseEndThread(p)));
+    }
+    for (int t = 0; t < c.threadCount(); t++) {
+      rows.add(
+          "thread %d %d %d %d %d %d %d %d %d %d %f %s %d-%d"
+              .formatted(
+                  c.threadPhase(t),
+                  c.minorFragmentId(t),
+                  c.startTime(t),
+                  c.endTime(t),
+                  c.runDuration(t),
+                  c.blockedDuration(t),
+                  c.blockedOnUpstreamDuration(t),
+                  c.blockedOnDownstreamDuration(t),
+                  c.blockedOnSharedResourceDuration(t),
+                  c.sleepingDuration(t),
+                  c.maxMemoryUsed(t),
+                  c.endpointAddress(t),
+                  c.threadFirstOperator(t),
+                  c.threadEndOperator(t)));
+    }
+    for (int o = 0; o < c.operatorCount(); o++) {
+      final StringBuilder metrics = new StringBuilder();
+      for (int m = c.operatorFirstMetric(o); m < c.operatorEndMetric(o); m++) {
+        metrics.append(c.metricId(m)).append('=').append(c.metricValue(m)).append(' ');
+      }
+      rows.add(
+          "operator %d %d %d %d %d %d %d %s %d %d %d [%s]"
+              .formatted(
+                  c.operatorThread(o),
+                  c.operatorId(o),
+                  c.operatorType(o),
+                  c.setupNanos(o),
+                  c.processNanos(o),
+                  c.waitNanos(o),
+                  c.peakLocalMemoryAllocated(o),
+                  c.hasInputProfile(o),
+                  c.batches(o),
+                  c.records(o),
+                  c.size(o),
+                  metrics));
+    }
+    return rows;
+  }
+
+  @Test
+  public void testStreamingMatchesBeans() throws IOException {
+    assertStreamingMatchesBeans("profile1.json");
+    assertStreamingMatchesBeans("profile2.json");
+  }
+
+  private static void assertStreamingMatchesBeans(final String resource) throws IOException {
+    final ProfileJSON beans = parse(resource, false);
+    final ProfileJSON streamed = parse(resource, true);
+    assertNull(streamed.getFragmentProfile());
+    assertTrue(ProfileCaches.compactProfile(streamed).operatorCount() > 0);
+    assertEquals(
+        rows(ProfileCaches.compactProfile(beans)), rows(ProfileCaches.compactProfile(streamed)));
+    assertEquals(beans.getUser(), streamed.getUser());
+    assertEquals(beans.getJsonPlan(), streamed.getJsonPlan());
+    assertEquals(beans.getStart(), streamed.getStart());
+
+    final ProfileJSONSimplified.Summarize summarize = new ProfileJSONSimplified.Summarize();
+    assertEquals(summarize.singleProfile(beans), summarize.singleProfile(streamed));
+    assertEquals(
+        FindingsReport.searchForFindings(
+            beans, new PlanRelationshipParser().getPlanRelations(beans)),
+        FindingsReport.searchForFindings(
+            streamed, new PlanRelationshipParser().getPlanRelations(streamed)));
+    assertEquals(
+        MemoryUsedPerNode.generateMemoryByPhaseReport(beans).toString(),
+        MemoryUsedPerNode.generateMemoryByPhaseReport(streamed).toString());
+    final CompactProfile compact = ProfileCaches.compactProfile(streamed);
+    final Operator operator =
+        Operator.createFromCompact(
+            compact, 0, streamed.getOperatorTypeMetricsMap().getMetricsDef());
+    final Operator fromBeans =
+        Operator.createFromOperatorProfile(
+            beans
+                .getFragmentProfile()
+                .get(0)
+                .getMinorFragmentProfile()
+                .get(0)
+                .getOperatorProfile()
+                .get(0),
+            beans.getOperatorTypeMetricsMap().getMetricsDef());
+    fromBeans.setParentPhaseId(beans.getFragmentProfile().get(0).getMajorFragmentId());
+    fromBeans.setThreadId(
+        beans.getFragmentProfile().get(0).getMinorFragmentProfile().get(0).getMinorFragmentId());
+    assertEquals(fromBeans, operator);
+  }
+
+  @Test
+  public void testBlockedDurationsAreFolded() throws IOException {
+    final CompactProfile compact =
+        ProfileCaches.compactProfile(
+            parseText(
+                """
+                {"fragmentProfile": [{"minorFragmentProfile": [{
+                  "blockedOnUpstreamDuration": 1,
+                  "blockedOnDownstreamDuration": 2,
+                  "blockedOnSharedResourceDuration": 100,
+                  "perResourceBlockedDuration": [
+                    {"category": 0, "duration": 10, "resource": "a"},
+                    {"category": 1, "duration": 20},
+                    {"category": 2, "duration": 30},
+                    {"category": 3, "duration": 40}
+                  ]}], "majorFragmentId": 4}]}
+                """));
+    assertEquals(1, compact.threadCount());
+    assertEquals(4, compact.threadMajorFragmentId(0));
+    assertEquals(11, compact.blockedOnUpstreamDuration(0));
+    assertEquals(22, compact.blockedOnDownstreamDuration(0));
+    assertEquals(70, compact.blockedOnSharedResourceDuration(0));
+  }
+
+  @Test
+  public void testNullsAndMissingLists() throws IOException {
+    final ProfileJSON profile =
+        parseText(
+            """
+            {"user": "u", "fragmentProfile": [
+              null,
+              {"majorFragmentId": 1},
+              {"majorFragmentId": 2, "minorFragmentProfile": [
+                null,
+                {"minorFragmentId": 7, "endpoint": {"address": "host1"}, "operatorProfile": [
+                  {"operatorId": 3, "processNanos": 5},
+                  null,
+                  {"operatorId": 4, "inputProfile": [{"records": 2}, {"records": 3, "batches": 1}]}
+                ]},
+                {"minorFragmentId": 8}
+              ]}
+            ]}
+            """);
+    final CompactProfile compact = ProfileCaches.compactProfile(profile);
+    assertEquals("u", profile.getUser());
+    assertEquals(2, compact.phaseCount());
+    assertFalse(compact.phaseHasThreads(0));
+    assertTrue(compact.phaseHasThreads(1));
+    assertEquals(2, compact.threadCount());
+    assertEquals("host1", compact.endpointAddress(0));
+    assertFalse(compact.hasEndpoint(1));
+    assertEquals(2, compact.operatorCount());
+    assertEquals(0, compact.threadFirstOperator(1) - compact.threadEndOperator(1));
+    assertFalse(compact.hasInputProfile(0));
+    assertTrue(compact.hasInputProfile(1));
+    assertEquals(5, compact.records(1));
+    assertEquals(1, compact.batches(1));
+    assertEquals(7, compact.minorFragmentId(compact.operatorThread(1)));
+  }
+}
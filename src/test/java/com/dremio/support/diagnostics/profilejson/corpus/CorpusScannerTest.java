@@ -0,0 +1,126 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.profilejson.corpus;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class CorpusScannerTest {
+  private static final Path PROFILE1 =
+      Path.of("src/test/resources/com/dremio/support/diagnostics/profilejson/profile1.json");
+  private static final Path PROFILE2 =
+      Path.of("src/test/resources/com/dremio/support/diagnostics/profilejson/profile2.json");
+  private static final Path ZIPPED = Path.of("src/test/resources/testprofile.zip");
+
+  @TempDir Path dir;
+
+  private static void writeTgz(final Path tgz, final Map<String, Path> entries) throws Exception {
+    try (OutputStream out = Files.newOutputStream(tgz);
+        TarArchiveOutputStream tar =
+            new TarArchiveOutputStream(new GzipCompressorOutputStream(out))) {
+      for (final Map.Entry<String, Path> e : entries.entrySet()) {
+        final TarArchiveEntry entry = new TarArchiveEntry(e.getKey());
+        entry.setSize(Files.size(e.getValue()));
+        tar.putArchiveEntry(entry);
+        Files.copy(e.getValue(), tar);
+        tar.closeArchiveEntry();
+      }
+    }
+  }
+
+  @Test
+  public void testScansDirectoriesZipsAndTarballs() throws Exception {
+    Files.copy(PROFILE1, dir.resolve("a.json"));
+    Files.createDirectories(dir.resolve("nested"));
+    Files.copy(ZIPPED, dir.resolve("nested/b.zip"));
+    Files.writeString(dir.resolve("broken.json"), "{ not json");
+    Files.writeString(dir.resolve("notes.txt"), "ignored");
+    writeTgz(dir.resolve("more.tgz"), Map.of("c/profile1.json", PROFILE1, "d.json", PROFILE2));
+
+    final FleetSummary summary = new FleetSummary();
+    final List<ProfileFact> facts = Collections.synchronizedList(new ArrayList<>());
+    final long read = new CorpusScanner(summary.andThen(facts::add), summary::addFailure).scan(dir);
+
+    assertEquals(5, read);
+    assertEquals(4, summary.getProfiles());
+    assertEquals(1, summary.getFailureCount());
+    assertThat(summary.getFailures().get(0)).contains("broken.json");
+    assertEquals(4, facts.size());
+    assertEquals(4, summary.getByState().values().stream().mapToLong(Long::longValue).sum());
+    assertEquals(4, summary.getSlowest().size());
+    // slowest first
+    for (int i = 1; i < summary.getSlowest().size(); i++) {
+      assertTrue(
+          summary.getSlowest().get(i - 1).durationMillis()
+              >= summary.getSlowest().get(i).durationMillis());
+    }
+    assertThat(facts).anyMatch(f -> f.name().contains("more.tgz"));
+    assertThat(new HtmlFleetReport(summary).getText()).contains("fleetSlowestTable");
+  }
+
+  @Test
+  public void testFindingKindMasksDetails() {
+    assertEquals(
+        "phase # took #% of the time",
+        ProfileFact.findingKind("phase 02 took 93.5% of the time: see operator 02-00-01"));
+    assertEquals("x".repeat(80), ProfileFact.findingKind("x".repeat(200)));
+  }
+
+  @Test
+  public void testNodeSkew() {
+    assertEquals(1.0, ProfileFact.nodeSkew(List.of(10L)));
+    assertEquals(1.0, ProfileFact.nodeSkew(List.of(10L, 10L)));
+    assertEquals(1.5, ProfileFact.nodeSkew(List.of(30L, 10L)));
+  }
+
+  @Test
+  public void testCsvWritesHeaderAndEscapes() throws Exception {
+    final StringWriter out = new StringWriter();
+    try (FactCsvWriter csv = new FactCsvWriter(out)) {
+      csv.accept(
+          new ProfileFact(
+              "a,b.json",
+              "user",
+              "COMPLETED",
+              "24.0",
+              1,
+              2,
+              3,
+              4,
+              "PROJECT",
+              5,
+              6,
+              1.0,
+              List.of("x")));
+    }
+    final String[] lines = out.toString().split("\n");
+    assertEquals(String.join(",", FactCsvWriter.HEADER), lines[0]);
+    assertThat(lines[1]).startsWith("\"a,b.json\",user,COMPLETED");
+  }
+}
@@ -0,0 +1,99 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.profilejson.plan;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.dremio.support.diagnostics.FileTestHelpers;
+import com.dremio.support.diagnostics.profilejson.ProfileCaches;
+import com.dremio.support.diagnostics.profilejson.ProfileJSONParser;
+import com.dremio.support.diagnostics.shared.dto.profilejson.ProfileJSON;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+public class DecodedPlanTest {
+
+  @Test
+  public void testMatchesTheRewrittenStringDecode() throws Exception {
+    ProfileJSON profile =
+        new ProfileJSONParser().parseFile(FileTestHelpers.getTestProfile1().stream());
+    String jsonPlan = profile.getJsonPlan();
+    var mapper = new ObjectMapper();
+
+    // how the relationship parser used to decode the plan
+    Map<String, PlanNode> expectedNodes =
+        mapper.readValue(
+            jsonPlan.replaceAll("\\n", "\n").replace("\\\"", ""),
+            new TypeReference<Map<String, PlanNode>>() {});
+    // how the difference report used to decode the plan
+    Map<String, Object> expectedRaw =
+        mapper.readValue(
+            jsonPlan
+                .replace("\r", "")
+                .replace("\\r", "")
+                .replace("\\\\n", "")
+                .replace("\\n", "")
+                .replace("\\\\\\\"", "\\\""),
+            new TypeReference<Map<String, Object>>() {});
+
+    DecodedPlan decoded = ProfileCaches.decodedPlan(profile);
+    assertSame(decoded, ProfileCaches.decodedPlan(profile));
+    assertEquals(expectedRaw, decoded.getRawNodes());
+    assertEquals(List.copyOf(expectedNodes.keySet()), List.copyOf(decoded.getNodes().keySet()));
+    for (var entry : expectedNodes.entrySet()) {
+      PlanNode expected = entry.getValue();
+      PlanNode actual = decoded.getNodes().get(entry.getKey());
+      assertEquals(expected.getOp(), actual.getOp());
+      assertEquals(expected.getValues(), actual.getValues());
+      assertEquals(expected.getInputs(), actual.getInputs());
+      assertEquals(expected.getRowCount(), actual.getRowCount());
+      assertEquals(expected.getRowType(), actual.getRowType());
+      assertEquals(expected.getCumulativeCost(), actual.getCumulativeCost());
+    }
+  }
+
+  @Test
+  public void testNewerPlansAreUnescaped() {
+    String jsonPlan =
+        "{\"00-01\": {\"op\": \"FilterPrel\", \"values\": {\"condition\":"
+            + " \"=(\\\\\\\"a\\\\\\\",\\\\n 1)\"}, \"inputs\": [\"00-02\"], \"rowCount\": 2,"
+            + " \"cumulativeCost\": \"{tiny}\"}}";
+    DecodedPlan decoded = DecodedPlan.parse(jsonPlan);
+    Map<?, ?> raw = (Map<?, ?>) decoded.getRawNodes().get("00-01");
+    assertEquals("=(\"a\", 1)", ((Map<?, ?>) raw.get("values")).get("condition"));
+    PlanNode node = decoded.getNodes().get("00-01");
+    assertEquals("=(\\a\\,\\n 1)", node.getValues().get("condition"));
+    assertEquals(List.of("00-02"), node.getInputs());
+    assertEquals(2.0, node.getRowCount());
+  }
+
+  @Test
+  public void testMissingAndInvalidPlans() {
+    assertTrue(DecodedPlan.parse(null).getNodes().isEmpty());
+    assertTrue(ProfileCaches.decodedPlan(new ProfileJSON()).getRawNodes().isEmpty());
+    final ProfileJSON profile = new ProfileJSON();
+    final DecodedPlan empty = ProfileCaches.decodedPlan(profile);
+    profile.setJsonPlan("{}");
+    assertNotSame(empty, ProfileCaches.decodedPlan(profile));
+    assertThrows(UncheckedIOException.class, () -> DecodedPlan.parse("{\"00-00\": {"));
+  }
+}
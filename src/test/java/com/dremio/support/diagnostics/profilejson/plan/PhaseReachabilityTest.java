@@ -0,0 +1,87 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.profilejson.plan;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+public class PhaseReachabilityTest {
+
+  private static PlanRelation relation(String name) {
+    return new PlanRelation(
+        name,
+        "op",
+        new HashMap<>(),
+        new ArrayList<>(),
+        new ArrayList<>(),
+        0,
+        new CumulativeCost(0d, 0d, 0d, 0d, 0d));
+  }
+
+  // input feeds output
+  private static void link(PlanRelation input, PlanRelation output) {
+    output.getUpstream().add(input);
+    input.getDownstream().add(output);
+  }
+
+  @Test
+  public void testPhasesAreTransitive() {
+    var scan = relation("03-01");
+    var exchange = relation("02-00");
+    var join = relation("01-02");
+    var screen = relation("00-00");
+    link(scan, exchange);
+    link(exchange, join);
+    link(join, screen);
+    var index = new PhaseReachability(List.of(screen, join, exchange, scan));
+    assertEquals(List.of("02", "03"), index.getUpstreamPhases("01-02"));
+    assertEquals(List.of("00"), index.getDownstreamPhases("01-02"));
+    assertEquals(List.of("00", "01", "02"), index.getDownstreamPhases("03-01"));
+    assertTrue(index.isUpstream("00-00", "03"));
+    assertFalse(index.isDownstream("00-00", "03"));
+    assertEquals(List.of(), index.getUpstreamPhases("99-99"));
+  }
+
+  @Test
+  @Timeout(5)
+  public void testStackedDiamondsAreNotWalkedPerPath() {
+    // 40 diamonds on top of each other have 2^40 paths from bottom to top
+    List<PlanRelation> relations = new ArrayList<>();
+    var bottom = relation("80-00");
+    relations.add(bottom);
+    for (int i = 79; i > 0; i -= 2) {
+      var left = relation("%02d-01".formatted(i));
+      var right = relation("%02d-02".formatted(i));
+      var top = relation("%02d-00".formatted(i - 1));
+      link(bottom, left);
+      link(bottom, right);
+      link(left, top);
+      link(right, top);
+      relations.add(left);
+      relations.add(right);
+      relations.add(top);
+      bottom = top;
+    }
+    var index = new PhaseReachability(relations);
+    assertEquals(80, index.getUpstreamPhases("00-00").size());
+    assertEquals(80, index.getDownstreamPhases("80-00").size());
+  }
+}
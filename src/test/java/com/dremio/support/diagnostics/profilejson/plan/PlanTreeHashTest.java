@@ -0,0 +1,91 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.profilejson.plan;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+public class PlanTreeHashTest {
+
+  private static String node(String id, String op, String... inputs) {
+    var quoted = new ArrayList<String>();
+    for (String input : inputs) {
+      quoted.add("\"" + input + "\"");
+    }
+    return "\"%s\": {\"op\": \"%s\", \"values\": {}, \"inputs\": [%s], \"rowCount\": 1.0}"
+        .formatted(id, op, String.join(", ", quoted));
+  }
+
+  private static PlanTreeHash plan(String... nodes) {
+    return new PlanTreeHash(DecodedPlan.parse("{" + String.join(", ", nodes) + "}"));
+  }
+
+  @Test
+  public void testOnlyChangedNodesAreReported() {
+    var a =
+        plan(
+            node("00-00", "Screen", "00-01"),
+            node("00-01", "Join", "00-02", "01-00"),
+            node("00-02", "Scan"),
+            node("01-00", "Filter", "01-01"),
+            node("01-01", "Scan"));
+    var b =
+        plan(
+            node("00-00", "Screen", "00-01"),
+            node("00-01", "Join", "00-02", "01-00"),
+            node("00-02", "Scan"),
+            node("01-00", "Filter", "01-01"),
+            node("01-01", "TableScan"),
+            node("02-00", "Orphan"));
+    assertEquals(Set.of("01-01", "02-00"), PlanTreeHash.changedNodes(a, b));
+    assertEquals(Set.of(), PlanTreeHash.changedNodes(a, a));
+  }
+
+  @Test
+  public void testPlanKeysSortNumerically() {
+    var keys = new ArrayList<PlanKey>();
+    for (String key : List.of("\"10-01\"", "02-10", "02-02", "abc", "00-00")) {
+      keys.add(PlanKey.parse(key));
+    }
+    Collections.sort(keys);
+    assertEquals(
+        List.of("00-00", "02-02", "02-10", "10-01", "abc"),
+        keys.stream().map(PlanKey::id).toList());
+  }
+
+  @Test
+  @Timeout(10)
+  public void testLargePlansCompareQuickly() {
+    var a = new ArrayList<String>();
+    var b = new ArrayList<String>();
+    for (int i = 0; i < 5000; i++) {
+      var id = "%02d-%02d".formatted(i / 100, i % 100);
+      var input =
+          i + 1 < 5000
+              ? new String[] {"%02d-%02d".formatted((i + 1) / 100, (i + 1) % 100)}
+              : new String[0];
+      a.add(node(id, "Op" + i, input));
+      b.add(node(id, i == 4000 ? "Changed" : "Op" + i, input));
+    }
+    var changed =
+        PlanTreeHash.changedNodes(plan(a.toArray(new String[0])), plan(b.toArray(new String[0])));
+    assertEquals(Set.of("40-00"), changed);
+  }
+}
@@ -0,0 +1,64 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.queriesjson;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class QueriesJsonFilesTest {
+
+  @TempDir Path dir;
+
+  private Path write(final String name, final int bytes) throws IOException {
+    final Path path = dir.resolve(name);
+    Files.createDirectories(path.getParent());
+    Files.write(path, new byte[bytes]);
+    return path;
+  }
+
+  @Test
+  void findsQueriesFilesInNestedDirectoriesLargestFirst() throws IOException {
+    final Path small = write("node1/2024-01-01/queries.json", 10);
+    final Path big = write("node2/2024-01-01/queries.2024-01-01.0.json.gz", 300);
+    final Path medium = write("node2/2024-01-02/queries.json.bzip2", 100);
+    write("node1/2024-01-01/server.log", 1000);
+    write("node1/queries.tar.gz", 1000);
+
+    assertThat(QueriesJsonFiles.isMultiFile(dir.toString())).isTrue();
+    assertThat(QueriesJsonFiles.find(dir.toString())).containsExactly(big, medium, small);
+  }
+
+  @Test
+  void expandsGlobsAndListsOnce() throws IOException {
+    final Path a = write("node1/queries.json.gz", 20);
+    final Path b = write("node2/queries.json.gz", 30);
+    final Path c = write("node2/queries.json", 10);
+    final Path other = write("other.json", 5);
+
+    final String input = dir.resolve("*/queries*.gz") + "," + b + ", " + other;
+    assertThat(QueriesJsonFiles.isMultiFile(input)).isTrue();
+    assertThat(QueriesJsonFiles.find(input)).containsExactly(b, a, other).doesNotContain(c);
+  }
+
+  @Test
+  void singleFileIsNotMultiFile() throws IOException {
+    final Path single = write("queries.json", 10);
+    assertThat(QueriesJsonFiles.isMultiFile(single.toString())).isFalse();
+  }
+}
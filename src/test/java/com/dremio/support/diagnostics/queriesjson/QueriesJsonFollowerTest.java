@@ -0,0 +1,102 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.queriesjson;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.dremio.support.diagnostics.queriesjson.filters.DateRangeQueryFilter;
+import com.dremio.support.diagnostics.queriesjson.reporters.TotalQueriesReporter;
+import com.dremio.support.diagnostics.shared.JobMetrics;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class QueriesJsonFollowerTest {
+
+  @TempDir Path dir;
+  private Path file;
+  private TotalQueriesReporter total;
+  private QueriesJsonFollower follower;
+
+  @BeforeEach
+  void setup() {
+    file = dir.resolve("queries.json");
+    total = new TotalQueriesReporter();
+    follower =
+        new QueriesJsonFollower(
+            file,
+            List.of(total),
+            new DateRangeQueryFilter(0, Long.MAX_VALUE),
+            new JobMetrics("queries-json"),
+            new QueryDictionaries());
+  }
+
+  @AfterEach
+  void close() throws IOException {
+    follower.close();
+  }
+
+  private static String row(final int id) {
+    return "{\"queryId\":\"%d\",\"queryText\":\"SELECT %d\",\"start\":1000,\"finish\":2000,\"outcome\":\"COMPLETED\"}"
+        .formatted(id, id);
+  }
+
+  private void append(final String text) throws IOException {
+    Files.writeString(
+        file, text, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+  }
+
+  @Test
+  void waitsForTheFileAndPartialLines() throws IOException {
+    assertThat(follower.poll()).isZero();
+    append(row(1) + "\n" + row(2) + "\n" + row(3).substring(0, 20));
+    assertThat(follower.poll()).isEqualTo(2);
+    assertThat(follower.poll()).isZero();
+    append(row(3).substring(20) + "\n");
+    assertThat(follower.poll()).isEqualTo(1);
+    assertThat(total.getCount()).isEqualTo(3);
+    assertThat(follower.getSearchedFile().parsed()).isEqualTo(3);
+  }
+
+  @Test
+  void readsTheRestOfARotatedFile() throws IOException {
+    append(row(1) + "\n");
+    assertThat(follower.poll()).isEqualTo(1);
+    // written after the last poll and then rotated away, the last line never got its newline
+    append(row(2) + "\n" + row(3));
+    Files.move(file, dir.resolve("queries.2024-01-01.0.json"));
+    append(row(4) + "\n");
+    assertThat(follower.poll()).isEqualTo(3);
+    assertThat(follower.getRotations()).isEqualTo(1);
+    append(row(5) + "\n");
+    assertThat(follower.poll()).isEqualTo(1);
+    assertThat(total.getCount()).isEqualTo(5);
+  }
+
+  @Test
+  void startsOverWhenTruncated() throws IOException {
+    append(row(1) + "\n" + row(2) + "\n");
+    assertThat(follower.poll()).isEqualTo(2);
+    Files.writeString(file, row(3) + "\n", StandardOpenOption.TRUNCATE_EXISTING);
+    assertThat(follower.poll()).isEqualTo(1);
+    assertThat(total.getCount()).isEqualTo(3);
+  }
+}
@@ -0,0 +1,57 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.queriesjson;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class QueryFingerprintTest {
+
+  private static String shape(final String sql) {
+    return QueryFingerprint.normalize(sql, 1000);
+  }
+
+  @Test
+  void stripsLiteralsWhitespaceAndCase() {
+    assertThat(shape("SELECT  *\n FROM t WHERE id = 42 AND name = 'it''s'"))
+        .isEqualTo("select * from t where id = ? and name = ?");
+    assertThat(shape("select a.b, -1.5e-3 from \"Space\".\"MyTable\" where x<=.5"))
+        .isEqualTo("select a.b, - ? from \"Space\".\"MyTable\" where x <= ?");
+  }
+
+  @Test
+  void collapsesListsAndDropsComments() {
+    assertThat(shape("select * from t where id in (1, 2,3) -- three ids\n and y in ('a')"))
+        .isEqualTo("select * from t where id in (?) and y in (?)");
+    assertThat(shape("/* dashboard 7 */ select f(1, x, 2, 3) from t"))
+        .isEqualTo("select f(?, x, ?) from t");
+  }
+
+  @Test
+  void sameShapeSameHash() {
+    final long a = QueryFingerprint.hash("select * from t where id in (1, 2, 3)");
+    final long b = QueryFingerprint.hash("SELECT *\tFROM T WHERE ID IN (7)");
+    final long c = QueryFingerprint.hash("select * from t where name in (7)");
+    assertThat(a).isEqualTo(b).isNotEqualTo(c);
+    assertThat(QueryFingerprint.hash("select * from t where id in (1, 2, 3)"))
+        .isEqualTo(QueryFingerprint.hash(shape("select * from t where id in (1, 2, 3)")));
+  }
+
+  @Test
+  void cutsLongShapes() {
+    assertThat(shape("select aaaa, bbbb from t")).hasSize(24);
+    assertThat(QueryFingerprint.normalize("select aaaa, bbbb from t", 10)).isEqualTo("select aaa");
+  }
+}
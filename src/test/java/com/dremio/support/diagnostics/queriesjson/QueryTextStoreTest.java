@@ -0,0 +1,135 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.queriesjson;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.dremio.support.diagnostics.queriesjson.filters.DateRangeQueryFilter;
+import com.dremio.support.diagnostics.queriesjson.reporters.MaxCPUQueriesReporter;
+import com.dremio.support.diagnostics.queriesjson.reporters.QueryReporter;
+import com.dremio.support.diagnostics.queriesjson.reporters.QueryShapesReporter;
+import com.dremio.support.diagnostics.queriesjson.reporters.QueryShapesReporter.Rank;
+import com.dremio.support.diagnostics.shared.JobMetrics;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.Test;
+
+public class QueryTextStoreTest {
+
+  @Test
+  public void testByteLineReaderOffsets() throws Exception {
+    var longLine = "x".repeat(200_000);
+    var text = "a\r\n" + longLine + "\nlast";
+    var reader =
+        new ByteLineReader(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)));
+    List<String> lines = new ArrayList<>();
+    List<Long> offsets = new ArrayList<>();
+    while (reader.next()) {
+      lines.add(
+          new String(
+              reader.buffer(), reader.lineStart(), reader.lineLength(), StandardCharsets.UTF_8));
+      offsets.add(reader.lineOffset());
+    }
+    assertEquals(List.of("a", longLine, "last"), lines);
+    assertEquals(List.of(0L, 3L, 200_004L), offsets);
+  }
+
+  @Test
+  public void testLazyTextIsLoadedFromSpool() throws Exception {
+    var reporter = new MaxCPUQueriesReporter(3);
+    var reporters = new ArrayList<QueryReporter>();
+    reporters.add(reporter);
+    var eager = new MaxCPUQueriesReporter(3);
+    try (InputStream is =
+            new GZIPInputStream(Files.newInputStream(Path.of(resource("/queries.json.gz"))));
+        var store = QueryTextStore.lazy()) {
+      QueriesJsonFileParser.parseFile(
+          "queries.json.gz",
+          is,
+          reporters,
+          new DateRangeQueryFilter(0, Long.MAX_VALUE),
+          new JobMetrics("test"),
+          new QueryDictionaries(),
+          store.openSource(null));
+      try (InputStream eagerIs =
+          new GZIPInputStream(Files.newInputStream(Path.of(resource("/queries.json.gz"))))) {
+        QueriesJsonFileParser.parseFile(
+            "queries.json.gz",
+            eagerIs,
+            List.of(eager),
+            new DateRangeQueryFilter(0, Long.MAX_VALUE));
+      }
+      assertFalse(reporter.getQueries().isEmpty());
+      for (int i = 0; i < reporter.getQueries().size(); i++) {
+        var lazyQuery = reporter.getQueries().get(i);
+        assertNotNull(lazyQuery.getQueryTextRef());
+        assertEquals(eager.getQueries().get(i).getQueryText(), lazyQuery.getQueryText());
+      }
+    }
+  }
+
+  @Test
+  public void testLazyTextStillFeedsQueryShapes() throws Exception {
+    var lazy = new QueryShapesReporter();
+    var eager = new QueryShapesReporter();
+    try (InputStream is =
+            new GZIPInputStream(Files.newInputStream(Path.of(resource("/queries.json.gz"))));
+        var store = QueryTextStore.lazy()) {
+      QueriesJsonFileParser.parseFile(
+          "queries.json.gz",
+          is,
+          List.of(lazy),
+          new DateRangeQueryFilter(0, Long.MAX_VALUE),
+          new JobMetrics("test"),
+          new QueryDictionaries(),
+          store.openSource(null));
+    }
+    try (InputStream is =
+        new GZIPInputStream(Files.newInputStream(Path.of(resource("/queries.json.gz"))))) {
+      QueriesJsonFileParser.parseFile(
+          "queries.json.gz", is, List.of(eager), new DateRangeQueryFilter(0, Long.MAX_VALUE));
+    }
+    var lazyShapes = lazy.getTopShapes(10).get(Rank.COUNT);
+    var eagerShapes = eager.getTopShapes(10).get(Rank.COUNT);
+    assertFalse(lazyShapes.isEmpty());
+    assertEquals(
+        eagerShapes.stream().map(s -> s.getShape() + "=" + s.getCount()).toList(),
+        lazyShapes.stream().map(s -> s.getShape() + "=" + s.getCount()).toList());
+  }
+
+  @Test
+  public void testPrefixScan() {
+    var row = "{\"queryId\":\"1\",\"queryText\": \"CREATE TABLE \\\"a\\\" AS SELECT 1\"}";
+    var bytes = row.getBytes(StandardCharsets.UTF_8);
+    var prefix = QueryTextRef.scanPrefix(bytes, 0, bytes.length);
+    assertEquals("CREATE TABLE ", prefix);
+    var q = new Query();
+    q.setQueryTextRef(new QueryTextRef(null, 0, 0, prefix));
+    assertTrue(q.queryTextStartsWith("CREATE"));
+    assertFalse(q.queryTextStartsWith("DROP"));
+  }
+
+  private static String resource(String name) {
+    return QueryTextStoreTest.class.getResource(name).getFile();
+  }
+}
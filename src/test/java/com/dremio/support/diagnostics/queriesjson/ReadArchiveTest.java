@@ -18,10 +18,17 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import com.dremio.support.diagnostics.queriesjson.filters.DateRangeQueryFilter;
 import com.dremio.support.diagnostics.queriesjson.reporters.QueryReporter;
 import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 public class ReadArchiveTest {
 
@@ -49,4 +56,35 @@ public class ReadArchiveTest {
     readArchive.readTarGz(file.getFile(), reporters, 2);
     assertEquals(11, counter.getCount());
   }
+
+  @Test
+  public void testReadFilesFromADirectory(@TempDir Path dir)
+      throws IOException, InterruptedException, ExecutionException, URISyntaxException {
+    final AtomicLong expected = new AtomicLong();
+    final List<QueryReporter> single = List.of(q -> expected.incrementAndGet());
+    final ReadArchive readArchive = new ReadArchive(new DateRangeQueryFilter(0, Long.MAX_VALUE));
+    for (String name :
+        List.of("queries.json", "queries.2022-12-01.json.gz", "queries.2022-12-02.json.gz")) {
+      final Path source = Paths.get(ReadArchiveTest.class.getResource("/" + name).toURI());
+      final Path copy = dir.resolve(name.replace(".json", "") + "/" + name);
+      Files.createDirectories(copy.getParent());
+      Files.copy(source, copy);
+      if (name.endsWith(".gz")) {
+        readArchive.parseGzip(name, source, single);
+      } else {
+        try (var is = Files.newInputStream(source)) {
+          QueriesJsonFileParser.parseFile(
+              name, is, single, new DateRangeQueryFilter(0, Long.MAX_VALUE));
+        }
+      }
+    }
+
+    final AtomicLong count = new AtomicLong();
+    final var searched =
+        readArchive.readFiles(
+            QueriesJsonFiles.find(dir.toString()), List.of(q -> count.incrementAndGet()), 2);
+    assertEquals(3, searched.size());
+    assertEquals(expected.get(), count.get());
+    assertEquals(expected.get(), searched.stream().mapToLong(SearchedFile::parsed).sum());
+  }
 }
@@ -0,0 +1,96 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.queriesjson;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import com.dremio.support.diagnostics.queriesjson.reporters.RequestsByQueueReporter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+
+public class StringDictionaryTest {
+
+  @Test
+  public void testCodesAreStable() {
+    var dictionary = new StringDictionary();
+    int a = dictionary.code("a");
+    int b = dictionary.code("b");
+    assertEquals(a, dictionary.code(new String("a")));
+    assertEquals("b", dictionary.value(b));
+    assertEquals(StringDictionary.NULL_CODE, dictionary.code(null));
+    assertNull(dictionary.value(StringDictionary.NULL_CODE));
+    assertEquals(3, dictionary.size());
+  }
+
+  @Test
+  public void testInternReturnsCanonicalInstance() {
+    var dictionary = new StringDictionary();
+    var first = dictionary.intern(new String("queue"));
+    assertSame(first, dictionary.intern(new String("queue")));
+  }
+
+  @Test
+  public void testConcurrentCodesAreDense() throws Exception {
+    var dictionary = new StringDictionary();
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 4; t++) {
+        futures.add(
+            executor.submit(
+                () -> {
+                  for (int i = 0; i < 1000; i++) {
+                    dictionary.code("value" + (i % 100));
+                  }
+                }));
+      }
+      for (Future<?> f : futures) {
+        f.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+    // 100 values plus the null code
+    assertEquals(101, dictionary.size());
+    for (int i = 0; i < 100; i++) {
+      var value = "value" + i;
+      assertEquals(value, dictionary.value(dictionary.code(value)));
+    }
+  }
+
+  @Test
+  public void testReporterResolvesEncodedQueues() {
+    var dictionaries = new QueryDictionaries();
+    var reporter = new RequestsByQueueReporter(dictionaries);
+    var q1 = new Query();
+    q1.setQueueName("High Cost");
+    dictionaries.encode(q1);
+    var q2 = new Query();
+    dictionaries.encode(q2);
+    var notEncoded = new Query();
+    notEncoded.setQueueName("High Cost");
+    reporter.parseRow(q1);
+    reporter.parseRow(q2);
+    reporter.parseRow(notEncoded);
+    var counts = reporter.getRequestsByQueue();
+    assertEquals(2L, counts.get("High Cost"));
+    assertEquals(1L, counts.get("Default"));
+  }
+}
@@ -0,0 +1,67 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.queriesjson.filters;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.dremio.support.diagnostics.queriesjson.Query;
+import java.io.IOException;
+import org.junit.jupiter.api.Test;
+
+class DuplicateQueryFilterTest {
+
+  private static Query query(final String id) {
+    final Query q = new Query();
+    q.setQueryId(id);
+    return q;
+  }
+
+  @Test
+  void dropsRepeatedQueryIds() throws IOException {
+    try (DuplicateQueryFilter filter = new DuplicateQueryFilter(1024 * 1024)) {
+      assertThat(filter.isValid(query("1b5e1d23-8d2a-6c6f-1e4c-9f5b2c6a2d00"))).isTrue();
+      assertThat(filter.isValid(query("1b5e1d23-8d2a-6c6f-1e4c-9f5b2c6a2d01"))).isTrue();
+      assertThat(filter.isValid(query("1b5e1d23-8d2a-6c6f-1e4c-9f5b2c6a2d00"))).isFalse();
+      assertThat(filter.isValid(query("not-a-dremio-id"))).isTrue();
+      assertThat(filter.isValid(query("not-a-dremio-id"))).isFalse();
+      // rows without an id can't be compared so they are all kept
+      assertThat(filter.isValid(query(null))).isTrue();
+      assertThat(filter.isValid(query(""))).isTrue();
+      assertThat(filter.isValid(query(""))).isTrue();
+      assertThat(filter.getDuplicates()).isEqualTo(2);
+    }
+  }
+
+  @Test
+  void spillsPastTheBudget() throws IOException {
+    try (DuplicateQueryFilter filter = new DuplicateQueryFilter(0)) {
+      for (int i = 0; i < 2000; i++) {
+        assertThat(filter.isValid(query("1b5e1d23-8d2a-6c6f-1e4c-%012x".formatted(i)))).isTrue();
+      }
+      for (int i = 0; i < 2000; i++) {
+        assertThat(filter.isValid(query("1b5e1d23-8d2a-6c6f-1e4c-%012x".formatted(i)))).isFalse();
+      }
+      assertThat(filter.getSpilled()).isPositive();
+      assertThat(filter.getDuplicates()).isEqualTo(2000);
+    }
+  }
+
+  @Test
+  void recognizesDremioIds() {
+    assertThat(DuplicateQueryFilter.isHexId("1b5e1d23-8d2a-6c6f-1e4c-9f5b2c6a2d00")).isTrue();
+    assertThat(DuplicateQueryFilter.isHexId("1b5e1d23-8d2a-6c6f-1e4c-9f5b2c6a2d0g")).isFalse();
+    assertThat(DuplicateQueryFilter.isHexId("1b5e1d2338d2a-6c6f-1e4c-9f5b2c6a2d00")).isFalse();
+    assertThat(DuplicateQueryFilter.isHexId("short")).isFalse();
+  }
+}
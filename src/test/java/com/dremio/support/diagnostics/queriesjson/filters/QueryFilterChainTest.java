@@ -0,0 +1,108 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.queriesjson.filters;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.dremio.support.diagnostics.queriesjson.QueriesJsonFileParser;
+import com.dremio.support.diagnostics.queriesjson.Query;
+import com.dremio.support.diagnostics.queriesjson.reporters.TotalQueriesReporter;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+public class QueryFilterChainTest {
+
+  @Test
+  public void testAllFiltersMustPass() {
+    var q = new Query();
+    q.setStart(1000);
+    q.setFinish(3000);
+    q.setUsername("Dremio");
+    q.setOutcome("FAILED");
+    q.setQueryText("select *\nfrom t");
+    var filter =
+        new QueryFilterChain(new DateRangeQueryFilter(0, 2000))
+            .and(new MinDurationQueryFilter(2000))
+            .and(ValueQueryFilter.users(List.of("dremio")))
+            .and(ValueQueryFilter.outcomes(List.of("failed", "canceled")))
+            .and(new QueryTextRegexFilter("^SELECT.*FROM T$"));
+    assertTrue(filter.isValid(q));
+    assertTrue(filter.usesStartFinish());
+    assertTrue(filter.usesQueryText());
+    q.setFinish(2500);
+    assertFalse(filter.isValid(q));
+    assertFalse(filter.isValidStartFinish(1000, 2500));
+    q.setFinish(3000);
+    q.setOutcome("COMPLETED");
+    assertFalse(filter.isValid(q));
+  }
+
+  @Test
+  public void testMissingValueMatchesEmpty() {
+    var q = new Query();
+    assertTrue(ValueQueryFilter.users(List.of("")).isValid(q));
+    // queues and engines without a name show up as Default in the report
+    assertTrue(ValueQueryFilter.queues(List.of("default")).isValid(q));
+    assertFalse(ValueQueryFilter.engines(List.of("")).isValid(q));
+  }
+
+  @Test
+  public void testRowsOutsideTheRangeAreNotDeserialized() throws Exception {
+    // the first four rows of queries.json start before this
+    long start = 1663943062000L;
+    var seen = new AtomicInteger();
+    var filter =
+        new QueryFilterChain(new DateRangeQueryFilter(start, Long.MAX_VALUE))
+            .and(
+                q -> {
+                  seen.incrementAndGet();
+                  return true;
+                });
+    var total = new TotalQueriesReporter();
+    try (var is =
+        Files.newInputStream(
+            Path.of(QueryFilterChainTest.class.getResource("/queries.json").getFile()))) {
+      var searched = QueriesJsonFileParser.parseFile("queries.json", is, List.of(total), filter);
+      assertEquals(7, searched.parsed());
+      assertEquals(4, searched.filtered());
+    }
+    assertEquals(7, seen.get());
+    assertEquals(7, total.getCount());
+  }
+
+  @Test
+  public void testRowsWithNonIntegerStartAreParsedInFull() throws Exception {
+    var filter = new QueryFilterChain(new DateRangeQueryFilter(1000, 5000));
+    var total = new TotalQueriesReporter();
+    var rows =
+        String.join(
+            "\n",
+            "{\"queryId\":\"a\",\"start\":\"2000\",\"finish\":3000}",
+            "{\"queryId\":\"b\",\"start\":2000.0,\"finish\":3000}",
+            "{\"queryId\":\"c\",\"start\":\"6000\",\"finish\":7000}");
+    try (var is = new ByteArrayInputStream(rows.getBytes(StandardCharsets.UTF_8))) {
+      var searched = QueriesJsonFileParser.parseFile("queries.json", is, List.of(total), filter);
+      assertEquals(2, searched.parsed());
+      assertEquals(1, searched.filtered());
+    }
+    assertEquals(2, total.getCount());
+  }
+}
@@ -0,0 +1,71 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.queriesjson.filters;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SpillingIdSetTest {
+
+  @TempDir Path dir;
+
+  @Test
+  void staysExactAfterSpillingAndMerging() throws IOException {
+    final Random random = new Random(42);
+    final Set<List<Long>> expected = new HashSet<>();
+    // 16 slots of memory so it spills every 12 keys and merges runs many times
+    try (SpillingIdSet set = new SpillingIdSet(16 * SpillingIdSet.ENTRY_BYTES, dir)) {
+      assertThat(set.add(0, 0)).isTrue();
+      expected.add(List.of(0L, 0L));
+      for (int i = 0; i < 5000; i++) {
+        // a small range for hi makes sure neighbours in the sorted runs share it
+        final long hi = random.nextInt(50);
+        final long lo = random.nextLong();
+        assertThat(set.add(hi, lo)).isEqualTo(expected.add(List.of(hi, lo)));
+      }
+      assertThat(set.getSpilled()).isGreaterThan(4000);
+      assertThat(set.getRunCount()).isLessThanOrEqualTo(9);
+      for (List<Long> key : expected) {
+        assertThat(set.add(key.get(0), key.get(1))).isFalse();
+      }
+      assertThat(set.add(-1, -1)).isTrue();
+    }
+    try (var files = Files.list(dir)) {
+      assertThat(files).isEmpty();
+    }
+  }
+
+  @Test
+  void keepsEverythingInMemoryWithinTheBudget() throws IOException {
+    try (SpillingIdSet set = new SpillingIdSet(1024 * 1024, dir)) {
+      for (int i = 1; i <= 10_000; i++) {
+        assertThat(set.add(i, -i)).isTrue();
+      }
+      for (int i = 1; i <= 10_000; i++) {
+        assertThat(set.add(i, -i)).isFalse();
+      }
+      assertThat(set.getSpilled()).isZero();
+      assertThat(set.getRunCount()).isZero();
+    }
+  }
+}
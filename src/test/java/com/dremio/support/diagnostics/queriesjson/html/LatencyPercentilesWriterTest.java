@@ -0,0 +1,44 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.queriesjson.html;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.dremio.support.diagnostics.queriesjson.Query;
+import com.dremio.support.diagnostics.queriesjson.reporters.LatencyPercentilesReporter;
+import java.util.Locale;
+import org.junit.jupiter.api.Test;
+
+class LatencyPercentilesWriterTest {
+
+  @Test
+  void writesDecimalPointsInEveryLocale() {
+    final LatencyPercentilesReporter reporter = new LatencyPercentilesReporter(1000);
+    final Query q = new Query();
+    q.setStart(1000);
+    q.setFinish(2500);
+    reporter.parseRow(q);
+    final Locale original = Locale.getDefault();
+    try {
+      Locale.setDefault(Locale.GERMANY);
+      final String table = LatencyPercentilesWriter.generateQueueTable(reporter.getByQueue());
+      final String plots =
+          new LatencyPercentilesWriter(1000).generate(1000, 3000, reporter.getByWindow());
+      assertThat(table).containsPattern("\\d\\.\\d{3}").doesNotContainPattern("\\d,\\d{3}\\b");
+      assertThat(plots).containsPattern("\\d\\.\\d{3}").doesNotContainPattern("\\d,\\d{3}\\b");
+    } finally {
+      Locale.setDefault(original);
+    }
+  }
+}
@@ -0,0 +1,55 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.queriesjson.html;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.dremio.support.diagnostics.queriesjson.Query;
+import com.dremio.support.diagnostics.queriesjson.reporters.QueryShapesReporter;
+import com.dremio.support.diagnostics.queriesjson.reporters.QueryShapesReporter.Rank;
+import com.dremio.support.diagnostics.shared.Human;
+import org.junit.jupiter.api.Test;
+
+class QueryShapesWriterTest {
+
+  @Test
+  void writesTheOvercountInTheUnitOfTheRanking() {
+    // one shape per sketch so the second shape inherits the weight of the first
+    final QueryShapesReporter reporter = new QueryShapesReporter(1);
+    reporter.parseRow(query("select * from a", 3_000_000_000L, 5L * 1024 * 1024));
+    reporter.parseRow(query("select * from b", 1_000_000_000L, 1024 * 1024));
+    final String html = QueryShapesWriter.generate(reporter.getTopShapes(10));
+    assertThat(html)
+        .contains(">" + Human.getHumanDurationFromNanos(3_000_000_000L) + "</td>")
+        .contains(">" + Human.getHumanBytes1024(5L * 1024 * 1024) + "</td>")
+        .doesNotContain("3,000,000,000")
+        .doesNotContain("5,242,880");
+  }
+
+  @Test
+  void formatsCountsAsPlainNumbers() {
+    assertThat(QueryShapesWriter.formatWeight(Rank.COUNT, 1234))
+        .isEqualTo(String.format("%,d", 1234));
+  }
+
+  private static Query query(final String text, final long cpuNanos, final long memory) {
+    final Query q = new Query();
+    q.setQueryText(text);
+    q.setStart(1000);
+    q.setFinish(2000);
+    q.setExecutionCpuTimeNs(cpuNanos);
+    q.setMemoryAllocated(memory);
+    return q;
+  }
+}
@@ -0,0 +1,88 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.queriesjson.reporters;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.dremio.support.diagnostics.queriesjson.Query;
+import com.dremio.support.diagnostics.queriesjson.reporters.QueryShapesReporter.Rank;
+import com.dremio.support.diagnostics.queriesjson.reporters.QueryShapesReporter.ShapeStats;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class QueryShapesReporterTest {
+
+  private static Query query(final String text, final long durationMillis, final long cpuNs) {
+    final Query q = new Query();
+    q.setQueryText(text);
+    q.setStart(1000);
+    q.setFinish(1000 + durationMillis);
+    q.setExecutionCpuTimeNs(cpuNs);
+    q.setMemoryAllocated(cpuNs * 2);
+    return q;
+  }
+
+  @Test
+  void addsUpRunsOfTheSameShape() {
+    final QueryShapesReporter reporter = new QueryShapesReporter();
+    for (int i = 1; i <= 100; i++) {
+      reporter.parseRow(query("select * from orders where id = " + i, i * 10, 1_000_000));
+    }
+    reporter.parseRow(query("SELECT sum(total) FROM orders", 60_000, 900_000_000));
+    reporter.parseRow(query("  ", 60_000, 900_000_000));
+
+    final Map<Rank, List<ShapeStats>> top = reporter.getTopShapes(10);
+    final ShapeStats mostRun = top.get(Rank.COUNT).get(0);
+    assertThat(mostRun.getShape()).isEqualTo("select * from orders where id = ?");
+    assertThat(mostRun.getCount()).isEqualTo(100);
+    assertThat(mostRun.getOvercount()).isZero();
+    assertThat(mostRun.getTotalDurationMillis()).isEqualTo(50_500);
+    assertThat(mostRun.getAverageDurationMillis()).isEqualTo(505.0);
+    assertThat(mostRun.getDurationMillis(0.95)).isBetween(931.0, 969.0);
+    assertThat(mostRun.getTotalCpuNanos()).isEqualTo(100_000_000);
+
+    final ShapeStats mostCpu = top.get(Rank.CPU).get(0);
+    assertThat(mostCpu.getShape()).isEqualTo("select sum(total) from orders");
+    assertThat(mostCpu.getCount()).isEqualTo(1);
+    assertThat(top.get(Rank.MEMORY).get(0).getTotalMemoryAllocated()).isEqualTo(1_800_000_000);
+  }
+
+  @Test
+  void keepsHeavyHittersWithBoundedMemory() {
+    final QueryShapesReporter reporter = new QueryShapesReporter(8);
+    for (int i = 0; i < 10_000; i++) {
+      // a unique table name per row is a new shape every time
+      reporter.parseRow(query("select * from t%d".formatted(i), 1, 1));
+      // 2500 of 12500 rows, more than the 12500 / 8 a shape needs to be sure to stay
+      if (i % 4 == 0) {
+        reporter.parseRow(query("select * from hot where id = " + i, 1, 1));
+      }
+    }
+    final List<ShapeStats> byCount = reporter.getTopShapes(100).get(Rank.COUNT);
+    assertThat(byCount).hasSize(8);
+    final ShapeStats hot = byCount.get(0);
+    assertThat(hot.getShape()).isEqualTo("select * from hot where id = ?");
+    // the real count is within the overcount of what was seen
+    assertThat(hot.getWeight() - hot.getOvercount()).isLessThanOrEqualTo(2500);
+    assertThat(hot.getWeight()).isGreaterThanOrEqualTo(2500);
+  }
+
+  @Test
+  void rejectsEmptyCapacity() {
+    assertThatThrownBy(() -> new QueryShapesReporter(0))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+}
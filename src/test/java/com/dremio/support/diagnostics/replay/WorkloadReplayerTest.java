@@ -0,0 +1,215 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.replay;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.dremio.support.diagnostics.queriesjson.QueriesJsonFileParser;
+import com.dremio.support.diagnostics.queriesjson.filters.DateRangeQueryFilter;
+import com.dremio.support.diagnostics.repro.apiout.DremioApi;
+import com.dremio.support.diagnostics.repro.apiout.DremioApiResponse;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class WorkloadReplayerTest {
+
+  /** time that only moves when a test or the replayer sleeping on it moves it */
+  static class ManualClock implements ReplayClock {
+    private final AtomicLong now = new AtomicLong();
+    private final List<Long> wakeUpMillis = Collections.synchronizedList(new ArrayList<>());
+
+    @Override
+    public long nanoTime() {
+      return now.get();
+    }
+
+    @Override
+    public void sleepNanos(final long nanos) {
+      wakeUpMillis.add(TimeUnit.NANOSECONDS.toMillis(now.addAndGet(nanos)));
+    }
+
+    void advanceMillis(final long millis) {
+      now.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+  }
+
+  /**
+   * records what was submitted, each query moves the clock by latencyMillis and waits until
+   * parties queries of its queue are running
+   */
+  static class StubDremioApi implements DremioApi {
+    private final ManualClock clock;
+    private final long latencyMillis;
+    private final int parties;
+    private final List<String> submitted = Collections.synchronizedList(new ArrayList<>());
+    private final Map<String, CyclicBarrier> barriers = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> maxInFlight = new ConcurrentHashMap<>();
+
+    StubDremioApi(final ManualClock clock, final long latencyMillis, final int parties) {
+      this.clock = clock;
+      this.latencyMillis = latencyMillis;
+      this.parties = parties;
+    }
+
+    @Override
+    public DremioApiResponse createSpace(final String space) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public DremioApiResponse createFolder(final Collection<String> folderPath) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public DremioApiResponse createSource(
+        final String sourceName, final Optional<String> defaultCtasFormat) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public DremioApiResponse runSQL(final String sql, final String table) throws IOException {
+      submitted.add(sql);
+      // the queue is the first word of the test queries
+      final String queue = sql.split(" ")[0];
+      final int now = inFlight.computeIfAbsent(queue, x -> new AtomicInteger()).incrementAndGet();
+      maxInFlight.computeIfAbsent(queue, x -> new AtomicInteger()).accumulateAndGet(now, Math::max);
+      try {
+        barriers
+            .computeIfAbsent(queue, x -> new CyclicBarrier(parties))
+            .await(30, TimeUnit.SECONDS);
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (final BrokenBarrierException | TimeoutException e) {
+        throw new IllegalStateException(
+            "fewer than %d queries of %s ran at once".formatted(parties, queue), e);
+      } finally {
+        clock.advanceMillis(latencyMillis);
+        inFlight.get(queue).decrementAndGet();
+      }
+      if (sql.contains("throw")) {
+        throw new IOException("connection reset");
+      }
+      final DremioApiResponse response = new DremioApiResponse();
+      response.setCreated(!sql.contains("fail"));
+      return response;
+    }
+
+    @Override
+    public String getUrl() {
+      return "http://stub";
+    }
+  }
+
+  private static String row(
+      final String queryText, final String queue, final long start, final String queryType) {
+    return "{\"queryId\":\"%s\",\"queryText\":\"%s\",\"queueName\":\"%s\",\"queryType\":\"%s\",\"start\":%d,\"finish\":%d,\"outcome\":\"COMPLETED\"}\n"
+        .formatted(queryText.hashCode(), queryText, queue, queryType, start, start + 5);
+  }
+
+  private static void parse(final WorkloadReplayer replayer, final String lines)
+      throws IOException {
+    QueriesJsonFileParser.parseFile(
+        "queries.json",
+        new ByteArrayInputStream(lines.getBytes(StandardCharsets.UTF_8)),
+        Collections.singletonList(replayer),
+        new DateRangeQueryFilter(0, Long.MAX_VALUE));
+  }
+
+  @Test
+  void replaysInStartOrderWithCompressedTime() throws Exception {
+    final ManualClock clock = new ManualClock();
+    final StubDremioApi api = new StubDremioApi(clock, 0, 1);
+    // one query at a time so the pool submits them in the order they were dispatched
+    final WorkloadReplayer replayer = new WorkloadReplayer(api, 20, 1, 5_000, clock);
+    final long base = 1_700_000_000_000L;
+    // written in finish order, so the starts are not sorted
+    parse(
+        replayer,
+        row("a 3", "a", base + 4_000, "JDBC")
+            + row("a 1", "a", base, "JDBC")
+            + row("a 2", "a", base + 2_000, "JDBC"));
+    final List<QueueReplayStats> results = replayer.finish();
+
+    assertThat(api.submitted).containsExactly("a 1", "a 2", "a 3");
+    // 2 seconds apart at 20 times the speed is 100 millis apart
+    assertThat(clock.wakeUpMillis).containsExactly(100L, 200L);
+    assertThat(results).hasSize(1);
+    assertThat(results.get(0).getSucceeded()).isEqualTo(3);
+  }
+
+  @Test
+  void capsConcurrencyPerQueue() throws Exception {
+    final ManualClock clock = new ManualClock();
+    // every query waits until 3 of its queue run at once, a 4th would never be let in
+    final StubDremioApi api = new StubDremioApi(clock, 50, 3);
+    final WorkloadReplayer replayer = new WorkloadReplayer(api, 1, 3, 0, clock);
+    final StringBuilder lines = new StringBuilder();
+    for (int i = 0; i < 12; i++) {
+      lines.append(row("etl " + i, "etl", 1_700_000_000_000L, "ODBC"));
+      lines.append(row("bi " + i, "bi", 1_700_000_000_000L, "ODBC"));
+    }
+    parse(replayer, lines.toString());
+    final List<QueueReplayStats> results = replayer.finish();
+
+    assertThat(api.maxInFlight.get("etl").get()).isEqualTo(3);
+    assertThat(api.maxInFlight.get("bi").get()).isEqualTo(3);
+    assertThat(results).extracting(QueueReplayStats::getQueueName).containsExactly("bi", "etl");
+    for (final QueueReplayStats stats : results) {
+      assertThat(stats.getSucceeded()).isEqualTo(12);
+      // every query of the queue moved the clock before the last one completed
+      assertThat(stats.getLatencyMillis(1.0)).isGreaterThanOrEqualTo(12 * 50);
+      assertThat(stats.getLatencyMillis(0.0)).isGreaterThanOrEqualTo(50);
+      assertThat(stats.getLate()).isGreaterThan(0);
+    }
+  }
+
+  @Test
+  void countsFailuresAndSkipsInternalWork() throws Exception {
+    final ManualClock clock = new ManualClock();
+    final StubDremioApi api = new StubDremioApi(clock, 1, 1);
+    final WorkloadReplayer replayer = new WorkloadReplayer(api, 1000, 2, 0, clock);
+    final long base = 1_700_000_000_000L;
+    parse(
+        replayer,
+        row("q ok", "q", base, "UI_RUN")
+            + row("q fail", "q", base + 1, "REST")
+            + row("q throw", "q", base + 2, "FLIGHT")
+            + row("q refresh", "q", base + 3, "ACCELERATOR_CREATE")
+            + row("q meta", "q", base + 4, "METADATA_REFRESH")
+            + row(" ", "q", base + 5, "UI_RUN"));
+    final List<QueueReplayStats> results = replayer.finish();
+
+    assertThat(api.submitted).containsExactlyInAnyOrder("q ok", "q fail", "q throw");
+    assertThat(replayer.getSkipped()).isEqualTo(3);
+    assertThat(results.get(0).getSucceeded()).isEqualTo(1);
+    assertThat(results.get(0).getFailed()).isEqualTo(2);
+  }
+}
@@ -0,0 +1,126 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.repro;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class TableDependencyGraphTest {
+
+  private static VdsSql vds(String name, String... refs) {
+    return new VdsSql(name, "", refs);
+  }
+
+  private static Map<String, Integer> positions(List<VdsSql> sorted) {
+    Map<String, Integer> positions = new HashMap<>();
+    for (int i = 0; i < sorted.size(); i++) {
+      positions.put(sorted.get(i).getTableName(), i);
+    }
+    return positions;
+  }
+
+  @Test
+  void testDeepChainGivenBackwardsIsReversed() {
+    // the old pairwise comparator could not order chains longer than its direct references
+    List<VdsSql> vdss = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      vdss.add(i == 199 ? vds("v" + i) : vds("v" + i, "v" + (i + 1)));
+    }
+    List<VdsSql> sorted = new TableDependencyGraph(vdss, Collections.emptyList()).getSorted();
+    List<VdsSql> expected = new ArrayList<>(vdss);
+    Collections.reverse(expected);
+    assertThat(sorted).containsExactlyElementsOf(expected);
+  }
+
+  @Test
+  void testEveryVdsComesAfterItsInputs() {
+    List<VdsSql> vdss =
+        Arrays.asList(
+            vds("space.top", "space.left", "space.right", "source.pds"),
+            vds("space.unrelated"),
+            vds("space.left", "space.base"),
+            vds("space.right", "\"SPACE\".\"BASE\""),
+            vds("space.base", "source.pds"));
+    TableDependencyGraph graph = new TableDependencyGraph(vdss, List.of("source.pds"));
+    Map<String, Integer> at = positions(graph.getSorted());
+    assertThat(at).hasSize(vdss.size());
+    assertThat(at.get("space.base"))
+        .isLessThan(at.get("space.left"))
+        .isLessThan(at.get("space.top"));
+    assertThat(at.get("space.base")).isLessThan(at.get("space.right"));
+    assertThat(at.get("space.right")).isLessThan(at.get("space.top"));
+    // independent vdss keep the order they were given in
+    assertThat(at.get("space.unrelated")).isLessThan(at.get("space.base"));
+    assertThat(graph.getCycles()).isEmpty();
+  }
+
+  @Test
+  void testReferencesAreSplitIntoValidAndMissing() {
+    List<VdsSql> vdss =
+        Arrays.asList(vds("Space.A", "source.PDS", "space.b", "nowhere.table"), vds("space.b"));
+    List<VdsReference> references =
+        new TableDependencyGraph(vdss, List.of("source.pds")).getReferences();
+    assertThat(references).hasSize(2);
+    assertThat(references.get(0).getName()).isEqualTo("space.a");
+    assertThat(references.get(0).getValidReferences()).containsExactly("source.pds", "space.b");
+    assertThat(references.get(0).getMissingReferences()).containsExactly("nowhere.table");
+    assertThat(references.get(0).isValid()).isFalse();
+    assertThat(references.get(1).isValid()).isTrue();
+  }
+
+  @Test
+  void testCyclesAreReportedAndPlacedLast() {
+    List<VdsSql> vdss =
+        Arrays.asList(
+            vds("a", "b"),
+            vds("b", "c"),
+            vds("c", "a"),
+            vds("behind", "c"),
+            vds("free"),
+            vds("self", "self"));
+    TableDependencyGraph graph = new TableDependencyGraph(vdss, Collections.emptyList());
+    assertThat(graph.getCycles()).hasSize(1);
+    assertThat(graph.getCycles().get(0)).containsExactlyInAnyOrder("a", "b", "c");
+    assertThat(graph.getSorted())
+        .extracting(VdsSql::getTableName)
+        .containsExactly("free", "self", "a", "b", "c", "behind");
+  }
+
+  @Test
+  void testScalesToTensOfThousandsOfViews() {
+    // a wide fan in over a long chain, given in the worst order
+    final int count = 50_000;
+    List<VdsSql> vdss = new ArrayList<>(count);
+    for (int i = count - 1; i >= 0; i--) {
+      if (i == 0) {
+        vdss.add(vds("v0", "source.pds"));
+      } else {
+        vdss.add(vds("v" + i, "v" + (i - 1), "v" + (i / 2)));
+      }
+    }
+    TableDependencyGraph graph = new TableDependencyGraph(vdss, List.of("source.pds"));
+    Map<String, Integer> at = positions(graph.getSorted());
+    for (int i = 1; i < count; i++) {
+      assertThat(at.get("v" + (i - 1)) < at.get("v" + i)).isTrue();
+    }
+    assertThat(graph.getCycles()).isEmpty();
+  }
+}
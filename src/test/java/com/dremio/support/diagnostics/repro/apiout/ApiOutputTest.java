@@ -24,6 +24,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Function;
 import org.junit.jupiter.api.Test;
 
 class ApiOutputTest {
@@ -144,4 +145,115 @@ class ApiOutputTest {
       verify(dremioApi, times(1)).createSource(source2, Optional.empty());
     }
   }
+
+  private static VdsSql vds(String name, String... refs) {
+    return new VdsSql(name, "CREATE VDS %s AS SELECT 1".formatted(name), refs);
+  }
+
+  private static DremioApi mockServerApi(MockDremioV3Server server) throws IOException {
+    return new DremioV3Api(
+        new HttpClientApiCall(false),
+        new HttpAuth("dremio", "dremio123"),
+        server.getUrl(),
+        null,
+        30);
+  }
+
+  @Test
+  void writeVDSsStartsDependentsOnlyOnceTheirInputsAreDone() throws IOException {
+    // a diamond under a chain plus some views that only read pds
+    List<VdsSql> vdss =
+        Arrays.asList(
+            vds("space.top", "space.left", "space.right"),
+            vds("space.left", "space.base"),
+            vds("space.right", "SPACE.BASE"),
+            vds("space.base", "source.table1"),
+            vds("space.a", "source.table1"),
+            vds("space.b", "source.table1"),
+            vds("space.c", "source.table1"));
+    try (MockDremioV3Server server = new MockDremioV3Server(100);
+        ApiOutput api = new ApiOutput(mockServerApi(server), 4)) {
+      JobResult result = api.writeVDSs(vdss, new ArrayList<>());
+      JobResult expected = new JobResult();
+      expected.setSuccess(true);
+      expected.added(vdss.stream().map(VdsSql::getTableName).toList());
+      assertThat(result).isEqualTo(expected);
+      Function<String, String> sql = name -> vds(name).getSql();
+      assertThat(server.submittedAt(sql.apply("space.left")))
+          .isGreaterThan(server.completedAt(sql.apply("space.base")));
+      assertThat(server.submittedAt(sql.apply("space.right")))
+          .isGreaterThan(server.completedAt(sql.apply("space.base")));
+      assertThat(server.submittedAt(sql.apply("space.top")))
+          .isGreaterThan(server.completedAt(sql.apply("space.left")))
+          .isGreaterThan(server.completedAt(sql.apply("space.right")));
+      assertThat(server.getMaxInFlight()).isBetween(2, 4);
+    }
+  }
+
+  @Test
+  void writeVDSsMatchesQuotedNamesToUnquotedReferences() throws IOException {
+    // dataset paths keep their quotes, the references found in the sql do not
+    List<VdsSql> vdss =
+        Arrays.asList(
+            vds("\"My Space\".\"Child\"", "my space.base"),
+            vds("\"My Space\".\"Base\"", "source.table1"));
+    try (MockDremioV3Server server = new MockDremioV3Server(50);
+        ApiOutput api = new ApiOutput(mockServerApi(server), 4)) {
+      assertThat(api.writeVDSs(vdss, new ArrayList<>()).getSuccess()).isTrue();
+      assertThat(server.submittedAt(vdss.get(0).getSql()))
+          .isGreaterThan(server.completedAt(vdss.get(1).getSql()));
+    }
+  }
+
+  @Test
+  void writeVDSsWithParallelismOfOneIsSequential() throws IOException {
+    List<VdsSql> vdss =
+        Arrays.asList(
+            vds("space.a", "source.table1"),
+            vds("space.b", "source.table1"),
+            vds("space.c", "space.a"));
+    try (MockDremioV3Server server = new MockDremioV3Server(20);
+        ApiOutput api = new ApiOutput(mockServerApi(server))) {
+      assertThat(api.writeVDSs(vdss, new ArrayList<>()).getSuccess()).isTrue();
+      assertThat(server.getMaxInFlight()).isEqualTo(1);
+      assertThat(server.submittedAt(vds("space.a").getSql()))
+          .isLessThan(server.submittedAt(vds("space.b").getSql()));
+      assertThat(server.submittedAt(vds("space.b").getSql()))
+          .isLessThan(server.submittedAt(vds("space.c").getSql()));
+    }
+  }
+
+  @Test
+  void writeVDSsDoesNotStartDependentsOfAFailure() throws IOException {
+    List<VdsSql> vdss =
+        Arrays.asList(
+            vds("space.broken", "source.table1"),
+            vds("space.child", "space.broken"),
+            vds("space.grandchild", "space.child"));
+    try (MockDremioV3Server server = new MockDremioV3Server(0);
+        ApiOutput api = new ApiOutput(mockServerApi(server), 4)) {
+      server.failWhenSqlContains("space.broken");
+      JobResult result = api.writeVDSs(vdss, new ArrayList<>());
+      assertThat(result.getSuccess()).isFalse();
+      assertThat(result.toString()).contains("mock failure");
+      assertThat(server.submittedAt(vds("space.child").getSql())).isNull();
+      assertThat(server.submittedAt(vds("space.grandchild").getSql())).isNull();
+    }
+  }
+
+  @Test
+  void folderOutputCreatesParentsFirst() throws IOException {
+    List<String> parent = Arrays.asList("space", "a");
+    List<String> child = Arrays.asList("space", "a", "b");
+    List<String> grandChild = Arrays.asList("space", "a", "b", "c");
+    try (MockDremioV3Server server = new MockDremioV3Server(0);
+        ApiOutput api = new ApiOutput(mockServerApi(server), 4)) {
+      JobResult result = api.folderOutput(Arrays.asList(grandChild, child, parent));
+      JobResult expected = new JobResult();
+      expected.setSuccess(true);
+      expected.added(Arrays.asList("[ space, a, b, c ]", "[ space, a, b ]", "[ space, a ]"));
+      assertThat(result).isEqualTo(expected);
+      assertThat(server.getCatalog()).containsExactly(parent, child, grandChild);
+    }
+  }
 }
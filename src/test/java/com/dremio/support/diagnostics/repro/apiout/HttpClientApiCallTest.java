@@ -0,0 +1,114 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.repro.apiout;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.net.URL;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+
+class HttpClientApiCallTest {
+
+  @Test
+  void testPostAndGetDecodeTheJsonBody() throws IOException {
+    try (MockDremioV3Server server = new MockDremioV3Server(0)) {
+      HttpClientApiCall call = new HttpClientApiCall(false);
+      HttpApiResponse login =
+          call.submitPost(new URL(server.getUrl() + "/apiv2/login"), Map.of(), "{}");
+      assertThat(login.getResponseCode()).isEqualTo(200);
+      assertThat(login.getResponse()).containsEntry("token", "mock");
+      HttpApiResponse job =
+          call.submitPost(
+              new URL(server.getUrl() + "/api/v3/sql"),
+              Map.of("Content-Type", "application/json"),
+              "{\"sql\":\"SELECT 1\"}");
+      HttpApiResponse status =
+          call.submitGet(
+              new URL(server.getUrl() + "/api/v3/job/" + job.getResponse().get("id")), Map.of());
+      assertThat(status.getResponse()).containsEntry("jobState", "COMPLETED");
+    }
+  }
+
+  @Test
+  void testIgnoringSslDoesNotChangeOtherClients() throws IOException {
+    try (MockDremioV3Server server = new MockDremioV3Server(0)) {
+      HttpApiResponse login =
+          new HttpClientApiCall(true)
+              .submitPost(new URL(server.getUrl() + "/apiv2/login"), Map.of(), "{}");
+      assertThat(login.getResponseCode()).isEqualTo(200);
+    }
+    assertThat(System.getProperty("jdk.internal.httpclient.disableHostnameVerification")).isNull();
+  }
+
+  @Test
+  void testErrorsKeepTheBodyInTheMessage() throws IOException {
+    try (MockDremioV3Server server = new MockDremioV3Server(0)) {
+      HttpApiResponse missing =
+          new HttpClientApiCall(false)
+              .submitGet(new URL(server.getUrl() + "/api/v3/job/unknown"), Map.of());
+      assertThat(missing.getResponseCode()).isEqualTo(404);
+      assertThat(missing.getResponse()).isNull();
+      assertThat(missing.getMessage()).contains("no such job");
+    }
+  }
+
+  @Test
+  void testManyJobsCanBeTrackedAtOnce() throws Exception {
+    try (MockDremioV3Server server = new MockDremioV3Server(0)) {
+      server.runningForChecks(3);
+      DremioV3Api api =
+          new DremioV3Api(
+              new HttpClientApiCall(false),
+              new HttpAuth("dremio", "dremio123"),
+              server.getUrl(),
+              null,
+              30,
+              new JobPollBackoff(Duration.ofMillis(5), Duration.ofMillis(50), 2));
+      ExecutorService executor = Executors.newFixedThreadPool(16);
+      try {
+        List<Future<DremioApiResponse>> jobs = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+          final String sql = "CREATE VDS space.v%d AS SELECT 1".formatted(i);
+          jobs.add(executor.submit(() -> api.runSQL(sql, "space.v")));
+        }
+        for (Future<DremioApiResponse> job : jobs) {
+          assertThat(job.get().isCreated()).isTrue();
+        }
+      } finally {
+        executor.shutdownNow();
+      }
+      // three running checks and the completed one for each job
+      assertThat(server.getStatusChecks()).isEqualTo(64 * 4);
+    }
+  }
+
+  @Test
+  void testBackoffStartsTightAndGrowsToTheCeiling() {
+    JobPollBackoff backoff = new JobPollBackoff(Duration.ofMillis(10), Duration.ofMillis(100), 2);
+    assertThat(backoff.delayMillis(0)).isEqualTo(10);
+    assertThat(backoff.delayMillis(1)).isEqualTo(20);
+    assertThat(backoff.delayMillis(3)).isEqualTo(80);
+    assertThat(backoff.delayMillis(4)).isEqualTo(100);
+    assertThat(backoff.delayMillis(1000)).isEqualTo(100);
+    assertThat(JobPollBackoff.DEFAULT.delayMillis(0)).isLessThan(500);
+  }
+}
@@ -0,0 +1,184 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.repro.apiout;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local stand-in for the parts of the Dremio v3 rest api the repro tool uses: login, catalog
+ * creation, sql submission and job status. Every sql submission takes jobMillis to be accepted and
+ * the job is complete the first time its status is checked, which lets tests see how many
+ * submissions were in flight at once and in which order jobs were submitted and completed.
+ */
+class MockDremioV3Server implements Closeable {
+  private static final ObjectMapper mapper = new ObjectMapper();
+  private final HttpServer server;
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+  private final long jobMillis;
+  private final AtomicInteger sequence = new AtomicInteger();
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final AtomicInteger maxInFlight = new AtomicInteger();
+  private final Map<String, String> sqlByJob = new ConcurrentHashMap<>();
+  private final Map<String, Integer> submitted = new ConcurrentHashMap<>();
+  private final Map<String, Integer> completed = new ConcurrentHashMap<>();
+  private final List<List<String>> catalog = Collections.synchronizedList(new ArrayList<>());
+  private final Map<String, AtomicInteger> checksByJob = new ConcurrentHashMap<>();
+  private final AtomicInteger statusChecks = new AtomicInteger();
+  private volatile String failWhenSqlContains;
+  private volatile int runningChecks;
+
+  MockDremioV3Server(final long jobMillis) throws IOException {
+    this.jobMillis = jobMillis;
+    this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    this.server.setExecutor(executor);
+    this.server.createContext("/apiv2/login", x -> respond(x, 200, Map.of("token", "mock")));
+    this.server.createContext("/api/v3/catalog", this::catalog);
+    this.server.createContext("/api/v3/sql", this::sql);
+    this.server.createContext("/api/v3/job/", this::job);
+    this.server.start();
+  }
+
+  String getUrl() {
+    return "http://%s:%d"
+        .formatted(
+            server.getAddress().getAddress().getHostAddress(), server.getAddress().getPort());
+  }
+
+  /** jobs whose sql contains the text fail with an error message */
+  void failWhenSqlContains(final String text) {
+    this.failWhenSqlContains = text;
+  }
+
+  /** every job reports RUNNING for this many status checks before it completes */
+  void runningForChecks(final int checks) {
+    this.runningChecks = checks;
+  }
+
+  /** total job status checks made */
+  int getStatusChecks() {
+    return statusChecks.get();
+  }
+
+  int getMaxInFlight() {
+    return maxInFlight.get();
+  }
+
+  /** order in which the sql was submitted, null when it never was */
+  Integer submittedAt(final String sql) {
+    return submitted.get(sql);
+  }
+
+  /** order in which the sql was seen complete, null when it never was */
+  Integer completedAt(final String sql) {
+    return completed.get(sql);
+  }
+
+  /** catalog entries in the order they were created, spaces and sources are a single name */
+  List<List<String>> getCatalog() {
+    synchronized (catalog) {
+      return new ArrayList<>(catalog);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private void catalog(final HttpExchange exchange) throws IOException {
+    final Map<String, Object> body = read(exchange);
+    if (body.containsKey("path")) {
+      catalog.add(new ArrayList<>((List<String>) body.get("path")));
+    } else {
+      catalog.add(List.of(String.valueOf(body.get("name"))));
+    }
+    respond(exchange, 200, Map.of("id", String.valueOf(sequence.incrementAndGet())));
+  }
+
+  private void sql(final HttpExchange exchange) throws IOException {
+    final String sql = String.valueOf(read(exchange).get("sql"));
+    final int running = inFlight.incrementAndGet();
+    maxInFlight.accumulateAndGet(running, Math::max);
+    try {
+      submitted.put(sql, sequence.incrementAndGet());
+      Thread.sleep(jobMillis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      inFlight.decrementAndGet();
+    }
+    final String jobId = "job-" + sequence.incrementAndGet();
+    sqlByJob.put(jobId, sql);
+    respond(exchange, 200, Map.of("id", jobId));
+  }
+
+  private void job(final HttpExchange exchange) throws IOException {
+    final String path = exchange.getRequestURI().getPath();
+    final String jobId = path.substring(path.lastIndexOf('/') + 1);
+    final String sql = sqlByJob.get(jobId);
+    statusChecks.incrementAndGet();
+    if (sql == null) {
+      respond(exchange, 404, Map.of("errorMessage", "no such job"));
+      return;
+    }
+    final String fail = failWhenSqlContains;
+    if (fail != null && sql.contains(fail)) {
+      respond(exchange, 200, Map.of("jobState", "FAILED", "errorMessage", "mock failure"));
+      return;
+    }
+    if (checksByJob.computeIfAbsent(jobId, x -> new AtomicInteger()).getAndIncrement()
+        < runningChecks) {
+      respond(exchange, 200, Map.of("jobState", "RUNNING"));
+      return;
+    }
+    completed.computeIfAbsent(sql, x -> sequence.incrementAndGet());
+    respond(exchange, 200, Map.of("jobState", "COMPLETED"));
+  }
+
+  private static Map<String, Object> read(final HttpExchange exchange) throws IOException {
+    return mapper.readValue(
+        exchange.getRequestBody(), new TypeReference<HashMap<String, Object>>() {});
+  }
+
+  private static void respond(
+      final HttpExchange exchange, final int code, final Map<String, Object> body)
+      throws IOException {
+    final byte[] bytes = mapper.writeValueAsString(body).getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().add("Content-Type", "application/json");
+    exchange.sendResponseHeaders(code, bytes.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(bytes);
+    }
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+    executor.shutdownNow();
+  }
+}
@@ -0,0 +1,197 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.repro.parse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.dremio.support.diagnostics.repro.SourceDirectoryMaker;
+import com.dremio.support.diagnostics.shared.dto.profilejson.DatasetProfile;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.ipc.ArrowFileReader;
+import org.apache.arrow.vector.types.DateUnit;
+import org.apache.arrow.vector.types.FloatingPointPrecision;
+import org.apache.arrow.vector.types.TimeUnit;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.DictionaryEncoding;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.FieldType;
+import org.apache.arrow.vector.types.pojo.Schema;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ArrowFileDeserializerTest {
+
+  @TempDir Path tmp;
+
+  private final PDSConstantDataProvider constant = new PDSConstantDataProvider();
+  private final PDSRandomDataProvider random = new PDSRandomDataProvider();
+
+  private static Field field(final String name, final ArrowType type) {
+    return new Field(name, FieldType.nullable(type), null);
+  }
+
+  private static DatasetProfile datasetProfile(final String path, final List<Field> fields) {
+    final DatasetProfile dp = new DatasetProfile();
+    dp.setType(1);
+    dp.setDatasetPath(path);
+    dp.setBatchSchema(Base64.getEncoder().encodeToString(new Schema(fields).toByteArray()));
+    dp.setSql("");
+    return dp;
+  }
+
+  private static ColumnDefYaml overrides(
+      final String table, final String column, final String... values) {
+    final ColumnDef columnDef = new ColumnDef();
+    columnDef.setName(column);
+    columnDef.setValues(Arrays.asList(values));
+    final TableDef tableDef = new TableDef();
+    tableDef.setName(table);
+    tableDef.setColumns(Collections.singletonList(columnDef));
+    final ColumnDefYaml yaml = new ColumnDefYaml();
+    yaml.setTables(new ArrayList<>(Collections.singletonList(tableDef)));
+    return yaml;
+  }
+
+  private SourceDirectoryMaker sourceDirectoryMaker() {
+    return new SourceDirectoryMaker(() -> Files.createTempDirectory(tmp, "source"));
+  }
+
+  @Test
+  void writesRowsInBatchesToTheSourceDirectory() throws IOException {
+    final List<Field> fields =
+        Arrays.asList(
+            field("id", new ArrowType.Int(64, true)),
+            field("count", new ArrowType.Int(32, true)),
+            new Field(
+                "name",
+                new FieldType(
+                    true,
+                    new ArrowType.Utf8(),
+                    new DictionaryEncoding(1L, false, new ArrowType.Int(32, true))),
+                null),
+            field("price", new ArrowType.FloatingPoint(FloatingPointPrecision.DOUBLE)),
+            field("amount", new ArrowType.Decimal(10, 2, 128)),
+            field("active", new ArrowType.Bool()),
+            field("day", new ArrowType.Date(DateUnit.DAY)),
+            field("ts", new ArrowType.Timestamp(TimeUnit.MILLISECOND, null)),
+            new Field(
+                "nested",
+                FieldType.nullable(new ArrowType.Struct()),
+                Collections.singletonList(field("inner", new ArrowType.Utf8()))),
+            field("$_dremio_$_update_$", new ArrowType.Int(64, true)));
+    final SourceDirectoryMaker dirs = sourceDirectoryMaker();
+    final long records = ArrowFileDeserializer.BATCH_SIZE + 10L;
+    final ArrowFileDeserializer serde =
+        new ArrowFileDeserializer(
+            records, constant, random, overrides("test.my.path", "NAME", "a", "b"), dirs);
+
+    final String sql = serde.readSchema(datasetProfile("test.my.path", fields));
+
+    assertThat(sql)
+        .isEqualTo(
+            "CREATE TABLE test.my.path AS SELECT * FROM"
+                + " TABLE(\"test\".\"repro_arrow_files\".\"my\".\"path\"(type => 'arrow'));");
+    final Path file =
+        dirs.getSourceDir("\"TEST\"")
+            .resolve(ArrowFileDeserializer.STAGING_FOLDER)
+            .resolve("my")
+            .resolve("path")
+            .resolve("data-0.arrow");
+    assertThat(file).exists();
+    try (RootAllocator allocator = new RootAllocator();
+        FileChannel channel = FileChannel.open(file);
+        ArrowFileReader reader = new ArrowFileReader(channel, allocator)) {
+      final VectorSchemaRoot root = reader.getVectorSchemaRoot();
+      assertThat(root.getSchema().getFields())
+          .extracting(Field::getName)
+          .containsExactly(
+              "id", "count", "name", "price", "amount", "active", "day", "ts", "nested");
+      assertThat(reader.getRecordBlocks()).hasSize(2);
+      long rows = 0;
+      boolean first = true;
+      while (reader.loadNextBatch()) {
+        if (first) {
+          assertThat(root.getVector("id").getObject(0)).isEqualTo(1L);
+          assertThat(root.getVector("count").getObject(0)).isEqualTo(1);
+          assertThat(root.getVector("price").getObject(0)).isEqualTo(1.0);
+          assertThat(root.getVector("amount").getObject(0)).isEqualTo(new BigDecimal("1.00"));
+          assertThat(root.getVector("active").getObject(0)).isEqualTo(true);
+          assertThat(root.getVector("day").getObject(0))
+              .isEqualTo((int) LocalDate.of(2018, 9, 14).toEpochDay());
+          assertThat(root.getVector("ts").getObject(0))
+              .isEqualTo(LocalDateTime.ofEpochSecond(1_663_200_000L, 0, ZoneOffset.UTC));
+          first = false;
+        }
+        for (int i = 0; i < root.getRowCount(); i++) {
+          assertThat(root.getVector("name").getObject(i).toString()).isIn("a", "b");
+          assertThat(root.getVector("nested").isNull(i)).isTrue();
+        }
+        rows += root.getRowCount();
+      }
+      assertThat(rows).isEqualTo(records);
+    }
+  }
+
+  @Test
+  void sharesOneDirectoryPerSource() throws IOException {
+    final SourceDirectoryMaker dirs = sourceDirectoryMaker();
+    final ArrowFileDeserializer serde =
+        new ArrowFileDeserializer(1L, constant, random, new ColumnDefYaml(), dirs);
+    final List<Field> fields = Collections.singletonList(field("id", new ArrowType.Int(32, true)));
+
+    serde.readSchema(datasetProfile("src.a", fields));
+    serde.readSchema(datasetProfile("\"SRC\".\"b.c\".d", fields));
+
+    final Path source = dirs.getSourceDir("src").resolve(ArrowFileDeserializer.STAGING_FOLDER);
+    assertThat(source.resolve("a").resolve("data-0.arrow")).exists();
+    assertThat(source.resolve("b.c").resolve("d").resolve("data-0.arrow")).exists();
+    assertThat(dirs.getSourceDir("other")).isNotEqualTo(source);
+  }
+
+  @Test
+  void failsOnOverrideWithoutColumn() {
+    final ArrowFileDeserializer serde =
+        new ArrowFileDeserializer(
+            1L, constant, random, overrides("src.a", "missing", "x"), sourceDirectoryMaker());
+    final DatasetProfile dp =
+        datasetProfile(
+            "src.a", Collections.singletonList(field("id", new ArrowType.Int(32, true))));
+
+    assertThatThrownBy(() -> serde.readSchema(dp))
+        .isInstanceOf(InvalidColumnOverrideException.class);
+  }
+
+  @Test
+  void splitsPathOutsideQuotes() {
+    assertThat(ArrowFileDeserializer.splitPath("\"a.b\".c.d")).containsExactly("a.b", "c", "d");
+    assertThat(ArrowFileDeserializer.splitPath("src")).containsExactly("src");
+    assertThat(ArrowFileDeserializer.quotePath(List.of("a.b", "c\"d")))
+        .isEqualTo("\"a.b\".\"c\"\"d\"");
+  }
+}
@@ -23,6 +23,8 @@ import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import org.apache.arrow.vector.types.DateUnit;
 import org.apache.arrow.vector.types.FloatingPointPrecision;
 import org.apache.arrow.vector.types.IntervalUnit;
@@ -162,6 +164,35 @@ class ArrowFormatDeserializerTest {
                 + " t(\"STATION\",\"NAME\",\"LATITUDE\",\"LONGITUDE\",\"ELEVATION\",\"DATE\",\"PRCP\",\"SNOW\",\"SNWD\",\"TAVG\",\"TMAX\",\"TMIN\");");
   }
 
+  @Test
+  void testKeyColumnWithCardinalityAndRecordsPerDataset() {
+    final String tableName = "test.my.path";
+    final ColumnDefYaml overrides = new ColumnDefYaml();
+    final TableDef tableDef = new TableDef();
+    tableDef.setName(tableName);
+    final ColumnDef column = new ColumnDef();
+    column.setName("STATION");
+    column.setCardinality(3L);
+    column.setSkew(1.0);
+    tableDef.setColumns(Collections.singletonList(column));
+    overrides.setTables(Collections.singletonList(tableDef));
+    final ArrowFormatDeserializer serdeWithKeys =
+        new ArrowFormatDeserializer(2L, dp, dp, overrides);
+    DatasetProfile dp2 = new DatasetProfile();
+    dp2.setType(1);
+    dp2.setDatasetPath(tableName);
+    dp2.setBatchSchema(
+        "EAAAAAAACgAMAAAACAAEAAoAAAAIAAAACAAAAAAAAAANAAAArAIAAGgCAAAwAgAA+AEAAMABAACMAQAAWAEAACQBAADwAAAAvAAAAIgAAABUAAAABAAAAJr9//8UAAAAFAAAABwAAAAAAAIBIAAAAAAAAAAAAAAACAAMAAgABwAIAAAAAAAAAUAAAAATAAAAJF9kcmVtaW9fJF91cGRhdGVfJADm/f//FAAAABQAAAAUAAAAAAAFARAAAAAAAAAAAAAAANT9//8EAAAAVE1JTgAAAAAW/v//FAAAABQAAAAUAAAAAAAFARAAAAAAAAAAAAAAAAT+//8EAAAAVE1BWAAAAABG/v//FAAAABQAAAAUAAAAAAAFARAAAAAAAAAAAAAAADT+//8EAAAAVEFWRwAAAAB2/v//FAAAABQAAAAUAAAAAAAFARAAAAAAAAAAAAAAAGT+//8EAAAAU05XRAAAAACm/v//FAAAABQAAAAUAAAAAAAFARAAAAAAAAAAAAAAAJT+//8EAAAAU05PVwAAAADW/v//FAAAABQAAAAUAAAAAAAFARAAAAAAAAAAAAAAAMT+//8EAAAAUFJDUAAAAAAG////FAAAABQAAAAUAAAAAAAFARAAAAAAAAAAAAAAAPT+//8EAAAAREFURQAAAAA2////FAAAABQAAAAUAAAAAAAFARAAAAAAAAAAAAAAACT///8JAAAARUxFVkFUSU9OAAAAav///xQAAAAUAAAAFAAAAAAABQEQAAAAAAAAAAAAAABY////CQAAAExPTkdJVFVERQAAAJ7///8UAAAAFAAAABQAAAAAAAUBEAAAAAAAAAAAAAAAjP///wgAAABMQVRJVFVERQAAAADS////FAAAABQAAAAUAAAAAAAFARAAAAAAAAAAAAAAAMD///8EAAAATkFNRQAAEgAYABQAEwASAAwAAAAIAAQAEgAAABQAAAAUAAAAGAAAAAAABQEUAAAAAAAAAAAAAAAEAAQABAAAAAcAAABTVEFUSU9OAA==");
+    dp2.setSql("");
+    final String schema = serdeWithKeys.readSchema(dp2, 50).replace("\r", "");
+    final List<String> keys = new ArrayList<>();
+    final Matcher matcher = Pattern.compile("\\('(key\\d+)'").matcher(schema);
+    while (matcher.find()) {
+      keys.add(matcher.group(1));
+    }
+    assertThat(keys).hasSize(50).isSubsetOf("key1", "key2", "key3");
+  }
+
   @Test
   void testSupportsString() {
     DictionaryEncoding dict = new DictionaryEncoding(1L, false, new Int(64, false));
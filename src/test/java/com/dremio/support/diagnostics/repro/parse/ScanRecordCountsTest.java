@@ -0,0 +1,81 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.repro.parse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.dremio.support.diagnostics.profilejson.plan.CumulativeCost;
+import com.dremio.support.diagnostics.profilejson.plan.PlanRelation;
+import com.dremio.support.diagnostics.profilejson.plan.PlanRelationshipParser;
+import com.dremio.support.diagnostics.shared.JsonTextProfileProvider;
+import com.dremio.support.diagnostics.shared.PathAndStream;
+import com.dremio.support.diagnostics.shared.dto.profilejson.ProfileJSON;
+import java.io.InputStream;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.OptionalLong;
+import org.junit.jupiter.api.Test;
+
+class ScanRecordCountsTest {
+
+  private static PlanRelation scan(final String name, final String table, final double rowCount) {
+    return new PlanRelation(
+        name,
+        "com.dremio.exec.store.dfs.easy.EasyScanPrel",
+        Collections.singletonMap("table", table),
+        new ArrayList<>(),
+        new ArrayList<>(),
+        rowCount,
+        new CumulativeCost(0d, 0d, 0d, 0d, 0d));
+  }
+
+  @Test
+  void usesTheInputRecordsOfTheScanOperator() throws Exception {
+    final ProfileJSON profile;
+    try (InputStream in =
+        getClass()
+            .getResourceAsStream("/com/dremio/support/diagnostics/profilejson/profile1.json")) {
+      profile =
+          new JsonTextProfileProvider(new PathAndStream(Paths.get("profile1.json"), in))
+              .getProfile();
+    }
+
+    final ScanRecordCounts counts =
+        ScanRecordCounts.fromProfile(
+            profile, new PlanRelationshipParser().getPlanRelations(profile));
+
+    // the plan estimates 5288 rows, the scan operator read 485
+    assertThat(counts.get("Samples.\"samples.dremio.com\".\"SF weather 2018-2019.csv\""))
+        .isEqualTo(OptionalLong.of(485));
+    assertThat(counts.get("samples.\"SAMPLES.DREMIO.COM\".\"sf weather 2018-2019.csv\""))
+        .isEqualTo(OptionalLong.of(485));
+    assertThat(counts.get("Samples.other")).isEmpty();
+  }
+
+  @Test
+  void fallsBackToThePlanEstimateAndKeepsTheLargestScan() {
+    final ScanRecordCounts counts =
+        ScanRecordCounts.fromProfile(
+            new ProfileJSON(),
+            Arrays.asList(
+                scan("01-03", "src.t", 10.2),
+                scan("02-04", "\"src\".\"t\"", 700),
+                scan("02-05", "src.other", 3)));
+
+    assertThat(counts.get("src.t")).isEqualTo(OptionalLong.of(700));
+    assertThat(counts.get("src.other")).isEqualTo(OptionalLong.of(3));
+  }
+}
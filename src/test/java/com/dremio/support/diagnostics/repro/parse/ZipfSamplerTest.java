@@ -0,0 +1,72 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.repro.parse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.data.Percentage.withPercentage;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class ZipfSamplerTest {
+
+  private static long[] histogram(final long n, final double skew, final int samples) {
+    final ZipfSampler sampler = new ZipfSampler(n, skew, new Random(42));
+    final long[] counts = new long[(int) n + 1];
+    for (int i = 0; i < samples; i++) {
+      final long rank = sampler.next();
+      assertThat(rank).isBetween(1L, n);
+      counts[(int) rank]++;
+    }
+    return counts;
+  }
+
+  @Test
+  void followsTheZipfProbabilities() {
+    final int n = 100;
+    final double skew = 1.1;
+    final int samples = 200_000;
+    final long[] counts = histogram(n, skew, samples);
+    double harmonic = 0;
+    for (int k = 1; k <= n; k++) {
+      harmonic += 1 / Math.pow(k, skew);
+    }
+    for (int k : new int[] {1, 2, 10}) {
+      final double expected = samples / Math.pow(k, skew) / harmonic;
+      assertThat((double) counts[k]).isCloseTo(expected, withPercentage(5));
+    }
+  }
+
+  @Test
+  void zeroSkewIsUniform() {
+    final long[] counts = histogram(10, 0, 100_000);
+    for (int k = 1; k <= 10; k++) {
+      assertThat(counts[k]).isBetween(9_000L, 11_000L);
+    }
+  }
+
+  @Test
+  void singleRank() {
+    assertThat(histogram(1, 2.0, 100)[1]).isEqualTo(100);
+  }
+
+  @Test
+  void rejectsInvalidArguments() {
+    assertThatThrownBy(() -> new ZipfSampler(0, 1, new Random()))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> new ZipfSampler(10, -0.5, new Random()))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+}
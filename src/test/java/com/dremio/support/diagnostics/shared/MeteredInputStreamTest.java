@@ -0,0 +1,43 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.shared;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import org.junit.jupiter.api.Test;
+
+class MeteredInputStreamTest {
+
+  @Test
+  void onlyCountsBytesWhenAnOuterStreamIsTimed() throws IOException {
+    final JobMetrics metrics = new JobMetrics("test");
+    try (var in = new MeteredInputStream(new ByteArrayInputStream(new byte[100]), metrics, false)) {
+      assertThat(in.readAllBytes()).hasSize(100);
+    }
+    assertThat(metrics.getBytesRead()).isEqualTo(100);
+    assertThat(metrics.getStageNanos(JobMetrics.Stage.DECOMPRESS)).isZero();
+  }
+
+  @Test
+  void timesReadsByDefault() throws IOException {
+    final JobMetrics metrics = new JobMetrics("test");
+    try (var in = new MeteredInputStream(new ByteArrayInputStream(new byte[100]), metrics)) {
+      assertThat(in.readAllBytes()).hasSize(100);
+    }
+    assertThat(metrics.getBytesRead()).isEqualTo(100);
+    assertThat(metrics.getStageNanos(JobMetrics.Stage.DECOMPRESS)).isPositive();
+  }
+}
@@ -0,0 +1,56 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.shared;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+public class MetricsRegistryTest {
+
+  @Test
+  public void testMeteredStreamCountsBytes() throws IOException {
+    var metrics = new JobMetrics("test");
+    try (InputStream is =
+        new MeteredInputStream(
+            new ByteArrayInputStream("hello world".getBytes(StandardCharsets.UTF_8)), metrics)) {
+      is.readAllBytes();
+    }
+    assertEquals(11, metrics.getBytesRead());
+  }
+
+  @Test
+  public void testPrometheusText() {
+    var metrics = new JobMetrics("queries-json");
+    metrics.addStageNanos(JobMetrics.Stage.PARSE, 2_000_000_000L);
+    metrics.addRows(100);
+    metrics.addBytesRead(2048);
+    var registry = new MetricsRegistry();
+    registry.record(metrics);
+    registry.record(metrics);
+    var text = registry.toPrometheusText();
+    assertThat(text).contains("# TYPE dqd_stage_seconds_total counter");
+    assertThat(text).contains("dqd_jobs_total{job=\"queries-json\"} 2");
+    assertThat(text)
+        .contains("dqd_stage_seconds_total{job=\"queries-json\",stage=\"parse\"} 4.000000");
+    assertThat(text).contains("dqd_rows_parsed_total{job=\"queries-json\"} 200");
+    assertThat(text).contains("dqd_bytes_read_total{job=\"queries-json\"} 4096");
+    assertThat(text).contains("dqd_rows_per_second{job=\"queries-json\"} 50.000000");
+  }
+}
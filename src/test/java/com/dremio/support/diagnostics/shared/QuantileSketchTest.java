@@ -0,0 +1,84 @@
+/**
+ * Copyright 2022 Dremio
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.support.diagnostics.shared;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+public class QuantileSketchTest {
+
+  private static double exact(double[] sorted, double quantile) {
+    return sorted[(int) Math.floor(quantile * (sorted.length - 1))];
+  }
+
+  @Test
+  public void testQuantilesWithinRelativeAccuracy() {
+    var random = new Random(42);
+    var sketch = new QuantileSketch();
+    double[] values = new double[100_000];
+    for (int i = 0; i < values.length; i++) {
+      // long tailed like query durations
+      values[i] = Math.exp(random.nextGaussian() * 2);
+      sketch.add(values[i]);
+    }
+    Arrays.sort(values);
+    for (double q : new double[] {0.5, 0.95, 0.99}) {
+      double expected = exact(values, q);
+      double actual = sketch.quantile(q);
+      assertTrue(
+          Math.abs(actual - expected) <= expected * 0.011,
+          "p%s expected %f but was %f".formatted(q, expected, actual));
+    }
+    assertEquals(values[values.length - 1], sketch.getMax());
+    assertEquals(values.length, sketch.getCount());
+  }
+
+  @Test
+  public void testMergeMatchesSingleSketch() {
+    var random = new Random(7);
+    var all = new QuantileSketch();
+    var left = new QuantileSketch();
+    var right = new QuantileSketch();
+    for (int i = 0; i < 10_000; i++) {
+      double v = random.nextInt(100_000);
+      all.add(v);
+      (i % 2 == 0 ? left : right).add(v);
+    }
+    left.merge(right);
+    for (double q : new double[] {0.0, 0.5, 0.95, 0.99, 1.0}) {
+      assertEquals(all.quantile(q), left.quantile(q));
+    }
+  }
+
+  @Test
+  public void testZerosAndBoundedBuckets() {
+    var sketch = new QuantileSketch(0.01, 16);
+    for (int i = 0; i < 1000; i++) {
+      sketch.add(0);
+    }
+    for (int i = 1; i <= 1000; i++) {
+      sketch.add(i);
+    }
+    assertEquals(0.0, sketch.quantile(0.25));
+    // the highest buckets are kept accurate when the lowest are folded
+    assertEquals(1000.0, sketch.quantile(1.0));
+    assertTrue(Math.abs(sketch.quantile(0.99) - 980) <= 980 * 0.01);
+    assertThrows(IllegalArgumentException.class, () -> sketch.merge(new QuantileSketch(0.02, 16)));
+  }
+}
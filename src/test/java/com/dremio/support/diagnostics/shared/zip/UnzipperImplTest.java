@@ -15,6 +15,10 @@ package com.dremio.support.diagnostics.shared.zip;
 
 import static com.dremio.support.diagnostics.FileTestHelpers.readAll;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 import com.dremio.support.diagnostics.FileTestHelpers;
@@ -22,14 +26,23 @@ import com.dremio.support.diagnostics.shared.PathAndStream;
 import com.google.common.collect.Iterables;
 import java.io.*;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 class UnzipperImplTest {
   private static final Path expectedProfile = Paths.get("profile_attempt_0.json");
@@ -305,6 +318,181 @@ class UnzipperImplTest {
     }
   }
 
+  @Test
+  void testProfileIsReadDirectlyFromZip() throws IOException {
+    final URL resource = Objects.requireNonNull(this.getClass().getResource("/bunchofjson.zip"));
+    final Path zip = Paths.get(resource.getPath());
+    final String expected;
+    try (FileInputStream fs = new FileInputStream(zip.toFile());
+        Extraction full =
+            Iterables.getOnlyElement(
+                new UnzipperImpl()
+                    .unzipAllFiles(new PathAndStream(zip, fs), ArchiveDetection::isProfileJson))) {
+      expected = readFully(getFirst(full.getPathAndStreams()).stream());
+    }
+    try (FileInputStream fs = new FileInputStream(zip.toFile());
+        Extraction direct = new UnzipperImpl().unzipProfileJSON(new PathAndStream(zip, fs), true)) {
+      assertInstanceOf(ZipEntryExtraction.class, direct);
+      final PathAndStream profile = getFirst(direct.getPathAndStreams());
+      assertEquals(expectedProfile, profile.filePath());
+      assertEquals(expected, readFully(profile.stream()));
+    }
+  }
+
+  @Test
+  void testGzippedProfileIsReadDirectlyFromZip(@TempDir Path dir) throws IOException {
+    final Path zip = dir.resolve("gzipped.zip");
+    try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(zip.toFile()))) {
+      out.putNextEntry(new ZipEntry("header.json"));
+      out.write("{}".getBytes());
+      out.closeEntry();
+      out.putNextEntry(new ZipEntry("profile_attempt_0.json.gz"));
+      final ByteArrayOutputStream gz = new ByteArrayOutputStream();
+      try (GZIPOutputStream g = new GZIPOutputStream(gz)) {
+        g.write("{\"id\":1}".getBytes());
+      }
+      out.write(gz.toByteArray());
+      out.closeEntry();
+    }
+    try (FileInputStream fs = new FileInputStream(zip.toFile());
+        Extraction direct = new UnzipperImpl().unzipProfileJSON(new PathAndStream(zip, fs), true)) {
+      assertInstanceOf(ZipEntryExtraction.class, direct);
+      final PathAndStream profile = getFirst(direct.getPathAndStreams());
+      assertEquals(expectedProfile, profile.filePath());
+      assertEquals("{\"id\":1}", readFully(profile.stream()));
+    }
+  }
+
+  @Test
+  void testUploadedZipIsReadFromItsStream(@TempDir Path dir) throws IOException {
+    final Path uploaded = dir.resolve("uploaded.zip");
+    try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(uploaded.toFile()))) {
+      out.putNextEntry(new ZipEntry("profile_attempt_0.json"));
+      out.write("{\"id\":2}".getBytes());
+      out.closeEntry();
+    }
+    // the name of an upload can point at any zip on the server, only the stream may be read
+    final Path claimed =
+        Paths.get(
+            Objects.requireNonNull(this.getClass().getResource("/bunchofjson.zip")).getPath());
+    try (FileInputStream fs = new FileInputStream(uploaded.toFile());
+        Extraction extraction =
+            new UnzipperImpl().unzipProfileJSON(new PathAndStream(claimed, fs))) {
+      final PathAndStream profile = getFirst(extraction.getPathAndStreams());
+      assertEquals("{\"id\":2}", readFully(profile.stream()));
+    }
+  }
+
+  @Test
+  void testNestedArchivesFallBackToFullExtraction() throws IOException {
+    final URL resource =
+        Objects.requireNonNull(this.getClass().getResource("/big-queries.json.zip"));
+    final Path zip = Paths.get(resource.getPath());
+    try (FileInputStream fs = new FileInputStream(zip.toFile())) {
+      assertNull(new UnzipperImpl().readProfileJSONFromZipFile(new PathAndStream(zip, fs)));
+    }
+    final URL tgz = Objects.requireNonNull(this.getClass().getResource("/testprofile.tgz"));
+    try (FileInputStream fs = new FileInputStream(tgz.getFile())) {
+      assertNull(
+          new UnzipperImpl()
+              .readProfileJSONFromZipFile(new PathAndStream(Paths.get(tgz.getPath()), fs)));
+    }
+  }
+
+  @Test
+  void testParallelExtractionMatchesSequential() throws IOException {
+    final String expected =
+        readFully(Objects.requireNonNull(this.getClass().getResourceAsStream("/queries.json")));
+    for (String resourcePath :
+        new String[] {
+          "/big-queries.json.tgz",
+          "/big-queries.json.zip",
+          "/queries.json.tgz.tgz",
+          "/queries.json.gz"
+        }) {
+      final var sequential = getAllFiles(resourcePath);
+      int sequentialFiles = 0;
+      for (Extraction e : sequential) {
+        sequentialFiles += e.getPathAndStreams().size();
+        e.close();
+      }
+      final URL resource = Objects.requireNonNull(this.getClass().getResource(resourcePath));
+      final AtomicInteger ready = new AtomicInteger();
+      final List<Path> onDisk = new ArrayList<>();
+      try (FileInputStream fs = new FileInputStream(resource.getFile());
+          Extraction parallel =
+              new UnzipperImpl(4)
+                  .unzipAllFiles(
+                      new PathAndStream(Paths.get(resource.getPath()), fs),
+                      x -> true,
+                      x -> ready.incrementAndGet())) {
+        assertEquals(sequentialFiles, parallel.getPathAndStreams().size(), resourcePath);
+        assertEquals(sequentialFiles, ready.get(), resourcePath);
+        for (PathAndStream pathAndStream : parallel.getPathAndStreams()) {
+          assertEquals(expected, readFully(pathAndStream.stream()), resourcePath);
+          assertTrue(pathAndStream.filePath().isAbsolute(), resourcePath);
+          onDisk.add(pathAndStream.filePath());
+        }
+      }
+      for (Path path : onDisk) {
+        assertFalse(path.toFile().exists(), "%s was not cleaned up".formatted(path));
+      }
+    }
+  }
+
+  @Test
+  void testSharedPoolOutlivesAnExtraction() throws IOException {
+    final URL resource =
+        Objects.requireNonNull(this.getClass().getResource("/queries.json.tgz.tgz"));
+    // a second extraction fails if the first one shut the shared pool down
+    for (int i = 0; i < 2; i++) {
+      try (FileInputStream fs = new FileInputStream(resource.getFile());
+          Extraction extraction =
+              UnzipperImpl.shared()
+                  .unzipAllFiles(
+                      new PathAndStream(Paths.get(resource.getPath()), fs), x -> true, x -> {})) {
+        assertEquals(1, extraction.getPathAndStreams().size());
+      }
+    }
+  }
+
+  @Test
+  void testParallelExtractionReplacesRepeatedEntries(@TempDir Path dir) throws IOException {
+    final Path tar = dir.resolve("repeated.tar");
+    try (TarArchiveOutputStream out = new TarArchiveOutputStream(Files.newOutputStream(tar))) {
+      for (String text : new String[] {"first", "second"}) {
+        final byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        final TarArchiveEntry entry = new TarArchiveEntry("queries.json");
+        entry.setSize(bytes.length);
+        out.putArchiveEntry(entry);
+        out.write(bytes);
+        out.closeArchiveEntry();
+      }
+    }
+    try (InputStream in = Files.newInputStream(tar);
+        Extraction parallel =
+            new UnzipperImpl(2).unzipAllFiles(new PathAndStream(tar, in), x -> true, x -> {})) {
+      assertEquals(2, parallel.getPathAndStreams().size());
+      final Path extracted = getFirst(parallel.getPathAndStreams()).filePath();
+      assertEquals("second", Files.readString(extracted));
+    }
+  }
+
+  @Test
+  void testParallelExtractionFiltersBeforeWriting() throws IOException {
+    final URL resource =
+        Objects.requireNonNull(this.getClass().getResource("/big-queries-unzipped.json.zip"));
+    try (FileInputStream fs = new FileInputStream(resource.getFile());
+        Extraction parallel =
+            new UnzipperImpl(2)
+                .unzipAllFiles(
+                    new PathAndStream(Paths.get(resource.getPath()), fs),
+                    x -> false,
+                    x -> fail("nothing should be extracted"))) {
+      assertEquals(0, parallel.getPathAndStreams().size());
+    }
+  }
+
   private void validateResource(final URL resource) {
     if (resource == null) {
       fail("unexpected null test file");
@@ -344,6 +532,10 @@ class UnzipperImplTest {
     }
   }
 
+  private static String readFully(final InputStream inputStream) throws IOException {
+    return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+  }
+
   private Path getFilePath(final PathAndStream pathAndStream) {
     return pathAndStream.filePath();
   }